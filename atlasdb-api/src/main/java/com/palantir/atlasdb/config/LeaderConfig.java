@@ -46,6 +46,16 @@ public abstract class LeaderConfig {
         return new File("var/data/paxos/acceptor");
     }
 
+    /**
+     * Whether the acceptor and learner logs should be kept in append-only segment files rather than one file per
+     * round. Existing logs are migrated on startup; the migration cannot be undone, so a node that has run with this
+     * enabled cannot be downgraded to a version without it.
+     */
+    @Value.Default
+    public boolean useSegmentedPaxosLog() {
+        return false;
+    }
+
     public abstract String localServer();
 
     @Size(min = 1)
@@ -77,6 +87,26 @@ public abstract class LeaderConfig {
         return 5000L;
     }
 
+    /**
+     * How long a successful leadership confirmation lets the leader answer leadership checks without contacting the
+     * other nodes. Acceptors refuse to start a new round for this long after confirming a leader, and for this long
+     * plus {@link #leaderLeaseClockDriftMarginMs()} after starting up, so a failed leader is only replaced after its
+     * lease expires. Zero disables leases; it must be set to the same value on every node.
+     */
+    @Value.Default
+    public long leaderLeaseMs() {
+        return 0L;
+    }
+
+    /**
+     * The part of {@link #leaderLeaseMs()} that the leader does not use, to allow for the clocks of different nodes
+     * running at different rates.
+     */
+    @Value.Default
+    public long leaderLeaseClockDriftMarginMs() {
+        return 100L;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(quorumSize() > leaders().size() / 2,
@@ -91,6 +121,12 @@ public abstract class LeaderConfig {
                 "Learner log directory '%s' does not exist and cannot be created.", learnerLogDir());
         Preconditions.checkArgument(acceptorLogDir().exists() || acceptorLogDir().mkdirs(),
                 "Acceptor log directory '%s' does not exist and cannot be created.", acceptorLogDir());
+        Preconditions.checkArgument(leaderLeaseMs() >= 0 && leaderLeaseClockDriftMarginMs() >= 0,
+                "The leaderLeaseMs '%s' and leaderLeaseClockDriftMarginMs '%s' must not be negative.",
+                leaderLeaseMs(), leaderLeaseClockDriftMarginMs());
+        Preconditions.checkArgument(leaderLeaseMs() == 0 || leaderLeaseMs() > leaderLeaseClockDriftMarginMs(),
+                "The leaderLeaseMs '%s' must be zero or greater than the leaderLeaseClockDriftMarginMs '%s'.",
+                leaderLeaseMs(), leaderLeaseClockDriftMarginMs());
     }
 
     @Value.Derived
@@ -393,6 +393,31 @@ public interface KeyValueService extends AutoCloseable {
             RangeRequest rangeRequest,
             @QueryParam("timestamp") long timestamp) throws InsufficientConsistencyException;
 
+    /**
+     * Gets timestamp values and the latest value below a timestamp from the key-value store in one
+     * scan. For each cell, this returns all associated timestamps &lt; given_ts, as
+     * {@link #getRangeOfTimestamps} does, together with the value written at the greatest of them,
+     * as {@link #getRange} would return it.
+     * <p>
+     * This has the same consistency guarantees as {@link #getRangeOfTimestamps}. It lets sweep read
+     * each range once instead of scanning it separately for values and for timestamps.
+     *
+     * @param tableRef the name of the table to read from.
+     * @param rangeRequest the range to load.
+     * @param timestamp the maximum timestamp to load.
+     *
+     * @throws InsufficientConsistencyException if not all hosts respond successfully
+     */
+    @POST
+    @Path("get-range-of-timestamps-and-latest-values")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent
+    ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            @QueryParam("tableRef") TableReference tableRef,
+            RangeRequest rangeRequest,
+            @QueryParam("timestamp") long timestamp) throws InsufficientConsistencyException;
+
     /**
      * For each range passed in the result will have the first page of results for that range.
      * <p>
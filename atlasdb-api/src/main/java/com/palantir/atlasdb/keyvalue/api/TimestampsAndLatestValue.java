@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * All timestamps of a cell below some timestamp, together with the value written at the greatest of them.
+ * @see KeyValueService#getRangeOfTimestampsAndLatestValues
+ */
+public final class TimestampsAndLatestValue implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static TimestampsAndLatestValue create(Set<Long> timestamps, @Nullable Value latestValue) {
+        return new TimestampsAndLatestValue(ImmutableSortedSet.copyOf(timestamps), latestValue);
+    }
+
+    /**
+     * The timestamps of the cell, in ascending order.
+     */
+    @Nonnull
+    public Set<Long> getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * The value at the greatest timestamp, or null if it could not be read along with the timestamps.
+     */
+    @Nullable
+    public Value getLatestValue() {
+        return latestValue;
+    }
+
+    private final ImmutableSortedSet<Long> timestamps;
+    private final Value latestValue;
+
+    private TimestampsAndLatestValue(ImmutableSortedSet<Long> timestamps, @Nullable Value latestValue) {
+        this.timestamps = timestamps;
+        this.latestValue = latestValue;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TimestampsAndLatestValue other = (TimestampsAndLatestValue) obj;
+        return timestamps.equals(other.timestamps)
+                && Objects.equals(latestValue, other.latestValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamps, latestValue);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("timestamps", timestamps)
+                .add("latestValue", latestValue)
+                .toString();
+    }
+}
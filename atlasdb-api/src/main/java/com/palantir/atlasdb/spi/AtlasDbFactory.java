@@ -27,4 +27,12 @@ public interface AtlasDbFactory {
 
     TimestampService createTimestampService(KeyValueService rawKvs);
 
+    /**
+     * Whether the key value service's putUnlessExists writes a batch of cells in a single round trip.
+     * Group commit is only used if so: where putUnlessExists is a check-and-set per cell, batching commits
+     * serialises them behind each other instead of saving round trips.
+     */
+    default boolean supportsBatchedPutUnlessExists() {
+        return false;
+    }
 }
@@ -32,6 +32,7 @@ import static org.mockito.Mockito.verify;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -49,6 +50,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.AtlasDbConstants;
@@ -57,6 +60,7 @@ import com.palantir.atlasdb.config.LockLeader;
 import com.palantir.atlasdb.containers.CassandraContainer;
 import com.palantir.atlasdb.containers.Containers;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueServiceTest;
@@ -209,6 +213,28 @@ public class CassandraKeyValueServiceIntegrationTest extends AbstractKeyValueSer
         }
     }
 
+    @Test
+    public void asyncReadsSeeAsyncWrites() throws Exception {
+        CassandraKeyValueService ckvs = (CassandraKeyValueService) keyValueService;
+        ckvs.createTable(testTable, tableMetadata);
+        Cell firstCell = Cell.create(row0, column0);
+        Cell secondCell = Cell.create(row1, column1);
+        Map<Cell, byte[]> values = ImmutableMap.of(firstCell, value00, secondCell, value12);
+
+        ckvs.putAsync(testTable, values, TEST_TIMESTAMP).get();
+
+        Map<Cell, Long> timestampByCell = ImmutableMap.of(
+                firstCell, TEST_TIMESTAMP + 1,
+                secondCell, TEST_TIMESTAMP + 1);
+        assertThat(ckvs.getAsync(testTable, timestampByCell).get(), is(ckvs.get(testTable, timestampByCell)));
+        assertThat(ckvs.getAsync(testTable, timestampByCell).get().get(secondCell).getContents(), is(value12));
+        List<byte[]> rows = ImmutableList.of(row0, row1);
+        assertThat(ckvs.getRowsAsync(testTable, rows, ColumnSelection.all(), TEST_TIMESTAMP + 1).get(),
+                is(ckvs.getRows(testTable, rows, ColumnSelection.all(), TEST_TIMESTAMP + 1)));
+
+        ckvs.dropTable(testTable);
+    }
+
     private void grabLock(SchemaMutationLockTestTools lockTestTools) throws TException {
         lockTestTools.setLocksTableValue(LOCK_ID, 0);
     }
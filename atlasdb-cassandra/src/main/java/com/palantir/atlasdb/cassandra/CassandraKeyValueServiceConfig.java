@@ -148,6 +148,24 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 64;
     }
 
+    /**
+     * Number of token ranges that a single range scan reads from concurrently. Rows are still returned in order.
+     * 1 reads the whole range serially.
+     */
+    @Value.Default
+    public int rangeScanConcurrency() {
+        return 1;
+    }
+
+    /**
+     * Maximum number of non-blocking connections to each host used by the asynchronous read and write methods.
+     * Each connection carries one request at a time; further requests queue without holding a thread.
+     */
+    @Value.Default
+    public int asyncPoolSize() {
+        return 128;
+    }
+
     @Value.Default
     public boolean scyllaDb() {
         return false;
@@ -0,0 +1,382 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.apache.cassandra.thrift.AuthenticationRequest;
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.async.TAsyncMethodCall;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.atlasdb.cassandra.CassandraCredentialsConfig;
+import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientFactory.ClientCreationFailedException;
+
+/**
+ * Runs thrift calls against Cassandra over non-blocking connections. All connections share a single selector
+ * thread, so the number of calls in flight is bounded by {@link CassandraKeyValueServiceConfig#asyncPoolSize()}
+ * per host rather than by the number of threads. Calls beyond that limit wait in a queue without holding a thread.
+ *
+ * Each connection carries one call at a time. Returned futures are completed on the selector thread, so any
+ * listener that does more than trivial work should be attached with its own executor.
+ *
+ * Thrift has no non-blocking SSL transport; callers are expected to fall back to {@link CassandraClientPool} when
+ * {@link CassandraKeyValueServiceConfig#usingSsl()} is set.
+ */
+public class CassandraAsyncClientPool {
+    private static final Logger log = LoggerFactory.getLogger(CassandraAsyncClientPool.class);
+
+    /**
+     * Sends a single thrift call using the given client.
+     */
+    public interface Sender<C extends TAsyncMethodCall> {
+        void send(Cassandra.AsyncClient client, AsyncMethodCallback<C> callback) throws TException;
+    }
+
+    /**
+     * Reads the result of a completed thrift call. Server-side errors are thrown from here.
+     */
+    public interface Receiver<C extends TAsyncMethodCall, V> {
+        V receive(C call) throws Exception;
+    }
+
+    private final CassandraKeyValueServiceConfig config;
+    private final TProtocolFactory protocolFactory = new TBinaryProtocol.Factory();
+    private final Map<InetSocketAddress, HostConnections> connectionsByHost = Maps.newConcurrentMap();
+    private final Set<PendingCall<?, ?>> pendingCalls = Sets.newConcurrentHashSet();
+
+    private TAsyncClientManager clientManager;
+    private volatile boolean closed = false;
+
+    public CassandraAsyncClientPool(CassandraKeyValueServiceConfig config) {
+        Preconditions.checkArgument(!config.usingSsl(), "Non-blocking connections do not support SSL");
+        this.config = config;
+    }
+
+    /**
+     * Sends a call to the given host and returns a future for its result. Calls that fail because of a broken
+     * connection are retried on a new connection to the same host a limited number of times.
+     */
+    public <C extends TAsyncMethodCall, V> ListenableFuture<V> run(InetSocketAddress host,
+                                                                   Sender<C> sender,
+                                                                   Receiver<C, V> receiver) {
+        PendingCall<C, V> call = new PendingCall<>(sender, receiver);
+        if (closed) {
+            call.future.setException(new IllegalStateException("Async client pool has been closed"));
+            return call.future;
+        }
+        pendingCalls.add(call);
+        call.future.addListener(() -> pendingCalls.remove(call), MoreExecutors.directExecutor());
+        connectionsFor(host).submit(call);
+        return call.future;
+    }
+
+    public void shutdown() {
+        closed = true;
+        for (HostConnections connections : connectionsByHost.values()) {
+            connections.shutdown();
+        }
+        synchronized (this) {
+            if (clientManager != null) {
+                clientManager.stop();
+            }
+        }
+        for (PendingCall<?, ?> call : pendingCalls) {
+            call.future.setException(new IllegalStateException("Async client pool was closed"));
+        }
+    }
+
+    private HostConnections connectionsFor(InetSocketAddress host) {
+        HostConnections connections = connectionsByHost.get(host);
+        if (connections == null) {
+            connectionsByHost.putIfAbsent(host, new HostConnections(host));
+            connections = connectionsByHost.get(host);
+        }
+        return connections;
+    }
+
+    private synchronized TAsyncClientManager getClientManager() throws IOException {
+        if (clientManager == null) {
+            clientManager = new TAsyncClientManager();
+        }
+        return clientManager;
+    }
+
+    private static final class Connection {
+        final TNonblockingSocket socket;
+        final Cassandra.AsyncClient client;
+
+        Connection(TNonblockingSocket socket, Cassandra.AsyncClient client) {
+            this.socket = socket;
+            this.client = client;
+        }
+
+        void close() {
+            socket.close();
+        }
+    }
+
+    private static final class PendingCall<C extends TAsyncMethodCall, V> {
+        final Sender<C> sender;
+        final Receiver<C, V> receiver;
+        final SettableFuture<V> future = SettableFuture.create();
+        int attempts = 0;
+
+        PendingCall(Sender<C> sender, Receiver<C, V> receiver) {
+            this.sender = sender;
+            this.receiver = receiver;
+        }
+    }
+
+    private final class HostConnections {
+        private final InetSocketAddress host;
+        private final Deque<Connection> idle = new ArrayDeque<>();
+        private final Queue<PendingCall<?, ?>> waiting = new ArrayDeque<>();
+        private int open = 0;
+
+        HostConnections(InetSocketAddress host) {
+            this.host = host;
+        }
+
+        void submit(PendingCall<?, ?> call) {
+            Connection connection;
+            synchronized (this) {
+                connection = idle.pollFirst();
+                if (connection == null) {
+                    if (open >= config.asyncPoolSize()) {
+                        waiting.add(call);
+                        return;
+                    }
+                    open++;
+                }
+            }
+            if (connection == null) {
+                connect(call);
+            } else {
+                send(connection, call);
+            }
+        }
+
+        /**
+         * Hands a healthy connection to the next waiting call, or parks it.
+         */
+        void release(Connection connection) {
+            PendingCall<?, ?> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    if (closed) {
+                        open--;
+                        connection.close();
+                    } else {
+                        idle.addFirst(connection);
+                    }
+                    return;
+                }
+            }
+            send(connection, next);
+        }
+
+        /**
+         * Closes a broken connection, and opens a replacement if a call is waiting for one.
+         */
+        void discard(Connection connection) {
+            if (connection != null) {
+                connection.close();
+            }
+            PendingCall<?, ?> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    open--;
+                    return;
+                }
+            }
+            connect(next);
+        }
+
+        synchronized void shutdown() {
+            for (Connection connection : idle) {
+                connection.close();
+                open--;
+            }
+            idle.clear();
+            waiting.clear();
+        }
+
+        private void connect(PendingCall<?, ?> call) {
+            Connection connection;
+            try {
+                TNonblockingSocket socket = new TNonblockingSocket(
+                        host.getHostString(), host.getPort(), config.socketTimeoutMillis());
+                Cassandra.AsyncClient client = new Cassandra.AsyncClient(protocolFactory, getClientManager(), socket);
+                client.setTimeout(config.socketQueryTimeoutMillis());
+                connection = new Connection(socket, client);
+            } catch (IOException e) {
+                discard(null);
+                failOrRetry(call, new ClientCreationFailedException(
+                        String.format("Failed to construct async client for %s/%s", host, config.keyspace()), e));
+                return;
+            }
+            login(connection, call);
+        }
+
+        private void login(Connection connection, PendingCall<?, ?> call) {
+            if (!config.credentials().isPresent()) {
+                setKeyspace(connection, call);
+                return;
+            }
+            CassandraCredentialsConfig credentials = config.credentials().get();
+            AuthenticationRequest request = new AuthenticationRequest(ImmutableMap.of(
+                    "username", credentials.username(),
+                    "password", credentials.password()));
+            invoke(connection,
+                    (client, callback) -> client.login(request, callback),
+                    (Cassandra.AsyncClient.login_call response) -> {
+                        response.getResult();
+                        return null;
+                    },
+                    new Callback<Void>() {
+                        @Override
+                        public void onSuccess(Void result) {
+                            setKeyspace(connection, call);
+                        }
+
+                        @Override
+                        public void onFailure(Exception e, boolean connectionUsable) {
+                            log.error("Exception thrown attempting to authenticate with config provided credentials",
+                                    e);
+                            discard(connection);
+                            failOrRetry(call, e);
+                        }
+                    });
+        }
+
+        private void setKeyspace(Connection connection, PendingCall<?, ?> call) {
+            invoke(connection,
+                    (client, callback) -> client.set_keyspace(config.keyspace(), callback),
+                    (Cassandra.AsyncClient.set_keyspace_call response) -> {
+                        response.getResult();
+                        return null;
+                    },
+                    new Callback<Void>() {
+                        @Override
+                        public void onSuccess(Void result) {
+                            log.debug("Created new async client for {}/{}", host, config.keyspace());
+                            send(connection, call);
+                        }
+
+                        @Override
+                        public void onFailure(Exception e, boolean connectionUsable) {
+                            discard(connection);
+                            failOrRetry(call, e);
+                        }
+                    });
+        }
+
+        private <C extends TAsyncMethodCall, V> void send(Connection connection, PendingCall<C, V> call) {
+            invoke(connection, call.sender, call.receiver, new Callback<V>() {
+                @Override
+                public void onSuccess(V result) {
+                    release(connection);
+                    call.future.set(result);
+                }
+
+                @Override
+                public void onFailure(Exception e, boolean connectionUsable) {
+                    if (connectionUsable) {
+                        release(connection);
+                    } else {
+                        discard(connection);
+                    }
+                    failOrRetry(call, e);
+                }
+            });
+        }
+
+        private void failOrRetry(PendingCall<?, ?> call, Exception e) {
+            call.attempts++;
+            if (!closed
+                    && call.attempts < CassandraClientPool.MAX_TRIES_SAME_HOST
+                    && CassandraClientPool.isRetriableException(e)) {
+                log.warn("Error occurred talking to cassandra host {}. Attempt {} of {}.",
+                        host, call.attempts, CassandraClientPool.MAX_TRIES_SAME_HOST, e);
+                submit(call);
+            } else {
+                call.future.setException(e);
+            }
+        }
+    }
+
+    private interface Callback<V> {
+        void onSuccess(V result);
+
+        /**
+         * @param connectionUsable whether the error came back from the server, leaving the connection usable
+         */
+        void onFailure(Exception e, boolean connectionUsable);
+    }
+
+    private static <C extends TAsyncMethodCall, V> void invoke(Connection connection,
+                                                               Sender<C> sender,
+                                                               Receiver<C, V> receiver,
+                                                               Callback<V> callback) {
+        try {
+            sender.send(connection.client, new AsyncMethodCallback<C>() {
+                @Override
+                public void onComplete(C response) {
+                    V result;
+                    try {
+                        result = receiver.receive(response);
+                    } catch (Exception e) {
+                        callback.onFailure(e, !connection.client.hasError());
+                        return;
+                    }
+                    callback.onSuccess(result);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    callback.onFailure(e, false);
+                }
+            });
+        } catch (TException | RuntimeException e) {
+            // the call never reached the selector, so the connection cannot be trusted
+            callback.onFailure(e, false);
+        }
+    }
+}
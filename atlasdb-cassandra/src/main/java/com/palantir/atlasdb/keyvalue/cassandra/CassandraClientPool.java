@@ -52,12 +52,14 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeMap;
 import com.google.common.collect.Sets;
 import com.google.common.io.BaseEncoding;
+import com.google.common.primitives.Bytes;
 import com.google.common.primitives.UnsignedBytes;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
@@ -314,6 +316,28 @@ public class CassandraClientPool {
         return Optional.ofNullable(pools.get(randomLivingHost));
     }
 
+    /**
+     * Returns the row names after {@code startInclusive} and before {@code endExclusive} at which a token range of
+     * the ring starts, in order. An empty end means the end of the ring. Splitting a range scan at these rows gives
+     * sub-ranges that are each owned by a single set of replicas.
+     */
+    public List<byte[]> getTokenRangeStartsWithin(byte[] startInclusive, byte[] endExclusive) {
+        List<byte[]> starts = Lists.newArrayList();
+        for (Range<LightweightOppToken> range : tokenMap.asMapOfRanges().keySet()) {
+            if (!range.hasUpperBound()) {
+                continue;
+            }
+            // token ranges are open below and closed above, so the next range starts just after the upper bound
+            byte[] start = Bytes.concat(range.upperEndpoint().bytes, new byte[] {0});
+            if (UnsignedBytes.lexicographicalComparator().compare(start, startInclusive) > 0
+                    && (endExclusive.length == 0
+                            || UnsignedBytes.lexicographicalComparator().compare(start, endExclusive) < 0)) {
+                starts.add(start);
+            }
+        }
+        return starts;
+    }
+
     public InetSocketAddress getRandomHostForKey(byte[] key) {
         List<InetSocketAddress> hostsForKey = tokenMap.get(new LightweightOppToken(key));
 
@@ -37,6 +37,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.cassandra.thrift.CASResult;
+import org.apache.cassandra.thrift.Cassandra;
 import org.apache.cassandra.thrift.Cassandra.Client;
 import org.apache.cassandra.thrift.CfDef;
 import org.apache.cassandra.thrift.Column;
@@ -78,6 +79,9 @@ import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.TreeMultimap;
 import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
@@ -93,6 +97,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueServices.AllTimestampsCollector;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueServices.StartTsResultsCollector;
@@ -103,6 +108,7 @@ import com.palantir.atlasdb.keyvalue.cassandra.paging.CassandraRangePagingIterab
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnFetchMode;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnGetter;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.CqlColumnGetter;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.ParallelRangeIterator;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.RowGetter;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ThriftColumnGetter;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
@@ -156,6 +162,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
 
     private final TracingQueryRunner queryRunner;
     private final CassandraTables cassandraTables;
+    private CassandraAsyncClientPool asyncClientPool;
 
     public static CassandraKeyValueService create(
             CassandraKeyValueServiceConfigManager configManager,
@@ -492,15 +499,62 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                                                  final ThreadSafeResultVisitor visitor,
                                                                  final ConsistencyLevel consistency) {
         final ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
+        List<Callable<Void>> tasks = Lists.newArrayList();
+        for (Entry<byte[], List<Cell>> columnAndCells : partitionByColumn(host, tableRef, cells)) {
+            final byte[] col = columnAndCells.getKey();
+            final List<Cell> partition = columnAndCells.getValue();
+            Callable<Void> multiGetCallable = () -> clientPool.runWithRetryOnHost(host,
+                    new FunctionCheckedException<Client, Void, Exception>() {
+                        @Override
+                        public Void apply(Client client) throws Exception {
+                            SlicePredicate predicate = getTimestampBoundedPredicate(col, startTs, loadAllTs);
+                            List<ByteBuffer> rowNames = getRowNames(partition);
+
+                            if (log.isTraceEnabled()) {
+                                log.trace("Requesting {} cells from {} {}starting at timestamp {} on {}",
+                                        partition.size(),
+                                        tableRef,
+                                        loadAllTs ? "for all timestamps " : "",
+                                        startTs,
+                                        host);
+                            }
+
+                            Map<ByteBuffer, List<ColumnOrSuperColumn>> results =
+                                    multigetInternal(client, tableRef, rowNames, colFam, predicate, consistency);
+                            visitor.visit(results);
+                            return null;
+                        }
+
+                        @Override
+                        public String toString() {
+                            return "multiget_slice(" + host + ", " + colFam + ", "
+                                    + partition.size() + " cells" + ")";
+                        }
+
+                    });
+            tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
+                    "Atlas loadWithTs " + partition.size() + " cells from " + tableRef + " on " + host,
+                    multiGetCallable));
+        }
+        return tasks;
+    }
+
+    /**
+     * Groups the cells by column, since a single multiget can only select one column, and splits each group into
+     * batches of at most {@code fetchBatchCount} rows.
+     */
+    private List<Entry<byte[], List<Cell>>> partitionByColumn(InetSocketAddress host,
+                                                              TableReference tableRef,
+                                                              Collection<Cell> cells) {
         Multimap<byte[], Cell> cellsByCol =
                 TreeMultimap.create(UnsignedBytes.lexicographicalComparator(), Ordering.natural());
         for (Cell cell : cells) {
             cellsByCol.put(cell.getColumnName(), cell);
         }
-        List<Callable<Void>> tasks = Lists.newArrayList();
+        List<Entry<byte[], List<Cell>>> batches = Lists.newArrayList();
         int fetchBatchCount = configManager.getConfig().fetchBatchCount();
         for (Entry<byte[], Collection<Cell>> entry : Multimaps.asMap(cellsByCol).entrySet()) {
-            final byte[] col = entry.getKey();
+            byte[] col = entry.getKey();
             Collection<Cell> columnCells = entry.getValue();
             if (columnCells.size() > fetchBatchCount) {
                 log.warn("Re-batching in getLoadWithTsTasksForSingleHost a call to {} for table {} that attempted to "
@@ -510,50 +564,142 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                         columnCells.size(),
                         CassandraKeyValueServices.getFilteredStackTrace("com.palantir"));
             }
-            for (final List<Cell> partition : Lists.partition(ImmutableList.copyOf(columnCells), fetchBatchCount)) {
-                Callable<Void> multiGetCallable = () -> clientPool.runWithRetryOnHost(host,
-                        new FunctionCheckedException<Client, Void, Exception>() {
-                            @Override
-                            public Void apply(Client client) throws Exception {
-                                ByteBuffer start = CassandraKeyValueServices.makeCompositeBuffer(col, startTs - 1);
-                                ByteBuffer end = CassandraKeyValueServices.makeCompositeBuffer(col, -1);
-                                SliceRange slice = new SliceRange(start, end, false, loadAllTs ? Integer.MAX_VALUE : 1);
-                                SlicePredicate predicate = new SlicePredicate();
-                                predicate.setSlice_range(slice);
-
-                                List<ByteBuffer> rowNames = Lists.newArrayListWithCapacity(partition.size());
-                                for (Cell c : partition) {
-                                    rowNames.add(ByteBuffer.wrap(c.getRowName()));
-                                }
-
-                                if (log.isTraceEnabled()) {
-                                    log.trace("Requesting {} cells from {} {}starting at timestamp {} on {}",
-                                            partition.size(),
-                                            tableRef,
-                                            loadAllTs ? "for all timestamps " : "",
-                                            startTs,
-                                            host);
-                                }
-
-                                Map<ByteBuffer, List<ColumnOrSuperColumn>> results =
-                                        multigetInternal(client, tableRef, rowNames, colFam, predicate, consistency);
-                                visitor.visit(results);
-                                return null;
-                            }
+            for (List<Cell> partition : Lists.partition(ImmutableList.copyOf(columnCells), fetchBatchCount)) {
+                batches.add(Maps.immutableEntry(col, partition));
+            }
+        }
+        return batches;
+    }
 
-                            @Override
-                            public String toString() {
-                                return "multiget_slice(" + host + ", " + colFam + ", "
-                                        + partition.size() + " cells" + ")";
-                            }
+    /**
+     * Asynchronous version of {@link #get(TableReference, Map)}. Requests are sent over non-blocking connections,
+     * so no thread is held while they are in flight. The returned future may complete on the I/O thread, so
+     * listeners that do real work should be attached with their own executor.
+     */
+    public ListenableFuture<Map<Cell, Value>> getAsync(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        if (timestampByCell.isEmpty()) {
+            return Futures.immediateFuture(ImmutableMap.of());
+        }
+        if (configManager.getConfig().usingSsl()) {
+            return MoreExecutors.listeningDecorator(executor).submit(() -> get(tableRef, timestampByCell));
+        }
 
-                        });
-                tasks.add(AnnotatedCallable.wrapWithThreadName(AnnotationType.PREPEND,
-                        "Atlas loadWithTs " + partition.size() + " cells from " + tableRef + " on " + host,
-                        multiGetCallable));
+        SetMultimap<Long, Cell> cellsByTs = Multimaps.invertFrom(
+                Multimaps.forMap(timestampByCell), HashMultimap.<Long, Cell>create());
+        List<ListenableFuture<Map<Cell, Value>>> futures = Lists.newArrayListWithCapacity(cellsByTs.keySet().size());
+        for (long ts : cellsByTs.keySet()) {
+            futures.add(loadWithTsAsync(tableRef, cellsByTs.get(ts), ts));
+        }
+        return mergeAsync(futures);
+    }
+
+    /**
+     * Asynchronous version of {@link #getRows(TableReference, Iterable, ColumnSelection, long)}. See
+     * {@link #getAsync(TableReference, Map)}.
+     */
+    public ListenableFuture<Map<Cell, Value>> getRowsAsync(TableReference tableRef,
+                                                           Iterable<byte[]> rows,
+                                                           ColumnSelection selection,
+                                                           long startTs) {
+        if (configManager.getConfig().usingSsl()) {
+            return MoreExecutors.listeningDecorator(executor).submit(
+                    () -> getRows(tableRef, rows, selection, startTs));
+        }
+        if (!selection.allColumnsSelected()) {
+            Set<Cell> cells = Sets.newHashSet();
+            for (byte[] row : rows) {
+                for (byte[] col : selection.getSelectedColumns()) {
+                    cells.add(Cell.create(row, col));
+                }
             }
+            return loadWithTsAsync(tableRef, cells, startTs);
         }
-        return tasks;
+
+        SlicePredicate pred = new SlicePredicate();
+        pred.setSlice_range(new SliceRange(
+                ByteBuffer.wrap(PtBytes.EMPTY_BYTE_ARRAY),
+                ByteBuffer.wrap(PtBytes.EMPTY_BYTE_ARRAY),
+                false,
+                Integer.MAX_VALUE));
+        ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
+        StartTsResultsCollector collector = new StartTsResultsCollector(startTs);
+        List<ListenableFuture<Void>> futures = Lists.newArrayList();
+        int fetchBatchCount = configManager.getConfig().fetchBatchCount();
+        for (Entry<InetSocketAddress, List<byte[]>> hostAndRows
+                : partitionByHost(rows, Functions.<byte[]>identity()).entrySet()) {
+            for (List<byte[]> batch : Lists.partition(hostAndRows.getValue(), fetchBatchCount)) {
+                List<ByteBuffer> rowNames = wrap(batch);
+                futures.add(getAsyncClientPool().run(hostAndRows.getKey(),
+                        (client, callback) -> client.multiget_slice(rowNames, colFam, pred, readConsistency, callback),
+                        (Cassandra.AsyncClient.multiget_slice_call call) -> {
+                            collector.visit(call.getResult());
+                            return null;
+                        }));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures),
+                (Function<List<Void>, Map<Cell, Value>>) ignored -> collector.collectedResults);
+    }
+
+    private ListenableFuture<Map<Cell, Value>> loadWithTsAsync(TableReference tableRef,
+                                                               Set<Cell> cells,
+                                                               long startTs) {
+        ColumnParent colFam = new ColumnParent(internalTableName(tableRef));
+        StartTsResultsCollector collector = new StartTsResultsCollector(startTs);
+        List<ListenableFuture<Void>> futures = Lists.newArrayList();
+        for (Entry<InetSocketAddress, List<Cell>> hostAndCells
+                : partitionByHost(cells, Cells.getRowFunction()).entrySet()) {
+            InetSocketAddress host = hostAndCells.getKey();
+            List<Entry<byte[], List<Cell>>> batches = partitionByColumn(host, tableRef, hostAndCells.getValue());
+            for (Entry<byte[], List<Cell>> columnAndCells : batches) {
+                SlicePredicate predicate = getTimestampBoundedPredicate(columnAndCells.getKey(), startTs, false);
+                List<ByteBuffer> rowNames = getRowNames(columnAndCells.getValue());
+                futures.add(getAsyncClientPool().run(host,
+                        (client, callback) ->
+                                client.multiget_slice(rowNames, colFam, predicate, readConsistency, callback),
+                        (Cassandra.AsyncClient.multiget_slice_call call) -> {
+                            collector.visit(call.getResult());
+                            return null;
+                        }));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures),
+                (Function<List<Void>, Map<Cell, Value>>) ignored -> collector.collectedResults);
+    }
+
+    private static ListenableFuture<Map<Cell, Value>> mergeAsync(List<ListenableFuture<Map<Cell, Value>>> futures) {
+        return Futures.transform(Futures.allAsList(futures), (Function<List<Map<Cell, Value>>, Map<Cell, Value>>)
+                results -> {
+                    Map<Cell, Value> merged = Maps.newHashMap();
+                    for (Map<Cell, Value> result : results) {
+                        merged.putAll(result);
+                    }
+                    return merged;
+                });
+    }
+
+    private synchronized CassandraAsyncClientPool getAsyncClientPool() {
+        if (asyncClientPool == null) {
+            asyncClientPool = new CassandraAsyncClientPool(configManager.getConfig());
+        }
+        return asyncClientPool;
+    }
+
+    private static SlicePredicate getTimestampBoundedPredicate(byte[] col, long startTs, boolean loadAllTs) {
+        ByteBuffer start = CassandraKeyValueServices.makeCompositeBuffer(col, startTs - 1);
+        ByteBuffer end = CassandraKeyValueServices.makeCompositeBuffer(col, -1);
+        SliceRange slice = new SliceRange(start, end, false, loadAllTs ? Integer.MAX_VALUE : 1);
+        SlicePredicate predicate = new SlicePredicate();
+        predicate.setSlice_range(slice);
+        return predicate;
+    }
+
+    private static List<ByteBuffer> getRowNames(List<Cell> cells) {
+        List<ByteBuffer> rowNames = Lists.newArrayListWithCapacity(cells.size());
+        for (Cell c : cells) {
+            rowNames.add(ByteBuffer.wrap(c.getRowName()));
+        }
+        return rowNames;
     }
 
     @Override
@@ -813,6 +959,36 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    /**
+     * Asynchronous version of {@link #put(TableReference, Map, long)}. See {@link #getAsync(TableReference, Map)}.
+     */
+    public ListenableFuture<Void> putAsync(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        if (configManager.getConfig().usingSsl()) {
+            return MoreExecutors.listeningDecorator(executor).submit(() -> {
+                put(tableRef, values, timestamp);
+                return null;
+            });
+        }
+        CassandraKeyValueServiceConfig config = configManager.getConfig();
+        List<ListenableFuture<Void>> futures = Lists.newArrayList();
+        Map<InetSocketAddress, Map<Cell, Value>> cellsByHost = partitionMapByHost(
+                KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp));
+        for (Map.Entry<InetSocketAddress, Map<Cell, Value>> hostAndValues : cellsByHost.entrySet()) {
+            for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(hostAndValues.getValue().entrySet(),
+                    config.mutationBatchCount(), config.mutationBatchSizeBytes(), tableRef, ENTRY_SIZING_FUNCTION)) {
+                Map<ByteBuffer, Map<String, List<Mutation>>> map =
+                        convertToMutations(tableRef, partition, CassandraConstants.NO_TTL);
+                futures.add(getAsyncClientPool().run(hostAndValues.getKey(),
+                        (client, callback) -> client.batch_mutate(map, writeConsistency, callback),
+                        (Cassandra.AsyncClient.batch_mutate_call call) -> {
+                            call.getResult();
+                            return null;
+                        }));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures), Functions.<Void>constant(null));
+    }
+
     @Override
     protected int getMultiPutBatchCount() {
         return configManager.getConfig().mutationBatchCount();
@@ -852,33 +1028,8 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                 int mutationBatchSizeBytes = config.mutationBatchSizeBytes();
                 for (List<Entry<Cell, Value>> partition : partitionByCountAndBytes(values, mutationBatchCount,
                         mutationBatchSizeBytes, tableRef, ENTRY_SIZING_FUNCTION)) {
-                    Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
-                    for (Map.Entry<Cell, Value> e : partition) {
-                        Cell cell = e.getKey();
-                        Column col = createColumn(cell, e.getValue(), ttl);
-
-                        ColumnOrSuperColumn colOrSup = new ColumnOrSuperColumn();
-                        colOrSup.setColumn(col);
-                        Mutation mutation = new Mutation();
-                        mutation.setColumn_or_supercolumn(colOrSup);
-
-                        ByteBuffer rowName = ByteBuffer.wrap(cell.getRowName());
-
-                        Map<String, List<Mutation>> rowPuts = map.get(rowName);
-                        if (rowPuts == null) {
-                            rowPuts = Maps.newHashMap();
-                            map.put(rowName, rowPuts);
-                        }
-
-                        List<Mutation> tableMutations = rowPuts.get(internalTableName(tableRef));
-                        if (tableMutations == null) {
-                            tableMutations = Lists.newArrayList();
-                            rowPuts.put(internalTableName(tableRef), tableMutations);
-                        }
-
-                        tableMutations.add(mutation);
-                    }
-                    batchMutateInternal(client, tableRef, map, writeConsistency);
+                    batchMutateInternal(client, tableRef, convertToMutations(tableRef, partition, ttl),
+                            writeConsistency);
                 }
                 return null;
             }
@@ -891,6 +1042,38 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         });
     }
 
+    private Map<ByteBuffer, Map<String, List<Mutation>>> convertToMutations(TableReference tableRef,
+                                                                            List<Entry<Cell, Value>> partition,
+                                                                            int ttl) {
+        Map<ByteBuffer, Map<String, List<Mutation>>> map = Maps.newHashMap();
+        for (Map.Entry<Cell, Value> e : partition) {
+            Cell cell = e.getKey();
+            Column col = createColumn(cell, e.getValue(), ttl);
+
+            ColumnOrSuperColumn colOrSup = new ColumnOrSuperColumn();
+            colOrSup.setColumn(col);
+            Mutation mutation = new Mutation();
+            mutation.setColumn_or_supercolumn(colOrSup);
+
+            ByteBuffer rowName = ByteBuffer.wrap(cell.getRowName());
+
+            Map<String, List<Mutation>> rowPuts = map.get(rowName);
+            if (rowPuts == null) {
+                rowPuts = Maps.newHashMap();
+                map.put(rowName, rowPuts);
+            }
+
+            List<Mutation> tableMutations = rowPuts.get(internalTableName(tableRef));
+            if (tableMutations == null) {
+                tableMutations = Lists.newArrayList();
+                rowPuts.put(internalTableName(tableRef), tableMutations);
+            }
+
+            tableMutations.add(mutation);
+        }
+        return map;
+    }
+
     // Overridden to batch more intelligently than the default implementation.
     @Override
     public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp)
@@ -1221,6 +1404,24 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    @Override
+    @Idempotent
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        if (configManager.getConfig().timestampsGetterBatchSize().isPresent()) {
+            // Batched timestamp reads go through CQL without values, so keep their bound on wide rows.
+            return super.getRangeOfTimestampsAndLatestValues(tableRef, rangeRequest, timestamp);
+        }
+        return getRangeWithPageCreator(
+                tableRef,
+                rangeRequest,
+                timestamp,
+                deleteConsistency,
+                TimestampsAndLatestValueExtractor.SUPPLIER);
+    }
+
     private ClosableIterator<RowResult<Set<Long>>> getTimestampsInBatchesWithPageCreator(
             TableReference tableRef,
             RangeRequest rangeRequest,
@@ -1260,6 +1461,20 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             return ClosableIterators.wrap(ImmutableList.<RowResult<U>>of().iterator());
         }
 
+        int concurrency = configManager.getConfig().rangeScanConcurrency();
+        if (concurrency > 1) {
+            List<byte[]> splitRows = clientPool.getTokenRangeStartsWithin(
+                    rangeRequest.getStartInclusive(), rangeRequest.getEndExclusive());
+            if (!splitRows.isEmpty()) {
+                List<CassandraRangePagingIterable<T, U>> subRanges = Lists.newArrayList();
+                for (RangeRequest subRange : splitAtRows(rangeRequest, splitRows)) {
+                    subRanges.add(new CassandraRangePagingIterable<>(
+                            rowGetter, columnGetter, subRange, resultsExtractor, timestamp));
+                }
+                return new ParallelRangeIterator<>(executor, concurrency, subRanges);
+            }
+        }
+
         CassandraRangePagingIterable<T, U> rowResults = new CassandraRangePagingIterable<>(
                 rowGetter,
                 columnGetter,
@@ -1271,6 +1486,17 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         return ClosableIterators.wrap(rowResults.iterator());
     }
 
+    private static List<RangeRequest> splitAtRows(RangeRequest rangeRequest, List<byte[]> splitRows) {
+        List<RangeRequest> subRanges = Lists.newArrayListWithCapacity(splitRows.size() + 1);
+        byte[] start = rangeRequest.getStartInclusive();
+        for (byte[] splitRow : splitRows) {
+            subRanges.add(rangeRequest.getBuilder().startRowInclusive(start).endRowExclusive(splitRow).build());
+            start = splitRow;
+        }
+        subRanges.add(rangeRequest.getBuilder().startRowInclusive(start).build());
+        return subRanges;
+    }
+
     @Override
     public void dropTable(final TableReference tableRef) {
         dropTables(ImmutableSet.of(tableRef));
@@ -1646,6 +1872,11 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     @Override
     public void close() {
         clientPool.shutdown();
+        synchronized (this) {
+            if (asyncClientPool != null) {
+                asyncClientPool.shutdown();
+            }
+        }
         if (compactionManager.isPresent()) {
             compactionManager.get().close();
         }
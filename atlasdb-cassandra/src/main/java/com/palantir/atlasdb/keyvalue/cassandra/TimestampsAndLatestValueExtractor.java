@@ -0,0 +1,72 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+class TimestampsAndLatestValueExtractor
+        extends ResultsExtractor<Map<Cell, TimestampsAndLatestValueExtractor.Collected>, TimestampsAndLatestValue> {
+
+    static final Supplier<ResultsExtractor<Map<Cell, Collected>, TimestampsAndLatestValue>> SUPPLIER =
+            () -> new TimestampsAndLatestValueExtractor(Maps.newHashMap());
+
+    TimestampsAndLatestValueExtractor(Map<Cell, Collected> collector) {
+        super(collector);
+    }
+
+    @Override
+    public void internalExtractResult(long startTs,
+                                      ColumnSelection selection,
+                                      byte[] row,
+                                      byte[] col,
+                                      byte[] val,
+                                      long ts) {
+        if (ts < startTs && selection.contains(col)) {
+            Cell cell = Cell.create(row, col);
+            Collected collected = collector.get(cell);
+            if (collected == null) {
+                // Columns are returned newest first, so the first one seen for a cell holds its latest value.
+                collected = new Collected(Value.create(val, ts));
+                collector.put(cell, collected);
+            }
+            collected.timestamps.add(ts);
+        }
+    }
+
+    @Override
+    public Map<Cell, TimestampsAndLatestValue> asMap() {
+        return Maps.transformValues(collector,
+                collected -> TimestampsAndLatestValue.create(collected.timestamps, collected.latestValue));
+    }
+
+    static final class Collected {
+        private final Set<Long> timestamps = Sets.newHashSet();
+        private final Value latestValue;
+
+        private Collected(Value latestValue) {
+            this.latestValue = latestValue;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import com.google.common.collect.AbstractIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Reads consecutive sub-ranges of a range scan concurrently and returns their rows in order. The sub-range being
+ * read and up to {@code concurrency - 1} after it fetch their pages in the background, each buffering at most
+ * {@link #MAX_BUFFERED_PAGES} pages ahead of the reader.
+ */
+public final class ParallelRangeIterator<T, U> extends AbstractIterator<RowResult<U>>
+        implements ClosableIterator<RowResult<U>> {
+    private static final int MAX_BUFFERED_PAGES = 2;
+
+    private final Executor executor;
+    private final int concurrency;
+    private final Iterator<CassandraRangePagingIterable<T, U>> pendingSubRanges;
+    private final Deque<SubRange> activeSubRanges = new ArrayDeque<>();
+    private Iterator<RowResult<U>> currentPage = Collections.emptyIterator();
+    private volatile boolean closed = false;
+
+    public ParallelRangeIterator(
+            Executor executor,
+            int concurrency,
+            List<CassandraRangePagingIterable<T, U>> subRanges) {
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.pendingSubRanges = subRanges.iterator();
+    }
+
+    @Override
+    protected RowResult<U> computeNext() {
+        while (!currentPage.hasNext()) {
+            if (closed) {
+                return endOfData();
+            }
+            while (activeSubRanges.size() < concurrency && pendingSubRanges.hasNext()) {
+                SubRange subRange = new SubRange(pendingSubRanges.next());
+                activeSubRanges.addLast(subRange);
+                subRange.fetchIfNeeded();
+            }
+            if (activeSubRanges.isEmpty()) {
+                return endOfData();
+            }
+            TokenBackedBasicResultsPage<RowResult<U>, byte[]> page = activeSubRanges.peekFirst().takePage();
+            if (page == null) {
+                activeSubRanges.removeFirst();
+            } else {
+                currentPage = page.getResults().iterator();
+            }
+        }
+        return currentPage.next();
+    }
+
+    /**
+     * Stops all background fetches; pages still in flight are discarded and the iterator returns no more rows.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (SubRange subRange : activeSubRanges) {
+            subRange.wakeReaders();
+        }
+    }
+
+    private final class SubRange {
+        private final CassandraRangePagingIterable<T, U> pager;
+        private final Queue<TokenBackedBasicResultsPage<RowResult<U>, byte[]>> pages = new ArrayDeque<>();
+        private TokenBackedBasicResultsPage<RowResult<U>, byte[]> lastFetchedPage = null;
+        private boolean fetching = false;
+        private boolean exhausted = false;
+        private Throwable failure = null;
+
+        SubRange(CassandraRangePagingIterable<T, U> pager) {
+            this.pager = pager;
+        }
+
+        synchronized void fetchIfNeeded() {
+            if (closed || fetching || exhausted || pages.size() >= MAX_BUFFERED_PAGES) {
+                return;
+            }
+            fetching = true;
+            TokenBackedBasicResultsPage<RowResult<U>, byte[]> previous = lastFetchedPage;
+            try {
+                executor.execute(() -> fetch(previous));
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        synchronized void wakeReaders() {
+            notifyAll();
+        }
+
+        private synchronized void fail(Throwable t) {
+            failure = t;
+            exhausted = true;
+            fetching = false;
+            notifyAll();
+        }
+
+        private void fetch(TokenBackedBasicResultsPage<RowResult<U>, byte[]> previous) {
+            try {
+                TokenBackedBasicResultsPage<RowResult<U>, byte[]> page =
+                        previous == null ? pager.getFirstPage() : pager.getNextPage(previous);
+                synchronized (this) {
+                    pages.add(page);
+                    lastFetchedPage = page;
+                    exhausted = !page.moreResultsAvailable();
+                    fetching = false;
+                    notifyAll();
+                }
+                fetchIfNeeded();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        /**
+         * Returns the next page of this sub-range, waiting for it to be fetched, or null if there are no more or
+         * the iterator has been closed.
+         */
+        synchronized TokenBackedBasicResultsPage<RowResult<U>, byte[]> takePage() {
+            while (pages.isEmpty() && fetching && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException(e);
+                }
+            }
+            if (!pages.isEmpty()) {
+                TokenBackedBasicResultsPage<RowResult<U>, byte[]> page = pages.remove();
+                fetchIfNeeded();
+                return page;
+            }
+            if (failure != null && !closed) {
+                throw Throwables.rewrapAndThrowUncheckedException(failure);
+            }
+            return null;
+        }
+    }
+}
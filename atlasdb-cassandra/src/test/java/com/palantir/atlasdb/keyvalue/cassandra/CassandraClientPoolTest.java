@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.keyvalue.cassandra;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
@@ -35,9 +36,13 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPool.LightweightOppToken;
 import com.palantir.common.base.FunctionCheckedException;
 
 public class CassandraClientPoolTest {
@@ -176,6 +181,27 @@ public class CassandraClientPoolTest {
         verifyNumberOfAttemptsOnHost(host, cassandraClientPool, CassandraClientPool.MAX_TRIES_TOTAL);
     }
 
+    @Test
+    public void shouldSplitRangesJustAfterTheEndOfEachTokenRange() {
+        InetSocketAddress host = new InetSocketAddress(HOSTNAME_1, DEFAULT_PORT);
+        CassandraClientPool cassandraClientPool = clientPoolWithServersInCurrentPool(ImmutableSet.of(host));
+        cassandraClientPool.tokenMap = ImmutableRangeMap.<LightweightOppToken, List<InetSocketAddress>>builder()
+                .put(Range.atMost(token(0x20)), ImmutableList.of(host))
+                .put(Range.openClosed(token(0x20), token(0x40)), ImmutableList.of(host))
+                .put(Range.openClosed(token(0x40), token(0x60)), ImmutableList.of(host))
+                .put(Range.greaterThan(token(0x60)), ImmutableList.of(host))
+                .build();
+
+        assertThat(cassandraClientPool.getTokenRangeStartsWithin(new byte[0], new byte[0]),
+                contains(new byte[] {0x20, 0}, new byte[] {0x40, 0}, new byte[] {0x60, 0}));
+        assertThat(cassandraClientPool.getTokenRangeStartsWithin(new byte[] {0x30}, new byte[] {0x60, 0}),
+                contains(new byte[] {0x40, 0}));
+    }
+
+    private static LightweightOppToken token(int firstByte) {
+        return new LightweightOppToken(new byte[] {(byte) firstByte});
+    }
+
     private void verifyNumberOfAttemptsOnHost(InetSocketAddress host,
                                               CassandraClientPool cassandraClientPool,
                                               int numAttempts) {
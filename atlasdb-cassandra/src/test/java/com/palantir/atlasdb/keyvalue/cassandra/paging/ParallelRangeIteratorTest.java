@@ -0,0 +1,157 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.util.paging.SimpleTokenBackedResultsPage;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+public class ParallelRangeIteratorTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void returnsRowsOfAllSubRangesInOrder() throws Exception {
+        List<CassandraRangePagingIterable<Long, Long>> subRanges = ImmutableList.of(
+                pager(page("a", true), page("b", false)),
+                pager(page("c", true), page("d", true), page("e", false)),
+                pager(page("f", false)));
+
+        ParallelRangeIterator<Long, Long> iterator = new ParallelRangeIterator<>(executor, 2, subRanges);
+
+        assertThat(rowNames(iterator), equalTo(ImmutableList.of("a", "b", "c", "d", "e", "f")));
+    }
+
+    @Test
+    public void rethrowsFailureOfSubRangeAfterEarlierRows() throws Exception {
+        CassandraRangePagingIterable<Long, Long> failingPager = pager();
+        when(failingPager.getFirstPage()).thenThrow(new IllegalStateException("read failed"));
+        ParallelRangeIterator<Long, Long> iterator = new ParallelRangeIterator<>(
+                executor, 2, ImmutableList.of(pager(page("a", false)), failingPager));
+
+        assertThat(PtBytes.toString(iterator.next().getRowName()), equalTo("a"));
+        try {
+            iterator.next();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), equalTo("read failed"));
+        }
+    }
+
+    @Test
+    public void reportsRejectedFetchesAsFailures() throws Exception {
+        CassandraRangePagingIterable<Long, Long> pager = pager(page("a", false));
+        ParallelRangeIterator<Long, Long> iterator = new ParallelRangeIterator<>(
+                task -> {
+                    throw new RejectedExecutionException("executor shut down");
+                },
+                1,
+                ImmutableList.of(pager));
+
+        try {
+            iterator.hasNext();
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e, instanceOf(RejectedExecutionException.class));
+        }
+        verify(pager, never()).getFirstPage();
+    }
+
+    @Test
+    public void closeDiscardsBufferedPagesAndStopsFetching() throws Exception {
+        TokenBackedBasicResultsPage<RowResult<Long>, byte[]> page = page("a", true);
+        CassandraRangePagingIterable<Long, Long> pager = pager(page);
+        when(pager.getNextPage(any())).thenReturn(page);
+        ParallelRangeIterator<Long, Long> iterator = new ParallelRangeIterator<>(
+                Runnable::run, 1, ImmutableList.of(pager));
+        iterator.next();
+
+        iterator.close();
+
+        assertFalse(iterator.hasNext());
+        verify(pager, atMost(2)).getNextPage(any());
+    }
+
+    @Test
+    public void closeWakesBlockedReader() throws Exception {
+        List<Runnable> neverRun = Lists.newCopyOnWriteArrayList();
+        ParallelRangeIterator<Long, Long> iterator = new ParallelRangeIterator<>(
+                neverRun::add, 1, ImmutableList.of(pager(page("a", false))));
+        Future<Boolean> hasNext = executor.submit(iterator::hasNext);
+        while (neverRun.isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        iterator.close();
+
+        assertFalse(hasNext.get(10, TimeUnit.SECONDS));
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private static CassandraRangePagingIterable<Long, Long> pager(
+            TokenBackedBasicResultsPage<RowResult<Long>, byte[]>... pages) throws Exception {
+        CassandraRangePagingIterable<Long, Long> pager = mock(CassandraRangePagingIterable.class);
+        if (pages.length > 0) {
+            when(pager.getFirstPage()).thenReturn(pages[0]);
+        }
+        for (int i = 1; i < pages.length; i++) {
+            when(pager.getNextPage(pages[i - 1])).thenReturn(pages[i]);
+        }
+        return pager;
+    }
+
+    private static TokenBackedBasicResultsPage<RowResult<Long>, byte[]> page(String row, boolean moreResults) {
+        RowResult<Long> result = RowResult.of(Cell.create(PtBytes.toBytes(row), PtBytes.toBytes("col")), 1L);
+        return SimpleTokenBackedResultsPage.create(PtBytes.toBytes(row), ImmutableList.of(result), moreResults);
+    }
+
+    private static List<String> rowNames(ParallelRangeIterator<Long, Long> iterator) {
+        List<String> rowNames = Lists.newArrayList();
+        iterator.forEachRemaining(row -> rowNames.add(PtBytes.toString(row.getRowName())));
+        return rowNames;
+    }
+}
@@ -31,6 +31,7 @@ public class AtlasDbConstants {
 
     public static final TableReference PUNCH_TABLE = TableReference.createWithEmptyNamespace("_punch");
     public static final TableReference SCRUB_TABLE = TableReference.createWithEmptyNamespace("_scrub");
+    public static final TableReference SWEEP_QUEUE_TABLE = TableReference.createWithEmptyNamespace("_sweep_queue");
     public static final TableReference NAMESPACE_TABLE = TableReference.createWithEmptyNamespace("_namespace");
     public static final TableReference TIMESTAMP_TABLE = TableReference.createWithEmptyNamespace("_timestamp");
 
@@ -61,11 +62,14 @@ public class AtlasDbConstants {
     // TODO (ejin): Organize constants (maybe into a single class?)
     public static final Set<TableReference> hiddenTables = ImmutableSet.of(
             TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTION_TABLE_V2,
             PUNCH_TABLE,
             SCRUB_TABLE,
+            SWEEP_QUEUE_TABLE,
             NAMESPACE_TABLE,
             PARTITION_MAP_TABLE);
     public static final Set<TableReference> SKIP_POSTFILTER_TABLES = ImmutableSet.of(TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTION_TABLE_V2,
             NAMESPACE_TABLE);
 
     /**
@@ -73,6 +77,7 @@ public class AtlasDbConstants {
      */
     public static final Set<TableReference> ATOMIC_TABLES = ImmutableSet.of(
             TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTION_TABLE_V2,
             NAMESPACE_TABLE);
 
     public static final Set<TableReference> TABLES_KNOWN_TO_BE_POORLY_DESIGNED = ImmutableSet.of(TableReference.createWithEmptyNamespace("resync_object"));
@@ -88,6 +93,16 @@ public class AtlasDbConstants {
     public static final long DEFAULT_SWEEP_PAUSE_MILLIS = 5 * 1000;
     public static final int DEFAULT_SWEEP_BATCH_SIZE = 1000;
     public static final int DEFAULT_SWEEP_CELL_BATCH_SIZE = 10_000;
+    public static final int DEFAULT_SWEEP_THREADS = 1;
+    public static final int DEFAULT_SWEEP_DELETE_THREADS = 1;
+    public static final long DEFAULT_SWEEP_TARGET_BATCH_MILLIS = 2_000;
+    public static final double DEFAULT_SWEEP_MAX_CELLS_PER_SECOND = 0.0;
+    public static final boolean DEFAULT_ENABLE_TARGETED_SWEEP = false;
+    public static final boolean DEFAULT_ENABLE_GROUP_COMMIT = false;
+    public static final boolean DEFAULT_ENABLE_LOCK_REQUEST_COALESCING = false;
+    public static final boolean DEFAULT_ENABLE_START_TIMESTAMP_PREFETCHING = false;
+    public static final boolean DEFAULT_ENABLE_NEGATIVE_LOOKUP_FILTERS = false;
+    public static final boolean DEFAULT_ENABLE_TRANSACTION_READ_CACHE = false;
     public static final int DEFAULT_STREAM_IN_MEMORY_THRESHOLD = 4 * 1024 * 1024;
     public static final int MAX_TABLE_PREFIX_LENGTH = 7;
     public static final int MAX_OVERFLOW_TABLE_PREFIX_LENGTH = 6;
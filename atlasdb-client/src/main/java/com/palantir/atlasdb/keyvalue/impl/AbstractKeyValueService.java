@@ -52,9 +52,13 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.Maps2;
 import com.palantir.common.concurrent.NamedThreadFactory;
@@ -310,6 +314,14 @@ public abstract class AbstractKeyValueService implements KeyValueService {
         return TableReference.createUnsafe(tableName.replaceFirst("__", "."));
     }
 
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return KeyValueServices.getRangeOfTimestampsAndLatestValuesUsingGet(this, tableRef, rangeRequest, timestamp);
+    }
+
     @Override
     public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
                                                                   Iterable<byte[]> rows,
@@ -31,6 +31,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
@@ -190,6 +191,14 @@ public class DualWriteKeyValueService implements KeyValueService {
         return delegate1.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return delegate1.getRangeOfTimestampsAndLatestValues(tableRef, rangeRequest, timestamp);
+    }
+
     @Override
     public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
         delegate1.createTables(tableRefToTableMetadata);
@@ -56,6 +56,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
@@ -198,6 +199,34 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
         });
     }
 
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            final RangeRequest range,
+            final long timestamp) {
+        return getRangeInternal(tableRef, range, new ResultProducer<TimestampsAndLatestValue>() {
+            @Override
+            public TimestampsAndLatestValue apply(Iterator<Entry<Key, byte[]>> entries) {
+                Set<Long> timestamps = Sets.newTreeSet();
+                Entry<Key, byte[]> lastEntry = null;
+                while (entries.hasNext()) {
+                    Entry<Key, byte[]> entry = entries.next();
+                    if (entry.getKey().ts >= timestamp) {
+                        break;
+                    }
+                    timestamps.add(entry.getKey().ts);
+                    lastEntry = entry;
+                }
+                if (lastEntry != null) {
+                    Value latestValue = Value.createWithCopyOfData(lastEntry.getValue(), lastEntry.getKey().ts);
+                    return TimestampsAndLatestValue.create(timestamps, latestValue);
+                } else {
+                    return null;
+                }
+            }
+        });
+    }
+
     private <T> ClosableIterator<RowResult<T>> getRangeInternal(TableReference tableRef,
                                                                 final RangeRequest range,
                                                                 final ResultProducer<T> resultProducer) {
@@ -19,6 +19,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -34,6 +35,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
@@ -46,10 +48,12 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.BlockingWorkerPool;
 import com.palantir.util.crypto.Sha256Hash;
@@ -150,6 +154,46 @@ public class KeyValueServices {
         return ret;
     }
 
+    /**
+     * Implements {@link KeyValueService#getRangeOfTimestampsAndLatestValues} for a key-value service that
+     * cannot read both at once. The timestamps are scanned, and the latest value of each cell is then
+     * looked up for one batch of rows at a time, so only cells which were found are read again.
+     */
+    public static ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValuesUsingGet(
+            KeyValueService kvs,
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        ClosableIterator<RowResult<Set<Long>>> timestamps = kvs.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+        int batchSize = rangeRequest.getBatchHint() == null ? 100 : rangeRequest.getBatchHint();
+        Iterator<List<RowResult<Set<Long>>>> batches = Iterators.partition(timestamps, batchSize);
+        Iterator<RowResult<TimestampsAndLatestValue>> rows = Iterators.concat(Iterators.transform(batches,
+                batch -> addLatestValues(kvs, tableRef, batch).iterator()));
+        return ClosableIterators.wrap(rows, timestamps);
+    }
+
+    private static List<RowResult<TimestampsAndLatestValue>> addLatestValues(
+            KeyValueService kvs,
+            TableReference tableRef,
+            List<RowResult<Set<Long>>> rows) {
+        Map<Cell, Long> cellsToLatestTimestamp = Maps.newHashMap();
+        for (RowResult<Set<Long>> row : rows) {
+            for (Map.Entry<Cell, Set<Long>> cell : row.getCells()) {
+                cellsToLatestTimestamp.put(cell.getKey(), Collections.max(cell.getValue()) + 1);
+            }
+        }
+        Map<Cell, Value> latestValues = kvs.get(tableRef, cellsToLatestTimestamp);
+        List<RowResult<TimestampsAndLatestValue>> results = Lists.newArrayListWithCapacity(rows.size());
+        for (RowResult<Set<Long>> row : rows) {
+            SortedMap<byte[], TimestampsAndLatestValue> columns = Maps.transformEntries(row.getColumns(),
+                    (col, timestampsOfCell) -> TimestampsAndLatestValue.create(
+                            timestampsOfCell,
+                            latestValues.get(Cell.create(row.getRowName(), col))));
+            results.add(RowResult.create(row.getRowName(), columns));
+        }
+        return results;
+    }
+
     public static Collection<Map.Entry<Cell, Value>> toConstantTimestampValues(final Collection<Map.Entry<Cell, byte[]>> cells, final long timestamp) {
         return Collections2.transform(cells, new Function<Map.Entry<Cell, byte[]>, Map.Entry<Cell, Value>>() {
             @Override
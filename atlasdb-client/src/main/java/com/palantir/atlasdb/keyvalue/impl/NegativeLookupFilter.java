@@ -0,0 +1,283 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * A bloom filter over the row names of a single table.
+ * <p>
+ * The filter is built by scanning the table and is then kept up to date by
+ * {@link #beginWrite(Iterable)}, which must be called before the rows are written to the
+ * key value service and held until the write has finished. A rebuild installs an empty
+ * filter that receives all new writes, scans the table, and then replaces the current
+ * filter, so a row that has been written is never reported as absent. Rows are never
+ * removed from a filter, so deletes and sweeps only become visible after a rebuild.
+ */
+final class NegativeLookupFilter implements NegativeLookupFilterMBean {
+    private static final Logger log = LoggerFactory.getLogger(NegativeLookupFilter.class);
+
+    static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    static final long MIN_EXPECTED_INSERTIONS = 10_000;
+
+    private final KeyValueService delegate;
+    private final TableReference tableRef;
+    private final Executor rebuildExecutor;
+
+    // Writers hold the read lock for the duration of their write; rebuilds take the
+    // write lock to install and to swap filters, so current and rebuilding only change
+    // while no write is in flight.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong negativeLookups = new AtomicLong();
+    private final AtomicLong deletesSinceBuild = new AtomicLong();
+
+    private volatile Generation current = null;
+    private volatile Generation rebuilding = null;
+    @GuardedBy("lock")
+    private boolean closed = false;
+
+    NegativeLookupFilter(KeyValueService delegate, TableReference tableRef, Executor rebuildExecutor) {
+        this.delegate = delegate;
+        this.tableRef = tableRef;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    /**
+     * Returns false only if no value has ever been written to the given row.
+     */
+    boolean mightContainRow(byte[] row) {
+        Generation generation = current;
+        if (generation == null) {
+            return true;
+        }
+        lookups.incrementAndGet();
+        if (generation.mightContain(row)) {
+            return true;
+        }
+        negativeLookups.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records that the given rows are about to be written. If this returns true, the caller
+     * must call {@link #endWrite()} once the write to the key value service has finished.
+     * Returns false if this filter has been closed, in which case nothing was recorded.
+     */
+    boolean beginWrite(Iterable<byte[]> rows) {
+        lock.readLock().lock();
+        if (closed) {
+            lock.readLock().unlock();
+            return false;
+        }
+        Generation generation = current;
+        Generation next = rebuilding;
+        try {
+            for (byte[] row : rows) {
+                if (generation != null) {
+                    generation.put(row);
+                }
+                if (next != null) {
+                    next.put(row);
+                }
+            }
+        } catch (RuntimeException e) {
+            lock.readLock().unlock();
+            throw e;
+        }
+        if (generation != null && generation.isSaturated()) {
+            rebuildAsync();
+        }
+        return true;
+    }
+
+    void endWrite() {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Waits for writes in flight to finish and stops this filter from recording new ones.
+     */
+    void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            current = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void recordDeletes(int count) {
+        Generation generation = current;
+        if (generation != null
+                && deletesSinceBuild.addAndGet(count) > generation.expectedInsertions / 2) {
+            rebuildAsync();
+        }
+    }
+
+    void rebuildAsync() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuildNow);
+        }
+    }
+
+    private void rebuildNow() {
+        Generation previous = current;
+        Generation next = new Generation(Math.max(
+                MIN_EXPECTED_INSERTIONS,
+                2 * (previous == null ? 0 : previous.insertions.get())));
+        lock.writeLock().lock();
+        try {
+            rebuilding = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            try (ClosableIterator<RowResult<Set<Long>>> rows =
+                         delegate.getRangeOfTimestamps(tableRef, RangeRequest.all(), Long.MAX_VALUE)) {
+                while (rows.hasNext()) {
+                    next.put(rows.next().getRowName());
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                current = next;
+                rebuilding = null;
+                deletesSinceBuild.set(0);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Built negative lookup filter for table {} with {} rows.", tableRef, next.insertions.get());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.warn("Failed to build negative lookup filter for table {}.", tableRef, e);
+        } finally {
+            rebuildPending.set(false);
+        }
+        if (next.isSaturated()) {
+            rebuildAsync();
+        }
+    }
+
+    @Override
+    public boolean isBuilt() {
+        return current != null;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    @Override
+    public long getNegativeLookupCount() {
+        return negativeLookups.get();
+    }
+
+    @Override
+    public long getInsertionCount() {
+        Generation generation = current;
+        return generation == null ? 0 : generation.insertions.get();
+    }
+
+    @Override
+    public long getExpectedInsertions() {
+        Generation generation = current;
+        return generation == null ? 0 : generation.expectedInsertions;
+    }
+
+    @Override
+    public double getExpectedFalsePositiveProbability() {
+        Generation generation = current;
+        return generation == null ? 1.0 : generation.expectedFpp();
+    }
+
+    @Override
+    public long getEstimatedMemoryBytes() {
+        Generation generation = current;
+        Generation next = rebuilding;
+        return (generation == null ? 0 : generation.estimatedMemoryBytes())
+                + (next == null ? 0 : next.estimatedMemoryBytes());
+    }
+
+    @Override
+    public void rebuild() {
+        rebuildAsync();
+    }
+
+    private static final class Generation {
+        final long expectedInsertions;
+        final AtomicLong insertions = new AtomicLong();
+        @GuardedBy("this")
+        private final BloomFilter<byte[]> filter;
+
+        Generation(long expectedInsertions) {
+            this.expectedInsertions = expectedInsertions;
+            this.filter = BloomFilter.create(Funnels.byteArrayFunnel(), expectedInsertions, FALSE_POSITIVE_PROBABILITY);
+        }
+
+        synchronized boolean mightContain(byte[] row) {
+            return filter.mightContain(row);
+        }
+
+        synchronized void put(byte[] row) {
+            if (filter.put(row)) {
+                insertions.incrementAndGet();
+            }
+        }
+
+        synchronized double expectedFpp() {
+            return filter.expectedFpp();
+        }
+
+        boolean isSaturated() {
+            return insertions.get() > expectedInsertions;
+        }
+
+        long estimatedMemoryBytes() {
+            double bits = -expectedInsertions * Math.log(FALSE_POSITIVE_PROBABILITY) / (Math.log(2) * Math.log(2));
+            return (long) Math.ceil(bits / Byte.SIZE);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.util.JMXUtils;
+
+/**
+ * This kvs wrapper keeps a bloom filter of the rows of every table whose metadata has
+ * negative lookups enabled, and answers point reads of rows that have never been written
+ * without calling the delegate.
+ * <p>
+ * The filters only see writes made through this wrapper and the rows present when a
+ * filter was last built, so this must only be used when this process is the only writer
+ * of the key value service, for example with an embedded RocksDB or in memory store.
+ */
+public class NegativeLookupKeyValueService extends ForwardingKeyValueService {
+    private static final String MBEAN_NAME_PREFIX = "com.palantir.atlasdb:type=NegativeLookupFilter,table=";
+    private static final Ordering<TableReference> TABLE_ORDER =
+            Ordering.<String>natural().onResultOf(TableReference::getQualifiedName);
+
+    private final KeyValueService delegate;
+    private final ExecutorService rebuildExecutor;
+    private final ConcurrentMap<TableReference, Optional<NegativeLookupFilter>> filters = new ConcurrentHashMap<>();
+
+    public static NegativeLookupKeyValueService create(KeyValueService delegate) {
+        return create(delegate, PTExecutors.newSingleThreadExecutor(
+                new NamedThreadFactory("atlas-negative-lookup-filter", true)));
+    }
+
+    /**
+     * The returned service owns the given executor, which is shut down when the service is closed.
+     */
+    @VisibleForTesting
+    static NegativeLookupKeyValueService create(KeyValueService delegate, ExecutorService rebuildExecutor) {
+        return new NegativeLookupKeyValueService(delegate, rebuildExecutor);
+    }
+
+    private NegativeLookupKeyValueService(KeyValueService delegate, ExecutorService rebuildExecutor) {
+        this.delegate = delegate;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        Optional<NegativeLookupFilter> filter = getFilter(tableRef);
+        if (!filter.isPresent()) {
+            return delegate().get(tableRef, timestampByCell);
+        }
+        Map<Cell, Long> possiblyPresent = Maps.newHashMapWithExpectedSize(timestampByCell.size());
+        for (Map.Entry<Cell, Long> e : timestampByCell.entrySet()) {
+            if (filter.get().mightContainRow(e.getKey().getRowName())) {
+                possiblyPresent.put(e.getKey(), e.getValue());
+            }
+        }
+        if (possiblyPresent.isEmpty()) {
+            return Maps.newHashMap();
+        }
+        return delegate().get(tableRef, possiblyPresent);
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection, long timestamp) {
+        Optional<NegativeLookupFilter> filter = getFilter(tableRef);
+        if (!filter.isPresent()) {
+            return delegate().getRows(tableRef, rows, columnSelection, timestamp);
+        }
+        List<byte[]> possiblyPresent = Lists.newArrayList();
+        for (byte[] row : rows) {
+            if (filter.get().mightContainRow(row)) {
+                possiblyPresent.add(row);
+            }
+        }
+        if (possiblyPresent.isEmpty()) {
+            return Maps.newHashMap();
+        }
+        return delegate().getRows(tableRef, possiblyPresent, columnSelection, timestamp);
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        List<NegativeLookupFilter> writing = beginWrite(tableRef, values.keySet());
+        try {
+            delegate().put(tableRef, values, timestamp);
+        } finally {
+            endWrite(writing);
+        }
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        List<NegativeLookupFilter> writing = Lists.newArrayList();
+        try {
+            // A rebuild waiting for a filter's lock blocks new writers to that filter, so the
+            // locks are taken in a fixed order to stop two multiPuts from deadlocking.
+            for (TableReference tableRef : TABLE_ORDER.sortedCopy(valuesByTable.keySet())) {
+                writing.addAll(beginWrite(tableRef, valuesByTable.get(tableRef).keySet()));
+            }
+            delegate().multiPut(valuesByTable, timestamp);
+        } finally {
+            endWrite(writing);
+        }
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        List<NegativeLookupFilter> writing = beginWrite(tableRef, values.keySet());
+        try {
+            delegate().putWithTimestamps(tableRef, values);
+        } finally {
+            endWrite(writing);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        List<NegativeLookupFilter> writing = beginWrite(tableRef, values.keySet());
+        try {
+            delegate().putUnlessExists(tableRef, values);
+        } finally {
+            endWrite(writing);
+        }
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Set<Cell> cells) {
+        List<NegativeLookupFilter> writing = beginWrite(tableRef, cells);
+        try {
+            delegate().addGarbageCollectionSentinelValues(tableRef, cells);
+        } finally {
+            endWrite(writing);
+        }
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        delegate().delete(tableRef, keys);
+        Optional<NegativeLookupFilter> filter = getFilter(tableRef);
+        if (filter.isPresent()) {
+            filter.get().recordDeletes(keys.size());
+        }
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        delegate().truncateTable(tableRef);
+        rebuildFilter(tableRef);
+    }
+
+    @Override
+    public void truncateTables(Set<TableReference> tableRefs) {
+        delegate().truncateTables(tableRefs);
+        for (TableReference tableRef : tableRefs) {
+            rebuildFilter(tableRef);
+        }
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] tableMetadata) {
+        delegate().createTable(tableRef, tableMetadata);
+        invalidateFilter(tableRef);
+    }
+
+    @Override
+    public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
+        delegate().createTables(tableRefToTableMetadata);
+        for (TableReference tableRef : tableRefToTableMetadata.keySet()) {
+            invalidateFilter(tableRef);
+        }
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        delegate().putMetadataForTable(tableRef, metadata);
+        invalidateFilter(tableRef);
+    }
+
+    @Override
+    public void putMetadataForTables(Map<TableReference, byte[]> tableRefToMetadata) {
+        delegate().putMetadataForTables(tableRefToMetadata);
+        for (TableReference tableRef : tableRefToMetadata.keySet()) {
+            invalidateFilter(tableRef);
+        }
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        delegate().dropTable(tableRef);
+        invalidateFilter(tableRef);
+    }
+
+    @Override
+    public void dropTables(Set<TableReference> tableRefs) {
+        delegate().dropTables(tableRefs);
+        for (TableReference tableRef : tableRefs) {
+            invalidateFilter(tableRef);
+        }
+    }
+
+    @Override
+    public void close() {
+        rebuildExecutor.shutdownNow();
+        for (TableReference tableRef : filters.keySet()) {
+            invalidateFilter(tableRef);
+        }
+        super.close();
+    }
+
+    boolean isFilterBuilt(TableReference tableRef) {
+        Optional<NegativeLookupFilter> filter = getFilter(tableRef);
+        return filter.isPresent() && filter.get().isBuilt();
+    }
+
+    private List<NegativeLookupFilter> beginWrite(TableReference tableRef, Iterable<Cell> cells) {
+        while (true) {
+            Optional<NegativeLookupFilter> filter = getFilter(tableRef);
+            if (!filter.isPresent()) {
+                return ImmutableList.of();
+            }
+            if (filter.get().beginWrite(Iterables.transform(cells, Cell::getRowName))) {
+                return ImmutableList.of(filter.get());
+            }
+            // the filter was invalidated concurrently, so the write must be recorded in its replacement
+        }
+    }
+
+    private static void endWrite(List<NegativeLookupFilter> writing) {
+        for (NegativeLookupFilter filter : writing) {
+            filter.endWrite();
+        }
+    }
+
+    private Optional<NegativeLookupFilter> getFilter(TableReference tableRef) {
+        Optional<NegativeLookupFilter> filter = filters.get(tableRef);
+        if (filter != null) {
+            return filter;
+        }
+        return filters.computeIfAbsent(tableRef, this::createFilter);
+    }
+
+    private Optional<NegativeLookupFilter> createFilter(TableReference tableRef) {
+        byte[] metadata = delegate().getMetadataForTable(tableRef);
+        if (metadata == null || metadata.length == 0
+                || !TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata).hasNegativeLookups()) {
+            return Optional.absent();
+        }
+        NegativeLookupFilter filter = new NegativeLookupFilter(delegate(), tableRef, rebuildExecutor);
+        JMXUtils.registerMBeanCatchAndLogExceptions(filter, MBEAN_NAME_PREFIX + tableRef.getQualifiedName());
+        filter.rebuildAsync();
+        return Optional.of(filter);
+    }
+
+    private void rebuildFilter(TableReference tableRef) {
+        Optional<NegativeLookupFilter> filter = filters.get(tableRef);
+        if (filter != null && filter.isPresent()) {
+            filter.get().rebuildAsync();
+        }
+    }
+
+    private void invalidateFilter(TableReference tableRef) {
+        Optional<NegativeLookupFilter> filter = filters.remove(tableRef);
+        if (filter != null && filter.isPresent()) {
+            filter.get().close();
+            JMXUtils.unregisterMBeanCatchAndLogExceptions(MBEAN_NAME_PREFIX + tableRef.getQualifiedName());
+        }
+    }
+}
@@ -39,6 +39,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
@@ -282,6 +283,22 @@ public class ProfilingKeyValueService implements KeyValueService {
         }
     }
 
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        if (log.isTraceEnabled()) {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            ClosableIterator<RowResult<TimestampsAndLatestValue>> result =
+                    delegate.getRangeOfTimestampsAndLatestValues(tableRef, rangeRequest, timestamp);
+            logTimeAndTable("getRangeOfTimestampsAndLatestValues", tableRef.getQualifiedName(), stopwatch);
+            return result;
+        } else {
+            return delegate.getRangeOfTimestampsAndLatestValues(tableRef, rangeRequest, timestamp);
+        }
+    }
+
     @Override
     public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows, ColumnSelection columnSelection, long timestamp) {
         if (log.isTraceEnabled()) {
@@ -54,6 +54,8 @@ import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityNamedColumn;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableEncoding;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.persist.Persistables;
 import com.palantir.timestamp.TimestampService;
@@ -75,6 +77,7 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
 
     private final KeyValueService delegate;
     private final TimestampService timestampService;
+    private final TransactionTableLayout transactionTableLayout;
     private final Multiset<TableReference> writesByTable = ConcurrentHashMultiset.create();
     private final Set<TableReference> clearedTables = Collections.newSetFromMap(new ConcurrentHashMap<TableReference, Boolean>());
     private final AtomicInteger totalModifications = new AtomicInteger();
@@ -82,13 +85,21 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     private final ScheduledExecutorService flushExecutor = PTExecutors.newSingleThreadScheduledExecutor();
 
     public static SweepStatsKeyValueService create(KeyValueService delegate, TimestampService timestampService) {
-        return new SweepStatsKeyValueService(delegate, timestampService);
+        return create(delegate, timestampService, TransactionTableLayout.V1_ONLY);
+    }
+
+    public static SweepStatsKeyValueService create(KeyValueService delegate,
+                                                   TimestampService timestampService,
+                                                   TransactionTableLayout transactionTableLayout) {
+        return new SweepStatsKeyValueService(delegate, timestampService, transactionTableLayout);
     }
 
     private SweepStatsKeyValueService(KeyValueService delegate,
-                                     TimestampService timestampService) {
+                                     TimestampService timestampService,
+                                     TransactionTableLayout transactionTableLayout) {
         this.delegate = delegate;
         this.timestampService = timestampService;
+        this.transactionTableLayout = transactionTableLayout;
         this.flushExecutor.scheduleWithFixedDelay(createFlushTask(), FLUSH_DELAY_SECONDS, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
     }
 
@@ -275,10 +286,9 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     }
 
     private void commit(long timestamp) {
-        Cell cell = Cell.create(
-                TransactionConstants.getValueForTimestamp(timestamp),
-                TransactionConstants.COMMIT_TS_COLUMN);
+        TransactionTableEncoding encoding = transactionTableLayout.getEncoding(timestamp);
+        Cell cell = encoding.encodeCell(timestamp);
         byte[] value = TransactionConstants.getValueForTimestamp(timestamp);
-        delegate().putUnlessExists(TransactionConstants.TRANSACTION_TABLE, ImmutableMap.of(cell, value));
+        delegate().putUnlessExists(encoding.getTableRef(), ImmutableMap.of(cell, value));
     }
 }
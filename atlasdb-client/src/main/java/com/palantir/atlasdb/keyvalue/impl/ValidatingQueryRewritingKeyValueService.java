@@ -40,8 +40,11 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 /**
@@ -149,6 +152,34 @@ public class ValidatingQueryRewritingKeyValueService extends ForwardingKeyValueS
         return delegate.getLatestTimestamps(tableRef, timestampByCell);
     }
 
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        sanityCheckRangeOfTimestamps(rangeRequest);
+        if (rangeRequest.isEmptyRange()) {
+            return ClosableIterators.wrap(ImmutableList.<RowResult<Set<Long>>>of().iterator());
+        }
+        return delegate.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        sanityCheckRangeOfTimestamps(rangeRequest);
+        if (rangeRequest.isEmptyRange()) {
+            return ClosableIterators.wrap(ImmutableList.<RowResult<TimestampsAndLatestValue>>of().iterator());
+        }
+        return delegate.getRangeOfTimestampsAndLatestValues(tableRef, rangeRequest, timestamp);
+    }
+
+    private static void sanityCheckRangeOfTimestamps(RangeRequest rangeRequest) {
+        Validate.isTrue(!rangeRequest.isReverse(), "timestamp range scans do not support reverse ranges");
+    }
+
     @Override
     public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows, ColumnSelection columnSelection, long timestamp) {
         if (Iterables.isEmpty(rows) || columnSelection.noColumnsSelected()) {
@@ -174,7 +205,7 @@ public class ValidatingQueryRewritingKeyValueService extends ForwardingKeyValueS
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) throws KeyAlreadyExistsException {
         Validate.isTrue(timestamp != Long.MAX_VALUE);
         Validate.isTrue(timestamp >= 0);
-        Validate.isTrue(!tableRef.equals(TransactionConstants.TRANSACTION_TABLE), TRANSACTION_ERROR);
+        Validate.isTrue(!isTransactionTable(tableRef), TRANSACTION_ERROR);
         if (values.isEmpty()) {
             return;
         }
@@ -207,7 +238,7 @@ public class ValidatingQueryRewritingKeyValueService extends ForwardingKeyValueS
         if (cellValues.isEmpty()) {
             return;
         }
-        Validate.isTrue(!tableRef.equals(TransactionConstants.TRANSACTION_TABLE), TRANSACTION_ERROR);
+        Validate.isTrue(!isTransactionTable(tableRef), TRANSACTION_ERROR);
 
         long lastTimestamp = -1;
         boolean allAtSameTimestamp = true;
@@ -255,4 +286,9 @@ public class ValidatingQueryRewritingKeyValueService extends ForwardingKeyValueS
         }
         delegate.truncateTables(tableRefs);
     }
+
+    private static boolean isTransactionTable(TableReference tableRef) {
+        return tableRef.equals(TransactionConstants.TRANSACTION_TABLE)
+                || tableRef.equals(TransactionConstants.TRANSACTION_TABLE_V2);
+    }
 }
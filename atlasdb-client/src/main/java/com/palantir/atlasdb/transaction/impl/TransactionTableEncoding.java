@@ -0,0 +1,103 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.table.description.TableMetadata;
+
+/**
+ * The ways in which a start timestamp can be mapped to a cell in a transactions table.
+ * Commit timestamps are always stored as the value of the cell, encoded with
+ * {@link TransactionConstants#getValueForTimestamp(long)}.
+ */
+public enum TransactionTableEncoding {
+    /**
+     * Each start timestamp is its own row of {@link TransactionConstants#TRANSACTION_TABLE}.
+     * Consecutive start timestamps have adjacent row keys, so with an ordered partitioner all concurrent
+     * commits are written to the same part of the key space.
+     */
+    V1 {
+        @Override
+        public TableReference getTableRef() {
+            return TransactionConstants.TRANSACTION_TABLE;
+        }
+
+        @Override
+        public TableMetadata getTableMetadata() {
+            return TransactionConstants.TRANSACTION_TABLE_METADATA;
+        }
+
+        @Override
+        public Cell encodeCell(long startTimestamp) {
+            return Cell.create(
+                    TransactionConstants.getValueForTimestamp(startTimestamp),
+                    TransactionConstants.COMMIT_TS_COLUMN);
+        }
+
+        @Override
+        public long decodeStartTimestamp(Cell cell) {
+            return TransactionConstants.getTimestampForValue(cell.getRowName());
+        }
+    },
+    /**
+     * Start timestamps are spread over {@link #V2_NUM_SHARDS} shards by their low bits, and the
+     * start timestamp itself is the column name.  The shard is the first byte of the row key and
+     * is bit-reversed so that the shards are spread evenly over the whole key space.  Each row of a
+     * shard holds {@link #V2_TIMESTAMPS_PER_ROW} consecutive start timestamps of that shard.
+     */
+    V2 {
+        @Override
+        public TableReference getTableRef() {
+            return TransactionConstants.TRANSACTION_TABLE_V2;
+        }
+
+        @Override
+        public TableMetadata getTableMetadata() {
+            return TransactionConstants.TRANSACTION_TABLE_V2_METADATA;
+        }
+
+        @Override
+        public Cell encodeCell(long startTimestamp) {
+            int shard = (int) (startTimestamp & (V2_NUM_SHARDS - 1));
+            byte shardPrefix = (byte) (Integer.reverse(shard) >>> 24);
+            long rowIndex = startTimestamp / (V2_NUM_SHARDS * V2_TIMESTAMPS_PER_ROW);
+            return Cell.create(
+                    EncodingUtils.add(new byte[] {shardPrefix}, EncodingUtils.encodeVarLong(rowIndex)),
+                    EncodingUtils.encodeVarLong(startTimestamp));
+        }
+
+        @Override
+        public long decodeStartTimestamp(Cell cell) {
+            return EncodingUtils.decodeVarLong(cell.getColumnName());
+        }
+    };
+
+    /**
+     * Must be a power of two no larger than 256.  Changing this changes the encoding.
+     */
+    public static final int V2_NUM_SHARDS = 16;
+    public static final long V2_TIMESTAMPS_PER_ROW = 10_000L;
+
+    public abstract TableReference getTableRef();
+
+    public abstract TableMetadata getTableMetadata();
+
+    public abstract Cell encodeCell(long startTimestamp);
+
+    public abstract long decodeStartTimestamp(Cell cell);
+}
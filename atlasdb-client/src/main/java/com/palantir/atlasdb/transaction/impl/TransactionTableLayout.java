@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Decides which {@link TransactionTableEncoding} is used for each start timestamp.
+ * <p>
+ * Start timestamps below the cutover timestamp use {@link TransactionTableEncoding#V1} and all others use
+ * {@link TransactionTableEncoding#V2}.  Every client of a deployment must agree on the cutover timestamp,
+ * and it must be greater than any start timestamp handed out before the cutover was configured.
+ */
+public final class TransactionTableLayout {
+    public static final TransactionTableLayout V1_ONLY = new TransactionTableLayout(Long.MAX_VALUE);
+
+    private final long v2CutoverTimestamp;
+
+    private TransactionTableLayout(long v2CutoverTimestamp) {
+        this.v2CutoverTimestamp = v2CutoverTimestamp;
+    }
+
+    public static TransactionTableLayout withV2Cutover(long v2CutoverTimestamp) {
+        Preconditions.checkArgument(v2CutoverTimestamp >= 0,
+                "The cutover timestamp must not be negative but was %s", v2CutoverTimestamp);
+        return new TransactionTableLayout(v2CutoverTimestamp);
+    }
+
+    public TransactionTableEncoding getEncoding(long startTimestamp) {
+        return startTimestamp < v2CutoverTimestamp ? TransactionTableEncoding.V1 : TransactionTableEncoding.V2;
+    }
+
+    public Set<TransactionTableEncoding> getEncodingsInUse() {
+        if (v2CutoverTimestamp == Long.MAX_VALUE) {
+            return ImmutableSet.of(TransactionTableEncoding.V1);
+        }
+        return ImmutableSet.of(TransactionTableEncoding.V1, TransactionTableEncoding.V2);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("v2CutoverTimestamp", v2CutoverTimestamp)
+                .toString();
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+
+public class NegativeLookupKeyValueServiceTest {
+    private static final TableReference FILTERED_TABLE = TableReference.createFromFullyQualifiedName("test.filtered");
+    private static final TableReference UNFILTERED_TABLE = TableReference.createFromFullyQualifiedName("test.plain");
+    private static final byte[] COLUMN = "col".getBytes();
+    private static final byte[] VALUE = "value".getBytes();
+    private static final long TIMESTAMP = 10L;
+
+    private final AtomicInteger delegateReads = new AtomicInteger();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor();
+    private KeyValueService rawKvs;
+    private NegativeLookupKeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        rawKvs = new InMemoryKeyValueService(false);
+        rawKvs.createTable(FILTERED_TABLE, metadata(true));
+        rawKvs.createTable(UNFILTERED_TABLE, metadata(false));
+        KeyValueService countingKvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return rawKvs;
+            }
+
+            @Override
+            public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+                delegateReads.incrementAndGet();
+                return super.get(tableRef, timestampByCell);
+            }
+
+            @Override
+            public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                            ColumnSelection columnSelection, long timestamp) {
+                delegateReads.incrementAndGet();
+                return super.getRows(tableRef, rows, columnSelection, timestamp);
+            }
+        };
+        kvs = NegativeLookupKeyValueService.create(countingKvs, rebuildExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void readsOfUnwrittenRowsDoNotReachTheDelegate() throws Exception {
+        kvs.put(FILTERED_TABLE, ImmutableMap.of(cell("written"), VALUE), TIMESTAMP);
+        awaitFilter(FILTERED_TABLE);
+
+        Map<Cell, Value> result = kvs.get(FILTERED_TABLE, ImmutableMap.of(cell("missing"), TIMESTAMP + 1));
+
+        assertThat(result.isEmpty(), is(true));
+        assertThat(delegateReads.get(), is(0));
+    }
+
+    @Test
+    public void rowsWrittenBeforeTheFilterWasBuiltAreFound() throws Exception {
+        rawKvs.put(FILTERED_TABLE, ImmutableMap.of(cell("existing"), VALUE), TIMESTAMP);
+        awaitFilter(FILTERED_TABLE);
+
+        Map<Cell, Value> result = kvs.getRows(
+                FILTERED_TABLE, ImmutableList.of(row("existing")), ColumnSelection.all(), TIMESTAMP + 1);
+
+        assertThat(result.get(cell("existing")).getContents(), is(VALUE));
+    }
+
+    @Test
+    public void rowsWrittenAfterTheFilterWasBuiltAreFound() throws Exception {
+        awaitFilter(FILTERED_TABLE);
+        kvs.put(FILTERED_TABLE, ImmutableMap.of(cell("new"), VALUE), TIMESTAMP);
+
+        Map<Cell, Value> result = kvs.get(FILTERED_TABLE, ImmutableMap.of(cell("new"), TIMESTAMP + 1));
+
+        assertThat(result.get(cell("new")).getContents(), is(VALUE));
+    }
+
+    @Test
+    public void rowsWrittenByMultiPutAreFound() throws Exception {
+        awaitFilter(FILTERED_TABLE);
+        kvs.multiPut(ImmutableMap.of(
+                UNFILTERED_TABLE, ImmutableMap.of(cell("plain"), VALUE),
+                FILTERED_TABLE, ImmutableMap.of(cell("new"), VALUE)), TIMESTAMP);
+
+        Map<Cell, Value> result = kvs.get(FILTERED_TABLE, ImmutableMap.of(cell("new"), TIMESTAMP + 1));
+
+        assertThat(result.get(cell("new")).getContents(), is(VALUE));
+    }
+
+    @Test
+    public void tablesWithoutNegativeLookupsAreNotFiltered() {
+        Map<Cell, Value> result = kvs.get(UNFILTERED_TABLE, ImmutableMap.of(cell("missing"), TIMESTAMP));
+
+        assertThat(result.get(cell("missing")), is(nullValue()));
+        assertThat(kvs.isFilterBuilt(UNFILTERED_TABLE), is(false));
+        assertThat(delegateReads.get(), is(1));
+    }
+
+    private void awaitFilter(TableReference tableRef) throws Exception {
+        // creates the filter if needed, which queues its first build
+        kvs.isFilterBuilt(tableRef);
+        // the executor is single threaded, so this runs after every build queued before it
+        rebuildExecutor.submit(() -> { }).get();
+        assertThat(kvs.isFilterBuilt(tableRef), is(true));
+    }
+
+    private static byte[] metadata(boolean negativeLookups) {
+        return new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                CachePriority.WARM,
+                PartitionStrategy.ORDERED,
+                false,
+                0,
+                negativeLookups,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                false).persistToBytes();
+    }
+
+    private static Cell cell(String row) {
+        return Cell.create(row(row), COLUMN);
+    }
+
+    private static byte[] row(String row) {
+        return row.getBytes();
+    }
+}
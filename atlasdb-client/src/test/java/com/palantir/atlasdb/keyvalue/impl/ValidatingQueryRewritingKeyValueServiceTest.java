@@ -0,0 +1,82 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
+import com.palantir.common.base.ClosableIterator;
+
+public class ValidatingQueryRewritingKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final byte[] ROW = "row".getBytes();
+    private static final long TIMESTAMP = 10L;
+
+    private KeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        kvs = ValidatingQueryRewritingKeyValueService.create(new InMemoryKeyValueService(false));
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        kvs.put(TABLE, ImmutableMap.of(Cell.create(ROW, "col".getBytes()), "value".getBytes()), TIMESTAMP);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOfTimestampsRejectsReverseRanges() {
+        kvs.getRangeOfTimestamps(TABLE, RangeRequest.reverseBuilder().build(), TIMESTAMP + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOfTimestampsAndLatestValuesRejectsReverseRanges() {
+        kvs.getRangeOfTimestampsAndLatestValues(TABLE, RangeRequest.reverseBuilder().build(), TIMESTAMP + 1);
+    }
+
+    @Test
+    public void emptyRangesReturnNoTimestamps() {
+        RangeRequest emptyRange = RangeRequest.builder().startRowInclusive(ROW).endRowExclusive(ROW).build();
+
+        try (ClosableIterator<RowResult<Set<Long>>> timestamps =
+                kvs.getRangeOfTimestamps(TABLE, emptyRange, TIMESTAMP + 1)) {
+            assertThat(timestamps.hasNext(), is(false));
+        }
+        try (ClosableIterator<RowResult<TimestampsAndLatestValue>> timestampsAndValues =
+                kvs.getRangeOfTimestampsAndLatestValues(TABLE, emptyRange, TIMESTAMP + 1)) {
+            assertThat(timestampsAndValues.hasNext(), is(false));
+        }
+    }
+
+    @Test
+    public void forwardRangesAreDelegated() {
+        try (ClosableIterator<RowResult<TimestampsAndLatestValue>> timestampsAndValues =
+                kvs.getRangeOfTimestampsAndLatestValues(TABLE, RangeRequest.all(), TIMESTAMP + 1)) {
+            assertThat(timestampsAndValues.next().getRowName(), is(ROW));
+            assertThat(timestampsAndValues.hasNext(), is(false));
+        }
+    }
+}
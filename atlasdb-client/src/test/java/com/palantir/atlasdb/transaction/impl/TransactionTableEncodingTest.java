@@ -0,0 +1,58 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+public class TransactionTableEncodingTest {
+
+    @Test
+    public void testRoundTrip() {
+        for (TransactionTableEncoding encoding : TransactionTableEncoding.values()) {
+            for (long startTs : new long[] {0L, 1L, 17L, 123_456_789L, Long.MAX_VALUE}) {
+                Cell cell = encoding.encodeCell(startTs);
+                assertThat(encoding.decodeStartTimestamp(cell), is(startTs));
+            }
+        }
+    }
+
+    @Test
+    public void testV2SpreadsConsecutiveTimestampsOverShards() {
+        Set<Integer> firstRowBytes = Sets.newHashSet();
+        for (long startTs = 1000; startTs < 1000 + TransactionTableEncoding.V2_NUM_SHARDS; startTs++) {
+            byte[] row = TransactionTableEncoding.V2.encodeCell(startTs).getRowName();
+            firstRowBytes.add(UnsignedBytes.toInt(row[0]));
+        }
+        assertThat(firstRowBytes.size(), is(TransactionTableEncoding.V2_NUM_SHARDS));
+    }
+
+    @Test
+    public void testLayoutUsesV2FromCutover() {
+        TransactionTableLayout layout = TransactionTableLayout.withV2Cutover(100L);
+        assertThat(layout.getEncoding(99L), is(TransactionTableEncoding.V1));
+        assertThat(layout.getEncoding(100L), is(TransactionTableEncoding.V2));
+        assertThat(TransactionTableLayout.V1_ONLY.getEncoding(Long.MAX_VALUE - 1), is(TransactionTableEncoding.V1));
+    }
+}
@@ -160,6 +160,129 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_SWEEP_CELL_BATCH_SIZE;
     }
 
+    /**
+     * The number of threads the background sweeper uses to sweep tables
+     * in parallel. With more than one thread, large tables are also split
+     * into row ranges that are swept in parallel, and the work is shared
+     * with the sweepers of other nodes. All nodes should use the same
+     * setting.
+     */
+    @Value.Default
+    public int getSweepThreads() {
+        return AtlasDbConstants.DEFAULT_SWEEP_THREADS;
+    }
+
+    /**
+     * The number of threads sweep uses to write sentinels and delete swept
+     * versions. With more than one thread, each batch is split by row and
+     * deleted in parallel, in the background while sweep reads its next
+     * batch.
+     */
+    @Value.Default
+    public int getSweepDeleteThreads() {
+        return AtlasDbConstants.DEFAULT_SWEEP_DELETE_THREADS;
+    }
+
+    /**
+     * If present, the background sweeper adapts its batch size and the
+     * pause between batches to the latency of its batches and to a limit
+     * on the number of cells it examines per second, instead of using a
+     * fixed pause.
+     */
+    public abstract Optional<SweepThrottleConfig> sweepThrottle();
+
+    /**
+     * If true, every write records the cells it writes in a sweep queue,
+     * and a background thread sweeps exactly those cells once the sweep
+     * timestamp has passed their writes. This makes the cost of sweeping
+     * proportional to the number of writes rather than to the size of
+     * the tables. Cells written before this was enabled are only swept
+     * by the background sweeper.
+     */
+    @Value.Default
+    public boolean enableTargetedSweep() {
+        return AtlasDbConstants.DEFAULT_ENABLE_TARGETED_SWEEP;
+    }
+
+    /**
+     * If true, concurrent transactions will write their commit timestamps
+     * to the transactions table in batches rather than one at a time.
+     * This reduces the number of writes to the key value service when
+     * many transactions commit at once.
+     * <p>
+     * This only applies to key value services whose putUnlessExists writes
+     * a batch in one round trip (in-memory, relational and RocksDB), and is
+     * ignored otherwise. On Cassandra putUnlessExists is a check-and-set
+     * per cell, so a batch would turn concurrent commits into serial ones
+     * while every other committer waits for it.
+     */
+    @Value.Default
+    public boolean enableGroupCommit() {
+        return AtlasDbConstants.DEFAULT_ENABLE_GROUP_COMMIT;
+    }
+
+    /**
+     * If true, concurrent unlock and refresh calls to a remote lock service
+     * are sent to the lock server in batches rather than one at a time.
+     * This has no effect when the lock service is embedded, and requires
+     * every lock server to support the batch endpoints.
+     */
+    @Value.Default
+    public boolean enableLockRequestCoalescing() {
+        return AtlasDbConstants.DEFAULT_ENABLE_LOCK_REQUEST_COALESCING;
+    }
+
+    /**
+     * If true, transaction start timestamps are served from ranges of
+     * timestamps fetched in advance rather than with a call to the
+     * timestamp server per transaction. A start timestamp is then only
+     * guaranteed to be newer than timestamps this client has already
+     * been given, so a transaction may not see data committed by other
+     * clients shortly before it started. Commit timestamps are always
+     * fetched fresh.
+     */
+    @Value.Default
+    public boolean enableStartTimestampPrefetching() {
+        return AtlasDbConstants.DEFAULT_ENABLE_START_TIMESTAMP_PREFETCHING;
+    }
+
+    /**
+     * If true, reads of rows that have never been written to tables with negative lookups
+     * enabled are answered from an in-memory bloom filter of each such table's rows rather
+     * than by the key value service. The filters only observe writes made by this client,
+     * so this must only be enabled when this client is the only writer of the key value
+     * service, for example with an embedded RocksDB or in memory key value service.
+     */
+    @Value.Default
+    public boolean enableNegativeLookupFilters() {
+        return AtlasDbConstants.DEFAULT_ENABLE_NEGATIVE_LOOKUP_FILTERS;
+    }
+
+    /**
+     * If true, values read from tables with a cache priority of HOT or HOTTEST are cached
+     * and shared between transactions, and are served from the cache until this client
+     * commits a write to the table. Writes made by other clients are not seen by the cache,
+     * so this must only be enabled when such tables are written by this client alone.
+     */
+    @Value.Default
+    public boolean enableTransactionReadCache() {
+        return AtlasDbConstants.DEFAULT_ENABLE_TRANSACTION_READ_CACHE;
+    }
+
+    /**
+     * If present, transactions with a start timestamp at or above this
+     * value record their commit timestamps in the sharded
+     * {@code _transactions2} table instead of {@code _transactions}.
+     * The sharded table spreads consecutive start timestamps over many
+     * rows, which avoids every commit writing to the same token range
+     * of an ordered key value service.
+     * <p>
+     * To migrate an existing deployment, stop all clients, fetch a
+     * fresh timestamp and set this to that value on every client.
+     * All clients of a deployment must use the same value.
+     */
+    public abstract Optional<Long> transactionTableV2CutoverTimestamp();
+
     @Value.Check
     protected final void check() {
         if (leader().isPresent()) {
@@ -169,6 +292,11 @@ public abstract class AtlasDbConfig {
 
         Preconditions.checkState(lock().isPresent() == timestamp().isPresent(),
                 "Lock and timestamp server blocks must either both be present or both be absent.");
+
+        if (transactionTableV2CutoverTimestamp().isPresent()) {
+            Preconditions.checkState(transactionTableV2CutoverTimestamp().get() >= 0,
+                    "The transaction table v2 cutover timestamp must not be negative.");
+        }
     }
 
     @JsonIgnore
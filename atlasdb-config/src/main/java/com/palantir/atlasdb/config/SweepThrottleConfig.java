@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.config;
+
+import java.util.List;
+
+import org.immutables.value.Value;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.palantir.atlasdb.AtlasDbConstants;
+
+@JsonDeserialize(as = ImmutableSweepThrottleConfig.class)
+@JsonSerialize(as = ImmutableSweepThrottleConfig.class)
+@Value.Immutable
+public abstract class SweepThrottleConfig {
+
+    /**
+     * The 95th percentile latency of sweep batches to aim for. The batch
+     * size is halved while batches are slower than this, and grows
+     * gradually while they are faster.
+     */
+    @Value.Default
+    public long targetBatchMillis() {
+        return AtlasDbConstants.DEFAULT_SWEEP_TARGET_BATCH_MILLIS;
+    }
+
+    /**
+     * The maximum number of cells to examine per second outside of any
+     * of the windows below, or 0 for no limit. The limit is shared by all
+     * of a node's sweep threads, but applies to each node separately.
+     */
+    @Value.Default
+    public double maxCellsPerSecond() {
+        return AtlasDbConstants.DEFAULT_SWEEP_MAX_CELLS_PER_SECOND;
+    }
+
+    /**
+     * Limits on the number of cells examined per second for particular
+     * hours of the day, in the server's time zone. The first window
+     * containing the current hour applies.
+     */
+    public abstract List<SweepThrottleWindow> windows();
+}
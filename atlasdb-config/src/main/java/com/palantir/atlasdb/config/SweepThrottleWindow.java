@@ -0,0 +1,52 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.config;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import org.immutables.value.Value;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+@JsonDeserialize(as = ImmutableSweepThrottleWindow.class)
+@JsonSerialize(as = ImmutableSweepThrottleWindow.class)
+@Value.Immutable
+public interface SweepThrottleWindow {
+
+    /**
+     * The first hour of the day the window applies to.
+     */
+    @Min(0)
+    @Max(23)
+    int startHour();
+
+    /**
+     * The hour of the day the window stops applying. This may be before
+     * the start hour for a window spanning midnight.
+     */
+    @Min(0)
+    @Max(24)
+    int endHour();
+
+    /**
+     * The maximum number of cells to examine per second during the window,
+     * or 0 for no limit. As for {@link SweepThrottleConfig#maxCellsPerSecond()},
+     * this is per node.
+     */
+    double maxCellsPerSecond();
+}
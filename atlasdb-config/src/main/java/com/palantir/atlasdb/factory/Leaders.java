@@ -39,10 +39,15 @@ import com.palantir.leader.PaxosLeaderElectionService;
 import com.palantir.leader.PingableLeader;
 import com.palantir.paxos.PaxosAcceptor;
 import com.palantir.paxos.PaxosAcceptorImpl;
+import com.palantir.paxos.PaxosAcceptorState;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosLearnerImpl;
 import com.palantir.paxos.PaxosProposer;
 import com.palantir.paxos.PaxosProposerImpl;
+import com.palantir.paxos.PaxosStateLog;
+import com.palantir.paxos.PaxosStateLogImpl;
+import com.palantir.paxos.PaxosValue;
+import com.palantir.paxos.SegmentedPaxosStateLog;
 
 public final class Leaders {
     private Leaders() {
@@ -57,8 +62,20 @@ public final class Leaders {
             Environment env,
             LeaderConfig config) {
 
-        PaxosAcceptor ourAcceptor = PaxosAcceptorImpl.newAcceptor(config.acceptorLogDir().getPath());
-        PaxosLearner ourLearner = PaxosLearnerImpl.newLearner(config.learnerLogDir().getPath());
+        PaxosStateLog<PaxosAcceptorState> acceptorLog;
+        PaxosStateLog<PaxosValue> learnerLog;
+        if (config.useSegmentedPaxosLog()) {
+            acceptorLog = new SegmentedPaxosStateLog<PaxosAcceptorState>(config.acceptorLogDir().getPath());
+            learnerLog = new SegmentedPaxosStateLog<PaxosValue>(config.learnerLogDir().getPath());
+        } else {
+            acceptorLog = new PaxosStateLogImpl<PaxosAcceptorState>(config.acceptorLogDir().getPath());
+            learnerLog = new PaxosStateLogImpl<PaxosValue>(config.learnerLogDir().getPath());
+        }
+        PaxosAcceptor ourAcceptor = PaxosAcceptorImpl.newAcceptor(
+                acceptorLog,
+                config.leaderLeaseMs(),
+                config.leaderLeaseClockDriftMarginMs());
+        PaxosLearner ourLearner = PaxosLearnerImpl.newLearner(learnerLog);
 
         Set<String> remoteLeaderUris = Sets.newHashSet(config.leaders());
         remoteLeaderUris.remove(config.localServer());
@@ -97,7 +114,8 @@ public final class Leaders {
                 executor,
                 config.pingRateMs(),
                 config.randomWaitBeforeProposingLeadershipMs(),
-                config.leaderPingResponseWaitMs());
+                config.leaderPingResponseWaitMs(),
+                leaderLeaseMs(config));
 
         env.register(ourAcceptor);
         env.register(ourLearner);
@@ -108,6 +126,13 @@ public final class Leaders {
         return leader;
     }
 
+    private static long leaderLeaseMs(LeaderConfig config) {
+        if (config.leaderLeaseMs() == 0) {
+            return 0L;
+        }
+        return config.leaderLeaseMs() - config.leaderLeaseClockDriftMarginMs();
+    }
+
     public static Map<PingableLeader, HostAndPort> generatePingables(
             Collection<String> remoteEndpoints,
             Optional<SSLSocketFactory> sslSocketFactory) {
@@ -37,6 +37,7 @@ public class ServiceDiscoveringAtlasSupplier {
 
     private final KeyValueServiceConfig config;
     private final Optional<LeaderConfig> leaderConfig;
+    private final AtlasDbFactory atlasFactory;
     private final Supplier<KeyValueService> keyValueService;
     private final Supplier<TimestampService> timestampService;
 
@@ -44,7 +45,7 @@ public class ServiceDiscoveringAtlasSupplier {
         this.config = config;
         this.leaderConfig = leaderConfig;
 
-        AtlasDbFactory atlasFactory = StreamSupport.stream(loader.spliterator(), false)
+        atlasFactory = StreamSupport.stream(loader.spliterator(), false)
                 .filter(producesCorrectType())
                 .findFirst()
                 .orElseThrow(() -> new IllegalStateException(
@@ -59,6 +60,10 @@ public class ServiceDiscoveringAtlasSupplier {
         return keyValueService.get();
     }
 
+    public boolean supportsBatchedPutUnlessExists() {
+        return atlasFactory.supportsBatchedPutUnlessExists();
+    }
+
     public TimestampService getTimestampService() {
         DebugLogger.logger.info("Fetching timestamp service from thread {}. This should only happen once.",
                 Thread.currentThread().getName());
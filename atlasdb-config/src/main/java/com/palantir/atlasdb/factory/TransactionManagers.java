@@ -17,10 +17,13 @@ package com.palantir.atlasdb.factory;
 
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLSocketFactory;
 
 import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
@@ -34,21 +37,32 @@ import com.palantir.atlasdb.cleaner.DefaultCleanerBuilder;
 import com.palantir.atlasdb.config.AtlasDbConfig;
 import com.palantir.atlasdb.config.LeaderConfig;
 import com.palantir.atlasdb.config.ServerListConfig;
+import com.palantir.atlasdb.config.SweepThrottleConfig;
 import com.palantir.atlasdb.http.AtlasDbHttpClients;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.NamespacedKeyValueServices;
+import com.palantir.atlasdb.keyvalue.impl.NegativeLookupKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ValidatingQueryRewritingKeyValueService;
 import com.palantir.atlasdb.schema.SweepSchema;
 import com.palantir.atlasdb.schema.generated.SweepTableFactory;
 import com.palantir.atlasdb.spi.AtlasDbFactory;
+import com.palantir.atlasdb.sweep.AdaptiveSweepRateController;
 import com.palantir.atlasdb.sweep.BackgroundSweeper;
 import com.palantir.atlasdb.sweep.BackgroundSweeperImpl;
 import com.palantir.atlasdb.sweep.CellsSweeper;
+import com.palantir.atlasdb.sweep.FixedPauseSweepRateController;
 import com.palantir.atlasdb.sweep.NoOpBackgroundSweeperPerformanceLogger;
+import com.palantir.atlasdb.sweep.ParallelBackgroundSweeper;
+import com.palantir.atlasdb.sweep.PipelinedCellsSweeper;
+import com.palantir.atlasdb.sweep.SweepBudget;
+import com.palantir.atlasdb.sweep.SweepRateController;
 import com.palantir.atlasdb.sweep.SweepTaskRunner;
 import com.palantir.atlasdb.sweep.SweepTaskRunnerImpl;
+import com.palantir.atlasdb.sweep.queue.SweepQueue;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWritingKeyValueService;
+import com.palantir.atlasdb.sweep.queue.TargetedSweeper;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
@@ -58,6 +72,8 @@ import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionReadCache;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
@@ -66,14 +82,17 @@ import com.palantir.leader.proxy.AwaitingLeadershipProxy;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.client.CoalescingRemoteLockService;
 import com.palantir.lock.client.LockRefreshingRemoteLockService;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.remoting.ssl.SslConfiguration;
 import com.palantir.remoting.ssl.SslSocketFactories;
 import com.palantir.timestamp.DebugLogger;
+import com.palantir.timestamp.PrefetchingTimestampService;
 import com.palantir.timestamp.TimestampService;
 
 public final class TransactionManagers {
+    private static final Logger log = LoggerFactory.getLogger(TransactionManagers.class);
     private static final ServiceLoader<AtlasDbFactory> loader = ServiceLoader.load(AtlasDbFactory.class);
     public static final LockClient LOCK_CLIENT = LockClient.of("atlas instance");
 
@@ -127,14 +146,34 @@ public final class TransactionManagers {
                 () -> LockServiceImpl.create(lockServerOptions),
                 atlasFactory::getTimestampService);
 
+        TransactionTableLayout transactionTableLayout = config.transactionTableV2CutoverTimestamp()
+                .transform(TransactionTableLayout::withV2Cutover)
+                .or(TransactionTableLayout.V1_ONLY);
+
         KeyValueService kvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(rawKvs);
         kvs = ValidatingQueryRewritingKeyValueService.create(kvs);
+        if (config.enableNegativeLookupFilters()) {
+            kvs = NegativeLookupKeyValueService.create(kvs);
+        }
         kvs = ProfilingKeyValueService.create(kvs);
-        kvs = SweepStatsKeyValueService.create(kvs, lts.time());
+        kvs = SweepStatsKeyValueService.create(kvs, lts.time(), transactionTableLayout);
+        SweepQueue sweepQueue = null;
+        if (config.enableTargetedSweep()) {
+            sweepQueue = SweepQueue.create(kvs);
+            kvs = SweepQueueWritingKeyValueService.create(kvs, sweepQueue);
+        }
 
-        TransactionTables.createTables(kvs);
+        TransactionTables.createTables(kvs, transactionTableLayout);
 
-        TransactionService transactionService = TransactionServices.createTransactionService(kvs);
+        if (config.enableGroupCommit() && !atlasFactory.supportsBatchedPutUnlessExists()) {
+            log.warn("Group commit is enabled, but the {} key value service does not write a batch of putUnlessExists"
+                    + " cells in one round trip, so commit timestamps will be written one at a time.",
+                    config.keyValueService().type());
+        }
+        boolean groupCommit = config.enableGroupCommit() && atlasFactory.supportsBatchedPutUnlessExists();
+        TransactionService transactionService = groupCommit
+                ? TransactionServices.createGroupCommittingTransactionService(kvs, transactionTableLayout)
+                : TransactionServices.createTransactionService(kvs, transactionTableLayout);
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.createDefault(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
 
@@ -172,7 +211,10 @@ public final class TransactionManagers {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                config.enableTransactionReadCache()
+                        ? TransactionReadCache.create(kvs)
+                        : TransactionReadCache.disabled());
 
         SweepTaskRunner sweepRunner = new SweepTaskRunnerImpl(
                 kvs,
@@ -180,22 +222,72 @@ public final class TransactionManagers {
                 getImmutableTsSupplier(transactionManager),
                 transactionService,
                 sweepStrategyManager,
-                new CellsSweeper(transactionManager, kvs, ImmutableList.of(follower)));
-        BackgroundSweeper backgroundSweeper = new BackgroundSweeperImpl(
-                transactionManager,
-                kvs,
-                sweepRunner,
-                Suppliers.ofInstance(config.enableSweep()),
-                Suppliers.ofInstance(config.getSweepPauseMillis()),
-                Suppliers.ofInstance(config.getSweepBatchSize()),
-                Suppliers.ofInstance(config.getSweepCellBatchSize()),
-                SweepTableFactory.of(),
-                new NoOpBackgroundSweeperPerformanceLogger());
+                config.getSweepDeleteThreads() > 1
+                        ? new PipelinedCellsSweeper(
+                                transactionManager,
+                                kvs,
+                                ImmutableList.of(follower),
+                                config.getSweepDeleteThreads())
+                        : new CellsSweeper(transactionManager, kvs, ImmutableList.of(follower)));
+        SweepRateController sweepRateController = config.sweepThrottle().isPresent()
+                ? createAdaptiveSweepRateController(config, config.sweepThrottle().get())
+                : new FixedPauseSweepRateController(
+                        Suppliers.ofInstance(config.getSweepPauseMillis()),
+                        Suppliers.ofInstance(config.getSweepBatchSize()));
+        BackgroundSweeper backgroundSweeper;
+        if (config.getSweepThreads() > 1) {
+            backgroundSweeper = new ParallelBackgroundSweeper(
+                    transactionManager,
+                    kvs,
+                    sweepRunner,
+                    Suppliers.ofInstance(config.enableSweep()),
+                    Suppliers.ofInstance(config.getSweepPauseMillis()),
+                    Suppliers.ofInstance(config.getSweepBatchSize()),
+                    Suppliers.ofInstance(config.getSweepCellBatchSize()),
+                    config.getSweepThreads(),
+                    SweepTableFactory.of(),
+                    sweepRateController);
+        } else {
+            backgroundSweeper = new BackgroundSweeperImpl(
+                    transactionManager,
+                    kvs,
+                    sweepRunner,
+                    Suppliers.ofInstance(config.enableSweep()),
+                    Suppliers.ofInstance(config.getSweepPauseMillis()),
+                    Suppliers.ofInstance(config.getSweepBatchSize()),
+                    Suppliers.ofInstance(config.getSweepCellBatchSize()),
+                    SweepTableFactory.of(),
+                    new NoOpBackgroundSweeperPerformanceLogger(),
+                    sweepRateController);
+        }
         backgroundSweeper.runInBackground();
+        if (config.enableTargetedSweep()) {
+            BackgroundSweeper targetedSweeper = new TargetedSweeper(
+                    transactionManager,
+                    sweepQueue,
+                    sweepRunner,
+                    Suppliers.ofInstance(config.getSweepPauseMillis()),
+                    Suppliers.ofInstance(config.getSweepCellBatchSize()));
+            targetedSweeper.runInBackground();
+        }
 
         return transactionManager;
     }
 
+    private static SweepRateController createAdaptiveSweepRateController(
+            AtlasDbConfig config,
+            SweepThrottleConfig throttleConfig) {
+        return AdaptiveSweepRateController.create(
+                Suppliers.ofInstance(config.getSweepPauseMillis()),
+                Suppliers.ofInstance(config.getSweepBatchSize()),
+                throttleConfig.targetBatchMillis(),
+                throttleConfig.maxCellsPerSecond(),
+                throttleConfig.windows().stream()
+                        .map(window -> SweepBudget.of(
+                                window.startHour(), window.endHour(), window.maxCellsPerSecond()))
+                        .collect(Collectors.toList()));
+    }
+
     private static Supplier<Long> getImmutableTsSupplier(final TransactionManager txManager) {
         return () -> txManager.getImmutableTimestamp();
     }
@@ -211,7 +303,19 @@ public final class TransactionManagers {
             Supplier<TimestampService> time) {
         LockAndTimestampServices lockAndTimestampServices =
                 createRawServices(config, env, lock, time);
-        return withRefreshingLockService(lockAndTimestampServices);
+        return withPrefetchingTimestampService(config, withRefreshingLockService(lockAndTimestampServices));
+    }
+
+    private static LockAndTimestampServices withPrefetchingTimestampService(
+            AtlasDbConfig config,
+            LockAndTimestampServices lockAndTimestampServices) {
+        if (!config.enableStartTimestampPrefetching()) {
+            return lockAndTimestampServices;
+        }
+        return ImmutableLockAndTimestampServices.builder()
+                .from(lockAndTimestampServices)
+                .time(new PrefetchingTimestampService(lockAndTimestampServices.time()))
+                .build();
     }
 
     private static LockAndTimestampServices withRefreshingLockService(
@@ -228,14 +332,26 @@ public final class TransactionManagers {
             Supplier<RemoteLockService> lock,
             Supplier<TimestampService> time) {
         if (config.leader().isPresent()) {
-            return createRawLeaderServices(config.leader().get(), env, lock, time);
+            return withCoalescingLockService(config, createRawLeaderServices(config.leader().get(), env, lock, time));
         } else if (config.timestamp().isPresent() && config.lock().isPresent()) {
-            return createRawRemoteServices(config);
+            return withCoalescingLockService(config, createRawRemoteServices(config));
         } else {
             return createRawEmbeddedServices(env, lock, time);
         }
     }
 
+    private static LockAndTimestampServices withCoalescingLockService(
+            AtlasDbConfig config,
+            LockAndTimestampServices lockAndTimestampServices) {
+        if (!config.enableLockRequestCoalescing()) {
+            return lockAndTimestampServices;
+        }
+        return ImmutableLockAndTimestampServices.builder()
+                .from(lockAndTimestampServices)
+                .lock(CoalescingRemoteLockService.create(lockAndTimestampServices.lock()))
+                .build();
+    }
+
     private static LockAndTimestampServices createRawLeaderServices(
             LeaderConfig leaderConfig,
             Environment env,
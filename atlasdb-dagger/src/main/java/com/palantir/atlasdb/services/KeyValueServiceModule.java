@@ -51,8 +51,8 @@ public class KeyValueServiceModule {
         KeyValueService kvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(rawKvs);
         kvs = ValidatingQueryRewritingKeyValueService.create(kvs);
         kvs = ProfilingKeyValueService.create(kvs);
-        kvs = SweepStatsKeyValueService.create(kvs, tss);
-        TransactionTables.createTables(kvs);
+        kvs = SweepStatsKeyValueService.create(kvs, tss, config.transactionTableLayout());
+        TransactionTables.createTables(kvs, config.transactionTableLayout());
         ImmutableSet<Schema> schemas =
                 ImmutableSet.<Schema>builder()
                         .add(SweepSchema.INSTANCE.getLatestSchema())
@@ -65,8 +65,9 @@ public class KeyValueServiceModule {
 
     @Provides
     @Singleton
-    public TransactionService provideTransactionService(@Named("kvs") KeyValueService kvs) {
-        return TransactionServices.createTransactionService(kvs);
+    public TransactionService provideTransactionService(@Named("kvs") KeyValueService kvs,
+                                                        ServicesConfig config) {
+        return TransactionServices.createTransactionService(kvs, config.transactionTableLayout());
     }
 
     @Provides
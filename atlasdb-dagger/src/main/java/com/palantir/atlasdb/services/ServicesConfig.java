@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.config.AtlasDbConfig;
 import com.palantir.atlasdb.factory.ServiceDiscoveringAtlasSupplier;
 import com.palantir.atlasdb.table.description.Schema;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 
 @Value.Immutable
 public abstract class ServicesConfig {
@@ -37,6 +38,13 @@ public abstract class ServicesConfig {
         return new ServiceDiscoveringAtlasSupplier(atlasDbConfig().keyValueService(), atlasDbConfig().leader());
     }
 
+    @Value.Derived
+    public TransactionTableLayout transactionTableLayout() {
+        return atlasDbConfig().transactionTableV2CutoverTimestamp()
+                .transform(TransactionTableLayout::withV2Cutover)
+                .or(TransactionTableLayout.V1_ONLY);
+    }
+
     @Value.Default
     public Set<Schema> schemas() {
         return ImmutableSet.of();
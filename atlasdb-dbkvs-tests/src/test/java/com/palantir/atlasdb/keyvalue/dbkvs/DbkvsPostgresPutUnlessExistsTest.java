@@ -0,0 +1,106 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ * <p>
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://opensource.org/licenses/BSD-3-Clause
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionManagerAwareDbKvs;
+
+public class DbkvsPostgresPutUnlessExistsTest {
+    private static final TableReference TEST_TABLE = TableReference.createFromFullyQualifiedName("ns.pue_table");
+
+    private KeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        // small batches, so that one putUnlessExists spans several of them
+        kvs = ConnectionManagerAwareDbKvs.create(ImmutableDbKeyValueServiceConfig.builder()
+                .from(DbkvsPostgresTestSuite.getKvsConfig())
+                .ddl(ImmutablePostgresDdlConfig.builder().mutationBatchCount(2).build())
+                .build());
+        kvs.createTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.dropTable(TEST_TABLE);
+        kvs.close();
+    }
+
+    @Test
+    public void writesNewCellsAndReportsExistingCellsOfEveryBatch() {
+        kvs.putUnlessExists(TEST_TABLE, ImmutableMap.of(cell(1), value("old"), cell(4), value("old")));
+
+        Map<Cell, byte[]> values = ImmutableMap.<Cell, byte[]>builder()
+                .put(cell(1), value("new"))
+                .put(cell(2), value("new"))
+                .put(cell(3), value("new"))
+                .put(cell(4), value("new"))
+                .put(cell(5), value("new"))
+                .build();
+        try {
+            kvs.putUnlessExists(TEST_TABLE, values);
+            fail();
+        } catch (KeyAlreadyExistsException e) {
+            assertEquals(ImmutableSet.of(cell(1), cell(4)), ImmutableSet.copyOf(e.getExistingKeys()));
+        }
+
+        Map<Cell, Value> written = kvs.get(TEST_TABLE, Maps.asMap(values.keySet(), cell -> Long.MAX_VALUE));
+        assertArrayEquals(value("old"), written.get(cell(1)).getContents());
+        assertArrayEquals(value("new"), written.get(cell(2)).getContents());
+        assertArrayEquals(value("new"), written.get(cell(3)).getContents());
+        assertArrayEquals(value("old"), written.get(cell(4)).getContents());
+        assertArrayEquals(value("new"), written.get(cell(5)).getContents());
+    }
+
+    @Test
+    public void sentinelsCanBeWrittenAgain() {
+        Set<Cell> cells = ImmutableSet.of(cell(1), cell(2));
+        kvs.addGarbageCollectionSentinelValues(TEST_TABLE, ImmutableSet.of(cell(1)));
+
+        kvs.addGarbageCollectionSentinelValues(TEST_TABLE, cells);
+
+        Map<Cell, Value> sentinels = kvs.get(TEST_TABLE, Maps.asMap(cells, cell -> Value.INVALID_VALUE_TIMESTAMP + 1));
+        assertEquals(cells, sentinels.keySet());
+    }
+
+    private static Cell cell(int row) {
+        return Cell.create(PtBytes.toBytes("row" + row), PtBytes.toBytes("col"));
+    }
+
+    private static byte[] value(String contents) {
+        return PtBytes.toBytes(contents);
+    }
+}
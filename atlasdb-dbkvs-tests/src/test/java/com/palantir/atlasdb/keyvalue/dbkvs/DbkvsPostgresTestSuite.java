@@ -38,6 +38,7 @@ import com.palantir.nexus.db.pool.config.ImmutablePostgresConnectionConfig;
 @RunWith(Suite.class)
 @SuiteClasses({
         DbkvsPostgresKeyValueServiceTest.class,
+        DbkvsPostgresPutUnlessExistsTest.class,
         DbkvsPostgresSerializableTransactionTest.class,
         DbkvsPostgresSweeperTest.class
         })
@@ -37,6 +37,11 @@ public class DbAtlasDbFactory implements AtlasDbFactory {
         return TYPE;
     }
 
+    @Override
+    public boolean supportsBatchedPutUnlessExists() {
+        return true;
+    }
+
     @Override
     public KeyValueService createRawKeyValueService(KeyValueServiceConfig config, Optional<LeaderConfig> leaderConfig) {
         Preconditions.checkArgument(config instanceof DbKeyValueServiceConfig,
@@ -44,6 +44,25 @@ public abstract class PostgresDdlConfig extends DdlConfig {
         return AtlasDbConstants.DEFAULT_METADATA_TABLE;
     }
 
+    /**
+     * Bind the keys of multi-key reads as arrays, so that the statement text does not depend on the batch size
+     * and can be reused as a server-side prepared statement.
+     */
+    @Value.Default
+    public boolean useArrayBoundQueries() {
+        return false;
+    }
+
+    /**
+     * Writes of at least this many cells are streamed into the table with {@code COPY} rather than batched inserts.
+     * Puts are split into batches of at most {@link #mutationBatchCount()} cells first, so that must be at least
+     * as large for puts to reach this threshold. Zero turns {@code COPY} off.
+     */
+    @Value.Default
+    public int copyWriteThreshold() {
+        return 0;
+    }
+
     @Override
     public final String type() {
         return TYPE;
@@ -76,6 +76,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
 import com.palantir.atlasdb.keyvalue.dbkvs.DdlConfig;
@@ -239,7 +240,9 @@ public class DbKvs extends AbstractKeyValueService {
         return entry -> Cells.getApproxSizeOfCell(entry.getKey()) + entry.getValue().getContents().length;
     }
 
-    private void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp, boolean idempotent) {
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp)
+            throws KeyAlreadyExistsException {
         Iterable<List<Entry<Cell, byte[]>>> batches = partitionByCountAndBytes(
                 values.entrySet(),
                 config.mutationBatchCount(),
@@ -254,11 +257,7 @@ public class DbKvs extends AbstractKeyValueService {
                     try {
                         table.put(batch, timestamp);
                     } catch (KeyAlreadyExistsException e) {
-                        if (idempotent) {
-                            putIfNotUpdate(tableRef, table, batch, timestamp, e);
-                        } else {
-                            throw e;
-                        }
+                        putIfNotUpdate(tableRef, table, batch, timestamp, e);
                     }
                 }
                 return null;
@@ -266,12 +265,6 @@ public class DbKvs extends AbstractKeyValueService {
         });
     }
 
-    @Override
-    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp)
-            throws KeyAlreadyExistsException {
-        put(tableRef, values, timestamp, true);
-    }
-
     private void putIfNotUpdate(
             TableReference tableRef,
             DbWriteTable table,
@@ -340,7 +333,26 @@ public class DbKvs extends AbstractKeyValueService {
 
     @Override
     public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
-        put(tableRef, values, AtlasDbConstants.TRANSACTION_TS, false);
+        Iterable<List<Entry<Cell, byte[]>>> batches = partitionByCountAndBytes(
+                values.entrySet(),
+                config.mutationBatchCount(),
+                config.mutationBatchSizeBytes(),
+                tableRef,
+                getByteSizingFunction());
+
+        Set<Cell> existingKeys = runWrite(tableRef, new Function<DbWriteTable, Set<Cell>>() {
+            @Override
+            public Set<Cell> apply(DbWriteTable table) {
+                Set<Cell> existing = Sets.newHashSet();
+                for (List<Entry<Cell, byte[]>> batch : batches) {
+                    existing.addAll(table.putUnlessExists(batch, AtlasDbConstants.TRANSACTION_TS));
+                }
+                return existing;
+            }
+        });
+        if (!existingKeys.isEmpty()) {
+            throw new KeyAlreadyExistsException("primary key violation", existingKeys);
+        }
     }
 
     @Override
@@ -508,45 +520,143 @@ public class DbKvs extends AbstractKeyValueService {
     private TokenBackedBasicResultsPage<RowResult<Set<Long>>, byte[]> getTimestampsPageInternal(DbReadTable table,
                                                                                                 RangeRequest range,
                                                                                                 long timestamp) {
-        Comparator<byte[]> comp = UnsignedBytes.lexicographicalComparator();
-        SortedSet<byte[]> rows = Sets.newTreeSet(comp);
         int maxRows = getMaxRowsFromBatchHint(range.getBatchHint());
+        SortedSet<byte[]> rows = getRowNamesForPage(table, range, timestamp, maxRows);
+        if (rows.isEmpty()) {
+            return SimpleTokenBackedResultsPage.create(null, ImmutableList.<RowResult<Set<Long>>>of(), false);
+        }
 
+        SetMultimap<Cell, Long> results = HashMultimap.create();
+        try (ClosableIterator<AgnosticLightResultRow> rowResults =
+                table.getAllRows(rows, getColumnSelection(range), timestamp, false)) {
+            while (rowResults.hasNext()) {
+                AgnosticLightResultRow row = rowResults.next();
+                Cell cell = Cell.create(row.getBytes("row_name"), row.getBytes("col_name"));
+                long ts = row.getLong("ts");
+                results.put(cell, ts);
+            }
+        }
+        return createPage(range, rows, maxRows, Multimaps.asMap(results));
+    }
 
-        try (ClosableIterator<AgnosticLightResultRow> rangeResults = table.getRange(range, timestamp, maxRows)) {
-            while (rows.size() < maxRows && rangeResults.hasNext()) {
-                byte[] rowName = rangeResults.next().getBytes("row_name");
-                if (rowName != null) {
-                    rows.add(rowName);
-                }
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        Iterable<RowResult<TimestampsAndLatestValue>> rows = new AbstractPagingIterable<
+                RowResult<TimestampsAndLatestValue>,
+                TokenBackedBasicResultsPage<RowResult<TimestampsAndLatestValue>, byte[]>>() {
+            @Override
+            protected TokenBackedBasicResultsPage<RowResult<TimestampsAndLatestValue>, byte[]> getFirstPage() {
+                return getTimestampsAndLatestValuesPage(tableRef, rangeRequest, timestamp);
             }
-            if (rows.isEmpty()) {
-                return SimpleTokenBackedResultsPage.create(null, ImmutableList.<RowResult<Set<Long>>>of(), false);
+
+            @Override
+            protected TokenBackedBasicResultsPage<RowResult<TimestampsAndLatestValue>, byte[]> getNextPage(
+                    TokenBackedBasicResultsPage<RowResult<TimestampsAndLatestValue>, byte[]> previous) {
+                byte[] newStartRow = previous.getTokenForNextPage();
+                RangeRequest newRange = rangeRequest.getBuilder().startRowInclusive(newStartRow).build();
+                return getTimestampsAndLatestValuesPage(tableRef, newRange, timestamp);
             }
+        };
+        return ClosableIterators.wrap(rows.iterator());
+    }
+
+    private TokenBackedBasicResultsPage<RowResult<TimestampsAndLatestValue>, byte[]> getTimestampsAndLatestValuesPage(
+            TableReference tableRef,
+            RangeRequest range,
+            long timestamp) {
+        Stopwatch watch = Stopwatch.createStarted();
+        try {
+            return runRead(tableRef, table -> getTimestampsAndLatestValuesPageInternal(table, range, timestamp));
+        } finally {
+            log.debug("Call to KVS.getTimestampsAndLatestValuesPage on table {} took {} ms.",
+                    tableRef, watch.elapsed(TimeUnit.MILLISECONDS));
         }
+    }
 
-        ColumnSelection columns = ColumnSelection.all();
-        if (!range.getColumnNames().isEmpty()) {
-            columns = ColumnSelection.create(range.getColumnNames());
+    @SuppressWarnings("deprecation")
+    private TokenBackedBasicResultsPage<RowResult<TimestampsAndLatestValue>, byte[]>
+            getTimestampsAndLatestValuesPageInternal(DbReadTable table, RangeRequest range, long timestamp) {
+        int maxRows = getMaxRowsFromBatchHint(range.getBatchHint());
+        SortedSet<byte[]> rows = getRowNamesForPage(table, range, timestamp, maxRows);
+        if (rows.isEmpty()) {
+            return SimpleTokenBackedResultsPage.create(
+                    null, ImmutableList.<RowResult<TimestampsAndLatestValue>>of(), false);
         }
 
-        SetMultimap<Cell, Long> results = HashMultimap.create();
-        try (ClosableIterator<AgnosticLightResultRow> rowResults = table.getAllRows(rows, columns, timestamp, false)) {
+        // Read every version with its value in one query, keeping only the value of the latest version.
+        boolean hasOverflow = table.hasOverflowValues();
+        SetMultimap<Cell, Long> timestamps = HashMultimap.create();
+        Map<Cell, Value> values = Maps.newHashMap();
+        Map<Cell, OverflowValue> overflowValues = Maps.newHashMap();
+        try (ClosableIterator<AgnosticLightResultRow> rowResults =
+                table.getAllRows(rows, getColumnSelection(range), timestamp, true)) {
             while (rowResults.hasNext()) {
                 AgnosticLightResultRow row = rowResults.next();
                 Cell cell = Cell.create(row.getBytes("row_name"), row.getBytes("col_name"));
                 long ts = row.getLong("ts");
-                results.put(cell, ts);
+                timestamps.put(cell, ts);
+                Long overflowId = hasOverflow ? row.getLongObject("overflow") : null;
+                if (overflowId == null) {
+                    Value value = Value.create(row.getBytes("val"), ts);
+                    Value oldValue = values.put(cell, value);
+                    if (oldValue != null && oldValue.getTimestamp() > value.getTimestamp()) {
+                        values.put(cell, oldValue);
+                    }
+                } else {
+                    OverflowValue ov = ImmutableOverflowValue.of(ts, overflowId);
+                    OverflowValue oldOv = overflowValues.put(cell, ov);
+                    if (oldOv != null && oldOv.ts() > ov.ts()) {
+                        overflowValues.put(cell, oldOv);
+                    }
+                }
             }
         }
+        fillOverflowValues(table, overflowValues, values);
+
+        Map<Cell, TimestampsAndLatestValue> results = Maps.newHashMapWithExpectedSize(timestamps.keySet().size());
+        for (Entry<Cell, Set<Long>> entry : Multimaps.asMap(timestamps).entrySet()) {
+            results.put(entry.getKey(), TimestampsAndLatestValue.create(entry.getValue(), values.get(entry.getKey())));
+        }
+        return createPage(range, rows, maxRows, results);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static SortedSet<byte[]> getRowNamesForPage(DbReadTable table,
+                                                        RangeRequest range,
+                                                        long timestamp,
+                                                        int maxRows) {
+        SortedSet<byte[]> rows = Sets.newTreeSet(UnsignedBytes.lexicographicalComparator());
+        try (ClosableIterator<AgnosticLightResultRow> rangeResults = table.getRange(range, timestamp, maxRows)) {
+            while (rows.size() < maxRows && rangeResults.hasNext()) {
+                byte[] rowName = rangeResults.next().getBytes("row_name");
+                if (rowName != null) {
+                    rows.add(rowName);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static ColumnSelection getColumnSelection(RangeRequest range) {
+        if (!range.getColumnNames().isEmpty()) {
+            return ColumnSelection.create(range.getColumnNames());
+        }
+        return ColumnSelection.all();
+    }
 
-        NavigableMap<byte[], SortedMap<byte[], Set<Long>>> cellsByRow =
-                Cells.breakCellsUpByRow(Multimaps.asMap(results));
+    private static <T> TokenBackedBasicResultsPage<RowResult<T>, byte[]> createPage(RangeRequest range,
+                                                                                   SortedSet<byte[]> rows,
+                                                                                   int maxRows,
+                                                                                   Map<Cell, T> results) {
+        NavigableMap<byte[], SortedMap<byte[], T>> cellsByRow = Cells.breakCellsUpByRow(results);
         if (range.isReverse()) {
             cellsByRow = cellsByRow.descendingMap();
         }
-        List<RowResult<Set<Long>>> finalResults = Lists.newArrayListWithCapacity(results.size());
-        for (Entry<byte[], SortedMap<byte[], Set<Long>>> entry : cellsByRow.entrySet()) {
+        List<RowResult<T>> finalResults = Lists.newArrayListWithCapacity(results.size());
+        for (Entry<byte[], SortedMap<byte[], T>> entry : cellsByRow.entrySet()) {
             finalResults.add(RowResult.create(entry.getKey(), entry.getValue()));
         }
         byte[] nextRow = null;
@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.Value;
@@ -26,6 +27,14 @@ import com.palantir.atlasdb.keyvalue.api.Value;
 public interface DbWriteTable {
     void put(Collection<Map.Entry<Cell, byte[]>> data, long ts);
     void put(Collection<Map.Entry<Cell, Value>> data);
+
+    /**
+     * Writes the cells that have no value at {@code ts} yet and returns the ones that already had one. Tables that
+     * cannot tell which cells conflicted throw {@link com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException}
+     * without writing the batch instead.
+     */
+    Set<Cell> putUnlessExists(Collection<Map.Entry<Cell, byte[]>> data, long ts);
+
     void putSentinels(Iterable<Cell> cells);
     void delete(List<Entry<Cell, Long>> partition);
 }
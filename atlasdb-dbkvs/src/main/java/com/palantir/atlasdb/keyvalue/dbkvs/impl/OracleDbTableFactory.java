@@ -23,6 +23,7 @@ import com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle.OracleDdlTable;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle.OracleOverflowQueryFactory;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle.OracleOverflowWriteTable;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle.OracleRawQueryFactory;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle.OracleRawWriteTable;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle.OracleTableInitializer;
 import com.palantir.atlasdb.keyvalue.impl.TableMappingNotFoundException;
 import com.palantir.nexus.db.DBType;
@@ -92,7 +93,7 @@ public class OracleDbTableFactory implements DbTableFactory {
             case OVERFLOW:
                 return OracleOverflowWriteTable.create(config, conns, tableRef);
             case RAW:
-                return new SimpleDbWriteTable(config, conns, tableRef);
+                return new OracleRawWriteTable(config, conns, tableRef);
             default:
                 throw new EnumConstantNotPresentException(TableSize.class, tableSize.name());
         }
@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.keyvalue.dbkvs.impl;
 
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -22,17 +24,21 @@ import java.util.concurrent.TimeUnit;
 
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres.PostgresArrayQueryFactory;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres.PostgresDdlTable;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres.PostgresQueryFactory;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres.PostgresTableInitializer;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres.PostgresWriteTable;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.exception.PalantirSqlException;
 import com.palantir.nexus.db.DBType;
 
 public class PostgresDbTableFactory implements DbTableFactory {
 
     private final PostgresDdlConfig config;
     private final ExecutorService exec;
+    private volatile Boolean supportsOnConflict;
 
     public PostgresDbTableFactory(PostgresDdlConfig config) {
         this.config = config;
@@ -67,16 +73,37 @@ public class PostgresDbTableFactory implements DbTableFactory {
 
     @Override
     public DbReadTable createRead(TableReference tableRef, ConnectionSupplier conns) {
-        return new BatchedDbReadTable(
-                conns,
-                new PostgresQueryFactory(DbKvs.internalTableName(tableRef), config),
-                exec,
-                config);
+        String tableName = DbKvs.internalTableName(tableRef);
+        PostgresQueryFactory queryFactory = config.useArrayBoundQueries()
+                ? new PostgresArrayQueryFactory(tableName, config)
+                : new PostgresQueryFactory(tableName, config);
+        return new BatchedDbReadTable(conns, queryFactory, exec, config);
     }
 
     @Override
     public DbWriteTable createWrite(TableReference tableRef, ConnectionSupplier conns) {
-        return new SimpleDbWriteTable(config, conns, tableRef);
+        return new PostgresWriteTable(config, conns, tableRef, supportsOnConflict(conns));
+    }
+
+    private boolean supportsOnConflict(ConnectionSupplier conns) {
+        if (supportsOnConflict == null) {
+            supportsOnConflict = checkSupportsOnConflict(conns);
+        }
+        return supportsOnConflict;
+    }
+
+    /**
+     * {@code INSERT ... ON CONFLICT} needs postgres 9.5. This factory is also used for H2, which does not have it.
+     */
+    private static boolean checkSupportsOnConflict(ConnectionSupplier conns) {
+        try {
+            DatabaseMetaData metaData = conns.get().getUnderlyingConnection().getMetaData();
+            int majorVersion = metaData.getDatabaseMajorVersion();
+            return metaData.getDatabaseProductName().equals("PostgreSQL")
+                    && (majorVersion > 9 || (majorVersion == 9 && metaData.getDatabaseMinorVersion() >= 5));
+        } catch (SQLException e) {
+            throw PalantirSqlException.create(e);
+        }
     }
 
     @Override
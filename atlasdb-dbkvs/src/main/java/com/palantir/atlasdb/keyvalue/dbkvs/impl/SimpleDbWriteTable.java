@@ -19,7 +19,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
@@ -66,6 +68,13 @@ public class SimpleDbWriteTable implements DbWriteTable {
         put(args);
     }
 
+    @Override
+    public Set<Cell> putUnlessExists(Collection<Map.Entry<Cell, byte[]>> data, long ts) {
+        // a primary key violation fails the whole batch without saying which cells conflicted
+        put(data, ts);
+        return ImmutableSet.of();
+    }
+
     private void put(List<Object[]> args) {
         try {
             String prefixedTableName = prefixedTableNames.get(tableRef);
@@ -20,14 +20,14 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Throwables;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Ordering;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -111,6 +111,13 @@ public final class OracleOverflowWriteTable implements DbWriteTable {
         put(args, overflowArgs);
     }
 
+    @Override
+    public Set<Cell> putUnlessExists(Collection<Map.Entry<Cell, byte[]>> data, long ts) {
+        // a primary key violation fails the whole batch without saying which cells conflicted
+        put(data, ts);
+        return ImmutableSet.of();
+    }
+
     private void put(List<Object[]> args, List<Object[]> overflowArgs) {
         if (!overflowArgs.isEmpty()) {
             if (config.overflowMigrationState() == OverflowMigrationState.UNSTARTED) {
@@ -141,36 +148,7 @@ public final class OracleOverflowWriteTable implements DbWriteTable {
 
     @Override
     public void putSentinels(Iterable<Cell> cells) {
-        byte[] value = new byte[0];
-        long ts = Value.INVALID_VALUE_TIMESTAMP;
-        for (List<Cell> batch : Iterables.partition(Ordering.natural().immutableSortedCopy(cells), 1000)) {
-            List<Object[]> args = Lists.newArrayListWithCapacity(batch.size());
-            for (Cell cell : batch) {
-                args.add(new Object[] {cell.getRowName(), cell.getColumnName(), ts, value, null,
-                        cell.getRowName(), cell.getColumnName(), ts});
-            }
-            while (true) {
-                try {
-                    String shortTableName = getShortTableName();
-                    conns.get().insertManyUnregisteredQuery("/* INSERT_WHERE_NOT_EXISTS (" + shortTableName + ") */"
-                            + " INSERT INTO " + shortTableName
-                            + "   (row_name, col_name, ts, val, overflow)"
-                            + " SELECT ?, ?, ?, ?, ? FROM DUAL"
-                            + " WHERE NOT EXISTS ("
-                            + "   SELECT * FROM " + shortTableName
-                            + "   WHERE row_name = ?"
-                            + "     AND col_name = ?"
-                            + "     AND ts = ?)",
-                            args);
-                    break;
-                } catch (PalantirSqlException e) {
-                    // we can't do atomic put if not exists, so retry if we get constraint violations
-                    if (!ExceptionCheck.isUniqueConstraintViolation(e)) {
-                        throw e;
-                    }
-                }
-            }
-        }
+        OracleSentinelWriter.putSentinels(conns, getShortTableName(), true, cells);
     }
 
     @Override
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.dbkvs.OracleDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionSupplier;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.PrefixedTableNames;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.SimpleDbWriteTable;
+
+/**
+ * Write table for oracle tables without an overflow column, which writes sentinels with {@code MERGE}.
+ */
+public final class OracleRawWriteTable extends SimpleDbWriteTable {
+    private final PrefixedTableNames prefixedTableNames;
+
+    public OracleRawWriteTable(OracleDdlConfig config, ConnectionSupplier conns, TableReference tableRef) {
+        super(config, conns, tableRef);
+        this.prefixedTableNames = new PrefixedTableNames(config, conns);
+    }
+
+    @Override
+    public void putSentinels(Iterable<Cell> cells) {
+        OracleSentinelWriter.putSentinels(conns, prefixedTableNames.get(tableRef), false, cells);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle;
+
+import java.util.List;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionSupplier;
+import com.palantir.exception.PalantirSqlException;
+import com.palantir.nexus.db.sql.ExceptionCheck;
+
+/**
+ * Writes garbage collection sentinels with {@code MERGE}, which skips the sentinels that already exist.
+ */
+final class OracleSentinelWriter {
+    private static final int BATCH_SIZE = 1000;
+
+    private OracleSentinelWriter() {
+        // Utility class
+    }
+
+    static void putSentinels(
+            ConnectionSupplier conns,
+            String shortTableName,
+            boolean hasOverflowColumn,
+            Iterable<Cell> cells) {
+        byte[] value = new byte[0];
+        long ts = Value.INVALID_VALUE_TIMESTAMP;
+        String sql = "/* MERGE_SENTINEL (" + shortTableName + ") */"
+                + " MERGE INTO " + shortTableName + " m"
+                + " USING (SELECT ? row_name, ? col_name, ? ts FROM DUAL) s"
+                + " ON (m.row_name = s.row_name AND m.col_name = s.col_name AND m.ts = s.ts)"
+                + (hasOverflowColumn
+                        ? " WHEN NOT MATCHED THEN INSERT (row_name, col_name, ts, val, overflow)"
+                                + " VALUES (s.row_name, s.col_name, s.ts, ?, NULL)"
+                        : " WHEN NOT MATCHED THEN INSERT (row_name, col_name, ts, val)"
+                                + " VALUES (s.row_name, s.col_name, s.ts, ?)");
+        for (List<Cell> batch : Iterables.partition(Ordering.natural().immutableSortedCopy(cells), BATCH_SIZE)) {
+            List<Object[]> args = Lists.newArrayListWithCapacity(batch.size());
+            for (Cell cell : batch) {
+                args.add(new Object[] {cell.getRowName(), cell.getColumnName(), ts, value});
+            }
+            while (true) {
+                try {
+                    conns.get().insertManyUnregisteredQuery(sql, args);
+                    break;
+                } catch (PalantirSqlException e) {
+                    // MERGE skips existing sentinels, but two concurrent MERGEs can still both insert the same
+                    // one, so retry if we get constraint violations
+                    if (!ExceptionCheck.isUniqueConstraintViolation(e)) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes rows in the binary format read by {@code COPY ... FROM STDIN (FORMAT binary)}.
+ */
+final class BinaryCopyWriter {
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+    private static final int NO_FLAGS = 0;
+    private static final int NO_HEADER_EXTENSION = 0;
+    private static final short END_OF_ROWS = -1;
+
+    private final DataOutputStream out;
+
+    BinaryCopyWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    void writeHeader() throws IOException {
+        out.write(SIGNATURE);
+        out.writeInt(NO_FLAGS);
+        out.writeInt(NO_HEADER_EXTENSION);
+    }
+
+    void startRow(int numFields) throws IOException {
+        out.writeShort(numFields);
+    }
+
+    void writeBytes(byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        out.writeInt(Long.BYTES);
+        out.writeLong(value);
+    }
+
+    void writeTrailer() throws IOException {
+        out.writeShort(END_OF_ROWS);
+        out.flush();
+    }
+}
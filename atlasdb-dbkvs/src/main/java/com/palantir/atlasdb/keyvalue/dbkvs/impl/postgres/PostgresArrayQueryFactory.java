@@ -0,0 +1,139 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import java.util.Collection;
+import java.util.Map.Entry;
+
+import com.google.common.io.BaseEncoding;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
+
+/**
+ * A {@link PostgresQueryFactory} that binds the keys of multi-key reads as {@code bytea[]} and {@code bigint[]}
+ * arrays instead of one parameter per value. Every query shape then has a single statement text, whatever the
+ * batch size, so the driver can reuse it as a server-side prepared statement rather than parsing and planning
+ * each distinct batch size.
+ * <p>
+ * The arrays are bound as array literals and cast on the server, since the driver cannot create {@code bytea}
+ * arrays itself. Parallel arrays are zipped with {@code unnest} in the select list, which works on all
+ * supported versions of postgres.
+ */
+public class PostgresArrayQueryFactory extends PostgresQueryFactory {
+    private static final String BYTEA_ARRAY = "CAST(? AS BYTEA[])";
+    private static final String BIGINT_ARRAY = "CAST(? AS BIGINT[])";
+    private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
+    public PostgresArrayQueryFactory(String tableName, PostgresDdlConfig config) {
+        super(tableName, config);
+    }
+
+    @Override
+    protected String matchAny(int numValues) {
+        return "= ANY (" + BYTEA_ARRAY + ") ";
+    }
+
+    @Override
+    protected FullQuery addMatchAnyArgs(FullQuery fullQuery, Iterable<byte[]> values) {
+        return fullQuery.withArg(toByteaArray(values));
+    }
+
+    @Override
+    protected String rowTsTable(int numRows) {
+        return " (SELECT unnest(" + BYTEA_ARRAY + ") AS row_name,"
+                + "         unnest(" + BIGINT_ARRAY + ") AS ts) t ";
+    }
+
+    @Override
+    protected String cellTable(int numCells) {
+        return " (SELECT unnest(" + BYTEA_ARRAY + ") AS row_name,"
+                + "         unnest(" + BYTEA_ARRAY + ") AS col_name) t ";
+    }
+
+    @Override
+    protected String cellTsTable(int numCells) {
+        return " (SELECT unnest(" + BYTEA_ARRAY + ") AS row_name,"
+                + "         unnest(" + BYTEA_ARRAY + ") AS col_name,"
+                + "         unnest(" + BIGINT_ARRAY + ") AS ts) t ";
+    }
+
+    @Override
+    protected FullQuery addRowTsArgs(FullQuery fullQuery, Collection<Entry<byte[], Long>> rows) {
+        StringBuilder rowNames = new StringBuilder("{");
+        StringBuilder timestamps = new StringBuilder("{");
+        for (Entry<byte[], Long> entry : rows) {
+            appendBytea(rowNames, entry.getKey());
+            appendBigint(timestamps, entry.getValue());
+        }
+        return fullQuery.withArgs(rowNames.append('}').toString(), timestamps.append('}').toString());
+    }
+
+    @Override
+    protected FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
+        StringBuilder rowNames = new StringBuilder("{");
+        StringBuilder colNames = new StringBuilder("{");
+        for (Cell cell : cells) {
+            appendBytea(rowNames, cell.getRowName());
+            appendBytea(colNames, cell.getColumnName());
+        }
+        return fullQuery.withArgs(rowNames.append('}').toString(), colNames.append('}').toString());
+    }
+
+    @Override
+    protected FullQuery addCellTsArgs(FullQuery fullQuery, Collection<Entry<Cell, Long>> cells) {
+        StringBuilder rowNames = new StringBuilder("{");
+        StringBuilder colNames = new StringBuilder("{");
+        StringBuilder timestamps = new StringBuilder("{");
+        for (Entry<Cell, Long> entry : cells) {
+            appendBytea(rowNames, entry.getKey().getRowName());
+            appendBytea(colNames, entry.getKey().getColumnName());
+            appendBigint(timestamps, entry.getValue());
+        }
+        return fullQuery.withArgs(
+                rowNames.append('}').toString(),
+                colNames.append('}').toString(),
+                timestamps.append('}').toString());
+    }
+
+    static String toByteaArray(Iterable<byte[]> values) {
+        StringBuilder builder = new StringBuilder("{");
+        for (byte[] value : values) {
+            appendBytea(builder, value);
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Appends a quoted element in bytea hex format. The backslash of the hex prefix is escaped for the array
+     * literal, so {@code {"\\x0102"}} parses as the single value {@code \x0102}.
+     */
+    private static void appendBytea(StringBuilder builder, byte[] value) {
+        appendSeparator(builder);
+        builder.append("\"\\\\x").append(HEX.encode(value)).append('"');
+    }
+
+    private static void appendBigint(StringBuilder builder, long value) {
+        appendSeparator(builder);
+        builder.append(value);
+    }
+
+    private static void appendSeparator(StringBuilder builder) {
+        if (builder.length() > 1) {
+            builder.append(',');
+        }
+    }
+}
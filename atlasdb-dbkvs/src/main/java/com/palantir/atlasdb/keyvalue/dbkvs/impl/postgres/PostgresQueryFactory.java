@@ -54,11 +54,11 @@ public class PostgresQueryFactory implements DbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name " + matchAny(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : addMatchAnyArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -69,14 +69,14 @@ public class PostgresQueryFactory implements DbQueryFactory {
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name " + matchAny(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name " + matchAny(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        FullQuery fullQuery = addMatchAnyArgs(new FullQuery(query), rows).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : addMatchAnyArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -85,16 +85,15 @@ public class PostgresQueryFactory implements DbQueryFactory {
                                         boolean includeValue) {
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
-                + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "   FROM " + prefixedTableName() + " m, " + rowTsTable(rows.size())
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name " + matchAny(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : addMatchAnyArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -108,9 +107,9 @@ public class PostgresQueryFactory implements DbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name " + matchAny(Iterables.size(columns.getSelectedColumns())));
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : addMatchAnyArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -121,12 +120,12 @@ public class PostgresQueryFactory implements DbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name " + matchAny(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                    "    AND m.col_name " + matchAny(Iterables.size(columns.getSelectedColumns())));
+        FullQuery fullQuery = addMatchAnyArgs(new FullQuery(query), rows).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : addMatchAnyArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -135,14 +134,13 @@ public class PostgresQueryFactory implements DbQueryFactory {
                                      boolean includeValue) {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
-                + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "   FROM " + prefixedTableName() + " m, " + rowTsTable(rows.size())
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name " + matchAny(Iterables.size(columns.getSelectedColumns())));
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : addMatchAnyArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -163,8 +161,7 @@ public class PostgresQueryFactory implements DbQueryFactory {
     public FullQuery getLatestCellsQuery(Iterable<Cell> cells, long ts, boolean includeValue) {
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
-                + "   FROM " + prefixedTableName() + " m,"
-                + "    (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "   FROM " + prefixedTableName() + " m, " + cellTable(Iterables.size(cells))
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? "
@@ -177,8 +174,7 @@ public class PostgresQueryFactory implements DbQueryFactory {
     public FullQuery getLatestCellsQuery(Collection<Entry<Cell, Long>> cells, boolean includeValue) {
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
-                + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "   FROM " + prefixedTableName() + " m, " + cellTsTable(cells.size())
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts "
@@ -202,8 +198,7 @@ public class PostgresQueryFactory implements DbQueryFactory {
     public FullQuery getAllCellsQuery(Iterable<Cell> cells, long ts, boolean includeValue) {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
-                + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "   FROM " + prefixedTableName() + " m, " + cellTable(Iterables.size(cells))
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? ";
@@ -214,8 +209,7 @@ public class PostgresQueryFactory implements DbQueryFactory {
     public FullQuery getAllCellsQuery(Collection<Entry<Cell, Long>> cells, boolean includeValue) {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
-                + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "   FROM " + prefixedTableName() + " m, " + cellTsTable(cells.size())
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts ";
@@ -255,6 +249,41 @@ public class PostgresQueryFactory implements DbQueryFactory {
         throw new IllegalStateException("postgres tables don't have overflow fields");
     }
 
+    /**
+     * Returns the condition that a column equals one of {@code numValues} values, which are bound by
+     * {@link #addMatchAnyArgs}.
+     */
+    protected String matchAny(int numValues) {
+        return "IN " + numParams(numValues);
+    }
+
+    protected FullQuery addMatchAnyArgs(FullQuery fullQuery, Iterable<byte[]> values) {
+        return fullQuery.withArgs(values);
+    }
+
+    /**
+     * Returns a table {@code t(row_name, ts)} of {@code numRows} rows, which are bound by {@link #addRowTsArgs}.
+     */
+    protected String rowTsTable(int numRows) {
+        return " (VALUES " + groupOfNumParams(2, numRows) + ") t(row_name, ts) ";
+    }
+
+    /**
+     * Returns a table {@code t(row_name, col_name)} of {@code numCells} cells, which are bound by
+     * {@link #addCellArgs}.
+     */
+    protected String cellTable(int numCells) {
+        return " (VALUES " + groupOfNumParams(2, numCells) + ") t(row_name, col_name) ";
+    }
+
+    /**
+     * Returns a table {@code t(row_name, col_name, ts)} of {@code numCells} cells, which are bound by
+     * {@link #addCellTsArgs}.
+     */
+    protected String cellTsTable(int numCells) {
+        return " (VALUES " + groupOfNumParams(3, numCells) + ") t(row_name, col_name, ts) ";
+    }
+
     private String numParams(int numParams) {
         StringBuilder builder = new StringBuilder(2 * numParams + 1).append('(');
         Joiner.on(',').appendTo(builder, Iterables.limit(Iterables.cycle('?'), numParams));
@@ -278,21 +307,21 @@ public class PostgresQueryFactory implements DbQueryFactory {
                 + "   AND wrap.ts = i.ts ";
     }
 
-    private FullQuery addRowTsArgs(FullQuery fullQuery, Iterable<Entry<byte[], Long>> rows) {
+    protected FullQuery addRowTsArgs(FullQuery fullQuery, Collection<Entry<byte[], Long>> rows) {
         for (Entry<byte[], Long> entry : rows) {
             fullQuery.withArgs(entry.getKey(), entry.getValue());
         }
         return fullQuery;
     }
 
-    private FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
+    protected FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
         for (Cell cell : cells) {
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName());
         }
         return fullQuery;
     }
 
-    private FullQuery addCellTsArgs(FullQuery fullQuery, Collection<Entry<Cell, Long>> cells) {
+    protected FullQuery addCellTsArgs(FullQuery fullQuery, Collection<Entry<Cell, Long>> cells) {
         for (Entry<Cell, Long> entry : cells) {
             Cell cell = entry.getKey();
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName(), entry.getValue());
@@ -312,12 +341,12 @@ public class PostgresQueryFactory implements DbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_COUNT(" + tableName + ") */"
                 + " SELECT m.row_name, COUNT(m.col_name) AS column_count "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name " + matchAny(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name";
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = addMatchAnyArgs(new FullQuery(query), rows).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionSupplier;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.PrefixedTableNames;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.SimpleDbWriteTable;
+import com.palantir.exception.PalantirSqlException;
+import com.palantir.nexus.db.sql.AgnosticResultRow;
+import com.palantir.nexus.db.sql.AgnosticResultSet;
+import com.palantir.nexus.db.sql.ExceptionCheck;
+import com.palantir.nexus.db.sql.SqlConnection;
+
+/**
+ * Streams writes of at least {@link PostgresDdlConfig#copyWriteThreshold()} cells through {@code COPY} instead of
+ * batched inserts. Sentinels are copied into a temporary staging table first and inserted from there, so that
+ * existing sentinels are skipped in one statement.
+ * <p>
+ * On servers that support {@code INSERT ... ON CONFLICT} (9.5 and later), sentinels and put-unless-exists writes
+ * skip existing cells atomically instead of failing the batch. Other writes and deletes behave as in
+ * {@link SimpleDbWriteTable}.
+ */
+public final class PostgresWriteTable extends SimpleDbWriteTable {
+    private static final String STAGING_TABLE = "atlasdb_copy_staging";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int SENTINEL_BATCH_SIZE = 1000;
+
+    private final int copyWriteThreshold;
+    private final boolean supportsOnConflict;
+    private final String prefixedTableName;
+
+    public PostgresWriteTable(
+            PostgresDdlConfig config,
+            ConnectionSupplier conns,
+            TableReference tableRef,
+            boolean supportsOnConflict) {
+        super(config, conns, tableRef);
+        this.copyWriteThreshold = config.copyWriteThreshold();
+        this.supportsOnConflict = supportsOnConflict;
+        this.prefixedTableName = new PrefixedTableNames(config, conns).get(tableRef);
+    }
+
+    @Override
+    public void put(Collection<Map.Entry<Cell, byte[]>> data, long ts) {
+        if (!shouldCopy(data.size())) {
+            super.put(data, ts);
+            return;
+        }
+        copyIntoTable(writer -> {
+            for (Entry<Cell, byte[]> entry : data) {
+                writeRow(writer, entry.getKey(), ts, entry.getValue());
+            }
+        });
+    }
+
+    @Override
+    public void put(Collection<Map.Entry<Cell, Value>> data) {
+        if (!shouldCopy(data.size())) {
+            super.put(data);
+            return;
+        }
+        copyIntoTable(writer -> {
+            for (Entry<Cell, Value> entry : data) {
+                Value value = entry.getValue();
+                writeRow(writer, entry.getKey(), value.getTimestamp(), value.getContents());
+            }
+        });
+    }
+
+    @Override
+    public Set<Cell> putUnlessExists(Collection<Map.Entry<Cell, byte[]>> data, long ts) {
+        if (!supportsOnConflict) {
+            return super.putUnlessExists(data, ts);
+        }
+        // sorted so that concurrent writers take row locks in the same order
+        ImmutableSortedMap.Builder<Cell, byte[]> builder = ImmutableSortedMap.naturalOrder();
+        for (Entry<Cell, byte[]> entry : data) {
+            builder.put(entry);
+        }
+        ImmutableSortedMap<Cell, byte[]> values = builder.build();
+        AgnosticResultSet inserted = conns.get().selectResultSetUnregisteredQuery(
+                "/* INSERT_ON_CONFLICT_DO_NOTHING (" + prefixedTableName + ") */"
+                + " INSERT INTO " + prefixedTableName + " (row_name, col_name, ts, val)"
+                + " SELECT unnest(CAST(? AS BYTEA[])), unnest(CAST(? AS BYTEA[])), ?, unnest(CAST(? AS BYTEA[]))"
+                + " ON CONFLICT DO NOTHING"
+                + " RETURNING row_name, col_name",
+                PostgresArrayQueryFactory.toByteaArray(Iterables.transform(values.keySet(), Cell::getRowName)),
+                PostgresArrayQueryFactory.toByteaArray(Iterables.transform(values.keySet(), Cell::getColumnName)),
+                ts,
+                PostgresArrayQueryFactory.toByteaArray(values.values()));
+        Set<Cell> existing = Sets.newHashSet(values.keySet());
+        for (AgnosticResultRow row : inserted.rows()) {
+            existing.remove(Cell.create(row.getBytes("row_name"), row.getBytes("col_name")));
+        }
+        return existing;
+    }
+
+    @Override
+    public void putSentinels(Iterable<Cell> cells) {
+        ImmutableSortedSet<Cell> sentinels = ImmutableSortedSet.copyOf(cells);
+        if (!shouldCopy(sentinels.size())) {
+            if (supportsOnConflict) {
+                insertSentinels(sentinels);
+            } else {
+                super.putSentinels(sentinels);
+            }
+            return;
+        }
+        SqlConnection conn = conns.get();
+        conn.executeUnregisteredQuery("CREATE TEMP TABLE IF NOT EXISTS " + STAGING_TABLE + " ("
+                + "  row_name BYTEA NOT NULL,"
+                + "  col_name BYTEA NOT NULL)");
+        conn.executeUnregisteredQuery("TRUNCATE " + STAGING_TABLE);
+        copy(STAGING_TABLE + " (row_name, col_name)", writer -> {
+            for (Cell cell : sentinels) {
+                writer.startRow(2);
+                writer.writeBytes(cell.getRowName());
+                writer.writeBytes(cell.getColumnName());
+            }
+        });
+        long ts = Value.INVALID_VALUE_TIMESTAMP;
+        while (true) {
+            try {
+                conn.updateUnregisteredQuery("/* INSERT_STAGED_SENTINELS (" + prefixedTableName + ") */"
+                        + " INSERT INTO " + prefixedTableName + " (row_name, col_name, ts, val)"
+                        + " SELECT s.row_name, s.col_name, ?, ? FROM " + STAGING_TABLE + " s"
+                        + " WHERE NOT EXISTS (SELECT * FROM " + prefixedTableName + " m WHERE"
+                        + " m.row_name = s.row_name AND"
+                        + " m.col_name = s.col_name AND"
+                        + " m.ts = ?)"
+                        + " ORDER BY s.row_name, s.col_name"
+                        + (supportsOnConflict ? " ON CONFLICT DO NOTHING" : ""),
+                        ts, new byte[0], ts);
+                break;
+            } catch (PalantirSqlException e) {
+                // a concurrent writer added one of the sentinels, retry to skip it
+                if (!ExceptionCheck.isUniqueConstraintViolation(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void insertSentinels(ImmutableSortedSet<Cell> sentinels) {
+        long ts = Value.INVALID_VALUE_TIMESTAMP;
+        for (List<Cell> batch : Iterables.partition(sentinels, SENTINEL_BATCH_SIZE)) {
+            conns.get().updateUnregisteredQuery("/* INSERT_SENTINELS (" + prefixedTableName + ") */"
+                    + " INSERT INTO " + prefixedTableName + " (row_name, col_name, ts, val)"
+                    + " SELECT unnest(CAST(? AS BYTEA[])), unnest(CAST(? AS BYTEA[])), ?, ?"
+                    + " ON CONFLICT DO NOTHING",
+                    PostgresArrayQueryFactory.toByteaArray(Lists.transform(batch, Cell::getRowName)),
+                    PostgresArrayQueryFactory.toByteaArray(Lists.transform(batch, Cell::getColumnName)),
+                    ts,
+                    new byte[0]);
+        }
+    }
+
+    private boolean shouldCopy(int numCells) {
+        return copyWriteThreshold > 0 && numCells >= copyWriteThreshold;
+    }
+
+    private static void writeRow(BinaryCopyWriter writer, Cell cell, long ts, byte[] value) throws IOException {
+        writer.startRow(4);
+        writer.writeBytes(cell.getRowName());
+        writer.writeBytes(cell.getColumnName());
+        writer.writeLong(ts);
+        writer.writeBytes(value);
+    }
+
+    private void copyIntoTable(CopyRows rows) {
+        try {
+            copy(prefixedTableName + " (row_name, col_name, ts, val)", rows);
+        } catch (PalantirSqlException e) {
+            if (ExceptionCheck.isUniqueConstraintViolation(e)) {
+                throw new KeyAlreadyExistsException("primary key violation", e);
+            }
+            throw e;
+        }
+    }
+
+    private void copy(String target, CopyRows rows) {
+        String sql = "COPY " + target + " FROM STDIN (FORMAT binary)";
+        try {
+            PGConnection pgConn = conns.get().getUnderlyingConnection().unwrap(PGConnection.class);
+            PGCopyOutputStream out = new PGCopyOutputStream(pgConn, sql, COPY_BUFFER_SIZE);
+            try {
+                BinaryCopyWriter writer = new BinaryCopyWriter(out);
+                writer.writeHeader();
+                rows.write(writer);
+                writer.writeTrailer();
+                out.close();
+            } finally {
+                if (out.isActive()) {
+                    out.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            throw PalantirSqlException.create(e);
+        } catch (IOException e) {
+            throw PalantirSqlException.create(new SQLException("Failed to copy rows into " + target, e));
+        }
+    }
+
+    private interface CopyRows {
+        void write(BinaryCopyWriter writer) throws IOException;
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.oracle;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionSupplier;
+import com.palantir.exception.PalantirSqlException;
+import com.palantir.nexus.db.sql.SqlConnection;
+
+public class OracleSentinelWriterTest {
+    private static final String TABLE = "a_test_table";
+    private static final Cell CELL_1 = Cell.create(new byte[] {0x01}, new byte[] {0x02});
+    private static final Cell CELL_2 = Cell.create(new byte[] {0x03}, new byte[] {0x04});
+
+    private final SqlConnection connection = mock(SqlConnection.class);
+    private final ConnectionSupplier conns = new ConnectionSupplier(() -> connection);
+
+    @Test
+    public void mergesSentinelsInCellOrder() {
+        OracleSentinelWriter.putSentinels(conns, TABLE, false, ImmutableList.of(CELL_2, CELL_1));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        List<Object[]> args = captureArgs(sql, 1);
+        assertThat(sql.getValue(), containsString("MERGE INTO " + TABLE));
+        assertThat(sql.getValue(), containsString("INSERT (row_name, col_name, ts, val)"));
+        assertThat(args, hasSize(2));
+        assertThat(args.get(0), arrayContaining(
+                (Object) CELL_1.getRowName(), CELL_1.getColumnName(), Value.INVALID_VALUE_TIMESTAMP, new byte[0]));
+        assertThat(args.get(1), arrayContaining(
+                (Object) CELL_2.getRowName(), CELL_2.getColumnName(), Value.INVALID_VALUE_TIMESTAMP, new byte[0]));
+    }
+
+    @Test
+    public void overflowTablesLeaveTheOverflowColumnEmpty() {
+        OracleSentinelWriter.putSentinels(conns, TABLE, true, ImmutableList.of(CELL_1));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        captureArgs(sql, 1);
+        assertThat(sql.getValue(), containsString("INSERT (row_name, col_name, ts, val, overflow)"));
+        assertThat(sql.getValue(), containsString("VALUES (s.row_name, s.col_name, s.ts, ?, NULL)"));
+    }
+
+    @Test
+    public void retriesBatchWhenAConcurrentMergeInsertedTheSameSentinel() {
+        when(connection.insertManyUnregisteredQuery(anyString(), any()))
+                .thenThrow(PalantirSqlException.create("ORA-00001: unique constraint (PK_A_TEST_TABLE) violated"))
+                .thenReturn(true);
+
+        OracleSentinelWriter.putSentinels(conns, TABLE, false, ImmutableList.of(CELL_1));
+
+        captureArgs(ArgumentCaptor.forClass(String.class), 2);
+    }
+
+    @Test
+    public void rethrowsOtherFailures() {
+        PalantirSqlException failure = PalantirSqlException.create("ORA-01013: user requested cancel");
+        when(connection.insertManyUnregisteredQuery(anyString(), any())).thenThrow(failure);
+
+        try {
+            OracleSentinelWriter.putSentinels(conns, TABLE, false, ImmutableList.of(CELL_1));
+            fail();
+        } catch (PalantirSqlException e) {
+            assertThat(e, sameInstance(failure));
+        }
+        captureArgs(ArgumentCaptor.forClass(String.class), 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captureArgs(ArgumentCaptor<String> sql, int calls) {
+        ArgumentCaptor<Iterable> args = ArgumentCaptor.forClass(Iterable.class);
+        verify(connection, times(calls)).insertManyUnregisteredQuery(sql.capture(), args.capture());
+        return Lists.newArrayList((Iterable<Object[]>) args.getValue());
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.google.common.io.BaseEncoding;
+
+public class BinaryCopyWriterTest {
+    private static final String HEADER = "5047434f50590aff0d0a00" + "00000000" + "00000000";
+    private static final String TRAILER = "ffff";
+
+    @Test
+    public void writesHeaderAndTrailerAroundNoRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryCopyWriter writer = new BinaryCopyWriter(out);
+        writer.writeHeader();
+        writer.writeTrailer();
+
+        assertThat(hex(out), equalTo(HEADER + TRAILER));
+    }
+
+    @Test
+    public void writesEachFieldWithItsLength() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryCopyWriter writer = new BinaryCopyWriter(out);
+        writer.writeHeader();
+        writer.startRow(3);
+        writer.writeBytes(new byte[] {0x01, 0x02});
+        writer.writeLong(258L);
+        writer.writeBytes(new byte[0]);
+        writer.writeTrailer();
+
+        assertThat(hex(out), equalTo(HEADER
+                + "0003"
+                + "00000002" + "0102"
+                + "00000008" + "0000000000000102"
+                + "00000000"
+                + TRAILER));
+    }
+
+    private static String hex(ByteArrayOutputStream out) {
+        return BaseEncoding.base16().lowerCase().encode(out.toByteArray());
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
+
+public class PostgresArrayQueryFactoryTest {
+    private static final PostgresDdlConfig CONFIG = ImmutablePostgresDdlConfig.builder().build();
+    private static final Cell CELL_1 = Cell.create(new byte[] {0x01}, new byte[] {(byte) 0xab});
+    private static final Cell CELL_2 = Cell.create(new byte[] {0x02, 0x03}, new byte[] {0x04});
+
+    private final PostgresQueryFactory valuesQueries = new PostgresQueryFactory("test", CONFIG);
+    private final PostgresQueryFactory arrayQueries = new PostgresArrayQueryFactory("test", CONFIG);
+
+    @Test
+    public void cellQueriesHaveTheSameTextForAnyBatchSize() {
+        FullQuery oneCell = arrayQueries.getLatestCellsQuery(ImmutableList.of(CELL_1), 10L, true);
+        FullQuery twoCells = arrayQueries.getLatestCellsQuery(ImmutableList.of(CELL_1, CELL_2), 10L, true);
+
+        assertThat(oneCell.getQuery(), equalTo(twoCells.getQuery()));
+        assertThat(
+                valuesQueries.getLatestCellsQuery(ImmutableList.of(CELL_1), 10L, true).getQuery(),
+                not(equalTo(valuesQueries.getLatestCellsQuery(ImmutableList.of(CELL_1, CELL_2), 10L, true).getQuery())));
+    }
+
+    @Test
+    public void cellsAreBoundAsArrayLiterals() {
+        Map<Cell, Long> cells = ImmutableMap.of(CELL_1, 5L, CELL_2, 7L);
+        FullQuery query = arrayQueries.getAllCellsQuery(cells.entrySet(), false);
+
+        assertThat(query.getArgs(), arrayContaining(
+                (Object) "{\"\\\\x01\",\"\\\\x0203\"}",
+                "{\"\\\\xab\",\"\\\\x04\"}",
+                "{5,7}"));
+    }
+
+    @Test
+    public void rowsAndColumnsAreEachBoundAsOneArray() {
+        List<byte[]> rows = ImmutableList.of(CELL_1.getRowName(), CELL_2.getRowName());
+        ColumnSelection columns = ColumnSelection.create(ImmutableList.of(CELL_1.getColumnName()));
+        FullQuery query = arrayQueries.getAllRowsQuery(rows, 3L, columns, false);
+
+        assertThat(query.getArgs(), arrayContaining(
+                (Object) "{\"\\\\x01\",\"\\\\x0203\"}",
+                3L,
+                "{\"\\\\xab\"}"));
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionSupplier;
+import com.palantir.exception.PalantirSqlException;
+import com.palantir.nexus.db.sql.AgnosticResultRow;
+import com.palantir.nexus.db.sql.AgnosticResultSet;
+import com.palantir.nexus.db.sql.SqlConnection;
+
+public class PostgresWriteTableTest {
+    private static final PostgresDdlConfig CONFIG = ImmutablePostgresDdlConfig.builder().build();
+    private static final TableReference TABLE = TableReference.createWithEmptyNamespace("test");
+    private static final Cell CELL_1 = Cell.create(new byte[] {0x01}, new byte[] {0x02});
+    private static final Cell CELL_2 = Cell.create(new byte[] {0x03}, new byte[] {0x04});
+    private static final Map<Cell, byte[]> VALUES = ImmutableMap.of(CELL_1, new byte[] {0x05}, CELL_2, new byte[0]);
+
+    private final SqlConnection connection = mock(SqlConnection.class);
+    private final ConnectionSupplier conns = new ConnectionSupplier(() -> connection);
+
+    @Test
+    public void putUnlessExistsReturnsTheCellsThatWereNotInserted() {
+        AgnosticResultRow insertedRow = mock(AgnosticResultRow.class);
+        when(insertedRow.getBytes("row_name")).thenReturn(CELL_1.getRowName());
+        when(insertedRow.getBytes("col_name")).thenReturn(CELL_1.getColumnName());
+        AgnosticResultSet inserted = mock(AgnosticResultSet.class);
+        when(inserted.rows()).thenAnswer(invocation -> ImmutableList.of(insertedRow));
+        when(connection.selectResultSetUnregisteredQuery(anyString(), anyVararg())).thenReturn(inserted);
+
+        assertThat(writeTable(true).putUnlessExists(VALUES.entrySet(), 10L), equalTo(ImmutableSet.of(CELL_2)));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).selectResultSetUnregisteredQuery(sql.capture(), anyVararg());
+        assertThat(sql.getValue(), containsString("ON CONFLICT DO NOTHING RETURNING row_name, col_name"));
+        verify(connection, never()).insertManyUnregisteredQuery(anyString(), any());
+    }
+
+    @Test
+    public void putUnlessExistsFailsTheBatchWithoutOnConflict() {
+        when(connection.insertManyUnregisteredQuery(anyString(), any())).thenThrow(
+                PalantirSqlException.create("ERROR: duplicate key value violates unique constraint \"pk_test\""));
+
+        try {
+            writeTable(false).putUnlessExists(VALUES.entrySet(), 10L);
+            fail();
+        } catch (KeyAlreadyExistsException e) {
+            // expected
+        }
+        verify(connection, never()).selectResultSetUnregisteredQuery(anyString(), anyVararg());
+    }
+
+    @Test
+    public void sentinelsSkipExistingCellsWithOnConflict() {
+        writeTable(true).putSentinels(VALUES.keySet());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).updateUnregisteredQuery(sql.capture(), anyVararg());
+        assertThat(sql.getValue(), containsString("ON CONFLICT DO NOTHING"));
+        verify(connection, never()).insertManyUnregisteredQuery(anyString(), any());
+    }
+
+    @Test
+    public void sentinelsAreInsertedWhereNotExistsWithoutOnConflict() {
+        writeTable(false).putSentinels(VALUES.keySet());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).insertManyUnregisteredQuery(sql.capture(), any());
+        assertThat(sql.getValue(), containsString("WHERE NOT EXISTS"));
+        assertThat(sql.getValue(), not(containsString("ON CONFLICT")));
+    }
+
+    private PostgresWriteTable writeTable(boolean supportsOnConflict) {
+        return new PostgresWriteTable(CONFIG, conns, TABLE, supportsOnConflict);
+    }
+}
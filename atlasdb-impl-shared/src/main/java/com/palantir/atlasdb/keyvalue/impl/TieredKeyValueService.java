@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.collect.IteratorUtils;
@@ -363,6 +364,20 @@ public final class TieredKeyValueService implements KeyValueService {
                 request -> secondary.getRangeOfTimestamps(tableRef, request, timestamp));
     }
 
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            final TableReference tableRef,
+            final RangeRequest rangeRequest,
+            final long timestamp) {
+        if (isNotTiered(tableRef)) {
+            return primary.getRangeOfTimestampsAndLatestValues(tableRef, rangeRequest, timestamp);
+        }
+        ClosableIterator<RowResult<TimestampsAndLatestValue>> primaryIter =
+                primary.getRangeOfTimestampsAndLatestValues(tableRef, rangeRequest, timestamp);
+        return new ClosableMergedIterator<>(rangeRequest, primaryIter,
+                request -> secondary.getRangeOfTimestampsAndLatestValues(tableRef, request, timestamp));
+    }
+
     @Override
     public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>>
             getFirstBatchForRanges(final TableReference tableRef,
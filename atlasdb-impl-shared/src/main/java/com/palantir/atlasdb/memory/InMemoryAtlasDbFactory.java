@@ -68,6 +68,11 @@ public class InMemoryAtlasDbFactory implements AtlasDbFactory {
         return "memory";
     }
 
+    @Override
+    public boolean supportsBatchedPutUnlessExists() {
+        return true;
+    }
+
     @Override
     public InMemoryKeyValueService createRawKeyValueService(
             KeyValueServiceConfig config,
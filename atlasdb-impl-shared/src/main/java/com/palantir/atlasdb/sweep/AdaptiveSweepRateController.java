@@ -0,0 +1,227 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+import com.palantir.util.JMXUtils;
+
+/**
+ * Adapts the sweep batch size and pause to keep sweep within a latency and throughput budget.
+ *
+ * The batch size follows additive increase, multiplicative decrease on the 95th percentile latency of
+ * recent batches: it is halved when that latency is over the target or a batch fails, and otherwise
+ * grows by a small step. Once it cannot shrink any further, slow batches lengthen the pause instead.
+ * The pause is also stretched so that the number of cells examined per second stays within the budget
+ * for the current hour of the day.
+ *
+ * One controller is shared by all of a node's sweep threads, and the budget is for all of them together:
+ * every batch is charged against a shared token bucket, and each thread pauses until the bucket has
+ * caught up with the cells examined by all threads. The budget applies to each node separately.
+ */
+public final class AdaptiveSweepRateController implements SweepRateController, AdaptiveSweepRateControllerMBean {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveSweepRateController.class);
+    private static final String BEAN_NAME = "com.palantir.atlasdb:type=SweepRateController";
+
+    private static final int LATENCY_WINDOW = 20;
+    private static final int MIN_LATENCY_SAMPLES = 5;
+    private static final float ADDITIVE_INCREASE = 0.05f;
+    private static final long BACKOFF_STEP_MILLIS = 1000L;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Supplier<Long> minPauseMillis;
+    private final Supplier<Integer> sweepRowBatchSize;
+    private final long targetBatchMillis;
+    private final double defaultMaxCellsPerSecond;
+    private final List<SweepBudget> budgets;
+    private final Clock clock;
+
+    private final Deque<Long> latencies = new ArrayDeque<>(LATENCY_WINDOW);
+    private volatile float batchSizeMultiplier = 1.0f;
+    private volatile long backoffMillis = 0L;
+    private volatile long budgetAvailableAtMillis = 0L;
+    private volatile double lastCellsPerSecond = 0.0;
+    private volatile long increases = 0L;
+    private volatile long decreases = 0L;
+    private volatile String lastDecision = "none";
+
+    public static AdaptiveSweepRateController create(
+            Supplier<Long> minPauseMillis,
+            Supplier<Integer> sweepRowBatchSize,
+            long targetBatchMillis,
+            double defaultMaxCellsPerSecond,
+            List<SweepBudget> budgets) {
+        AdaptiveSweepRateController controller = new AdaptiveSweepRateController(
+                minPauseMillis,
+                sweepRowBatchSize,
+                targetBatchMillis,
+                defaultMaxCellsPerSecond,
+                budgets,
+                Clock.systemDefaultZone());
+        JMXUtils.registerMBeanCatchAndLogExceptions(controller, BEAN_NAME);
+        return controller;
+    }
+
+    @VisibleForTesting
+    AdaptiveSweepRateController(
+            Supplier<Long> minPauseMillis,
+            Supplier<Integer> sweepRowBatchSize,
+            long targetBatchMillis,
+            double defaultMaxCellsPerSecond,
+            List<SweepBudget> budgets,
+            Clock clock) {
+        this.minPauseMillis = minPauseMillis;
+        this.sweepRowBatchSize = sweepRowBatchSize;
+        this.targetBatchMillis = targetBatchMillis;
+        this.defaultMaxCellsPerSecond = defaultMaxCellsPerSecond;
+        this.budgets = ImmutableList.copyOf(budgets);
+        this.clock = clock;
+    }
+
+    @Override
+    public float getBatchSizeMultiplier() {
+        return batchSizeMultiplier;
+    }
+
+    @Override
+    public long getPauseMillis() {
+        long throughputPauseMillis = Math.max(0L, budgetAvailableAtMillis - clock.millis());
+        return Math.max(minPauseMillis.get(), throughputPauseMillis) + backoffMillis;
+    }
+
+    @Override
+    public synchronized void batchSucceeded(SweepResults results, long elapsedMillis) {
+        if (latencies.size() == LATENCY_WINDOW) {
+            latencies.removeFirst();
+        }
+        latencies.addLast(elapsedMillis);
+        long latency = getLatencyP95Millis();
+        if (latencies.size() >= MIN_LATENCY_SAMPLES && latency > targetBatchMillis) {
+            decrease("p95 batch latency of " + latency + " ms is over the target of " + targetBatchMillis + " ms");
+        } else {
+            increase();
+        }
+
+        long cellsExamined = results.getCellsExamined();
+        lastCellsPerSecond = cellsExamined * 1000.0 / Math.max(1L, elapsedMillis);
+        double budget = getCellsPerSecondBudget();
+        if (budget > 0) {
+            // The batch is charged from when it started, as the bucket may have refilled since then.
+            long batchStartMillis = clock.millis() - elapsedMillis;
+            budgetAvailableAtMillis = Math.max(budgetAvailableAtMillis, batchStartMillis)
+                    + (long) Math.ceil(cellsExamined * 1000.0 / budget);
+        } else {
+            budgetAvailableAtMillis = 0L;
+        }
+    }
+
+    @Override
+    public synchronized void batchFailed() {
+        decrease("a batch failed");
+    }
+
+    private void decrease(String reason) {
+        float minMultiplier = 1.5f / sweepRowBatchSize.get();
+        if (batchSizeMultiplier > minMultiplier) {
+            batchSizeMultiplier = Math.max(batchSizeMultiplier / 2, minMultiplier);
+            lastDecision = "halved batch size because " + reason;
+        } else {
+            backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(BACKOFF_STEP_MILLIS, backoffMillis * 2));
+            lastDecision = "increased backoff to " + backoffMillis + " ms because " + reason;
+        }
+        // Start measuring again, so that one slow period only causes one decrease.
+        latencies.clear();
+        decreases++;
+        log.debug("Sweep rate controller {}.", lastDecision);
+    }
+
+    private void increase() {
+        if (backoffMillis > 0) {
+            backoffMillis = Math.max(0L, backoffMillis - BACKOFF_STEP_MILLIS);
+            lastDecision = "reduced backoff to " + backoffMillis + " ms";
+        } else if (batchSizeMultiplier < 1.0f) {
+            batchSizeMultiplier = Math.min(1.0f, batchSizeMultiplier + ADDITIVE_INCREASE);
+            lastDecision = "grew batch size multiplier to " + batchSizeMultiplier;
+        } else {
+            return;
+        }
+        increases++;
+    }
+
+    @Override
+    public long getBackoffMillis() {
+        return backoffMillis;
+    }
+
+    @Override
+    public synchronized long getLatencyP95Millis() {
+        if (latencies.isEmpty()) {
+            return 0L;
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(0.95 * sorted.length) - 1];
+    }
+
+    @Override
+    public long getTargetBatchMillis() {
+        return targetBatchMillis;
+    }
+
+    @Override
+    public double getCellsPerSecondBudget() {
+        int hour = LocalTime.now(clock).getHour();
+        for (SweepBudget budget : budgets) {
+            if (budget.contains(hour)) {
+                return budget.maxCellsPerSecond();
+            }
+        }
+        return defaultMaxCellsPerSecond;
+    }
+
+    @Override
+    public double getLastCellsPerSecond() {
+        return lastCellsPerSecond;
+    }
+
+    @Override
+    public long getIncreases() {
+        return increases;
+    }
+
+    @Override
+    public long getDecreases() {
+        return decreases;
+    }
+
+    @Override
+    public String getLastDecision() {
+        return lastDecision;
+    }
+}
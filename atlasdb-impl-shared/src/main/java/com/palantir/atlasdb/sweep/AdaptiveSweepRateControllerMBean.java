@@ -0,0 +1,44 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+public interface AdaptiveSweepRateControllerMBean {
+    float getBatchSizeMultiplier();
+
+    long getPauseMillis();
+
+    /**
+     * The extra pause added because batches were too slow even at the smallest batch size.
+     */
+    long getBackoffMillis();
+
+    long getLatencyP95Millis();
+
+    long getTargetBatchMillis();
+
+    /**
+     * The current limit on cells examined per second, or 0 if there is none.
+     */
+    double getCellsPerSecondBudget();
+
+    double getLastCellsPerSecond();
+
+    long getIncreases();
+
+    long getDecreases();
+
+    String getLastDecision();
+}
@@ -37,6 +37,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -81,7 +82,7 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
     private final Supplier<Integer> sweepCellBatchSize;
     private final SweepTableFactory tableFactory;
     private final BackgroundSweeperPerformanceLogger sweepPerfLogger;
-    private volatile float batchSizeMultiplier = 1.0f;
+    private final SweepRateController rateController;
     private Thread daemon;
 
     // weights one month of no sweeping with the same priority as about 100000 expected cells to sweep.
@@ -98,6 +99,21 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
             Supplier<Integer> sweepCellBatchSize,
             SweepTableFactory tableFactory,
             BackgroundSweeperPerformanceLogger sweepPerfLogger) {
+        this(txManager, kvs, sweepRunner, isSweepEnabled, sweepPauseMillis, sweepBatchSize, sweepCellBatchSize,
+                tableFactory, sweepPerfLogger, new FixedPauseSweepRateController(sweepPauseMillis, sweepBatchSize));
+    }
+
+    public BackgroundSweeperImpl(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepBatchSize,
+            Supplier<Integer> sweepCellBatchSize,
+            SweepTableFactory tableFactory,
+            BackgroundSweeperPerformanceLogger sweepPerfLogger,
+            SweepRateController rateController) {
         this.txManager = txManager;
         this.kvs = kvs;
         this.sweepRunner = sweepRunner;
@@ -107,6 +123,7 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         this.sweepCellBatchSize = sweepCellBatchSize;
         this.tableFactory = tableFactory;
         this.sweepPerfLogger = sweepPerfLogger;
+        this.rateController = rateController;
     }
 
     @Override
@@ -145,15 +162,13 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
                         log.error("The table being swept by the background sweeper was dropped, moving on...");
                     } else {
                         log.error("The background sweep job failed unexpectedly with a batch size of "
-                                + ((int) (batchSizeMultiplier * sweepRowBatchSize.get()))
+                                + getRowBatchSize()
                                 + ". Attempting to continue with a lower batch size...", e);
-                        // Cut batch size in half, always sweep at least one row (we round down).
-                        batchSizeMultiplier = Math.max(batchSizeMultiplier / 2, 1.5f / sweepRowBatchSize.get());
+                        rateController.batchFailed();
                     }
                 }
                 if (sweptSuccessfully) {
-                    batchSizeMultiplier = Math.min(1.0f, batchSizeMultiplier * 1.01f);
-                    Thread.sleep(sweepPauseMillis.get());
+                    Thread.sleep(rateController.getPauseMillis());
                 } else {
                     Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
                 }
@@ -184,7 +199,7 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
             log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
             return false;
         }
-        int rowBatchSize = Math.max(1, (int) (sweepRowBatchSize.get() * batchSizeMultiplier));
+        int rowBatchSize = getRowBatchSize();
         int cellBatchSize = sweepCellBatchSize.get();
         Stopwatch watch = Stopwatch.createStarted();
         try {
@@ -207,6 +222,7 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
                             .elapsedMillis(elapsedMillis)
                             .build());
             saveSweepResults(progress, results);
+            rateController.batchSucceeded(results, elapsedMillis);
             return true;
         } catch (RuntimeException e) {
             // Error logged at a higher log level above.
@@ -219,8 +235,36 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         }
     }
 
+    private int getRowBatchSize() {
+        return Math.max(1, (int) (sweepRowBatchSize.get() * rateController.getBatchSizeMultiplier()));
+    }
+
     @Nullable
     private SweepProgressRowResult chooseNextTableToSweep(SweepTransaction tx) {
+        TableReference tableRef = getNextTableToSweep(tx, kvs, tableFactory, ImmutableSet.of());
+        if (tableRef == null) {
+            return null;
+        }
+        RowResult<byte[]> rawResult = RowResult.create(SweepProgressRow.of(0).persistToBytes(),
+                ImmutableSortedMap.<byte[], byte[]>orderedBy(UnsignedBytes.lexicographicalComparator())
+                    .put(SweepProgressTable.SweepProgressNamedColumn.FULL_TABLE_NAME.getShortName(),
+                         SweepProgressTable.FullTableName.of(tableRef.getQualifiedName()).persistValue())
+                    .build());
+
+        log.debug("Now starting to sweep {}.", tableRef);
+        return SweepProgressRowResult.of(rawResult);
+    }
+
+    /**
+     * Picks the table most in need of sweeping, ignoring the given tables, or returns null if no table
+     * is worth sweeping at the moment.
+     */
+    @Nullable
+    static TableReference getNextTableToSweep(
+            SweepTransaction tx,
+            KeyValueService kvs,
+            SweepTableFactory tableFactory,
+            Set<TableReference> excludedTables) {
         Set<TableReference> allTables = Sets.difference(kvs.getAllTableNames(), AtlasDbConstants.hiddenTables);
         SweepPriorityTable oldPriorityTable = tableFactory.getSweepPriorityTable(tx);
         SweepPriorityTable newPriorityTable = tableFactory.getSweepPriorityTable(tx.delegate());
@@ -237,27 +281,19 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
                                 Function.identity()
                         )
                 );
-        TableReference tableRef = getTableToSweep(tx, allTables, oldPriorities, newPrioritiesByTableName);
-        if (tableRef == null) {
-            return null;
-        }
-        RowResult<byte[]> rawResult = RowResult.create(SweepProgressRow.of(0).persistToBytes(),
-                ImmutableSortedMap.<byte[], byte[]>orderedBy(UnsignedBytes.lexicographicalComparator())
-                    .put(SweepProgressTable.SweepProgressNamedColumn.FULL_TABLE_NAME.getShortName(),
-                         SweepProgressTable.FullTableName.of(tableRef.getQualifiedName()).persistValue())
-                    .build());
-
-        log.debug("Now starting to sweep {}.", tableRef);
-        return SweepProgressRowResult.of(rawResult);
+        return getTableToSweep(tx, tableFactory, allTables, excludedTables, oldPriorities, newPrioritiesByTableName);
     }
 
     @Nullable
-    private TableReference getTableToSweep(SweepTransaction tx,
+    private static TableReference getTableToSweep(SweepTransaction tx,
+                                   SweepTableFactory tableFactory,
                                    Set<TableReference> allTables,
+                                   Set<TableReference> excludedTables,
                                    List<SweepPriorityRowResult> oldPriorities,
                                    Map<TableReference, SweepPriorityRowResult> newPrioritiesByTableName) {
         // Arbitrarily pick the first table alphabetically from the never-before-swept tables
-        List<TableReference> unsweptTables = Sets.difference(allTables, newPrioritiesByTableName.keySet())
+        Set<TableReference> candidateTables = Sets.difference(allTables, excludedTables);
+        List<TableReference> unsweptTables = Sets.difference(candidateTables, newPrioritiesByTableName.keySet())
                 .stream().sorted(Comparator.comparing(TableReference::getTablename)).collect(Collectors.toList());
         if (!unsweptTables.isEmpty()) {
             return Iterables.get(unsweptTables, 0);
@@ -267,15 +303,15 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         Collection<SweepPriorityRow> toDelete = Lists.newArrayList();
         for (SweepPriorityRowResult oldPriority : oldPriorities) {
             TableReference tableRef = TableReference.createUnsafe(oldPriority.getRowName().getFullTableName());
-            if (allTables.contains(tableRef)) {
+            if (!allTables.contains(tableRef)) {
+                toDelete.add(oldPriority.getRowName());
+            } else if (!excludedTables.contains(tableRef)) {
                 SweepPriorityRowResult newPriority = newPrioritiesByTableName.get(tableRef);
                 double priority = getSweepPriority(oldPriority, newPriority);
                 if (priority > maxPriority) {
                     maxPriority = priority;
                     toSweep = tableRef;
                 }
-            } else {
-                toDelete.add(oldPriority.getRowName());
             }
         }
 
@@ -285,7 +321,7 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         return toSweep;
     }
 
-    private double getSweepPriority(SweepPriorityRowResult oldPriority, SweepPriorityRowResult newPriority) {
+    private static double getSweepPriority(SweepPriorityRowResult oldPriority, SweepPriorityRowResult newPriority) {
         Stream<String> hiddenTableFullNames = AtlasDbConstants.hiddenTables.stream()
                 .map(tableRef -> tableRef.getQualifiedName());
         if (hiddenTableFullNames.anyMatch(Predicate.isEqual(newPriority.getRowName().getFullTableName()))) {
@@ -466,10 +502,12 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
             daemon = null;
         } catch (InterruptedException e) {
             throw Throwables.rewrapAndThrowUncheckedException(e);
+        } finally {
+            sweepRunner.shutdown();
         }
     }
 
-    private static class SweepTransaction extends UnmodifiableTransaction {
+    static class SweepTransaction extends UnmodifiableTransaction {
         private final long sweepTimestamp;
 
         SweepTransaction(Transaction delegate, long sweepTimestamp) {
@@ -51,6 +51,39 @@ public class CellsSweeper {
         for (Follower follower : followers) {
             follower.run(txManager, tableRef, cellTsPairsToSweep.keySet(), Transaction.TransactionType.HARD_DELETE);
         }
+        deleteCells(tableRef, cellTsPairsToSweep, sentinelsToAdd);
+    }
+
+    /**
+     * Waits for the deletes issued by the calling thread to complete, rethrowing
+     * the first failure. Deletes are synchronous here, so there is nothing to wait for.
+     */
+    public void flush() {
+        // no-op
+    }
+
+    /**
+     * Waits for the deletes issued by the calling thread to complete, ignoring any failures, so that they are not
+     * rethrown by a later {@link #flush()}. Used when sweeping has already failed.
+     */
+    public void discardPendingDeletes() {
+        // no-op
+    }
+
+    /**
+     * Stops any threads used to delete cells in the background.
+     */
+    public void shutdown() {
+        // no-op
+    }
+
+    /**
+     * Writes the garbage collection sentinels and then deletes the swept versions.
+     */
+    protected void deleteCells(
+            TableReference tableRef,
+            Multimap<Cell, Long> cellTsPairsToSweep,
+            Set<Cell> sentinelsToAdd) {
         if (!sentinelsToAdd.isEmpty()) {
             keyValueService.addGarbageCollectionSentinelValues(
                     tableRef,
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import com.google.common.base.Supplier;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+
+/**
+ * Halves the batch size whenever a batch fails and grows it back by 1% with every successful batch,
+ * pausing for a fixed time between batches.
+ */
+public class FixedPauseSweepRateController implements SweepRateController {
+    private final Supplier<Long> sweepPauseMillis;
+    private final Supplier<Integer> sweepRowBatchSize;
+    private volatile float batchSizeMultiplier = 1.0f;
+
+    public FixedPauseSweepRateController(Supplier<Long> sweepPauseMillis, Supplier<Integer> sweepRowBatchSize) {
+        this.sweepPauseMillis = sweepPauseMillis;
+        this.sweepRowBatchSize = sweepRowBatchSize;
+    }
+
+    @Override
+    public float getBatchSizeMultiplier() {
+        return batchSizeMultiplier;
+    }
+
+    @Override
+    public long getPauseMillis() {
+        return sweepPauseMillis.get();
+    }
+
+    @Override
+    public void batchSucceeded(SweepResults results, long elapsedMillis) {
+        batchSizeMultiplier = Math.min(1.0f, batchSizeMultiplier * 1.01f);
+    }
+
+    @Override
+    public void batchFailed() {
+        // Cut batch size in half, always sweep at least one row (we round down).
+        batchSizeMultiplier = Math.max(batchSizeMultiplier / 2, 1.5f / sweepRowBatchSize.get());
+    }
+}
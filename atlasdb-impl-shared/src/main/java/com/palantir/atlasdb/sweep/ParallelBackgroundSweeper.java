@@ -0,0 +1,476 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRowResult;
+import com.palantir.atlasdb.schema.generated.SweepProgressTable;
+import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressRow;
+import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressRowResult;
+import com.palantir.atlasdb.schema.generated.SweepTableFactory;
+import com.palantir.atlasdb.sweep.BackgroundSweeperImpl.SweepTransaction;
+import com.palantir.atlasdb.table.description.UniformRowNamePartitioner;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.util.JMXUtils;
+
+/**
+ * Sweeps many tables at once on a pool of worker threads, which may be spread over several nodes.
+ *
+ * Tables are chosen in the same order as by {@link BackgroundSweeperImpl}, and large tables are split
+ * into uniform row ranges. Each (table, row range) shard has its own row in the sweep progress table
+ * and its own lock, so any worker on any node can pick up an unfinished shard. When the last shard of
+ * a table is finished, the results for the whole table are saved to the sweep priority table.
+ *
+ * Progress row 0 belongs to {@link BackgroundSweeperImpl}, which truncates the progress table when it
+ * finishes a table, so the two should not be run against the same key value service.
+ */
+public class ParallelBackgroundSweeper implements BackgroundSweeper {
+    private static final Logger log = LoggerFactory.getLogger(ParallelBackgroundSweeper.class);
+
+    // Tables are split so that each shard has about this many cells, as of the last time they were swept.
+    private static final long CELLS_PER_SHARD = 1_000_000L;
+    private static final int MAX_SHARDS_PER_TABLE = 128;
+    private static final long TABLE_HASH_MASK = (1L << 40) - 1;
+    private static final String BEAN_NAME = "com.palantir.atlasdb:type=ParallelSweep";
+
+    private final LockAwareTransactionManager txManager;
+    private final KeyValueService kvs;
+    private final SweepTaskRunner sweepRunner;
+    private final Supplier<Boolean> isSweepEnabled;
+    private final Supplier<Long> sweepPauseMillis;
+    private final Supplier<Integer> sweepRowBatchSize;
+    private final Supplier<Integer> sweepCellBatchSize;
+    private final int numThreads;
+    private final SweepTableFactory tableFactory;
+    private final ParallelSweepMetrics metrics = new ParallelSweepMetrics();
+    private final SweepRateController rateController;
+    private List<Thread> daemons;
+
+    public ParallelBackgroundSweeper(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepBatchSize,
+            Supplier<Integer> sweepCellBatchSize,
+            int numThreads,
+            SweepTableFactory tableFactory,
+            SweepRateController rateController) {
+        Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+        this.txManager = txManager;
+        this.kvs = kvs;
+        this.sweepRunner = sweepRunner;
+        this.isSweepEnabled = isSweepEnabled;
+        this.sweepPauseMillis = sweepPauseMillis;
+        this.sweepRowBatchSize = sweepBatchSize;
+        this.sweepCellBatchSize = sweepCellBatchSize;
+        this.numThreads = numThreads;
+        this.tableFactory = tableFactory;
+        this.rateController = rateController;
+    }
+
+    @Override
+    public synchronized void runInBackground() {
+        Preconditions.checkState(daemons == null);
+        JMXUtils.registerMBeanCatchAndLogExceptions(metrics, BEAN_NAME);
+        daemons = Lists.newArrayListWithCapacity(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            Thread daemon = new Thread(this);
+            daemon.setDaemon(true);
+            daemon.setName("BackgroundSweeper-" + i);
+            daemon.start();
+            daemons.add(daemon);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Wait a while before starting so short lived clis don't try to sweep.
+            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+            log.debug("Starting background sweep worker.");
+            while (true) {
+                boolean sweptSuccessfully = false;
+                try {
+                    if (isSweepEnabled.get()) {
+                        sweptSuccessfully = runOnce();
+                    } else {
+                        log.debug("Skipping sweep because it is currently disabled.");
+                    }
+                } catch (InsufficientConsistencyException e) {
+                    log.warn("Could not sweep because not all nodes of the database are online.", e);
+                } catch (RuntimeException e) {
+                    metrics.batchFailed();
+                    log.error("A background sweep job failed unexpectedly with a batch size of "
+                            + getRowBatchSize() + ". Attempting to continue with a lower batch size...", e);
+                    rateController.batchFailed();
+                }
+                if (sweptSuccessfully) {
+                    Thread.sleep(rateController.getPauseMillis());
+                } else {
+                    Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Shutting down background sweep worker.");
+        }
+    }
+
+    /**
+     * Sweeps one batch of an unfinished shard that no other worker is sweeping, or starts sweeping the
+     * next table if there is no such shard. Returns false if there was nothing to do.
+     */
+    @VisibleForTesting
+    boolean runOnce() throws InterruptedException {
+        List<SweepProgressRowResult> shards = txManager.runTaskReadOnly(this::getShards);
+        List<SweepProgressRowResult> unfinishedShards = shards.stream()
+                .filter(SweepProgressRowResult::hasStartRow)
+                .collect(Collectors.toList());
+        metrics.shardsRead(unfinishedShards.size(), getTables(shards).size());
+
+        // Finishing a table normally happens when its last shard is finished, but two shards finishing
+        // at once can each miss the other, so finished tables are also picked up here.
+        shards.stream()
+                .filter(row -> !row.hasStartRow())
+                .map(row -> row.getRowName().getDummy() & ~0xffL)
+                .distinct()
+                .forEach(this::finishTableIfComplete);
+
+        List<SweepProgressRowResult> candidates = Lists.newArrayList(unfinishedShards);
+        Collections.shuffle(candidates);
+        for (SweepProgressRowResult shard : candidates) {
+            long shardId = shard.getRowName().getDummy();
+            Optional<LockRefreshToken> lock = tryLock("atlas sweep shard " + shardId);
+            if (lock.isPresent()) {
+                try {
+                    return sweepShard(shardId);
+                } finally {
+                    txManager.getLockService().unlock(lock.get());
+                }
+            }
+        }
+        return startNextTable();
+    }
+
+    private List<SweepProgressRowResult> getShards(Transaction tx) {
+        return tableFactory.getSweepProgressTable(tx).getAllRowsUnordered().immutableCopy().stream()
+                .filter(row -> row.getRowName().getDummy() != 0L && row.hasFullTableName())
+                .collect(Collectors.toList());
+    }
+
+    private static Set<TableReference> getTables(List<SweepProgressRowResult> shards) {
+        return shards.stream()
+                .map(row -> TableReference.createUnsafe(row.getFullTableName()))
+                .collect(Collectors.toSet());
+    }
+
+    private boolean sweepShard(long shardId) {
+        SweepProgressRow row = SweepProgressRow.of(shardId);
+        SweepProgressRowResult progress = txManager.runTaskReadOnly(tx ->
+                tableFactory.getSweepProgressTable(tx).getRow(row).orNull());
+        if (progress == null || !progress.hasStartRow()) {
+            // Finished by another worker since we read it.
+            return false;
+        }
+        TableReference tableRef = TableReference.createUnsafe(progress.getFullTableName());
+        List<byte[]> boundaries = getShardBoundaries(getNumShards(shardId));
+        byte[] endRow = boundaries.get(getShardIndex(shardId) + 1);
+        int rowBatchSize = getRowBatchSize();
+        int cellBatchSize = sweepCellBatchSize.get();
+
+        metrics.shardStarted();
+        Stopwatch watch = Stopwatch.createStarted();
+        try {
+            SweepResults results = sweepRunner.run(
+                    tableRef,
+                    rowBatchSize,
+                    cellBatchSize,
+                    progress.getStartRow(),
+                    endRow.length == 0 ? null : endRow);
+            long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
+            log.debug("Swept {} unique cells from shard {} of {} starting at {}"
+                    + " and performed {} deletions in {} ms"
+                    + " up to timestamp {}.",
+                    results.getCellsExamined(), getShardIndex(shardId), tableRef,
+                    PtBytes.encodeHexString(progress.getStartRow()),
+                    results.getCellsDeleted(), elapsedMillis, results.getSweptTimestamp());
+            metrics.batchSwept(results);
+            saveShardResults(progress, results);
+            rateController.batchSucceeded(results, elapsedMillis);
+            if (!results.getNextStartRow().isPresent()) {
+                finishTableIfComplete(shardId);
+            }
+        } catch (RuntimeException e) {
+            // Error logged at a higher log level above.
+            log.debug("Failed to sweep shard {} of {} with row batch size {} and cell batch size {} starting from {}",
+                    getShardIndex(shardId), tableRef, rowBatchSize, cellBatchSize,
+                    PtBytes.encodeHexString(progress.getStartRow()));
+            throw e;
+        } finally {
+            metrics.shardStopped();
+        }
+        return true;
+    }
+
+    private void saveShardResults(SweepProgressRowResult progress, SweepResults results) {
+        txManager.runTaskWithRetry(tx -> {
+            SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+            SweepProgressRow row = progress.getRowName();
+            progressTable.putCellsDeleted(row, fromNullable(progress.getCellsDeleted()) + results.getCellsDeleted());
+            progressTable.putCellsExamined(row,
+                    fromNullable(progress.getCellsExamined()) + results.getCellsExamined());
+            if (!progress.hasMinimumSweptTimestamp()) {
+                // This is the first set of results being written for this shard.
+                progressTable.putMinimumSweptTimestamp(row, results.getSweptTimestamp());
+            }
+            if (results.getNextStartRow().isPresent()) {
+                progressTable.putStartRow(row, results.getNextStartRow().get());
+            } else {
+                progressTable.deleteStartRow(row);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Saves the results for a table and removes its progress rows if all of its shards are finished.
+     */
+    private void finishTableIfComplete(long shardId) {
+        List<SweepProgressRow> rows = getShardRows(shardId);
+        List<SweepProgressRowResult> shards = txManager.runTaskReadOnly(tx ->
+                tableFactory.getSweepProgressTable(tx).getRows(rows));
+        if (shards.size() < rows.size() || shards.stream().anyMatch(SweepProgressRowResult::hasStartRow)) {
+            return;
+        }
+        String fullTableName = shards.get(0).getFullTableName();
+        long cellsDeleted = shards.stream().mapToLong(shard -> fromNullable(shard.getCellsDeleted())).sum();
+        long cellsExamined = shards.stream().mapToLong(shard -> fromNullable(shard.getCellsExamined())).sum();
+        long minimumSweptTimestamp = shards.stream()
+                .filter(SweepProgressRowResult::hasMinimumSweptTimestamp)
+                .mapToLong(SweepProgressRowResult::getMinimumSweptTimestamp)
+                .min()
+                .orElse(0L);
+        txManager.runTaskWithRetry(tx -> {
+            SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
+            SweepPriorityRow row = SweepPriorityRow.of(fullTableName);
+            Optional<SweepPriorityRowResult> priority = priorityTable.getRow(row);
+            if (!priority.isPresent() || !priority.get().hasWriteCount()) {
+                // Normally written when the table is started, but the row may have been removed since.
+                // Writes made since the table was started are still counted otherwise.
+                priorityTable.putWriteCount(row, 0L);
+            }
+            priorityTable.putCellsDeleted(row, cellsDeleted);
+            priorityTable.putCellsExamined(row, cellsExamined);
+            priorityTable.putLastSweepTime(row, System.currentTimeMillis());
+            priorityTable.putMinimumSweptTimestamp(row, minimumSweptTimestamp);
+            tableFactory.getSweepProgressTable(tx).delete(rows);
+            return null;
+        });
+
+        log.debug("Finished sweeping {} in {} shards, examined {} unique cells, deleted {} cells.",
+                fullTableName, rows.size(), cellsExamined, cellsDeleted);
+
+        if (cellsDeleted > 0) {
+            Stopwatch watch = Stopwatch.createStarted();
+            kvs.compactInternally(TableReference.createUnsafe(fullTableName));
+            log.debug("Finished performing compactInternally on {} in {} ms.",
+                    fullTableName, watch.elapsed(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Chooses the next table to sweep and writes a progress row for each of its shards. Only one worker
+     * across all nodes does this at a time, so that a table is not started twice. The tables in progress
+     * are read while holding the lock, so that tables started by other workers are seen.
+     */
+    private boolean startNextTable() throws InterruptedException {
+        Optional<LockRefreshToken> lock = tryLock("atlas sweep scheduler");
+        if (!lock.isPresent()) {
+            return false;
+        }
+        try {
+            TableReference tableRef = txManager.runTaskWithRetry(tx -> {
+                Set<TableReference> tablesInProgress = getTables(getShards(tx));
+                SweepTransaction sweepTx = new SweepTransaction(
+                        tx, sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE));
+                TableReference next = BackgroundSweeperImpl.getNextTableToSweep(
+                        sweepTx, kvs, tableFactory, tablesInProgress);
+                if (next == null) {
+                    return null;
+                }
+                SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
+                List<SweepPriorityRowResult> priorities = priorityTable.getAllRowsUnordered().immutableCopy();
+                priorities.stream()
+                        .filter(SweepPriorityRowResult::hasLastSweepTime)
+                        .mapToLong(SweepPriorityRowResult::getLastSweepTime)
+                        .min()
+                        .ifPresent(metrics::oldestSweepTime);
+
+                SweepPriorityRow priorityRow = SweepPriorityRow.of(next.getQualifiedName());
+                Optional<SweepPriorityRowResult> priority = priorityTable.getRow(priorityRow);
+                int numShards = chooseNumShards(priority.isPresent() ? priority.get().getCellsExamined() : null);
+                List<byte[]> boundaries = getShardBoundaries(numShards);
+                SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+                for (int i = 0; i < boundaries.size() - 1; i++) {
+                    SweepProgressRow row = SweepProgressRow.of(getShardId(next, i, numShards));
+                    byte[] startRow = boundaries.get(i).length == 0
+                            ? RangeRequests.getFirstRowName()
+                            : boundaries.get(i);
+                    progressTable.putFullTableName(row, next.getQualifiedName());
+                    progressTable.putStartRow(row, startRow);
+                }
+                priorityTable.putWriteCount(priorityRow, 0L);
+                return next;
+            });
+            if (tableRef == null) {
+                // Don't change this log statement. It's parsed by test automation code.
+                log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
+                return false;
+            }
+            log.debug("Now starting to sweep {}.", tableRef);
+            return true;
+        } finally {
+            txManager.getLockService().unlock(lock.get());
+        }
+    }
+
+    private int chooseNumShards(@Nullable Long lastCellsExamined) {
+        long wanted = Math.max(1L, fromNullable(lastCellsExamined) / CELLS_PER_SHARD);
+        return Integer.highestOneBit((int) Math.min(wanted, Math.min(numThreads, MAX_SHARDS_PER_TABLE)));
+    }
+
+    /**
+     * Returns the boundaries of the row ranges a table is split into, starting and ending with the
+     * empty byte array. This is done the same way as by the {@code TableMigrator}.
+     */
+    @VisibleForTesting
+    static List<byte[]> getShardBoundaries(int numShards) {
+        if (numShards <= 1) {
+            return ImmutableList.of(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY);
+        }
+        Set<byte[]> boundaries = new TreeSet<>(UnsignedBytes.lexicographicalComparator());
+        boundaries.add(PtBytes.EMPTY_BYTE_ARRAY);
+        boundaries.addAll(new UniformRowNamePartitioner(ValueType.FIXED_LONG).getPartitions(numShards));
+        List<byte[]> sortedBoundaries = Lists.newArrayList(boundaries);
+        sortedBoundaries.add(PtBytes.EMPTY_BYTE_ARRAY);
+        return sortedBoundaries;
+    }
+
+    /**
+     * The progress row of a shard is a hash of its table, followed by the number of shards the table
+     * is split into and the index of the shard, so that the row of every shard of the same table can
+     * be found from any one of them.
+     */
+    @VisibleForTesting
+    static long getShardId(TableReference tableRef, int shardIndex, int numShards) {
+        long tableHash = Hashing.murmur3_128()
+                .hashString(tableRef.getQualifiedName(), StandardCharsets.UTF_8)
+                .asLong();
+        return ((tableHash & TABLE_HASH_MASK) << 16) | ((long) numShards << 8) | shardIndex;
+    }
+
+    private static int getShardIndex(long shardId) {
+        return (int) (shardId & 0xff);
+    }
+
+    private static int getNumShards(long shardId) {
+        return (int) ((shardId >>> 8) & 0xff);
+    }
+
+    private static List<SweepProgressRow> getShardRows(long shardId) {
+        int numRanges = getShardBoundaries(getNumShards(shardId)).size() - 1;
+        long tablePart = shardId & ~0xffL;
+        List<SweepProgressRow> rows = Lists.newArrayListWithCapacity(numRanges);
+        for (int i = 0; i < numRanges; i++) {
+            rows.add(SweepProgressRow.of(tablePart | i));
+        }
+        return rows;
+    }
+
+    private int getRowBatchSize() {
+        return Math.max(1, (int) (sweepRowBatchSize.get() * rateController.getBatchSizeMultiplier()));
+    }
+
+    private Optional<LockRefreshToken> tryLock(String lockName) throws InterruptedException {
+        LockRequest request = LockRequest.builder(
+                ImmutableSortedMap.of(StringLockDescriptor.of(lockName), LockMode.WRITE)).doNotBlock().build();
+        return Optional.fromNullable(txManager.getLockService().lock(LockClient.ANONYMOUS.getClientId(), request));
+    }
+
+    private static long fromNullable(Long num) {
+        return num == null ? 0L : num.longValue();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (daemons == null) {
+            return;
+        }
+        log.debug("Signalling background sweep workers to shut down.");
+        daemons.forEach(Thread::interrupt);
+        try {
+            for (Thread daemon : daemons) {
+                daemon.join();
+            }
+            daemons = null;
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } finally {
+            JMXUtils.unregisterMBeanCatchAndLogExceptions(BEAN_NAME);
+            sweepRunner.shutdown();
+        }
+    }
+}
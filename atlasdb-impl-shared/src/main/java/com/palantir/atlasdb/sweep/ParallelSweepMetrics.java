@@ -0,0 +1,132 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+
+public class ParallelSweepMetrics implements ParallelSweepMetricsMBean {
+    private final AtomicLong batchesSwept = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong cellsExamined = new AtomicLong();
+    private final AtomicLong cellsDeleted = new AtomicLong();
+    private final AtomicInteger activeShards = new AtomicInteger();
+    private volatile int shardsInProgress = 0;
+    private volatile int tablesInProgress = 0;
+    private volatile long lastBatchMillis = 0L;
+    private volatile long oldestSweepMillis = 0L;
+    private volatile long startMillis = System.currentTimeMillis();
+
+    void shardStarted() {
+        activeShards.incrementAndGet();
+    }
+
+    void shardStopped() {
+        activeShards.decrementAndGet();
+    }
+
+    void batchSwept(SweepResults results) {
+        batchesSwept.incrementAndGet();
+        cellsExamined.addAndGet(results.getCellsExamined());
+        cellsDeleted.addAndGet(results.getCellsDeleted());
+        lastBatchMillis = System.currentTimeMillis();
+    }
+
+    void batchFailed() {
+        failedBatches.incrementAndGet();
+    }
+
+    void shardsRead(int shards, int tables) {
+        shardsInProgress = shards;
+        tablesInProgress = tables;
+    }
+
+    void oldestSweepTime(long millis) {
+        oldestSweepMillis = millis;
+    }
+
+    @Override
+    public long getBatchesSwept() {
+        return batchesSwept.get();
+    }
+
+    @Override
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    @Override
+    public long getCellsExamined() {
+        return cellsExamined.get();
+    }
+
+    @Override
+    public long getCellsDeleted() {
+        return cellsDeleted.get();
+    }
+
+    @Override
+    public double getCellsExaminedPerSecond() {
+        return perSecond(cellsExamined.get());
+    }
+
+    @Override
+    public double getCellsDeletedPerSecond() {
+        return perSecond(cellsDeleted.get());
+    }
+
+    @Override
+    public int getActiveShards() {
+        return activeShards.get();
+    }
+
+    @Override
+    public int getShardsInProgress() {
+        return shardsInProgress;
+    }
+
+    @Override
+    public int getTablesInProgress() {
+        return tablesInProgress;
+    }
+
+    @Override
+    public long getMillisSinceLastBatch() {
+        return lastBatchMillis == 0L ? -1L : System.currentTimeMillis() - lastBatchMillis;
+    }
+
+    @Override
+    public long getOldestSweepAgeMillis() {
+        return oldestSweepMillis == 0L ? -1L : System.currentTimeMillis() - oldestSweepMillis;
+    }
+
+    @Override
+    public void reset() {
+        batchesSwept.set(0L);
+        failedBatches.set(0L);
+        cellsExamined.set(0L);
+        cellsDeleted.set(0L);
+        startMillis = System.currentTimeMillis();
+    }
+
+    private double perSecond(long count) {
+        long elapsedMillis = Math.max(1L, System.currentTimeMillis() - startMillis);
+        return count * (double) TimeUnit.SECONDS.toMillis(1) / elapsedMillis;
+    }
+}
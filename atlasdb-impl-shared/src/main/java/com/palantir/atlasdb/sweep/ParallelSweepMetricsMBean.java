@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+public interface ParallelSweepMetricsMBean {
+    long getBatchesSwept();
+
+    long getFailedBatches();
+
+    long getCellsExamined();
+
+    long getCellsDeleted();
+
+    double getCellsExaminedPerSecond();
+
+    double getCellsDeletedPerSecond();
+
+    /**
+     * The number of shards being swept by this node right now.
+     */
+    int getActiveShards();
+
+    /**
+     * The number of unfinished shards across all nodes, as of the last time this node read them.
+     */
+    int getShardsInProgress();
+
+    /**
+     * The number of tables with unfinished shards across all nodes, as of the last time this node read them.
+     */
+    int getTablesInProgress();
+
+    long getMillisSinceLastBatch();
+
+    /**
+     * How long ago the table that has gone longest without being swept was last swept,
+     * as of the last time a table was chosen to be swept.
+     */
+    long getOldestSweepAgeMillis();
+
+    void reset();
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.palantir.atlasdb.cleaner.Follower;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * A {@link CellsSweeper} that writes sentinels and deletes swept versions in the background, so that the
+ * sweep thread can read its next batch while the current one is being deleted.
+ * <p>
+ * Each batch is split by row into one partition per delete thread, and the partitions are deleted in
+ * parallel. The sentinels of a cell are always written before its versions are deleted, as they are
+ * in the same partition. At most {@link #IN_FLIGHT_PARTITIONS_PER_THREAD} partitions per delete thread
+ * may be waiting or running at once; beyond that, {@link #sweepCells} blocks until one completes.
+ * <p>
+ * Callers must call {@link #flush()} before recording any progress, as that is the only point at which
+ * the deletes are known to have succeeded, or {@link #discardPendingDeletes()} if sweeping fails. Once
+ * {@link #shutdown()} is called, cells are deleted on the calling thread.
+ */
+public class PipelinedCellsSweeper extends CellsSweeper {
+    private static final Logger log = LoggerFactory.getLogger(PipelinedCellsSweeper.class);
+    private static final String THREAD_PREFIX = "atlas-sweep-delete";
+    @VisibleForTesting
+    static final int IN_FLIGHT_PARTITIONS_PER_THREAD = 2;
+
+    private final int partitions;
+    private final ExecutorService executor;
+    private final Semaphore inFlightPartitions;
+    private final ThreadLocal<List<Future<?>>> pendingDeletes = ThreadLocal.withInitial(ArrayList::new);
+
+    public PipelinedCellsSweeper(
+            TransactionManager txManager,
+            KeyValueService keyValueService,
+            Collection<Follower> followers,
+            int deleteThreads) {
+        super(txManager, keyValueService, followers);
+        Preconditions.checkArgument(deleteThreads > 0, "deleteThreads must be positive");
+        this.partitions = deleteThreads;
+        this.executor = PTExecutors.newFixedThreadPool(deleteThreads, new NamedThreadFactory(THREAD_PREFIX, true));
+        this.inFlightPartitions = new Semaphore(deleteThreads * IN_FLIGHT_PARTITIONS_PER_THREAD);
+    }
+
+    @Override
+    public void flush() {
+        Throwable failure = awaitPendingDeletes();
+        if (failure != null) {
+            throw Throwables.rewrapAndThrowUncheckedException(failure);
+        }
+    }
+
+    @Override
+    public void discardPendingDeletes() {
+        Throwable failure = awaitPendingDeletes();
+        if (failure != null) {
+            log.debug("Ignoring a failed delete, as sweeping has already failed.", failure);
+        }
+    }
+
+    /**
+     * Waits for all of the calling thread's pending deletes and returns the first failure, if any.
+     */
+    @Nullable
+    private Throwable awaitPendingDeletes() {
+        List<Future<?>> futures = pendingDeletes.get();
+        pendingDeletes.remove();
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            }
+        }
+        return failure;
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    protected void deleteCells(
+            TableReference tableRef,
+            Multimap<Cell, Long> cellTsPairsToSweep,
+            Set<Cell> sentinelsToAdd) {
+        Map<Integer, Collection<Map.Entry<Cell, Long>>> cellTsPairsByPartition = Multimaps.index(
+                cellTsPairsToSweep.entries(), entry -> getPartition(entry.getKey())).asMap();
+        Map<Integer, Collection<Cell>> sentinelsByPartition = Multimaps.index(
+                sentinelsToAdd, this::getPartition).asMap();
+        for (Map.Entry<Integer, Collection<Map.Entry<Cell, Long>>> partition : cellTsPairsByPartition.entrySet()) {
+            SetMultimap<Cell, Long> partitionCellTsPairs = HashMultimap.create();
+            for (Map.Entry<Cell, Long> cellTsPair : partition.getValue()) {
+                partitionCellTsPairs.put(cellTsPair.getKey(), cellTsPair.getValue());
+            }
+            Collection<Cell> partitionSentinels = sentinelsByPartition.get(partition.getKey());
+            submit(() -> super.deleteCells(
+                    tableRef,
+                    partitionCellTsPairs,
+                    partitionSentinels == null ? ImmutableSet.of() : ImmutableSet.copyOf(partitionSentinels)));
+        }
+    }
+
+    private void submit(Runnable delete) {
+        if (executor.isShutdown()) {
+            delete.run();
+            return;
+        }
+        try {
+            inFlightPartitions.acquire();
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+        try {
+            pendingDeletes.get().add(executor.submit(() -> {
+                try {
+                    delete.run();
+                } finally {
+                    inFlightPartitions.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            // Shut down since we checked.
+            inFlightPartitions.release();
+            delete.run();
+        }
+    }
+
+    private int getPartition(Cell cell) {
+        return Math.floorMod(Arrays.hashCode(cell.getRowName()), partitions);
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import org.immutables.value.Value;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A limit on the number of cells the background sweeper examines per second between two hours of
+ * the day. The end hour is exclusive, and may be before the start hour for a window spanning midnight.
+ */
+@Value.Immutable
+public abstract class SweepBudget {
+    public abstract int startHour();
+
+    public abstract int endHour();
+
+    public abstract double maxCellsPerSecond();
+
+    public static SweepBudget of(int startHour, int endHour, double maxCellsPerSecond) {
+        return ImmutableSweepBudget.builder()
+                .startHour(startHour)
+                .endHour(endHour)
+                .maxCellsPerSecond(maxCellsPerSecond)
+                .build();
+    }
+
+    public boolean contains(int hour) {
+        if (startHour() <= endHour()) {
+            return startHour() <= hour && hour < endHour();
+        }
+        return hour >= startHour() || hour < endHour();
+    }
+
+    @Value.Check
+    protected void check() {
+        Preconditions.checkArgument(startHour() >= 0 && startHour() < 24, "startHour must be between 0 and 23");
+        Preconditions.checkArgument(endHour() >= 0 && endHour() <= 24, "endHour must be between 0 and 24");
+    }
+}
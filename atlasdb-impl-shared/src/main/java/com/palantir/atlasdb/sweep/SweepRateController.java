@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+
+/**
+ * Decides how much the background sweeper does in each batch and how long it pauses between batches,
+ * based on how previous batches went.
+ */
+public interface SweepRateController {
+    /**
+     * The fraction of the configured row batch size to sweep in the next batch.
+     */
+    float getBatchSizeMultiplier();
+
+    long getPauseMillis();
+
+    void batchSucceeded(SweepResults results, long elapsedMillis);
+
+    void batchFailed();
+}
@@ -15,13 +15,42 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Set;
+
 import javax.annotation.Nullable;
 
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 
 public interface SweepTaskRunner {
-    SweepResults run(TableReference tableRef, int rowBatchSize, int cellBatchSize, @Nullable byte[] startRow);
+    default SweepResults run(
+            TableReference tableRef, int rowBatchSize, int cellBatchSize, @Nullable byte[] startRow) {
+        return run(tableRef, rowBatchSize, cellBatchSize, startRow, null);
+    }
+
+    /**
+     * Sweeps a batch of rows of a table, stopping before {@code endRow} if it is not null.
+     */
+    SweepResults run(
+            TableReference tableRef,
+            int rowBatchSize,
+            int cellBatchSize,
+            @Nullable byte[] startRow,
+            @Nullable byte[] endRow);
+
+    /**
+     * Sweeps just the given cells of a table, rather than a range of its rows.
+     */
+    SweepResults runForCells(TableReference tableRef, Set<Cell> cells);
     long getSweepTimestamp(SweepStrategy sweepStrategy);
+
+    /**
+     * Stops any threads the runner uses to delete cells in the background. Sweeps that are still running,
+     * or run afterwards, delete their cells on the calling thread instead.
+     */
+    default void shutdown() {
+        // no-op
+    }
 }
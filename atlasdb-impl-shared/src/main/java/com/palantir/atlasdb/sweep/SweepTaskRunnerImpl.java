@@ -23,6 +23,8 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -53,6 +55,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.sweep.sweepers.ConservativeSweeper;
@@ -98,20 +101,15 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
 
     @Override
     public SweepResults run(
-            TableReference tableRef, int rowBatchSize, int cellBatchSize, @Nullable byte[] nullableStartRow) {
+            TableReference tableRef,
+            int rowBatchSize,
+            int cellBatchSize,
+            @Nullable byte[] nullableStartRow,
+            @Nullable byte[] endRow) {
         Preconditions.checkNotNull(tableRef, "tableRef cannot be null");
         Preconditions.checkState(!AtlasDbConstants.hiddenTables.contains(tableRef));
 
-        if (tableRef.getQualifiedName().startsWith(AtlasDbConstants.NAMESPACE_PREFIX)) {
-            // this happens sometimes; I think it's because some places in the code can
-            // start this sweeper without doing the full normally ordered KVSModule startup.
-            // I did check and sweep.stats did contain the FQ table name for all of the tables,
-            // so it is at least broken in some way that still allows namespaced tables to eventually be swept.
-            log.warn("The sweeper should not be run on tables passed through namespace mapping.");
-            return SweepResults.createEmptySweepResult(0L);
-        }
-        if (keyValueService.getMetadataForTable(tableRef).length == 0) {
-            log.warn("The sweeper tried to sweep table '{}', but the table does not exist. Skipping table.", tableRef);
+        if (!isSweepable(tableRef)) {
             return SweepResults.createEmptySweepResult(0L);
         }
 
@@ -129,33 +127,51 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         SweepStrategy sweepStrategy = sweepStrategyManager.get().getOrDefault(tableRef, SweepStrategy.CONSERVATIVE);
 
         byte[] startRow = MoreObjects.firstNonNull(nullableStartRow, PtBytes.EMPTY_BYTE_ARRAY);
-        RangeRequest range = RangeRequest.builder()
+        RangeRequest.Builder rangeBuilder = RangeRequest.builder()
                 .startRowInclusive(startRow)
-                .batchHint(rowBatchSize)
-                .build();
+                .batchHint(rowBatchSize);
+        if (endRow != null) {
+            rangeBuilder.endRowExclusive(endRow);
+        }
+        RangeRequest range = rangeBuilder.build();
 
         Sweeper sweeper = getSweeperFor(sweepStrategy);
 
         long sweepTs = sweeper.getSweepTimestamp();
 
-        try (ClosableIterator<RowResult<Value>> valueResults = sweeper.getValues(tableRef, range, sweepTs);
-             ClosableIterator<RowResult<Set<Long>>> rowResults = sweeper.getCellTimestamps(tableRef, range, sweepTs)) {
-            CountingIterator<RowResult<Set<Long>>> rowResultTimestamps =
+        try (ClosableIterator<RowResult<TimestampsAndLatestValue>> rowResults =
+                     sweeper.getCellTimestampsAndLatestValues(tableRef, range, sweepTs)) {
+            CountingIterator<RowResult<TimestampsAndLatestValue>> rowResultTimestamps =
                     new CountingIterator<>(Iterators.limit(rowResults, rowBatchSize));
-            PeekingIterator<RowResult<Value>> peekingValues = Iterators.peekingIterator(valueResults);
 
-            BatchingVisitable<CellAndTimestamps> cellsAndTimestamps = BatchingVisitableFromIterable
-                    .create(getTimestampsFromRowResultsIterator(() -> rowResultTimestamps));
+            BatchingVisitable<Map.Entry<Cell, TimestampsAndLatestValue>> cellsAndTimestamps =
+                    BatchingVisitableFromIterable.create(getCellsFromRowResultsIterator(() -> rowResultTimestamps));
 
             final AtomicInteger totalCellsSwept = new AtomicInteger(0);
-            cellsAndTimestamps.batchAccept(
-                    cellBatchSize,
-                    thisBatch -> {
-                        CellsAndTimestamps thisBatchCells = CellsAndTimestamps.fromCellAndTimestampsList(thisBatch);
-                        int cellsSwept = sweepForCells(thisBatchCells, tableRef, sweeper, sweepTs, peekingValues);
-                        totalCellsSwept.addAndGet(cellsSwept);
-                        return true;
-                    });
+            try {
+                cellsAndTimestamps.batchAccept(
+                        cellBatchSize,
+                        thisBatch -> {
+                            CellsAndTimestamps thisBatchCells = CellsAndTimestamps.fromCellAndTimestampsList(
+                                    thisBatch.stream()
+                                            .map(SweepTaskRunnerImpl::convertToCellAndTimestamps)
+                                            .collect(Collectors.toList()));
+                            Set<Cell> cellsWithEmptyLatestValue = thisBatch.stream()
+                                    .filter(entry -> isEmpty(entry.getValue().getLatestValue()))
+                                    .map(Map.Entry::getKey)
+                                    .collect(Collectors.toSet());
+                            int cellsSwept = sweepForCells(thisBatchCells, tableRef, sweeper, sweepTs,
+                                    cellsWithEmptyLatestValue::contains);
+                            totalCellsSwept.addAndGet(cellsSwept);
+                            return true;
+                        });
+            } catch (RuntimeException | Error e) {
+                // Don't leave this batch's deletes to be waited for, or rethrown, by the next sweep.
+                cellsSweeper.discardPendingDeletes();
+                throw e;
+            }
+            // Deletes may still be running in the background; wait for them before reporting any progress.
+            cellsSweeper.flush();
 
             byte[] nextRow = rowResultTimestamps.size() < rowBatchSize ? null :
                     RangeRequests.getNextStartRow(false, rowResultTimestamps.lastItem().getRowName());
@@ -169,6 +185,62 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         }
     }
 
+    @Override
+    public SweepResults runForCells(TableReference tableRef, Set<Cell> cells) {
+        Preconditions.checkNotNull(tableRef, "tableRef cannot be null");
+        Preconditions.checkState(!AtlasDbConstants.hiddenTables.contains(tableRef));
+
+        if (!isSweepable(tableRef)) {
+            return SweepResults.createEmptySweepResult(0L);
+        }
+
+        SweepStrategy sweepStrategy = sweepStrategyManager.get().getOrDefault(tableRef, SweepStrategy.CONSERVATIVE);
+        Sweeper sweeper = getSweeperFor(sweepStrategy);
+        long sweepTs = sweeper.getSweepTimestamp();
+        if (sweepStrategy == SweepStrategy.NOTHING || cells.isEmpty()) {
+            return SweepResults.createEmptySweepResult(sweepTs);
+        }
+
+        Multimap<Cell, Long> timestamps = keyValueService.getAllTimestamps(tableRef, cells, sweepTs);
+        Map<Cell, Value> latestValues = sweeper.getValues(tableRef, timestamps.keySet(), sweepTs);
+        CellsAndTimestamps cellsAndTimestamps = CellsAndTimestamps.fromCellAndTimestampsList(
+                timestamps.asMap().entrySet().stream()
+                        .map(entry -> CellAndTimestamps.of(entry.getKey(), ImmutableSet.copyOf(entry.getValue())))
+                        .collect(Collectors.toList()));
+        int cellsSwept;
+        try {
+            cellsSwept = sweepForCells(cellsAndTimestamps, tableRef, sweeper, sweepTs, cell -> {
+                return isEmpty(latestValues.get(cell));
+            });
+        } catch (RuntimeException | Error e) {
+            cellsSweeper.discardPendingDeletes();
+            throw e;
+        }
+        cellsSweeper.flush();
+
+        return SweepResults.builder()
+                .cellsExamined(timestamps.keySet().size())
+                .cellsDeleted(cellsSwept)
+                .sweptTimestamp(sweepTs)
+                .build();
+    }
+
+    private boolean isSweepable(TableReference tableRef) {
+        if (tableRef.getQualifiedName().startsWith(AtlasDbConstants.NAMESPACE_PREFIX)) {
+            // this happens sometimes; I think it's because some places in the code can
+            // start this sweeper without doing the full normally ordered KVSModule startup.
+            // I did check and sweep.stats did contain the FQ table name for all of the tables,
+            // so it is at least broken in some way that still allows namespaced tables to eventually be swept.
+            log.warn("The sweeper should not be run on tables passed through namespace mapping.");
+            return false;
+        }
+        if (keyValueService.getMetadataForTable(tableRef).length == 0) {
+            log.warn("The sweeper tried to sweep table '{}', but the table does not exist. Skipping table.", tableRef);
+            return false;
+        }
+        return true;
+    }
+
     private Sweeper getSweeperFor(SweepStrategy sweepStrategy) {
         switch (sweepStrategy) {
             case NOTHING:
@@ -192,12 +264,12 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
             TableReference tableRef,
             Sweeper sweeper,
             long sweepTs,
-            PeekingIterator<RowResult<Value>> peekingValues) {
+            Predicate<Cell> isLatestValueEmpty) {
         CellsAndTimestamps currentBatchWithoutIgnoredTimestamps =
                 currentBatch.withoutIgnoredTimestamps(sweeper.getTimestampsToIgnore());
 
         CellsToSweep cellsToSweep = getStartTimestampsPerRowToSweep(
-                currentBatchWithoutIgnoredTimestamps, peekingValues, sweepTs, sweeper);
+                currentBatchWithoutIgnoredTimestamps, isLatestValueEmpty, sweepTs, sweeper);
 
         Multimap<Cell, Long> startTimestampsToSweepPerCell = cellsToSweep.timestampsAsMultimap();
         cellsSweeper.sweepCells(tableRef, startTimestampsToSweepPerCell, cellsToSweep.allSentinels());
@@ -205,22 +277,31 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         return startTimestampsToSweepPerCell.size();
     }
 
-    private static Iterator<CellAndTimestamps> getTimestampsFromRowResultsIterator(
-            Iterable<RowResult<Set<Long>>> cellsToSweep) {
+    private static Iterator<Map.Entry<Cell, TimestampsAndLatestValue>> getCellsFromRowResultsIterator(
+            Iterable<RowResult<TimestampsAndLatestValue>> cellsToSweep) {
         return StreamSupport.stream(cellsToSweep.spliterator(), false)
-                .flatMap(SweepTaskRunnerImpl::rowToCellAndTimestampStream)
+                .flatMap(SweepTaskRunnerImpl::rowToCellStream)
                 .iterator();
     }
 
-    private static Stream<CellAndTimestamps> rowToCellAndTimestampStream(RowResult<Set<Long>> rowResult) {
-        Set<Map.Entry<Cell, Set<Long>>> cellsInRow = ImmutableSet.copyOf(rowResult.getCells());
-        return cellsInRow.stream()
-                .map(SweepTaskRunnerImpl::convertToCellAndTimestamps);
+    private static Stream<Map.Entry<Cell, TimestampsAndLatestValue>> rowToCellStream(
+            RowResult<TimestampsAndLatestValue> rowResult) {
+        Set<Map.Entry<Cell, TimestampsAndLatestValue>> cellsInRow = ImmutableSet.copyOf(rowResult.getCells());
+        return cellsInRow.stream();
     }
 
     private static CellAndTimestamps convertToCellAndTimestamps(
-            Map.Entry<Cell, Set<Long>> entry) {
-        return CellAndTimestamps.of(entry.getKey(), entry.getValue());
+            Map.Entry<Cell, TimestampsAndLatestValue> entry) {
+        return CellAndTimestamps.of(entry.getKey(), entry.getValue().getTimestamps());
+    }
+
+    private static boolean isEmpty(@Nullable Value value) {
+        return value != null && value.getContents().length == 0;
+    }
+
+    @Override
+    public void shutdown() {
+        cellsSweeper.shutdown();
     }
 
     @Override
@@ -234,7 +315,15 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
             PeekingIterator<RowResult<Value>> values,
             long sweepTimestamp,
             Sweeper sweeper) {
+        return getStartTimestampsPerRowToSweep(
+                startTimestampsPerCell, cell -> isLatestValueEmpty(cell, values), sweepTimestamp, sweeper);
+    }
 
+    private CellsToSweep getStartTimestampsPerRowToSweep(
+            CellsAndTimestamps startTimestampsPerCell,
+            Predicate<Cell> isLatestValueEmpty,
+            long sweepTimestamp,
+            Sweeper sweeper) {
         LoadingCache<Long, Long> startTsToCommitTs = CacheBuilder.newBuilder()
                 .build(new StartTsToCommitTsCacheLoader(transactionService));
 
@@ -248,7 +337,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         for (CellAndTimestamps cellAndTimestamps : startTimestampsPerCell.cellAndTimestampsList()) {
             Cell cell = cellAndTimestamps.cell();
             Collection<Long> timestamps = cellAndTimestamps.timestamps();
-            boolean sweepLastCommitted = isLatestValueEmpty(cell, values);
+            boolean sweepLastCommitted = isLatestValueEmpty.test(cell);
             CellToSweep cellToSweep = getTimestampsToSweep(
                     cell,
                     timestamps,
@@ -266,8 +355,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
             RowResult<Value> result = values.peek();
             int comparison = UnsignedBytes.lexicographicalComparator().compare(cell.getRowName(), result.getRowName());
             if (comparison == 0) {
-                Value matchingValue = result.getColumns().get(cell.getColumnName());
-                return matchingValue != null && matchingValue.getContents().length == 0;
+                return isEmpty(result.getColumns().get(cell.getColumnName()));
             } else if (comparison < 0) {
                 return false;
             } else {
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.ColumnValueDescription;
+import com.palantir.atlasdb.table.description.DynamicColumnDescription;
+import com.palantir.atlasdb.table.description.NameComponentDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * A queue of the cells written to each table, kept as a table in the KeyValueService.
+ *
+ * Every write is queued at the start timestamp of the transaction that made it, so reading the queue
+ * below a sweep timestamp finds exactly the cells that may have versions old enough to be swept. Each
+ * queued row is a shard byte followed by the table name and the row of the written cell, and the column
+ * is the column of the written cell. The shard is a hash of the table and row, which spreads the queue
+ * evenly so that shards can be read and swept independently.
+ */
+public final class SweepQueue {
+    public static final int NUM_SHARDS = 128;
+
+    private static final byte[] QUEUED = new byte[] {1};
+
+    private final KeyValueService keyValueService;
+
+    public static SweepQueue create(KeyValueService keyValueService) {
+        keyValueService.createTable(AtlasDbConstants.SWEEP_QUEUE_TABLE, new TableMetadata(
+                NameMetadataDescription.create(ImmutableList.of(new NameComponentDescription("cell", ValueType.BLOB))),
+                new ColumnMetadataDescription(new DynamicColumnDescription(
+                        NameMetadataDescription.create(ImmutableList.of(
+                                new NameComponentDescription("column", ValueType.BLOB))),
+                        ColumnValueDescription.forType(ValueType.BLOB))),
+                ConflictHandler.IGNORE_ALL).persistToBytes());
+        return new SweepQueue(keyValueService);
+    }
+
+    private SweepQueue(KeyValueService keyValueService) {
+        this.keyValueService = keyValueService;
+    }
+
+    public void enqueue(Map<TableReference, ? extends Map<Cell, byte[]>> writesByTable, long startTimestamp) {
+        Map<Cell, byte[]> entries = Maps.newHashMap();
+        for (Map.Entry<TableReference, ? extends Map<Cell, byte[]>> e : writesByTable.entrySet()) {
+            TableReference tableRef = e.getKey();
+            if (AtlasDbConstants.hiddenTables.contains(tableRef)) {
+                continue;
+            }
+            for (Cell cell : e.getValue().keySet()) {
+                byte[] queueRow = toQueueRow(tableRef, cell.getRowName());
+                // Rows too long to queue are left to the background sweeper.
+                if (Cell.isNameValid(queueRow)) {
+                    entries.put(Cell.create(queueRow, cell.getColumnName()), QUEUED);
+                }
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            keyValueService.put(AtlasDbConstants.SWEEP_QUEUE_TABLE, entries, startTimestamp);
+        } catch (KeyAlreadyExistsException e) {
+            // A retried write at the same start timestamp; its cells are already queued.
+        }
+    }
+
+    /**
+     * Reads the cells queued in a shard below the given timestamp, starting from {@code startRow} (or from
+     * the beginning of the shard if it is null). Whole queued rows are returned until at least
+     * {@code batchSize} cells have been read.
+     */
+    public SweepQueueBatch read(int shard, @Nullable byte[] startRow, long maxTimestampExclusive, int batchSize) {
+        byte[] shardStart = new byte[] {(byte) shard};
+        byte[] start = startRow == null ? shardStart : startRow;
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(start)
+                .endRowExclusive(RangeRequests.createEndNameForPrefixScan(shardStart))
+                .batchHint(batchSize)
+                .build();
+        ImmutableSetMultimap.Builder<TableReference, Cell> cells = ImmutableSetMultimap.builder();
+        int numCells = 0;
+        try (ClosableIterator<RowResult<Value>> rows =
+                keyValueService.getRange(AtlasDbConstants.SWEEP_QUEUE_TABLE, range, maxTimestampExclusive)) {
+            while (rows.hasNext()) {
+                RowResult<Value> row = rows.next();
+                for (byte[] column : row.getColumns().keySet()) {
+                    putQueuedCell(cells, row.getRowName(), column);
+                    numCells++;
+                }
+                if (numCells >= batchSize) {
+                    return SweepQueueBatch.of(cells.build(),
+                            Optional.of(RangeRequests.getNextStartRow(false, row.getRowName())));
+                }
+            }
+        }
+        return SweepQueueBatch.of(cells.build(), Optional.absent());
+    }
+
+    /**
+     * Removes the queue entries for the given cells that were written below the given timestamp, once
+     * those cells have been swept. Entries written since are left for a later pass.
+     */
+    public void delete(Multimap<TableReference, Cell> cells, long maxTimestampExclusive) {
+        Set<Cell> queueCells = Sets.newHashSetWithExpectedSize(cells.size());
+        for (Map.Entry<TableReference, Collection<Cell>> e : cells.asMap().entrySet()) {
+            for (Cell cell : e.getValue()) {
+                byte[] queueRow = toQueueRow(e.getKey(), cell.getRowName());
+                if (Cell.isNameValid(queueRow)) {
+                    queueCells.add(Cell.create(queueRow, cell.getColumnName()));
+                }
+            }
+        }
+        if (queueCells.isEmpty()) {
+            return;
+        }
+        Multimap<Cell, Long> entries = keyValueService.getAllTimestamps(
+                AtlasDbConstants.SWEEP_QUEUE_TABLE, queueCells, maxTimestampExclusive);
+        keyValueService.delete(AtlasDbConstants.SWEEP_QUEUE_TABLE, entries);
+    }
+
+    static int getShard(TableReference tableRef, byte[] row) {
+        return Math.floorMod(31 * tableRef.getQualifiedName().hashCode() + Arrays.hashCode(row), NUM_SHARDS);
+    }
+
+    private static byte[] toQueueRow(TableReference tableRef, byte[] row) {
+        return EncodingUtils.add(
+                new byte[] {(byte) getShard(tableRef, row)},
+                EncodingUtils.encodeVarString(tableRef.getQualifiedName()),
+                row);
+    }
+
+    private static void putQueuedCell(
+            ImmutableSetMultimap.Builder<TableReference, Cell> cells, byte[] row, byte[] column) {
+        String tableName = EncodingUtils.decodeVarString(row, 1);
+        int offset = 1 + EncodingUtils.sizeOfVarString(tableName);
+        byte[] cellRow = Arrays.copyOfRange(row, offset, row.length);
+        cells.put(TableReference.createUnsafe(tableName), Cell.create(cellRow, column));
+    }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import org.immutables.value.Value;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.SetMultimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+@Value.Immutable
+public abstract class SweepQueueBatch {
+    public abstract SetMultimap<TableReference, Cell> cells();
+
+    /**
+     * The row to continue reading the shard from, or absent if the whole shard was read.
+     */
+    public abstract Optional<byte[]> nextStartRow();
+
+    public static SweepQueueBatch of(SetMultimap<TableReference, Cell> cells, Optional<byte[]> nextStartRow) {
+        return ImmutableSweepQueueBatch.builder().cells(cells).nextStartRow(nextStartRow).build();
+    }
+}
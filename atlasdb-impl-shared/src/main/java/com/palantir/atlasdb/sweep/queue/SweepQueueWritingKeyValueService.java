@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+
+/**
+ * This kvs wrapper records every write in the {@link SweepQueue} so that the targeted sweeper can find
+ * the cells that have been overwritten. Writes are queued before they are passed on, so a failed write
+ * can leave a queued cell with nothing to sweep, but a written cell is never missing from the queue.
+ * <p>
+ * {@code putUnlessExists} is not queued: it writes cells that are never overwritten, such as transaction
+ * records, so there is nothing for sweep to remove.
+ */
+public class SweepQueueWritingKeyValueService extends ForwardingKeyValueService {
+    private final KeyValueService delegate;
+    private final SweepQueue sweepQueue;
+
+    public static SweepQueueWritingKeyValueService create(KeyValueService delegate, SweepQueue sweepQueue) {
+        return new SweepQueueWritingKeyValueService(delegate, sweepQueue);
+    }
+
+    private SweepQueueWritingKeyValueService(KeyValueService delegate, SweepQueue sweepQueue) {
+        this.delegate = delegate;
+        this.sweepQueue = sweepQueue;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        sweepQueue.enqueue(ImmutableMap.of(tableRef, values), timestamp);
+        super.put(tableRef, values, timestamp);
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        sweepQueue.enqueue(valuesByTable, timestamp);
+        super.multiPut(valuesByTable, timestamp);
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        Map<Long, Map<Cell, byte[]>> valuesByTimestamp = Maps.newHashMap();
+        for (Map.Entry<Cell, Value> e : values.entries()) {
+            valuesByTimestamp.computeIfAbsent(e.getValue().getTimestamp(), ts -> Maps.newHashMap())
+                    .put(e.getKey(), e.getValue().getContents());
+        }
+        for (Map.Entry<Long, Map<Cell, byte[]>> e : valuesByTimestamp.entrySet()) {
+            sweepQueue.enqueue(ImmutableMap.of(tableRef, e.getValue()), e.getKey());
+        }
+        super.putWithTimestamps(tableRef, values);
+    }
+}
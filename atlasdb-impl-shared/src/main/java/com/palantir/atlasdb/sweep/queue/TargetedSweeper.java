@@ -0,0 +1,190 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.sweep.BackgroundSweeper;
+import com.palantir.atlasdb.sweep.SweepTaskRunner;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+
+/**
+ * Sweeps the cells recorded in the {@link SweepQueue}, rather than scanning whole tables, so that the
+ * work done is proportional to the number of writes since the last pass. Each pass reads one batch from
+ * every shard of the queue below the conservative sweep timestamp, sweeps those cells and then removes
+ * them from the queue.
+ */
+public class TargetedSweeper implements BackgroundSweeper {
+    private static final Logger log = LoggerFactory.getLogger(TargetedSweeper.class);
+    private final LockAwareTransactionManager txManager;
+    private final SweepQueue sweepQueue;
+    private final SweepTaskRunner sweepRunner;
+    private final Supplier<Long> sweepPauseMillis;
+    private final Supplier<Integer> sweepCellBatchSize;
+    private final byte[][] nextStartRows = new byte[SweepQueue.NUM_SHARDS][];
+    private Thread daemon;
+
+    public TargetedSweeper(
+            LockAwareTransactionManager txManager,
+            SweepQueue sweepQueue,
+            SweepTaskRunner sweepRunner,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepCellBatchSize) {
+        this.txManager = txManager;
+        this.sweepQueue = sweepQueue;
+        this.sweepRunner = sweepRunner;
+        this.sweepPauseMillis = sweepPauseMillis;
+        this.sweepCellBatchSize = sweepCellBatchSize;
+    }
+
+    @Override
+    public synchronized void runInBackground() {
+        Preconditions.checkState(daemon == null);
+        daemon = new Thread(this);
+        daemon.setDaemon(true);
+        daemon.setName("TargetedSweeper");
+        daemon.start();
+    }
+
+    @Override
+    public void run() {
+        Optional<LockRefreshToken> locks = Optional.absent();
+        try {
+            // Wait a while before starting so short lived clis don't try to sweep.
+            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+            log.debug("Starting targeted sweeper.");
+            while (true) {
+                int cellsSwept = 0;
+                try {
+                    locks = lockOrRefresh(locks);
+                    if (locks.isPresent()) {
+                        cellsSwept = runOnce();
+                    } else {
+                        log.debug("Skipping targeted sweep because it is running elsewhere.");
+                    }
+                } catch (InsufficientConsistencyException e) {
+                    log.warn("Could not sweep because not all nodes of the database are online.", e);
+                } catch (RuntimeException e) {
+                    log.error("The targeted sweep job failed unexpectedly. Attempting to continue...", e);
+                }
+                if (cellsSwept > 0) {
+                    Thread.sleep(sweepPauseMillis.get());
+                } else {
+                    Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Shutting down targeted sweeper.");
+        } finally {
+            if (locks.isPresent()) {
+                txManager.getLockService().unlock(locks.get());
+            }
+        }
+    }
+
+    /**
+     * Sweeps one batch from each shard of the queue and returns the number of queued cells swept.
+     */
+    @VisibleForTesting
+    int runOnce() {
+        // Tables swept thoroughly have a sweep timestamp at least this large, so every queued write
+        // below it can be swept whatever the strategy of its table.
+        long sweepTs = sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE);
+        int cellsSwept = 0;
+        for (int shard = 0; shard < SweepQueue.NUM_SHARDS; shard++) {
+            cellsSwept += sweepShard(shard, sweepTs);
+        }
+        return cellsSwept;
+    }
+
+    private int sweepShard(int shard, long sweepTs) {
+        SweepQueueBatch batch = sweepQueue.read(shard, nextStartRows[shard], sweepTs, sweepCellBatchSize.get());
+        for (Map.Entry<TableReference, Collection<Cell>> e : batch.cells().asMap().entrySet()) {
+            TableReference tableRef = e.getKey();
+            Set<Cell> cells = ImmutableSet.copyOf(e.getValue());
+            Stopwatch watch = Stopwatch.createStarted();
+            SweepResults results = sweepRunner.runForCells(tableRef, cells);
+            log.debug("Swept {} queued cells from {} and performed {} deletions in {} ms up to timestamp {}.",
+                    results.getCellsExamined(), tableRef, results.getCellsDeleted(),
+                    watch.elapsed(TimeUnit.MILLISECONDS), results.getSweptTimestamp());
+        }
+        sweepQueue.delete(batch.cells(), sweepTs);
+        nextStartRows[shard] = batch.nextStartRow().orNull();
+        return batch.cells().size();
+    }
+
+    private Optional<LockRefreshToken> lockOrRefresh(Optional<LockRefreshToken> previousLocks)
+            throws InterruptedException {
+        if (previousLocks.isPresent()) {
+            LockRefreshToken refreshToken = previousLocks.get();
+            Set<LockRefreshToken> refreshedTokens = txManager.getLockService()
+                    .refreshLockRefreshTokens(ImmutableList.of(refreshToken));
+            if (refreshedTokens.isEmpty()) {
+                return Optional.absent();
+            } else {
+                return previousLocks;
+            }
+        } else {
+            LockDescriptor lock = StringLockDescriptor.of("atlas targeted sweep");
+            LockRequest request = LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build();
+            LockRefreshToken token = txManager.getLockService().lock(LockClient.ANONYMOUS.getClientId(), request);
+            return Optional.fromNullable(token);
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (daemon == null) {
+            return;
+        }
+        log.debug("Signalling targeted sweeper to shut down.");
+        daemon.interrupt();
+        try {
+            daemon.join();
+            daemon = null;
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } finally {
+            sweepRunner.shutdown();
+        }
+    }
+}
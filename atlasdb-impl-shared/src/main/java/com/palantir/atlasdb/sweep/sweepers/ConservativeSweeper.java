@@ -15,15 +15,22 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.base.Function;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.RowResults;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
 
@@ -47,16 +54,21 @@ public class ConservativeSweeper implements Sweeper {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp) {
-        return ClosableIterators.emptyImmutableClosableIterator();
+    public Map<Cell, Value> getValues(TableReference table, Set<Cell> cells, long maxTimestamp) {
+        return ImmutableMap.of();
     }
 
     @Override
-    public ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getCellTimestampsAndLatestValues(
             TableReference table,
             RangeRequest range,
             long maxTimestamp) {
-        return keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        // Conservative sweep always keeps the latest version, so only the timestamps are read.
+        ClosableIterator<RowResult<Set<Long>>> timestamps =
+                keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        Function<RowResult<Set<Long>>, RowResult<TimestampsAndLatestValue>> withoutValues =
+                RowResults.transformValues(timestampsOfCell -> TimestampsAndLatestValue.create(timestampsOfCell, null));
+        return ClosableIterators.wrap(Iterators.transform(timestamps, withoutValues), timestamps);
     }
 
     @Override
@@ -15,20 +15,27 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 
 public interface Sweeper {
     long getSweepTimestamp();
 
-    ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp);
+    Map<Cell, Value> getValues(TableReference table, Set<Cell> cells, long maxTimestamp);
 
-    ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    /**
+     * Reads the timestamps of each cell in the range, and the latest value of each cell if this sweeper
+     * needs it, in a single pass.
+     */
+    ClosableIterator<RowResult<TimestampsAndLatestValue>> getCellTimestampsAndLatestValues(
             TableReference table,
             RangeRequest range,
             long maxTimestamp);
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A bounded cache from start timestamp to commit timestamp.
+ * <p>
+ * Once a value has been written to the transactions table it can never change (it is only ever
+ * written with putUnlessExists), so the same cache may be safely shared by every transaction
+ * created by a transaction manager.  Transactions that have not yet committed or been rolled
+ * back must never be put in this cache.
+ */
+public class CommitTimestampCache implements CommitTimestampCacheMBean {
+    public static final long DEFAULT_MAX_SIZE = 1_000_000L;
+
+    /**
+     * Transactions that are not created by a transaction manager only get a small cache, which
+     * matches the previous per-transaction caching behaviour.
+     */
+    private static final long SINGLE_TRANSACTION_MAX_SIZE = 10_000L;
+
+    private final long maximumSize;
+    private final Cache<Long, Long> cache;
+
+    public CommitTimestampCache(long maximumSize) {
+        Preconditions.checkArgument(maximumSize > 0, "maximumSize must be positive but was %s", maximumSize);
+        this.maximumSize = maximumSize;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public static CommitTimestampCache create() {
+        return new CommitTimestampCache(DEFAULT_MAX_SIZE);
+    }
+
+    static CommitTimestampCache createForSingleTransaction() {
+        return new CommitTimestampCache(SINGLE_TRANSACTION_MAX_SIZE);
+    }
+
+    @Nullable
+    public Long get(long startTs) {
+        return cache.getIfPresent(startTs);
+    }
+
+    public void put(long startTs, long commitTs) {
+        cache.put(startTs, commitTs);
+    }
+
+    public void putAll(Map<Long, Long> startToCommitTimestamps) {
+        cache.putAll(startToCommitTimestamps);
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
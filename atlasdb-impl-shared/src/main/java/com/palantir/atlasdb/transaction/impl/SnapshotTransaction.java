@@ -123,8 +123,6 @@ import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 import com.palantir.util.AssertUtils;
-import com.palantir.util.DistributedCacheMgrCache;
-import com.palantir.util.SoftCache;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 /**
@@ -175,7 +173,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     protected final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, byte[]>> writesByTable =
             Maps.newConcurrentMap();
     private final ConflictDetectionManager conflictDetectionManager;
-    private final DistributedCacheMgrCache<Long, Long> cachedCommitTimes = new SoftCache<>();
+    final CommitTimestampCache cachedCommitTimes;
+    private final TransactionReadCache readCache;
     private final AtomicLong byteCount = new AtomicLong();
 
     private final AtlasDbConstraintCheckingMode constraintCheckingMode;
@@ -196,6 +195,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      *                           grab a read lock for it because we know that no writers exist.
      * @param tokensValidForCommit These tokens need to be valid with {@link #lockService} for this transaction
      *                             to commit.  If these locks have expired then the commit will fail.
+     * @param commitTimestampCache A cache of commit timestamps which may be shared with other transactions.
      */
     /* package */ SnapshotTransaction(KeyValueService keyValueService,
                                RemoteLockService lockService,
@@ -210,7 +210,34 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                AtlasDbConstraintCheckingMode constraintCheckingMode,
                                Long transactionTimeoutMillis,
                                TransactionReadSentinelBehavior readSentinelBehavior,
-                               boolean allowHiddenTableAccess) {
+                               boolean allowHiddenTableAccess,
+                               CommitTimestampCache commitTimestampCache) {
+        this(keyValueService, lockService, timestampService, transactionService, cleaner, startTimeStamp,
+                conflictDetectionManager, sweepStrategyManager, immutableTimestamp, tokensValidForCommit,
+                constraintCheckingMode, transactionTimeoutMillis, readSentinelBehavior, allowHiddenTableAccess,
+                commitTimestampCache, TransactionReadCache.disabled());
+    }
+
+    /**
+     * @param readCache A cache of values read from HOT and HOTTEST tables which is shared with, and must see the
+     *                  commits of, every other transaction writing those tables.
+     */
+    /* package */ SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               CommitTimestampCache commitTimestampCache,
+                               TransactionReadCache readCache) {
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
         this.defaultTransactionService = transactionService;
@@ -225,6 +252,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = transactionTimeoutMillis;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.cachedCommitTimes = commitTimestampCache;
+        this.readCache = readCache;
     }
 
     // TEST ONLY
@@ -251,6 +280,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = null;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = false;
+        this.cachedCommitTimes = CommitTimestampCache.createForSingleTransaction();
+        this.readCache = TransactionReadCache.disabled();
     }
 
     /**
@@ -288,6 +319,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = null;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.cachedCommitTimes = CommitTimestampCache.createForSingleTransaction();
+        this.readCache = TransactionReadCache.disabled();
     }
 
     @Override
@@ -584,6 +617,25 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      * this will be included here and needs to be filtered out.
      */
     private Map<Cell, byte[]> getFromKeyValueService(TableReference tableRef, Set<Cell> cells) {
+        if (readCache.isCachedTable(tableRef)) {
+            return getFromReadCacheOrKeyValueService(tableRef, cells);
+        }
+        return getFromKeyValueServiceUncached(tableRef, cells);
+    }
+
+    private Map<Cell, byte[]> getFromReadCacheOrKeyValueService(TableReference tableRef, Set<Cell> cells) {
+        long startTs = getStartTimestamp();
+        Map<Cell, byte[]> result = readCache.get(tableRef, cells, startTs);
+        Set<Cell> toRead = ImmutableSet.copyOf(Sets.difference(cells, result.keySet()));
+        if (!toRead.isEmpty()) {
+            Map<Cell, byte[]> fromKeyValueService = getFromKeyValueServiceUncached(tableRef, toRead);
+            readCache.put(tableRef, toRead, fromKeyValueService, startTs);
+            result.putAll(fromKeyValueService);
+        }
+        return result;
+    }
+
+    private Map<Cell, byte[]> getFromKeyValueServiceUncached(TableReference tableRef, Set<Cell> cells) {
         Map<Cell, byte[]> result = Maps.newHashMap();
         Map<Cell, Long> toRead = Cells.constantValueMap(cells, getStartTimestamp());
         Map<Cell, Value> rawResults = keyValueService.get(tableRef, toRead);
@@ -1216,7 +1268,12 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Stopwatch watch = Stopwatch.createStarted();
         LockRefreshToken commitLocksToken = acquireLocksForCommit();
         long millisForLocks = watch.elapsed(TimeUnit.MILLISECONDS);
+        Set<TableReference> readCachedTables = ImmutableSet.of();
         try {
+            // This must be done before we get our commit timestamp so that transactions sharing the read cache
+            // stop serving cached values for these tables until they know our commit timestamp.
+            readCachedTables = readCache.beginWrites(writesByTable.keySet());
+
             watch.reset().start();
             throwIfConflictOnCommit(commitLocksToken, transactionService);
             long millisCheckingForConflicts = watch.elapsed(TimeUnit.MILLISECONDS);
@@ -1268,6 +1325,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                         millisForPunch, millisForCommitTs, millisSinceCreation, writesByTable.keySet());
             }
         } finally {
+            readCache.endWrites(readCachedTables, commitTsForScrubbing);
             lockService.unlock(commitLocksToken);
         }
     }
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.transaction.impl;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
@@ -47,10 +48,13 @@ import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.PrefetchingTimestampService;
 import com.palantir.timestamp.TimestampService;
+import com.palantir.util.JMXUtils;
 
 /* package */ class SnapshotTransactionManager extends AbstractLockAwareTransactionManager {
     private static final int NUM_RETRIES = 10;
+    private static final AtomicInteger instanceCount = new AtomicInteger();
 
     final KeyValueService keyValueService;
     final TransactionService transactionService;
@@ -63,6 +67,12 @@ import com.palantir.timestamp.TimestampService;
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final CommitTimestampCache commitTimestampCache = CommitTimestampCache.create();
+    final TransactionReadCache readCache;
+    private final int instanceId = instanceCount.getAndIncrement();
+    private final String commitTimestampCacheBeanName =
+            "com.palantir.atlasdb:type=CommitTimestampCache_" + instanceId;
+    private final String readCacheBeanName = "com.palantir.atlasdb:type=TransactionReadCache_" + instanceId;
 
     protected SnapshotTransactionManager(
             KeyValueService keyValueService,
@@ -89,6 +99,23 @@ import com.palantir.timestamp.TimestampService;
             SweepStrategyManager sweepStrategyManager,
             Cleaner cleaner,
             boolean allowHiddenTableAccess) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, TransactionReadCache.disabled());
+    }
+
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            TransactionReadCache readCache) {
         Preconditions.checkArgument(lockClient != LockClient.ANONYMOUS);
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
@@ -100,6 +127,11 @@ import com.palantir.timestamp.TimestampService;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.readCache = readCache;
+        JMXUtils.registerMBeanCatchAndLogExceptions(commitTimestampCache, commitTimestampCacheBeanName);
+        if (readCache != TransactionReadCache.disabled()) {
+            JMXUtils.registerMBeanCatchAndLogExceptions(readCache, readCacheBeanName);
+        }
     }
 
     @Override
@@ -189,7 +221,9 @@ import com.palantir.timestamp.TimestampService;
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                readCache);
     }
 
     @Override
@@ -210,7 +244,9 @@ import com.palantir.timestamp.TimestampService;
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                readCache);
         return runTaskThrowOnConflict(task, new ReadTransaction(transaction, sweepStrategyManager));
     }
 
@@ -219,19 +255,35 @@ import com.palantir.timestamp.TimestampService;
         super.close();
         cleaner.close();
         keyValueService.close();
+        JMXUtils.unregisterMBeanCatchAndLogExceptions(commitTimestampCacheBeanName);
+        if (readCache != TransactionReadCache.disabled()) {
+            JMXUtils.unregisterMBeanCatchAndLogExceptions(readCacheBeanName);
+        }
     }
 
     private Supplier<Long> getStartTimestampSupplier() {
         return Suppliers.memoize(new Supplier<Long>() {
             @Override
             public Long get() {
-                long freshTimestamp = timestampService.getFreshTimestamp();
-                cleaner.punch(freshTimestamp);
-                return freshTimestamp;
+                long startTimestamp = getStartTimestamp();
+                cleaner.punch(startTimestamp);
+                return startTimestamp;
             }
         });
     }
 
+    /**
+     * Start timestamps may come from a prefetched range if the timestamp service supports it. Such a timestamp is
+     * still greater than every timestamp this client has already been given, including the immutable timestamp
+     * locked for this transaction and the commit timestamps of this client's earlier transactions.
+     */
+    private long getStartTimestamp() {
+        if (timestampService instanceof PrefetchingTimestampService) {
+            return ((PrefetchingTimestampService) timestampService).getBatchedTimestamp();
+        }
+        return timestampService.getFreshTimestamp();
+    }
+
     @Override
     public RemoteLockService getLockService() {
         return lockService;
@@ -287,4 +339,12 @@ import com.palantir.timestamp.TimestampService;
     public TimestampService getTimestampService() {
         return timestampService;
     }
+
+    public CommitTimestampCache getCommitTimestampCache() {
+        return commitTimestampCache;
+    }
+
+    public TransactionReadCache getReadCache() {
+        return readCache;
+    }
 }
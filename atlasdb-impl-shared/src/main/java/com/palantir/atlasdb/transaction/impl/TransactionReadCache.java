@@ -0,0 +1,293 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.table.description.TableMetadata;
+
+/**
+ * A bounded cache of committed values shared by every transaction created by a transaction manager,
+ * for tables whose metadata has a {@link CachePriority} of HOT or HOTTEST.
+ * <p>
+ * An entry holds the value of a cell as read by a transaction with start timestamp {@code readTs}, which
+ * is the correct value for any later start timestamp unless a transaction has committed a write to the
+ * table in between. Committing transactions call {@link #beginWrites} before fetching their commit
+ * timestamp and {@link #endWrites} once they are done, and an entry is only used if no write to its table
+ * is in progress and the last commit timestamp seen for the table is older than the entry.
+ * <p>
+ * Only writes made by transactions sharing this cache are seen, so cached tables must not be written by
+ * any other client of the key value service. Cells that were read but have no value are cached as the
+ * empty array.
+ * <p>
+ * Whether a table is cached is decided from its metadata the first time the table is used, and is kept for
+ * the life of this cache: a later change to the table's {@link CachePriority} takes effect once a new cache
+ * is created, for example when the service restarts. Re-deciding it in place would be unsafe, because writes
+ * to a table are only tracked while it is cached.
+ */
+public class TransactionReadCache implements TransactionReadCacheMBean {
+    public static final long DEFAULT_MAX_WEIGHT_BYTES = 64L * 1024 * 1024;
+
+    private static final TransactionReadCache DISABLED = new TransactionReadCache(null, 1L);
+    private static final byte[] NO_VALUE = new byte[0];
+    private static final long NO_WRITES = -1L;
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final KeyValueService keyValueService;
+    private final long maximumWeightBytes;
+    private final Cache<CacheKey, CacheEntry> cache;
+    private final ConcurrentMap<TableReference, TableState> tableStates = Maps.newConcurrentMap();
+
+    public TransactionReadCache(KeyValueService keyValueService, long maximumWeightBytes) {
+        Preconditions.checkArgument(maximumWeightBytes > 0,
+                "maximumWeightBytes must be positive but was %s", maximumWeightBytes);
+        this.keyValueService = keyValueService;
+        this.maximumWeightBytes = maximumWeightBytes;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher(new Weigher<CacheKey, CacheEntry>() {
+                    @Override
+                    public int weigh(CacheKey key, CacheEntry entry) {
+                        return ENTRY_OVERHEAD_BYTES
+                                + key.cell.getRowName().length
+                                + key.cell.getColumnName().length
+                                + entry.value.length;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public static TransactionReadCache create(KeyValueService keyValueService) {
+        return new TransactionReadCache(keyValueService, DEFAULT_MAX_WEIGHT_BYTES);
+    }
+
+    /**
+     * Returns a cache that caches no tables.
+     */
+    public static TransactionReadCache disabled() {
+        return DISABLED;
+    }
+
+    public boolean isCachedTable(TableReference tableRef) {
+        return keyValueService != null && getTableState(tableRef).cached;
+    }
+
+    /**
+     * Returns the cached values of those cells that can be served for a transaction with the given start
+     * timestamp. Cells known to have no value are returned with the empty array.
+     */
+    public Map<Cell, byte[]> get(TableReference tableRef, Set<Cell> cells, long startTs) {
+        Map<Cell, byte[]> result = Maps.newHashMap();
+        TableState state = getTableState(tableRef);
+        // Check for writes in progress before reading the last write timestamp; see beginWrites.
+        if (state.writesInProgress.get() > 0) {
+            return result;
+        }
+        long lastWriteTs = state.lastWriteTs.get();
+        for (Cell cell : cells) {
+            CacheEntry entry = cache.getIfPresent(new CacheKey(tableRef, cell));
+            if (entry != null && entry.readTs > lastWriteTs && entry.readTs <= startTs) {
+                result.put(cell, entry.value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Caches the values read by a transaction with the given start timestamp. {@code values} must have been
+     * read with snapshot isolation at {@code startTs}; requested cells missing from it are cached as
+     * having no value.
+     */
+    public void put(TableReference tableRef, Set<Cell> requested, Map<Cell, byte[]> values, long startTs) {
+        TableState state = getTableState(tableRef);
+        if (state.lastWriteTs.get() >= startTs) {
+            return;
+        }
+        for (Cell cell : requested) {
+            byte[] value = values.get(cell);
+            CacheKey key = new CacheKey(tableRef, cell);
+            CacheEntry existing = cache.getIfPresent(key);
+            if (existing == null || existing.readTs < startTs) {
+                cache.put(key, new CacheEntry(value == null ? NO_VALUE : value, startTs));
+            }
+        }
+    }
+
+    /**
+     * Returns those of the given tables that are cached. This must be called by a committing transaction
+     * before it fetches its commit timestamp, and {@link #endWrites} must be called with the returned
+     * tables once the transaction has committed or failed.
+     * <p>
+     * A reader that sees no writes in progress and then reads the last write timestamp of a table either
+     * sees every commit to that table older than its start timestamp, or the commit began after the
+     * reader checked, in which case its commit timestamp is newer than the reader's start timestamp.
+     */
+    public Set<TableReference> beginWrites(Set<TableReference> tableRefs) {
+        // Resolve every table first, as that may read metadata and fail, so that either all of the
+        // cached tables are marked as being written or none of them are.
+        Map<TableReference, TableState> cachedStates = Maps.newHashMap();
+        for (TableReference tableRef : tableRefs) {
+            if (isCachedTable(tableRef)) {
+                cachedStates.put(tableRef, getTableState(tableRef));
+            }
+        }
+        for (TableState state : cachedStates.values()) {
+            state.writesInProgress.incrementAndGet();
+        }
+        return ImmutableSet.copyOf(cachedStates.keySet());
+    }
+
+    /**
+     * @param commitTs the commit timestamp of the writing transaction, or a negative value if the
+     *                 transaction failed before fetching one and so can never commit.
+     */
+    public void endWrites(Set<TableReference> cachedTables, long commitTs) {
+        for (TableReference tableRef : cachedTables) {
+            TableState state = getTableState(tableRef);
+            long lastWriteTs = state.lastWriteTs.get();
+            while (commitTs > lastWriteTs && !state.lastWriteTs.compareAndSet(lastWriteTs, commitTs)) {
+                lastWriteTs = state.lastWriteTs.get();
+            }
+            state.writesInProgress.decrementAndGet();
+        }
+    }
+
+    private TableState getTableState(TableReference tableRef) {
+        TableState state = tableStates.get(tableRef);
+        if (state == null) {
+            state = new TableState(isHotTable(tableRef));
+            TableState existing = tableStates.putIfAbsent(tableRef, state);
+            if (existing != null) {
+                state = existing;
+            }
+        }
+        return state;
+    }
+
+    private boolean isHotTable(TableReference tableRef) {
+        if (keyValueService == null) {
+            return false;
+        }
+        byte[] metadata = keyValueService.getMetadataForTable(tableRef);
+        if (metadata == null || metadata.length == 0) {
+            return false;
+        }
+        CachePriority priority = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata).getCachePriority();
+        return priority == CachePriority.HOT || priority == CachePriority.HOTTEST;
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getMaximumWeightBytes() {
+        return maximumWeightBytes;
+    }
+
+    /**
+     * Clears all cached values. This should be called if a cached table has been written other than
+     * through a transaction sharing this cache, for example if it has been truncated.
+     */
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static final class TableState {
+        final boolean cached;
+        final AtomicInteger writesInProgress = new AtomicInteger();
+        final AtomicLong lastWriteTs = new AtomicLong(NO_WRITES);
+
+        TableState(boolean cached) {
+            this.cached = cached;
+        }
+    }
+
+    private static final class CacheKey {
+        final TableReference tableRef;
+        final Cell cell;
+
+        CacheKey(TableReference tableRef, Cell cell) {
+            this.tableRef = tableRef;
+            this.cell = cell;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return tableRef.equals(other.tableRef) && cell.equals(other.cell);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(tableRef, cell);
+        }
+    }
+
+    private static final class CacheEntry {
+        final byte[] value;
+        final long readTs;
+
+        CacheEntry(byte[] value, long readTs) {
+            this.value = value;
+            this.readTs = readTs;
+        }
+    }
+}
@@ -23,16 +23,28 @@ public final class TransactionTables {
     }
 
     public static void createTables(KeyValueService keyValueService) {
-        keyValueService.createTable(
-                TransactionConstants.TRANSACTION_TABLE,
-                TransactionConstants.TRANSACTION_TABLE_METADATA.persistToBytes());
+        createTables(keyValueService, TransactionTableLayout.V1_ONLY);
+    }
+
+    public static void createTables(KeyValueService keyValueService, TransactionTableLayout layout) {
+        for (TransactionTableEncoding encoding : layout.getEncodingsInUse()) {
+            keyValueService.createTable(
+                    encoding.getTableRef(),
+                    encoding.getTableMetadata().persistToBytes());
+        }
     }
 
     public static void deleteTables(KeyValueService keyValueService) {
         keyValueService.dropTable(TransactionConstants.TRANSACTION_TABLE);
+        if (keyValueService.getAllTableNames().contains(TransactionConstants.TRANSACTION_TABLE_V2)) {
+            keyValueService.dropTable(TransactionConstants.TRANSACTION_TABLE_V2);
+        }
     }
 
     public static void truncateTables(KeyValueService keyValueService) {
         keyValueService.truncateTable(TransactionConstants.TRANSACTION_TABLE);
+        if (keyValueService.getAllTableNames().contains(TransactionConstants.TRANSACTION_TABLE_V2)) {
+            keyValueService.truncateTable(TransactionConstants.TRANSACTION_TABLE_V2);
+        }
     }
 }
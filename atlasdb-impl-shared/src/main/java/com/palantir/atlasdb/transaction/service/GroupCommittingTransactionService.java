@@ -0,0 +1,214 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A {@link TransactionService} that coalesces concurrent calls to {@link #putUnlessExists(long, long)}
+ * into a single batched putUnlessExists against the transactions table.
+ * <p>
+ * Committing threads enqueue their commit and then compete for the flush lock.  Whichever thread wins
+ * writes every commit that is queued at that point, so commits that arrive while a batch is in flight
+ * are grouped into the next batch.  If a batch fails with a {@link KeyAlreadyExistsException} the
+ * stored values are read back to work out which of the commits in the batch actually succeeded.
+ * <p>
+ * This only pays off if the key value service writes a batched putUnlessExists in one round trip.
+ * Where it is a check-and-set per cell, as on Cassandra, a batch runs those writes one after another
+ * while every other committer waits for the flush lock, so this should not be used there.
+ */
+@ThreadSafe
+public final class GroupCommittingTransactionService implements TransactionService {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommittingTransactionService.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final TransactionKVSWrapper kvStore;
+    private final int maxBatchSize;
+    private final Queue<PendingCommit> pendingCommits = new ConcurrentLinkedQueue<>();
+    private final Lock flushLock = new ReentrantLock();
+
+    public static TransactionService create(TransactionKVSWrapper kvStore) {
+        return new GroupCommittingTransactionService(kvStore, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public GroupCommittingTransactionService(TransactionKVSWrapper kvStore, int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive but was %s", maxBatchSize);
+        this.kvStore = kvStore;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        return kvStore.get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return kvStore.get(startTimestamps);
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        ListenableFuture<Void> result = enqueue(startTimestamp, commitTimestamp);
+        while (!result.isDone()) {
+            flushLock.lock();
+            try {
+                if (!result.isDone()) {
+                    flush();
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        try {
+            Uninterruptibles.getUninterruptibly(result);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    ListenableFuture<Void> enqueue(long startTimestamp, long commitTimestamp) {
+        PendingCommit commit = new PendingCommit(startTimestamp, commitTimestamp);
+        pendingCommits.add(commit);
+        return commit.result;
+    }
+
+    @VisibleForTesting
+    void flushPendingCommits() {
+        flushLock.lock();
+        try {
+            flush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flush() {
+        Map<Long, PendingCommit> batch = Maps.newHashMap();
+        for (PendingCommit commit = pendingCommits.poll(); commit != null; commit = pendingCommits.poll()) {
+            if (batch.containsKey(commit.startTimestamp)) {
+                // Only one value may ever be stored for a start timestamp, so at most one of these can win.
+                commit.result.setException(new KeyAlreadyExistsException(
+                        "Another commit for start timestamp " + commit.startTimestamp + " was already in progress."));
+                continue;
+            }
+            batch.put(commit.startTimestamp, commit);
+            if (batch.size() >= maxBatchSize) {
+                break;
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        log.trace("Committing a batch of {} transactions.", batch.size());
+        if (batch.size() == 1) {
+            PendingCommit commit = batch.values().iterator().next();
+            putSingleCommit(commit);
+            return;
+        }
+        try {
+            kvStore.putUnlessExists(Maps.transformValues(batch, PendingCommit::getCommitTimestamp));
+            for (PendingCommit commit : batch.values()) {
+                commit.result.set(null);
+            }
+        } catch (KeyAlreadyExistsException e) {
+            resolveFailedBatch(batch);
+        } catch (Throwable t) {
+            for (PendingCommit commit : batch.values()) {
+                commit.result.setException(t);
+            }
+        }
+    }
+
+    /**
+     * The batch write is not atomic, so some of the commits may have been written before the batch failed.
+     * We read back what was stored and only retry the start timestamps that still have no value.
+     */
+    private void resolveFailedBatch(Map<Long, PendingCommit> batch) {
+        Map<Long, Long> stored;
+        try {
+            stored = kvStore.get(batch.keySet());
+        } catch (Throwable t) {
+            for (PendingCommit commit : batch.values()) {
+                commit.result.setException(t);
+            }
+            return;
+        }
+        List<PendingCommit> toRetry = Lists.newArrayList();
+        for (PendingCommit commit : batch.values()) {
+            Long storedCommitTimestamp = stored.get(commit.startTimestamp);
+            if (storedCommitTimestamp == null) {
+                toRetry.add(commit);
+            } else if (storedCommitTimestamp == commit.commitTimestamp) {
+                commit.result.set(null);
+            } else {
+                commit.result.setException(new KeyAlreadyExistsException(
+                        "A different commit timestamp was already stored for start timestamp "
+                        + commit.startTimestamp + "."));
+            }
+        }
+        for (PendingCommit commit : toRetry) {
+            putSingleCommit(commit);
+        }
+    }
+
+    private void putSingleCommit(PendingCommit commit) {
+        try {
+            kvStore.putUnlessExists(commit.startTimestamp, commit.commitTimestamp);
+            commit.result.set(null);
+        } catch (Throwable t) {
+            commit.result.setException(t);
+        }
+    }
+
+    private static final class PendingCommit {
+        final long startTimestamp;
+        final long commitTimestamp;
+        final SettableFuture<Void> result = SettableFuture.create();
+
+        PendingCommit(long startTimestamp, long commitTimestamp) {
+            this.startTimestamp = startTimestamp;
+            this.commitTimestamp = commitTimestamp;
+        }
+
+        long getCommitTimestamp() {
+            return commitTimestamp;
+        }
+    }
+}
@@ -23,12 +23,20 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableEncoding;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 
 public final class SimpleTransactionService implements TransactionService {
     private final KeyValueService keyValueService;
+    private final TransactionTableLayout layout;
 
     public SimpleTransactionService(KeyValueService keyValueService) {
+        this(keyValueService, TransactionTableLayout.V1_ONLY);
+    }
+
+    public SimpleTransactionService(KeyValueService keyValueService, TransactionTableLayout layout) {
         this.keyValueService = keyValueService;
+        this.layout = layout;
     }
 
     // The maximum key-value store timestamp (exclusive) at which data is stored
@@ -38,9 +46,10 @@ public final class SimpleTransactionService implements TransactionService {
 
     @Override
     public Long get(long startTimestamp) {
-        Cell cell = getTransactionCell(startTimestamp);
+        TransactionTableEncoding encoding = layout.getEncoding(startTimestamp);
+        Cell cell = encoding.encodeCell(startTimestamp);
         Map<Cell, Value> returnMap = keyValueService.get(
-                TransactionConstants.TRANSACTION_TABLE,
+                encoding.getTableRef(),
                 ImmutableMap.of(cell, MAX_TIMESTAMP));
         if (returnMap.containsKey(cell)) {
             return TransactionConstants.getTimestampForValue(returnMap
@@ -52,22 +61,26 @@ public final class SimpleTransactionService implements TransactionService {
 
     @Override
     public Map<Long, Long> get(Iterable<Long> startTimestamps) {
-        Map<Cell, Long> startTsMap = Maps.newHashMap();
+        Map<TransactionTableEncoding, Map<Cell, Long>> startTsMaps = Maps.newEnumMap(TransactionTableEncoding.class);
         for (Long startTimestamp : startTimestamps) {
-            Cell cell = getTransactionCell(startTimestamp);
-            startTsMap.put(cell, MAX_TIMESTAMP);
+            TransactionTableEncoding encoding = layout.getEncoding(startTimestamp);
+            if (!startTsMaps.containsKey(encoding)) {
+                startTsMaps.put(encoding, Maps.<Cell, Long>newHashMap());
+            }
+            startTsMaps.get(encoding).put(encoding.encodeCell(startTimestamp), MAX_TIMESTAMP);
         }
 
-        Map<Cell, Value> rawResults = keyValueService.get(
-                TransactionConstants.TRANSACTION_TABLE, startTsMap);
-        Map<Long, Long> result = Maps.newHashMapWithExpectedSize(rawResults
-                .size());
-        for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
-            long startTs = TransactionConstants.getTimestampForValue(e.getKey()
-                    .getRowName());
-            long commitTs = TransactionConstants.getTimestampForValue(e
-                    .getValue().getContents());
-            result.put(startTs, commitTs);
+        Map<Long, Long> result = Maps.newHashMap();
+        for (Map.Entry<TransactionTableEncoding, Map<Cell, Long>> tableEntry : startTsMaps.entrySet()) {
+            TransactionTableEncoding encoding = tableEntry.getKey();
+            // A single request for all of the cells, however many rows they are spread over.
+            Map<Cell, Value> rawResults = keyValueService.get(encoding.getTableRef(), tableEntry.getValue());
+            for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
+                long startTs = encoding.decodeStartTimestamp(e.getKey());
+                long commitTs = TransactionConstants.getTimestampForValue(e
+                        .getValue().getContents());
+                result.put(startTs, commitTs);
+            }
         }
 
         return result;
@@ -75,16 +88,11 @@ public final class SimpleTransactionService implements TransactionService {
 
     @Override
     public void putUnlessExists(long startTimestamp, long commitTimestamp) {
-        Cell key = getTransactionCell(startTimestamp);
+        TransactionTableEncoding encoding = layout.getEncoding(startTimestamp);
+        Cell key = encoding.encodeCell(startTimestamp);
         byte[] value = TransactionConstants
                 .getValueForTimestamp(commitTimestamp);
-        keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE,
+        keyValueService.putUnlessExists(encoding.getTableRef(),
                 ImmutableMap.of(key, value));
     }
-
-    private Cell getTransactionCell(long startTimestamp) {
-        return Cell.create(
-                TransactionConstants.getValueForTimestamp(startTimestamp),
-                TransactionConstants.COMMIT_TS_COLUMN);
-    }
 }
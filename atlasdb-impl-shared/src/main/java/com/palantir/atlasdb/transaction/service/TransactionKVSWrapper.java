@@ -25,6 +25,8 @@ import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableEncoding;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 
 public class TransactionKVSWrapper {
     // The maximum key-value store timestamp (exclusive) at which data is stored in transaction table.
@@ -32,19 +34,21 @@ public class TransactionKVSWrapper {
     private static final long MAX_TIMESTAMP = 1L;
 
     private final KeyValueService keyValueService;
+    private final TransactionTableLayout layout;
 
     public TransactionKVSWrapper(KeyValueService keyValueService) {
-        this.keyValueService = keyValueService;
+        this(keyValueService, TransactionTableLayout.V1_ONLY);
     }
 
-    private static Cell getTransactionCell(long startTimestamp) {
-        return Cell.create(TransactionConstants.getValueForTimestamp(startTimestamp),
-                TransactionConstants.COMMIT_TS_COLUMN);
+    public TransactionKVSWrapper(KeyValueService keyValueService, TransactionTableLayout layout) {
+        this.keyValueService = keyValueService;
+        this.layout = layout;
     }
 
     public Long get(Long startTimestamp) {
-        Cell cell = getTransactionCell(startTimestamp);
-        Map<Cell, Value> returnMap = keyValueService.get(TransactionConstants.TRANSACTION_TABLE,
+        TransactionTableEncoding encoding = layout.getEncoding(startTimestamp);
+        Cell cell = encoding.encodeCell(startTimestamp);
+        Map<Cell, Value> returnMap = keyValueService.get(encoding.getTableRef(),
                                                          ImmutableMap.of(cell, MAX_TIMESTAMP));
         if (returnMap.containsKey(cell)) {
             return TransactionConstants.getTimestampForValue(returnMap.get(cell).getContents());
@@ -55,17 +59,23 @@ public class TransactionKVSWrapper {
 
     public Map<Long, Long> get(Iterable<Long> startTimestamps) {
         Map<Long, Long> result = Maps.newHashMap();
-        Map<Cell, Long> startTsMap = Maps.newHashMap();
+        Map<TransactionTableEncoding, Map<Cell, Long>> startTsMaps = Maps.newEnumMap(TransactionTableEncoding.class);
         for (Long startTimestamp : startTimestamps) {
-            Cell cell = getTransactionCell(startTimestamp);
-            startTsMap.put(cell, MAX_TIMESTAMP);
+            TransactionTableEncoding encoding = layout.getEncoding(startTimestamp);
+            if (!startTsMaps.containsKey(encoding)) {
+                startTsMaps.put(encoding, Maps.<Cell, Long>newHashMap());
+            }
+            startTsMaps.get(encoding).put(encoding.encodeCell(startTimestamp), MAX_TIMESTAMP);
         }
 
-        Map<Cell, Value> rawResults = keyValueService.get(TransactionConstants.TRANSACTION_TABLE, startTsMap);
-        for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
-            long startTs = TransactionConstants.getTimestampForValue(e.getKey().getRowName());
-            long commitTs = TransactionConstants.getTimestampForValue(e.getValue().getContents());
-            result.put(startTs, commitTs);
+        for (Map.Entry<TransactionTableEncoding, Map<Cell, Long>> tableEntry : startTsMaps.entrySet()) {
+            TransactionTableEncoding encoding = tableEntry.getKey();
+            Map<Cell, Value> rawResults = keyValueService.get(encoding.getTableRef(), tableEntry.getValue());
+            for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
+                long startTs = encoding.decodeStartTimestamp(e.getKey());
+                long commitTs = TransactionConstants.getTimestampForValue(e.getValue().getContents());
+                result.put(startTs, commitTs);
+            }
         }
 
         return result;
@@ -73,20 +83,39 @@ public class TransactionKVSWrapper {
 
     // It works only if key-value store supports putUnlessExists.
     public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
-        Cell key = getTransactionCell(startTimestamp);
+        TransactionTableEncoding encoding = layout.getEncoding(startTimestamp);
+        Cell key = encoding.encodeCell(startTimestamp);
         byte[] value = TransactionConstants.getValueForTimestamp(commitTimestamp);
-        keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, ImmutableMap.of(key, value));
+        keyValueService.putUnlessExists(encoding.getTableRef(), ImmutableMap.of(key, value));
+    }
+
+    // It works only if key-value store supports putUnlessExists.  This is not atomic across start timestamps;
+    // if it throws, some of the values may have been written.
+    public void putUnlessExists(Map<Long, Long> timestampMap) throws KeyAlreadyExistsException {
+        for (Map.Entry<TransactionTableEncoding, Map<Cell, byte[]>> e : toKvMaps(timestampMap).entrySet()) {
+            keyValueService.putUnlessExists(e.getKey().getTableRef(), e.getValue());
+        }
     }
 
     public void putAll(Map<Long, Long> timestampMap) throws KeyAlreadyExistsException {
-        Map<Cell, byte[]> kvMap = new HashMap<>();
+        for (Map.Entry<TransactionTableEncoding, Map<Cell, byte[]>> e : toKvMaps(timestampMap).entrySet()) {
+            // This can throw unchecked exceptions
+            keyValueService.put(e.getKey().getTableRef(), e.getValue(), 0);
+        }
+    }
+
+    private Map<TransactionTableEncoding, Map<Cell, byte[]>> toKvMaps(Map<Long, Long> timestampMap) {
+        Map<TransactionTableEncoding, Map<Cell, byte[]>> kvMaps = Maps.newEnumMap(TransactionTableEncoding.class);
         for (Map.Entry<Long, Long> entry : timestampMap.entrySet()) {
-            kvMap.put(
-                    getTransactionCell(entry.getKey()),
+            TransactionTableEncoding encoding = layout.getEncoding(entry.getKey());
+            if (!kvMaps.containsKey(encoding)) {
+                kvMaps.put(encoding, new HashMap<Cell, byte[]>());
+            }
+            kvMaps.get(encoding).put(
+                    encoding.encodeCell(entry.getKey()),
                     TransactionConstants.getValueForTimestamp(entry.getValue()));
         }
-
-        keyValueService.put(TransactionConstants.TRANSACTION_TABLE, kvMap, 0); // This can throw unchecked exceptions
+        return kvMaps;
     }
 
 }
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.transaction.service;
 
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 
 public final class TransactionServices {
     private TransactionServices() {
@@ -26,4 +27,25 @@ public final class TransactionServices {
             KeyValueService keyValueService) {
         return new SimpleTransactionService(keyValueService);
     }
+
+    public static TransactionService createTransactionService(
+            KeyValueService keyValueService,
+            TransactionTableLayout layout) {
+        return new SimpleTransactionService(keyValueService, layout);
+    }
+
+    /**
+     * Creates a transaction service that groups concurrent commits into batched writes to the
+     * transactions table.  This requires the key value service to support putUnlessExists.
+     */
+    public static TransactionService createGroupCommittingTransactionService(
+            KeyValueService keyValueService) {
+        return createGroupCommittingTransactionService(keyValueService, TransactionTableLayout.V1_ONLY);
+    }
+
+    public static TransactionService createGroupCommittingTransactionService(
+            KeyValueService keyValueService,
+            TransactionTableLayout layout) {
+        return GroupCommittingTransactionService.create(new TransactionKVSWrapper(keyValueService, layout));
+    }
 }
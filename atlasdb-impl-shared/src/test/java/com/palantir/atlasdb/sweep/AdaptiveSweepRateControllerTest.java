@@ -0,0 +1,109 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+
+public class AdaptiveSweepRateControllerTest {
+    private static final long MIN_PAUSE_MILLIS = 100L;
+    private static final int ROW_BATCH_SIZE = 1000;
+    private static final long TARGET_BATCH_MILLIS = 1000L;
+    private static final Clock NOON = Clock.fixed(
+            LocalDateTime.of(2016, 1, 1, 12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private final AdaptiveSweepRateController controller = new AdaptiveSweepRateController(
+            Suppliers.ofInstance(MIN_PAUSE_MILLIS),
+            Suppliers.ofInstance(ROW_BATCH_SIZE),
+            TARGET_BATCH_MILLIS,
+            0.0,
+            ImmutableList.of(SweepBudget.of(9, 17, 1000.0), SweepBudget.of(22, 6, 0.0)),
+            NOON);
+
+    @Test
+    public void halvesBatchSizeWhenLatencyIsOverTarget() {
+        recordBatches(5, 2 * TARGET_BATCH_MILLIS, 0);
+
+        assertThat(controller.getBatchSizeMultiplier()).isEqualTo(0.5f);
+        assertThat(controller.getDecreases()).isEqualTo(1L);
+    }
+
+    @Test
+    public void growsBatchSizeAdditivelyWhenLatencyIsUnderTarget() {
+        controller.batchFailed();
+        recordBatches(2, TARGET_BATCH_MILLIS / 2, 0);
+
+        assertThat(controller.getBatchSizeMultiplier()).isCloseTo(0.6f, within(0.0001f));
+    }
+
+    @Test
+    public void backsOffOnceBatchSizeCannotShrink() {
+        for (int i = 0; i < 20; i++) {
+            controller.batchFailed();
+        }
+
+        assertThat(controller.getBatchSizeMultiplier()).isEqualTo(1.5f / ROW_BATCH_SIZE);
+        assertThat(controller.getBackoffMillis()).isPositive();
+        assertThat(controller.getPauseMillis()).isGreaterThan(MIN_PAUSE_MILLIS);
+    }
+
+    @Test
+    public void pausesToStayWithinTheBudgetForTheCurrentHour() {
+        assertThat(controller.getCellsPerSecondBudget()).isEqualTo(1000.0);
+
+        recordBatches(1, 500, 5000);
+
+        // 5000 cells at 1000 cells per second should take 5 seconds, of which the batch took half a second.
+        assertThat(controller.getPauseMillis()).isEqualTo(4500L);
+    }
+
+    @Test
+    public void budgetIsSharedByAllWorkers() {
+        // Two workers each finish a batch of 5000 cells, which together use 10 seconds of the budget.
+        recordBatches(2, 500, 5000);
+
+        assertThat(controller.getPauseMillis()).isEqualTo(9500L);
+    }
+
+    @Test
+    public void budgetsCanSpanMidnight() {
+        SweepBudget overnight = SweepBudget.of(22, 6, 0.0);
+
+        assertThat(overnight.contains(23)).isTrue();
+        assertThat(overnight.contains(3)).isTrue();
+        assertThat(overnight.contains(12)).isFalse();
+    }
+
+    private void recordBatches(int count, long elapsedMillis, long cellsExamined) {
+        for (int i = 0; i < count; i++) {
+            controller.batchSucceeded(SweepResults.builder()
+                    .cellsExamined(cellsExamined)
+                    .cellsDeleted(0)
+                    .sweptTimestamp(0)
+                    .build(), elapsedMillis);
+        }
+    }
+}
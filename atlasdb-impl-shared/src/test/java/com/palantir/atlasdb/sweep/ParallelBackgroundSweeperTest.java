@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class ParallelBackgroundSweeperTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+
+    @Test
+    public void singleShardCoversWholeTable() {
+        List<byte[]> boundaries = ParallelBackgroundSweeper.getShardBoundaries(1);
+
+        assertThat(boundaries).hasSize(2);
+        assertThat(boundaries.get(0)).isEmpty();
+        assertThat(boundaries.get(1)).isEmpty();
+    }
+
+    @Test
+    public void shardBoundariesAreSortedAndCoverWholeTable() {
+        List<byte[]> boundaries = ParallelBackgroundSweeper.getShardBoundaries(8);
+
+        assertThat(boundaries.size()).isGreaterThanOrEqualTo(9);
+        assertThat(boundaries.get(0)).isEmpty();
+        assertThat(boundaries.get(boundaries.size() - 1)).isEmpty();
+        for (int i = 1; i < boundaries.size() - 2; i++) {
+            assertThat(UnsignedBytes.lexicographicalComparator().compare(boundaries.get(i), boundaries.get(i + 1)))
+                    .isNegative();
+        }
+    }
+
+    @Test
+    public void shardIdsAreStableAndDistinct() {
+        long shardId = ParallelBackgroundSweeper.getShardId(TABLE, 3, 8);
+
+        assertThat(shardId).isPositive();
+        assertThat(shardId).isEqualTo(ParallelBackgroundSweeper.getShardId(TABLE, 3, 8));
+        assertThat(shardId).isNotEqualTo(ParallelBackgroundSweeper.getShardId(TABLE, 4, 8));
+        assertThat(shardId).isNotEqualTo(ParallelBackgroundSweeper.getShardId(TABLE, 3, 16));
+        assertThat(shardId).isNotEqualTo(
+                ParallelBackgroundSweeper.getShardId(TableReference.createFromFullyQualifiedName("test.other"), 3, 8));
+    }
+}
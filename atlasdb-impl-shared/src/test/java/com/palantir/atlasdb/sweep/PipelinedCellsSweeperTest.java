@@ -0,0 +1,155 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public class PipelinedCellsSweeperTest {
+    private static final TableReference TABLE_REFERENCE = TableReference.create(Namespace.create("ns"), "testTable");
+    private static final int DELETE_THREADS = 4;
+    private static final int NUM_CELLS = 100;
+
+    private final KeyValueService mockKvs = mock(KeyValueService.class);
+    private final PipelinedCellsSweeper cellsSweeper =
+            new PipelinedCellsSweeper(null, mockKvs, ImmutableList.of(), DELETE_THREADS);
+
+    private final SetMultimap<Cell, Long> deleted = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final List<String> events = Collections.synchronizedList(Lists.newArrayList());
+
+    @After
+    public void tearDown() {
+        cellsSweeper.shutdown();
+    }
+
+    @Test
+    public void deletesAllCellsOnceFlushed() {
+        recordKvsCalls();
+        Multimap<Cell, Long> cellTsPairs = createCellTsPairs();
+
+        cellsSweeper.sweepCells(TABLE_REFERENCE, cellTsPairs, ImmutableSet.of());
+        cellsSweeper.flush();
+
+        assertThat(deleted).isEqualTo(cellTsPairs);
+    }
+
+    @Test
+    public void writesSentinelsBeforeDeletingTheirCells() {
+        recordKvsCalls();
+        Multimap<Cell, Long> cellTsPairs = createCellTsPairs();
+
+        cellsSweeper.sweepCells(TABLE_REFERENCE, cellTsPairs, cellTsPairs.keySet());
+        cellsSweeper.flush();
+
+        for (Cell cell : cellTsPairs.keySet()) {
+            int sentinelIndex = events.indexOf("sentinel " + cell);
+            int deleteIndex = events.indexOf("delete " + cell);
+            assertThat(sentinelIndex).isGreaterThanOrEqualTo(0).isLessThan(deleteIndex);
+        }
+    }
+
+    @Test
+    public void flushRethrowsFailedDeletes() {
+        RuntimeException failure = new RuntimeException("delete failed");
+        doThrow(failure).when(mockKvs).delete(any(), any());
+
+        cellsSweeper.sweepCells(TABLE_REFERENCE, createCellTsPairs(), ImmutableSet.of());
+
+        assertThatThrownBy(cellsSweeper::flush).isEqualTo(failure);
+    }
+
+    @Test
+    public void flushDoesNotRethrowFailuresTwice() {
+        doThrow(new RuntimeException("delete failed")).when(mockKvs).delete(any(), any());
+        cellsSweeper.sweepCells(TABLE_REFERENCE, createCellTsPairs(), ImmutableSet.of());
+        assertThatThrownBy(cellsSweeper::flush).isInstanceOf(RuntimeException.class);
+
+        cellsSweeper.flush();
+    }
+
+    @Test
+    public void discardedFailuresAreNotRethrownByLaterFlushes() {
+        doThrow(new RuntimeException("delete failed")).when(mockKvs).delete(any(), any());
+        cellsSweeper.sweepCells(TABLE_REFERENCE, createCellTsPairs(), ImmutableSet.of());
+
+        cellsSweeper.discardPendingDeletes();
+        cellsSweeper.flush();
+    }
+
+    @Test
+    public void deletesOnCallingThreadOnceShutDown() {
+        recordKvsCalls();
+        Multimap<Cell, Long> cellTsPairs = createCellTsPairs();
+        cellsSweeper.shutdown();
+
+        cellsSweeper.sweepCells(TABLE_REFERENCE, cellTsPairs, ImmutableSet.of());
+
+        assertThat(deleted).isEqualTo(cellTsPairs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordKvsCalls() {
+        doAnswer(invocation -> {
+            for (Cell cell : (Set<Cell>) invocation.getArguments()[1]) {
+                events.add("sentinel " + cell);
+            }
+            return null;
+        }).when(mockKvs).addGarbageCollectionSentinelValues(any(), any());
+        doAnswer(invocation -> {
+            Multimap<Cell, Long> cellTsPairs = (Multimap<Cell, Long>) invocation.getArguments()[1];
+            for (Cell cell : cellTsPairs.keySet()) {
+                events.add("delete " + cell);
+            }
+            deleted.putAll(cellTsPairs);
+            return null;
+        }).when(mockKvs).delete(any(), any());
+    }
+
+    private static Multimap<Cell, Long> createCellTsPairs() {
+        SetMultimap<Cell, Long> cellTsPairs = HashMultimap.create();
+        for (int i = 0; i < NUM_CELLS; i++) {
+            Cell cell = Cell.create(
+                    ("row" + i).getBytes(StandardCharsets.UTF_8),
+                    "col".getBytes(StandardCharsets.UTF_8));
+            cellTsPairs.putAll(cell, ImmutableSet.of(5L, 10L));
+        }
+        return cellTsPairs;
+    }
+}
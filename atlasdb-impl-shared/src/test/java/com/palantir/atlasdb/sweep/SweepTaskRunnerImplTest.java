@@ -17,11 +17,13 @@
 package com.palantir.atlasdb.sweep;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anySet;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -250,7 +252,28 @@ public class SweepTaskRunnerImplTest {
         verifyBatching(numBatches, maxBatchSize, timestamps);
     }
 
+    @Test
+    public void failedSweepDiscardsPendingDeletesInsteadOfFlushingThem() {
+        mockRangeToSweep(makeTimestamps(1, 10));
+        RuntimeException failure = new RuntimeException("delete failed");
+        doThrow(failure).when(mockCellsSweeper).sweepCells(eq(TABLE_REFERENCE), any(), anySet());
+
+        assertThatThrownBy(() -> sweepTaskRunner.run(TABLE_REFERENCE, ROW_BATCH_SIZE, 100, null)).isEqualTo(failure);
+
+        verify(mockCellsSweeper).discardPendingDeletes();
+        verify(mockCellsSweeper, never()).flush();
+    }
+
     private void verifyBatching(int batches, int maxBatchSize, List<RowResult<Set<Long>>> timestamps) {
+        mockRangeToSweep(timestamps);
+
+        sweepTaskRunner.run(TABLE_REFERENCE, ROW_BATCH_SIZE, maxBatchSize, null);
+
+        verifyAllCallsRespectBatching(batches, maxBatchSize);
+        verify(mockCellsSweeper).flush();
+    }
+
+    private void mockRangeToSweep(List<RowResult<Set<Long>>> timestamps) {
         ImmutableMap<Long, Long> startToCommitTs = ImmutableMap.of(OLD_START_TS, COMMIT_TS, NEW_START_TS, COMMIT_TS);
         when(mockTransactionService.get(any(Iterable.class))).thenReturn(startToCommitTs);
         when(mockKvs.getMetadataForTable(TABLE_REFERENCE)).thenReturn(new byte[1]);
@@ -259,10 +282,6 @@ public class SweepTaskRunnerImplTest {
         when(mockUnreadableTimestampSupplier.get()).thenReturn(100L);
         when(mockKvs.getRangeOfTimestamps(eq(TABLE_REFERENCE), any(RangeRequest.class), anyLong()))
                 .thenReturn(ClosableIterators.wrap(timestamps.iterator()));
-
-        sweepTaskRunner.run(TABLE_REFERENCE, ROW_BATCH_SIZE, maxBatchSize, null);
-
-        verifyAllCallsRespectBatching(batches, maxBatchSize);
     }
 
     private void verifyAllCallsRespectBatching(int batches, int maxBatchSize) {
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+
+public class SweepQueueTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final int SHARD = SweepQueue.getShard(TABLE, CELL.getRowName());
+    private static final Map<Cell, byte[]> WRITE = ImmutableMap.of(CELL, PtBytes.toBytes("value"));
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final SweepQueue sweepQueue = SweepQueue.create(kvs);
+
+    @Test
+    public void readsOnlyWritesBelowTheSweepTimestamp() {
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, WRITE), 10L);
+
+        assertThat(sweepQueue.read(SHARD, null, 10L, 100).cells().isEmpty()).isTrue();
+        assertThat(sweepQueue.read(SHARD, null, 11L, 100).cells())
+                .isEqualTo(ImmutableSetMultimap.of(TABLE, CELL));
+    }
+
+    @Test
+    public void deleteLeavesLaterWritesQueued() {
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, WRITE), 10L);
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, WRITE), 20L);
+
+        sweepQueue.delete(ImmutableSetMultimap.of(TABLE, CELL), 15L);
+
+        assertThat(sweepQueue.read(SHARD, null, 15L, 100).cells().isEmpty()).isTrue();
+        assertThat(sweepQueue.read(SHARD, null, 21L, 100).cells())
+                .isEqualTo(ImmutableSetMultimap.of(TABLE, CELL));
+    }
+
+    @Test
+    public void hiddenTablesAreNotQueued() {
+        sweepQueue.enqueue(ImmutableMap.of(AtlasDbConstants.SCRUB_TABLE, WRITE), 10L);
+
+        for (int shard = 0; shard < SweepQueue.NUM_SHARDS; shard++) {
+            assertThat(sweepQueue.read(shard, null, Long.MAX_VALUE, 100).cells().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void readsWholeRowsInBatches() {
+        ImmutableMap.Builder<Cell, byte[]> writes = ImmutableMap.builder();
+        for (int i = 0; i < 10; i++) {
+            writes.put(Cell.create(CELL.getRowName(), PtBytes.toBytes("col" + i)), PtBytes.toBytes("value"));
+        }
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, writes.build()), 10L);
+
+        SweepQueueBatch first = sweepQueue.read(SHARD, null, 11L, 5);
+        assertThat(first.cells().size()).isEqualTo(10);
+        assertThat(first.nextStartRow().isPresent()).isTrue();
+
+        SweepQueueBatch second = sweepQueue.read(SHARD, first.nextStartRow().get(), 11L, 5);
+        assertThat(second.cells().isEmpty()).isTrue();
+        assertThat(second.nextStartRow().isPresent()).isFalse();
+    }
+}
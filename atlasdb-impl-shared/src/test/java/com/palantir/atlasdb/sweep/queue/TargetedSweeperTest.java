@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.sweep.CellsSweeper;
+import com.palantir.atlasdb.sweep.SweepTaskRunnerImpl;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+
+public class TargetedSweeperTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+
+    private final AtomicLong sweepTimestamp = new AtomicLong();
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private SweepQueue sweepQueue;
+    private KeyValueService queueingKvs;
+    private TransactionService txService;
+    private TargetedSweeper targetedSweeper;
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(kvs);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        sweepQueue = SweepQueue.create(kvs);
+        queueingKvs = SweepQueueWritingKeyValueService.create(kvs, sweepQueue);
+        txService = TransactionServices.createTransactionService(kvs);
+        LockAwareTransactionManager txManager = mock(LockAwareTransactionManager.class);
+        CellsSweeper cellsSweeper = new CellsSweeper(txManager, kvs, ImmutableList.of());
+        SweepTaskRunnerImpl sweepRunner = new SweepTaskRunnerImpl(kvs, sweepTimestamp::get, sweepTimestamp::get,
+                txService, SweepStrategyManagers.createDefault(kvs), cellsSweeper);
+        targetedSweeper = new TargetedSweeper(txManager, sweepQueue, sweepRunner, () -> 0L, () -> 100);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void sweepsOverwrittenCellAndRemovesItsQueueEntries() {
+        putCommitted("old", 50L);
+        putCommitted("new", 100L);
+        sweepTimestamp.set(175L);
+
+        assertThat(targetedSweeper.runOnce()).isEqualTo(1);
+
+        assertThat(getAllTimestamps()).containsExactlyInAnyOrder(Value.INVALID_VALUE_TIMESTAMP, 100L);
+        assertThat(readQueue(Long.MAX_VALUE).isEmpty()).isTrue();
+        assertThat(targetedSweeper.runOnce()).isEqualTo(0);
+    }
+
+    @Test
+    public void leavesWritesAtOrAboveTheSweepTimestampQueued() {
+        putCommitted("old", 50L);
+        putCommitted("new", 100L);
+        sweepTimestamp.set(75L);
+
+        assertThat(targetedSweeper.runOnce()).isEqualTo(1);
+
+        assertThat(getAllTimestamps()).containsExactlyInAnyOrder(50L, 100L);
+        assertThat(readQueue(75L).isEmpty()).isTrue();
+        assertThat(readQueue(Long.MAX_VALUE)).isEqualTo(ImmutableSetMultimap.of(TABLE, CELL));
+    }
+
+    @Test
+    public void queuesWritesWithTimestamps() {
+        queueingKvs.putWithTimestamps(TABLE, ImmutableMultimap.of(
+                CELL, Value.create(PtBytes.toBytes("old"), 50L),
+                CELL, Value.create(PtBytes.toBytes("new"), 100L)));
+
+        sweepQueue.delete(ImmutableSetMultimap.of(TABLE, CELL), 51L);
+
+        assertThat(readQueue(Long.MAX_VALUE)).isEqualTo(ImmutableSetMultimap.of(TABLE, CELL));
+        sweepQueue.delete(ImmutableSetMultimap.of(TABLE, CELL), 101L);
+        assertThat(readQueue(Long.MAX_VALUE).isEmpty()).isTrue();
+    }
+
+    private void putCommitted(String value, long ts) {
+        queueingKvs.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes(value)), ts);
+        txService.putUnlessExists(ts, ts);
+    }
+
+    private Iterable<Long> getAllTimestamps() {
+        return kvs.getAllTimestamps(TABLE, ImmutableSet.of(CELL), Long.MAX_VALUE).get(CELL);
+    }
+
+    private SetMultimap<TableReference, Cell> readQueue(long maxTimestampExclusive) {
+        int shard = SweepQueue.getShard(TABLE, CELL.getRowName());
+        return sweepQueue.read(shard, null, maxTimestampExclusive, 100).cells();
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class CommitTimestampCacheTest {
+    private static final long START_TS = 100L;
+    private static final long COMMIT_TS = 200L;
+
+    private final CommitTimestampCache cache = new CommitTimestampCache(2);
+
+    @Test
+    public void getShouldReturnNullForUnknownStartTimestamp() {
+        assertThat(cache.get(START_TS)).isNull();
+        assertThat(cache.getMissCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void getShouldReturnPreviouslyPutCommitTimestamp() {
+        cache.put(START_TS, COMMIT_TS);
+
+        assertThat(cache.get(START_TS)).isEqualTo(COMMIT_TS);
+        assertThat(cache.getHitCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void cacheShouldEvictOnceMaximumSizeIsReached() {
+        cache.putAll(ImmutableMap.of(1L, 2L, 3L, 4L));
+        cache.put(5L, 6L);
+
+        assertThat(cache.getSize()).isEqualTo(2L);
+        assertThat(cache.getEvictionCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void clearShouldRemoveAllEntries() {
+        cache.put(START_TS, COMMIT_TS);
+        cache.clear();
+
+        assertThat(cache.get(START_TS)).isNull();
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+
+public class TransactionReadCacheTest {
+    private static final TableReference HOT_TABLE = TableReference.createFromFullyQualifiedName("test.hot");
+    private static final TableReference WARM_TABLE = TableReference.createFromFullyQualifiedName("test.warm");
+    private static final TableReference BROKEN_TABLE = TableReference.createFromFullyQualifiedName("test.broken");
+    private static final Cell CELL = Cell.create("row".getBytes(), "col".getBytes());
+    private static final Cell MISSING_CELL = Cell.create("other".getBytes(), "col".getBytes());
+    private static final byte[] VALUE = "value".getBytes();
+
+    private KeyValueService kvs;
+    private TransactionReadCache cache;
+
+    @Before
+    public void setUp() {
+        final KeyValueService rawKvs = new InMemoryKeyValueService(false);
+        rawKvs.createTable(HOT_TABLE, metadata(CachePriority.HOT));
+        rawKvs.createTable(WARM_TABLE, metadata(CachePriority.WARM));
+        kvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return rawKvs;
+            }
+
+            @Override
+            public byte[] getMetadataForTable(TableReference tableRef) {
+                if (tableRef.equals(BROKEN_TABLE)) {
+                    throw new IllegalStateException("metadata unavailable");
+                }
+                return super.getMetadataForTable(tableRef);
+            }
+        };
+        cache = TransactionReadCache.create(kvs);
+    }
+
+    @Test
+    public void onlyHotTablesAreCached() {
+        assertThat(cache.isCachedTable(HOT_TABLE)).isTrue();
+        assertThat(cache.isCachedTable(WARM_TABLE)).isFalse();
+        assertThat(TransactionReadCache.disabled().isCachedTable(HOT_TABLE)).isFalse();
+    }
+
+    @Test
+    public void valuesAreServedToLaterTransactions() {
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL, MISSING_CELL), ImmutableMap.of(CELL, VALUE), 10L);
+
+        Map<Cell, byte[]> result = cache.get(HOT_TABLE, ImmutableSet.of(CELL, MISSING_CELL), 20L);
+
+        assertThat(result.get(CELL)).isEqualTo(VALUE);
+        assertThat(result.get(MISSING_CELL)).isEmpty();
+    }
+
+    @Test
+    public void valuesAreNotServedToEarlierTransactions() {
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL), ImmutableMap.of(CELL, VALUE), 10L);
+
+        assertThat(cache.get(HOT_TABLE, ImmutableSet.of(CELL), 5L)).isEmpty();
+    }
+
+    @Test
+    public void valuesAreNotServedWhileAWriteIsInProgress() {
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL), ImmutableMap.of(CELL, VALUE), 10L);
+        Set<TableReference> writing = cache.beginWrites(ImmutableSet.of(HOT_TABLE, WARM_TABLE));
+
+        assertThat(writing).containsExactly(HOT_TABLE);
+        assertThat(cache.get(HOT_TABLE, ImmutableSet.of(CELL), 20L)).isEmpty();
+    }
+
+    @Test
+    public void valuesReadBeforeACommitAreNotServedAfterIt() {
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL), ImmutableMap.of(CELL, VALUE), 10L);
+        cache.endWrites(cache.beginWrites(ImmutableSet.of(HOT_TABLE)), 15L);
+
+        assertThat(cache.get(HOT_TABLE, ImmutableSet.of(CELL), 20L)).isEmpty();
+
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL), ImmutableMap.of(CELL, VALUE), 12L);
+        assertThat(cache.get(HOT_TABLE, ImmutableSet.of(CELL), 20L)).isEmpty();
+
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL), ImmutableMap.of(CELL, VALUE), 20L);
+        assertThat(cache.get(HOT_TABLE, ImmutableSet.of(CELL), 30L)).containsKey(CELL);
+    }
+
+    @Test
+    public void failedWritesDoNotInvalidateTheCache() {
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL), ImmutableMap.of(CELL, VALUE), 10L);
+        cache.endWrites(cache.beginWrites(ImmutableSet.of(HOT_TABLE)), TransactionConstants.FAILED_COMMIT_TS);
+
+        assertThat(cache.get(HOT_TABLE, ImmutableSet.of(CELL), 20L)).containsKey(CELL);
+    }
+
+    @Test
+    public void failingToBeginWritesLeavesNoWriteInProgress() {
+        cache.put(HOT_TABLE, ImmutableSet.of(CELL), ImmutableMap.of(CELL, VALUE), 10L);
+
+        assertThatThrownBy(() -> cache.beginWrites(ImmutableSet.of(HOT_TABLE, BROKEN_TABLE)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get(HOT_TABLE, ImmutableSet.of(CELL), 20L)).containsKey(CELL);
+    }
+
+    @Test
+    public void cachePriorityIsReadOnceForTheLifeOfTheCache() {
+        assertThat(cache.isCachedTable(WARM_TABLE)).isFalse();
+
+        kvs.putMetadataForTable(WARM_TABLE, metadata(CachePriority.HOTTEST));
+
+        assertThat(cache.isCachedTable(WARM_TABLE)).isFalse();
+        assertThat(TransactionReadCache.create(kvs).isCachedTable(WARM_TABLE)).isTrue();
+    }
+
+    private static byte[] metadata(CachePriority cachePriority) {
+        return new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                cachePriority,
+                PartitionStrategy.ORDERED,
+                false,
+                0,
+                false,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                false).persistToBytes();
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+
+public class GroupCommittingTransactionServiceTest {
+    private static final long START_TS = 100L;
+    private static final long COMMIT_TS = 200L;
+
+    private final InMemoryKeyValueService kvs = new InMemoryKeyValueService(true);
+    private final TransactionService transactionService =
+            GroupCommittingTransactionService.create(new TransactionKVSWrapper(kvs));
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void putUnlessExistsShouldStoreCommitTimestamp() {
+        transactionService.putUnlessExists(START_TS, COMMIT_TS);
+
+        assertThat(transactionService.get(START_TS)).isEqualTo(COMMIT_TS);
+    }
+
+    @Test(expected = KeyAlreadyExistsException.class)
+    public void putUnlessExistsShouldThrowIfAlreadyCommitted() {
+        transactionService.putUnlessExists(START_TS, COMMIT_TS);
+        transactionService.putUnlessExists(START_TS, COMMIT_TS + 1);
+    }
+
+    @Test
+    public void concurrentCommitsShouldAllBeStored() throws Exception {
+        int numCommits = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < numCommits; i++) {
+                long startTs = i;
+                futures.add(executor.submit(() -> transactionService.putUnlessExists(startTs, startTs + numCommits)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (long startTs = 0; startTs < numCommits; startTs++) {
+            assertThat(transactionService.get(startTs)).isEqualTo(startTs + numCommits);
+        }
+    }
+
+    @Test
+    public void partlyWrittenBatchesOnlyRetryTheUnwrittenCommits() throws Exception {
+        FlakyKvsWrapper kvStore = new FlakyKvsWrapper(kvs);
+        kvStore.writeOneThenFail = true;
+        GroupCommittingTransactionService service = new GroupCommittingTransactionService(kvStore, 10);
+
+        List<ListenableFuture<Void>> results = enqueueCommits(service, 1L, 2L, 3L);
+        service.flushPendingCommits();
+
+        for (ListenableFuture<Void> result : results) {
+            result.get();
+        }
+        assertThat(kvStore.singlePuts.get()).isEqualTo(2);
+        assertThat(service.get(ImmutableList.of(1L, 2L, 3L))).isEqualTo(ImmutableMap.of(1L, 11L, 2L, 12L, 3L, 13L));
+    }
+
+    @Test
+    public void commitsConflictingWithAStoredValueFailAndTheRestSucceed() throws Exception {
+        FlakyKvsWrapper kvStore = new FlakyKvsWrapper(kvs);
+        kvStore.putUnlessExists(2L, 99L);
+        GroupCommittingTransactionService service = new GroupCommittingTransactionService(kvStore, 10);
+
+        List<ListenableFuture<Void>> results = enqueueCommits(service, 1L, 2L, 3L);
+        service.flushPendingCommits();
+
+        results.get(0).get();
+        assertThatThrownBy(() -> results.get(1).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(KeyAlreadyExistsException.class);
+        results.get(2).get();
+        assertThat(service.get(ImmutableList.of(1L, 2L, 3L))).isEqualTo(ImmutableMap.of(1L, 11L, 2L, 99L, 3L, 13L));
+    }
+
+    @Test
+    public void everyCommitInTheBatchFailsIfTheReadBackFails() {
+        FlakyKvsWrapper kvStore = new FlakyKvsWrapper(kvs);
+        kvStore.writeOneThenFail = true;
+        kvStore.failReads = true;
+        GroupCommittingTransactionService service = new GroupCommittingTransactionService(kvStore, 10);
+
+        List<ListenableFuture<Void>> results = enqueueCommits(service, 1L, 2L, 3L);
+        service.flushPendingCommits();
+
+        for (ListenableFuture<Void> result : results) {
+            assertThatThrownBy(result::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasMessageContaining("read back failed");
+        }
+        assertThat(kvStore.singlePuts.get()).isEqualTo(0);
+    }
+
+    private static List<ListenableFuture<Void>> enqueueCommits(
+            GroupCommittingTransactionService service,
+            long... startTimestamps) {
+        List<ListenableFuture<Void>> results = Lists.newArrayList();
+        for (long startTs : startTimestamps) {
+            results.add(service.enqueue(startTs, startTs + 10));
+        }
+        return results;
+    }
+
+    private static final class FlakyKvsWrapper extends TransactionKVSWrapper {
+        final AtomicInteger singlePuts = new AtomicInteger();
+        boolean writeOneThenFail = false;
+        boolean failReads = false;
+
+        FlakyKvsWrapper(InMemoryKeyValueService kvs) {
+            super(kvs);
+        }
+
+        @Override
+        public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+            if (failReads) {
+                throw new RuntimeException("read back failed");
+            }
+            return super.get(startTimestamps);
+        }
+
+        @Override
+        public void putUnlessExists(long startTimestamp, long commitTimestamp) {
+            singlePuts.incrementAndGet();
+            super.putUnlessExists(startTimestamp, commitTimestamp);
+        }
+
+        @Override
+        public void putUnlessExists(Map<Long, Long> timestampMap) {
+            if (!writeOneThenFail) {
+                super.putUnlessExists(timestampMap);
+                return;
+            }
+            Map.Entry<Long, Long> first = Iterables.getFirst(timestampMap.entrySet(), null);
+            super.putUnlessExists(ImmutableMap.of(first.getKey(), first.getValue()));
+            throw new KeyAlreadyExistsException("the batch was only partly written");
+        }
+    }
+}
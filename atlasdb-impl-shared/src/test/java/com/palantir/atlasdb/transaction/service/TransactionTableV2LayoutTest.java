@@ -0,0 +1,155 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableEncoding;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+
+@RunWith(Parameterized.class)
+public class TransactionTableV2LayoutTest {
+    private static final long CUTOVER_TS = 1000L;
+    private static final TransactionTableLayout LAYOUT = TransactionTableLayout.withV2Cutover(CUTOVER_TS);
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> transactionServices() {
+        Function<KeyValueService, TransactionService> simple =
+                kvs -> TransactionServices.createTransactionService(kvs, LAYOUT);
+        Function<KeyValueService, TransactionService> groupCommitting =
+                kvs -> TransactionServices.createGroupCommittingTransactionService(kvs, LAYOUT);
+        return Arrays.asList(new Object[][] {
+                {"simple", simple},
+                {"groupCommitting", groupCommitting}});
+    }
+
+    private final Function<KeyValueService, TransactionService> serviceFactory;
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private TransactionService transactionService;
+
+    public TransactionTableV2LayoutTest(String name, Function<KeyValueService, TransactionService> serviceFactory) {
+        this.serviceFactory = serviceFactory;
+    }
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(kvs, LAYOUT);
+        transactionService = serviceFactory.apply(kvs);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void commitsFromTheCutoverAreStoredInTheShardedTable() {
+        long startTs = CUTOVER_TS + 5;
+        transactionService.putUnlessExists(startTs, startTs + 1);
+
+        assertThat(transactionService.get(startTs)).isEqualTo(startTs + 1);
+        assertThat(readCommitTimestamp(TransactionTableEncoding.V2, startTs)).isEqualTo(startTs + 1);
+        assertThat(readCommitTimestamp(TransactionTableEncoding.V1, startTs)).isNull();
+    }
+
+    @Test
+    public void commitsBeforeTheCutoverAreStoredInTheOriginalTable() {
+        long startTs = CUTOVER_TS - 5;
+        transactionService.putUnlessExists(startTs, startTs + 1);
+
+        assertThat(readCommitTimestamp(TransactionTableEncoding.V1, startTs)).isEqualTo(startTs + 1);
+        assertThat(readCommitTimestamp(TransactionTableEncoding.V2, startTs)).isNull();
+    }
+
+    @Test
+    public void secondCommitOfAV2StartTimestampConflicts() {
+        long startTs = CUTOVER_TS + 5;
+        transactionService.putUnlessExists(startTs, startTs + 1);
+
+        assertThatThrownBy(() -> transactionService.putUnlessExists(startTs, startTs + 2))
+                .isInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(transactionService.get(startTs)).isEqualTo(startTs + 1);
+    }
+
+    @Test
+    public void batchGetReadsBothLayouts() {
+        transactionService.putUnlessExists(CUTOVER_TS - 1, CUTOVER_TS + 10);
+        transactionService.putUnlessExists(CUTOVER_TS, CUTOVER_TS + 11);
+        transactionService.putUnlessExists(CUTOVER_TS + 17, CUTOVER_TS + 18);
+
+        Map<Long, Long> commitTimestamps = transactionService.get(
+                ImmutableList.of(CUTOVER_TS - 2, CUTOVER_TS - 1, CUTOVER_TS, CUTOVER_TS + 16, CUTOVER_TS + 17));
+
+        assertThat(commitTimestamps).isEqualTo(ImmutableMap.of(
+                CUTOVER_TS - 1, CUTOVER_TS + 10,
+                CUTOVER_TS, CUTOVER_TS + 11,
+                CUTOVER_TS + 17, CUTOVER_TS + 18));
+    }
+
+    @Test
+    public void rowsWrittenBeforeTheCutoverWasConfiguredAreStillRead() {
+        TransactionService v1OnlyService = TransactionServices.createTransactionService(kvs);
+        v1OnlyService.putUnlessExists(CUTOVER_TS - 10, CUTOVER_TS - 9);
+        v1OnlyService.putUnlessExists(CUTOVER_TS - 8, CUTOVER_TS - 7);
+
+        assertThat(transactionService.get(CUTOVER_TS - 10)).isEqualTo(CUTOVER_TS - 9);
+        assertThat(transactionService.get(ImmutableList.of(CUTOVER_TS - 10, CUTOVER_TS - 8)))
+                .isEqualTo(ImmutableMap.of(CUTOVER_TS - 10, CUTOVER_TS - 9, CUTOVER_TS - 8, CUTOVER_TS - 7));
+        assertThatThrownBy(() -> transactionService.putUnlessExists(CUTOVER_TS - 10, CUTOVER_TS + 1))
+                .isInstanceOf(KeyAlreadyExistsException.class);
+    }
+
+    @Test
+    public void batchedPutUnlessExistsWritesEachStartTimestampToItsLayout() {
+        TransactionKVSWrapper kvStore = new TransactionKVSWrapper(kvs, LAYOUT);
+
+        kvStore.putUnlessExists(ImmutableMap.of(CUTOVER_TS - 1, CUTOVER_TS + 1, CUTOVER_TS + 1, CUTOVER_TS + 2));
+
+        assertThat(readCommitTimestamp(TransactionTableEncoding.V1, CUTOVER_TS - 1)).isEqualTo(CUTOVER_TS + 1);
+        assertThat(readCommitTimestamp(TransactionTableEncoding.V2, CUTOVER_TS + 1)).isEqualTo(CUTOVER_TS + 2);
+        assertThat(transactionService.get(ImmutableList.of(CUTOVER_TS - 1, CUTOVER_TS + 1)))
+                .isEqualTo(ImmutableMap.of(CUTOVER_TS - 1, CUTOVER_TS + 1, CUTOVER_TS + 1, CUTOVER_TS + 2));
+    }
+
+    private Long readCommitTimestamp(TransactionTableEncoding encoding, long startTs) {
+        TableReference tableRef = encoding.getTableRef();
+        Cell cell = encoding.encodeCell(startTs);
+        Value value = kvs.get(tableRef, ImmutableMap.of(cell, 1L)).get(cell);
+        return value == null ? null : TransactionConstants.getTimestampForValue(value.getContents());
+    }
+}
@@ -17,6 +17,7 @@
 package com.palantir.atlasdb.performance.backend;
 
 import java.io.Closeable;
+import java.util.function.Function;
 
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
@@ -40,12 +41,20 @@ public class AtlasDbServicesConnector implements Closeable {
     private AtlasDbServices services;
 
     public AtlasDbServices connect() {
+        return connect(Function.identity());
+    }
+
+    /**
+     * Connects with a key value service config derived from the default one for the backend, so that benchmarks
+     * can compare different settings of the same store.
+     */
+    public AtlasDbServices connect(Function<KeyValueServiceConfig, KeyValueServiceConfig> configure) {
         if (services != null) {
             throw new IllegalStateException("connect() has already been called");
         }
         DockerizedDatabaseUri dburi = DockerizedDatabaseUri.fromUriString(uri);
-        KeyValueServiceConfig config = KeyValueServiceType.getKeyValueServiceConfig(
-                dburi.getKeyValueServiceType(), dburi.getAddress());
+        KeyValueServiceConfig config = configure.apply(KeyValueServiceType.getKeyValueServiceConfig(
+                dburi.getKeyValueServiceType(), dburi.getAddress()));
         services = DaggerAtlasDbServices.builder()
                 .servicesConfigModule(
                         ServicesConfigModule.create(
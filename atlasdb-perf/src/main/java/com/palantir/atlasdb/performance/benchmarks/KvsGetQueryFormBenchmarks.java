@@ -0,0 +1,92 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.ConsecutiveNarrowTable;
+
+/**
+ * Compares point reads with the default query form against array-bound queries. Requests use a different
+ * number of cells each time, which is what keeps the default form from reusing its prepared statements.
+ */
+@State(Scope.Benchmark)
+public class KvsGetQueryFormBenchmarks {
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private Set<Cell> getCellsRequest(ConsecutiveNarrowTable table) {
+        return table.getCellsRequest(1 + table.getRandom().nextInt(MAX_BATCH_SIZE));
+    }
+
+    @Benchmark
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getSingleCell(ConsecutiveNarrowTable.QueryFormNarrowTable table) {
+        Set<Cell> request = table.getCellsRequest(1);
+        Map<Cell, Value> result = table.getKvs().get(table.getTableRef(), Maps.asMap(request, cell -> Long.MAX_VALUE));
+        Preconditions.checkState(result.size() == 1, "expected 1 cell, found %s cells", result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getCellsOfMixedSizes(ConsecutiveNarrowTable.QueryFormNarrowTable table) {
+        Set<Cell> request = getCellsRequest(table);
+        Map<Cell, Value> result = table.getKvs().get(table.getTableRef(), Maps.asMap(request, cell -> Long.MAX_VALUE));
+        Preconditions.checkState(result.size() == request.size(),
+                "expected %s cells, found %s cells", request.size(), result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getRowsOfMixedSizes(ConsecutiveNarrowTable.QueryFormNarrowTable table) {
+        Set<byte[]> rows = getCellsRequest(table).stream().map(Cell::getRowName).collect(Collectors.toSet());
+        Map<Cell, Value> result = table.getKvs().getRows(
+                table.getTableRef(), rows, ColumnSelection.all(), Long.MAX_VALUE);
+        Preconditions.checkState(result.size() == rows.size(),
+                "expected %s cells, found %s cells", rows.size(), result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getLatestTimestampsOfMixedSizes(ConsecutiveNarrowTable.QueryFormNarrowTable table) {
+        Set<Cell> request = getCellsRequest(table);
+        Map<Cell, Long> result = table.getKvs().getLatestTimestamps(
+                table.getTableRef(), Maps.asMap(request, cell -> Long.MAX_VALUE));
+        Preconditions.checkState(result.size() == request.size(),
+                "expected %s cells, found %s cells", request.size(), result.size());
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.performance.benchmarks.table.Tables;
+import com.palantir.atlasdb.performance.benchmarks.table.WideRowTable;
+
+/**
+ * Compares the key value service's own getRowsColumnRange with the generic implementation that reads whole
+ * rows and filters them to the column range.
+ */
+@State(Scope.Benchmark)
+public class KvsGetRowsColumnRangeBenchmarks {
+    private static final int BATCH_HINT = 1000;
+    private static final BatchColumnRangeSelection ALL_COLUMNS =
+            BatchColumnRangeSelection.create(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY, BATCH_HINT);
+
+    @Benchmark
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 45, timeUnit = TimeUnit.SECONDS)
+    public Object getAllColumnsWithColumnRange(WideRowTable table) {
+        Map<byte[], RowColumnRangeIterator> result = table.getKvs().getRowsColumnRange(
+                table.getTableRef(), Collections.singleton(Tables.ROW_BYTES.array()), ALL_COLUMNS, Long.MAX_VALUE);
+        return checkSize(result, WideRowTable.NUM_COLS);
+    }
+
+    @Benchmark
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 45, timeUnit = TimeUnit.SECONDS)
+    public Object getAllColumnsWithPostFilteredColumnRange(WideRowTable table) {
+        Map<byte[], RowColumnRangeIterator> result = KeyValueServices.filterGetRowsToColumnRange(table.getKvs(),
+                table.getTableRef(), Collections.singleton(Tables.ROW_BYTES.array()), ALL_COLUMNS, Long.MAX_VALUE);
+        return checkSize(result, WideRowTable.NUM_COLS);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object getFirstPageWithColumnRange(WideRowTable table) {
+        Map<byte[], RowColumnRangeIterator> result = table.getKvs().getRowsColumnRange(
+                table.getTableRef(), Collections.singleton(Tables.ROW_BYTES.array()), ALL_COLUMNS, Long.MAX_VALUE);
+        return checkSize(Iterators.limit(Iterables.getOnlyElement(result.values()), BATCH_HINT), BATCH_HINT);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object getFirstPageWithPostFilteredColumnRange(WideRowTable table) {
+        Map<byte[], RowColumnRangeIterator> result = KeyValueServices.filterGetRowsToColumnRange(table.getKvs(),
+                table.getTableRef(), Collections.singleton(Tables.ROW_BYTES.array()), ALL_COLUMNS, Long.MAX_VALUE);
+        return checkSize(Iterators.limit(Iterables.getOnlyElement(result.values()), BATCH_HINT), BATCH_HINT);
+    }
+
+    private static int checkSize(Map<byte[], RowColumnRangeIterator> result, int expectedSize) {
+        return checkSize(Iterables.getOnlyElement(result.values()), expectedSize);
+    }
+
+    private static int checkSize(Iterator<?> cells, int expectedSize) {
+        int size = Iterators.size(cells);
+        Preconditions.checkState(size == expectedSize, "Should be %s columns, but were: %s", expectedSize, size);
+        return size;
+    }
+}
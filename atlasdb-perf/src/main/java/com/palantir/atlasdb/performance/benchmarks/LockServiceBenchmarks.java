@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * Throughput benchmarks for lock and unlock against an in-process lock server.
+ * <p>
+ * Each benchmark is run with a single thread and with one thread per core, so
+ * that comparing the two shows how the lock server's bookkeeping scales with
+ * contention. Threads lock disjoint descriptors, so any loss of scaling comes
+ * from the lock server itself rather than from the locks being contended.
+ */
+public class LockServiceBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class LockServer {
+        private LockServiceImpl lockService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            lockService = LockServiceImpl.create();
+        }
+
+        @TearDown(Level.Trial)
+        public void cleanup() {
+            lockService.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LockClientState {
+        private long versionId = 0;
+        private LockClient client;
+        private LockDescriptor descriptor;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            String id = UUID.randomUUID().toString();
+            client = LockClient.of("client-" + id);
+            descriptor = StringLockDescriptor.of("lock-" + id);
+        }
+
+        LockRequest nextRequest() {
+            return LockRequest.builder(ImmutableSortedMap.of(descriptor, LockMode.WRITE))
+                    .withLockedInVersionId(++versionId)
+                    .doNotBlock()
+                    .build();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object singleThreadedLockAndUnlock(LockServer server, LockClientState state) throws InterruptedException {
+        return lockAndUnlock(server, state);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object multiThreadedLockAndUnlock(LockServer server, LockClientState state) throws InterruptedException {
+        return lockAndUnlock(server, state);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object multiThreadedLockAndGetMinLockedInVersionId(LockServer server, LockClientState state)
+            throws InterruptedException {
+        LockRefreshToken token = server.lockService.lock(state.client.getClientId(), state.nextRequest());
+        Preconditions.checkNotNull(token, "Failed to acquire an uncontended lock");
+        Long minVersionId = server.lockService.getMinLockedInVersionId(state.client.getClientId());
+        server.lockService.unlock(token);
+        return minVersionId;
+    }
+
+    private static LockRefreshToken lockAndUnlock(LockServer server, LockClientState state)
+            throws InterruptedException {
+        LockRefreshToken token = server.lockService.lock(state.client.getClientId(), state.nextRequest());
+        Preconditions.checkNotNull(token, "Failed to acquire an uncontended lock");
+        server.lockService.unlock(token);
+        return token;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.timestamp.PersistentTimestampService;
+import com.palantir.timestamp.TimestampBoundStore;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Throughput benchmarks for handing out timestamps from an in-process timestamp server.
+ * <p>
+ * The bound store is in memory, so these measure the allocation path of the timestamp server rather than
+ * the cost of persisting the upper limit. Comparing the single threaded and one thread per core results shows
+ * how well the allocation path scales.
+ */
+public class TimestampServiceBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class TimestampServer {
+        private PersistentTimestampService timestampService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            timestampService = PersistentTimestampService.create(new InMemoryBoundStore());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long singleThreadedGetFreshTimestamp(TimestampServer server) {
+        return server.timestampService.getFreshTimestamp();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long multiThreadedGetFreshTimestamp(TimestampServer server) {
+        return server.timestampService.getFreshTimestamp();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public TimestampRange multiThreadedGetFreshTimestamps(TimestampServer server) {
+        return server.timestampService.getFreshTimestamps(100);
+    }
+
+    private static class InMemoryBoundStore implements TimestampBoundStore {
+        private volatile long upperLimit = 0;
+
+        @Override
+        public long getUpperLimit() {
+            return upperLimit;
+        }
+
+        @Override
+        public void storeUpperLimit(long limit) {
+            upperLimit = limit;
+        }
+    }
+}
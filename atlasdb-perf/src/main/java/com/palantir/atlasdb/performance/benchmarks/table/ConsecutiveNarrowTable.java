@@ -23,6 +23,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -36,9 +37,14 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableDbKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
 import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
 import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
 import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.spi.KeyValueServiceConfig;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 
 /**
@@ -75,6 +81,10 @@ public abstract class ConsecutiveNarrowTable {
 
     protected abstract void setupData();
 
+    protected KeyValueServiceConfig configure(KeyValueServiceConfig config) {
+        return config;
+    }
+
     @TearDown(Level.Trial)
     public void cleanup() throws Exception {
         this.connector.close();
@@ -83,7 +93,7 @@ public abstract class ConsecutiveNarrowTable {
     @Setup(Level.Trial)
     public void setup(AtlasDbServicesConnector conn) {
         this.connector = conn;
-        services = conn.connect();
+        services = conn.connect(this::configure);
         if (!services.getKeyValueService().getAllTableNames().contains(getTableRef())) {
             Benchmarks.createTable(getKvs(), getTableRef(), Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
             setupData();
@@ -116,6 +126,44 @@ public abstract class ConsecutiveNarrowTable {
         }
     }
 
+    /**
+     * Narrow table read either with the default query form or, on postgres, with array-bound queries.
+     * Both forms read the same table; other backends ignore the parameter.
+     */
+    @State(Scope.Benchmark)
+    public static class QueryFormNarrowTable extends ConsecutiveNarrowTable {
+        @Param({"VALUES", "ARRAY"})
+        private String queryForm;
+
+        @Override
+        public TableReference getTableRef() {
+            return TableReference.createFromFullyQualifiedName("performance.persistent_table_query_form");
+        }
+
+        @Override
+        protected void setupData() {
+            storeDataInTable(this, 1);
+        }
+
+        @Override
+        protected KeyValueServiceConfig configure(KeyValueServiceConfig config) {
+            if (!(config instanceof DbKeyValueServiceConfig)) {
+                return config;
+            }
+            DbKeyValueServiceConfig dbConfig = (DbKeyValueServiceConfig) config;
+            if (!(dbConfig.ddl() instanceof PostgresDdlConfig)) {
+                return config;
+            }
+            return ImmutableDbKeyValueServiceConfig.builder()
+                    .from(dbConfig)
+                    .ddl(ImmutablePostgresDdlConfig.builder()
+                            .from((PostgresDdlConfig) dbConfig.ddl())
+                            .useArrayBoundQueries(queryForm.equals("ARRAY"))
+                            .build())
+                    .build();
+        }
+    }
+
     public static int rowNumber(byte[] row) {
         return Ints.fromByteArray(row);
     }
@@ -123,7 +123,6 @@ public class AtlasDbPerfCli {
     private static void runJmh(AtlasDbPerfCli cli, List<DockerizedDatabaseUri> uris) throws Exception {
         ChainedOptionsBuilder optBuilder = new OptionsBuilder()
                 .forks(1)
-                .threads(1)
                 .warmupIterations(1)
                 .measurementIterations(1)
                 .mode(Mode.SampleTime)
@@ -35,13 +35,24 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
 import com.palantir.common.base.ClosableIterator;
 
 public final class RocksDbKeyValueServiceTest {
@@ -300,6 +311,114 @@ public final class RocksDbKeyValueServiceTest {
         }
     }
 
+    @Test
+    public void testGetRowsColumnRangeReadsVisibleVersionsInPages() {
+        final byte[] row = "r1".getBytes();
+        for (int i = 0; i < 5; i++) {
+            final Cell cell = Cell.create(row, ("c" + i).getBytes());
+            db.put(TABLE, ImmutableMap.of(cell, ("old" + i).getBytes()), 1);
+            db.put(TABLE, ImmutableMap.of(cell, ("v" + i).getBytes()), 2);
+            db.put(TABLE, ImmutableMap.of(cell, ("new" + i).getBytes()), 5);
+        }
+        db.put(TABLE, ImmutableMap.of(Cell.create("r2".getBytes(), "c0".getBytes()), "other".getBytes()), 2);
+
+        final BatchColumnRangeSelection range =
+                BatchColumnRangeSelection.create("c1".getBytes(), "c4".getBytes(), 2);
+        final Map<byte[], RowColumnRangeIterator> results =
+                db.getRowsColumnRange(TABLE, ImmutableList.of(row), range, 3);
+        final List<Map.Entry<Cell, Value>> cells = Lists.newArrayList(results.get(row));
+
+        assertEquals(3, cells.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("c" + (i + 1), new String(cells.get(i).getKey().getColumnName()));
+            assertEquals("v" + (i + 1), new String(cells.get(i).getValue().getContents()));
+            assertEquals(2, cells.get(i).getValue().getTimestamp());
+        }
+    }
+
+    @Test
+    public void testGetRowsColumnRangeSingleIteratorKeepsRowOrder() {
+        db.put(TABLE, ImmutableMap.of(Cell.create("r1".getBytes(), "c1".getBytes()), "v1".getBytes()), 2);
+        db.put(TABLE, ImmutableMap.of(Cell.create("r2".getBytes(), "c1".getBytes()), "v2".getBytes()), 2);
+        db.put(TABLE, ImmutableMap.of(Cell.create("r2".getBytes(), "c2".getBytes()), "v3".getBytes()), 2);
+
+        final RowColumnRangeIterator it = db.getRowsColumnRange(TABLE,
+                ImmutableList.of("r2".getBytes(), "r1".getBytes()),
+                new ColumnRangeSelection(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY),
+                1,
+                3);
+        final List<String> values = Lists.newArrayList();
+        while (it.hasNext()) {
+            values.add(new String(it.next().getValue().getContents()));
+        }
+
+        assertEquals(ImmutableList.of("v2", "v3", "v1"), values);
+    }
+
+    @Test
+    public void testLargeReadsAreSplitIntoBatchesWithoutLosingCells() {
+        final Map<Cell, byte[]> oldValues = Maps.newHashMap();
+        final Map<Cell, byte[]> newValues = Maps.newHashMap();
+        final Map<Cell, Long> timestampByCell = Maps.newHashMap();
+        final List<byte[]> rows = Lists.newArrayList();
+        for (int i = 0; i < 5000; i++) {
+            final byte[] row = ("row" + i).getBytes();
+            final Cell cell = Cell.create(row, COMMIT_TS_COLUMN);
+            oldValues.put(cell, ("old" + i).getBytes());
+            newValues.put(cell, ("new" + i).getBytes());
+            timestampByCell.put(cell, 3L);
+            rows.add(row);
+        }
+        db.put(TABLE, oldValues, 1);
+        db.put(TABLE, newValues, 5);
+
+        final Map<Cell, Value> values = db.get(TABLE, timestampByCell);
+        assertEquals(5000, values.size());
+        for (Map.Entry<Cell, Value> entry : values.entrySet()) {
+            assertEquals(1, entry.getValue().getTimestamp());
+            assertEquals(new String(oldValues.get(entry.getKey())), new String(entry.getValue().getContents()));
+        }
+
+        final Map<Cell, Long> timestamps = db.getLatestTimestamps(TABLE, timestampByCell);
+        assertEquals(5000, timestamps.size());
+        assertEquals(ImmutableSet.of(1L), ImmutableSet.copyOf(timestamps.values()));
+
+        final Map<Cell, Value> rowValues = db.getRows(TABLE, rows, ColumnSelection.all(), 6);
+        assertEquals(5000, rowValues.size());
+        for (Map.Entry<Cell, Value> entry : rowValues.entrySet()) {
+            assertEquals(5, entry.getValue().getTimestamp());
+        }
+    }
+
+    @Test
+    public void testTablesTunedFromMetadataSurviveTruncateAndReopen() {
+        final TableReference streamTable = TableReference.createWithEmptyNamespace("stream");
+        final byte[] metadata = new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                CachePriority.HOTTEST,
+                PartitionStrategy.ORDERED,
+                false,
+                64,
+                true,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                true).persistToBytes();
+        final Cell cell = Cell.create("r1".getBytes(), "c1".getBytes());
+        db.createTable(streamTable, metadata);
+        db.put(streamTable, ImmutableMap.of(cell, "v1".getBytes()), 1);
+        db.truncateTable(streamTable);
+        db.put(streamTable, ImmutableMap.of(cell, "v2".getBytes()), 2);
+
+        db.close();
+        db = RocksDbKeyValueService.create("testdb");
+
+        assertEquals(new String(metadata), new String(db.getMetadataForTable(streamTable)));
+        final Map<Cell, Value> res = db.get(streamTable, ImmutableMap.of(cell, 3L));
+        assertEquals("v2", new String(res.get(cell).getContents()));
+    }
+
     private static <K, V> Map<K, V> putAll(Map<K, V> map, Iterable<? extends Map.Entry<? extends K, ? extends V>> it) {
         for (Map.Entry<? extends K, ? extends V> e : it) {
             map.put(e.getKey(), e.getValue());
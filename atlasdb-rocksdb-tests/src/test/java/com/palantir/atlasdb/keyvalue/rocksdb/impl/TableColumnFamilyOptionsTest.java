@@ -0,0 +1,140 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ * <p>
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://opensource.org/licenses/BSD-3-Clause
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+import org.rocksdb.RocksDB;
+
+import com.google.common.base.Supplier;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+
+public final class TableColumnFamilyOptionsTest {
+    private static final long BASE_BLOCK_CACHE_SIZE = 16 * 1024 * 1024;
+    private static final long BASE_BLOCK_SIZE = 8 * 1024;
+
+    private final TableColumnFamilyOptions tunedOptions = TableColumnFamilyOptions.tunedFromMetadata(
+            new Supplier<ColumnFamilyOptions>() {
+                @Override
+                public ColumnFamilyOptions get() {
+                    return new ColumnFamilyOptions();
+                }
+            },
+            new Supplier<BlockBasedTableConfig>() {
+                @Override
+                public BlockBasedTableConfig get() {
+                    return new BlockBasedTableConfig()
+                            .setBlockCacheSize(BASE_BLOCK_CACHE_SIZE)
+                            .setBlockSize(BASE_BLOCK_SIZE);
+                }
+            });
+
+    @BeforeClass
+    public static void loadLibrary() {
+        RocksDB.loadLibrary();
+    }
+
+    @After
+    public void closeOptions() {
+        tunedOptions.close();
+    }
+
+    @Test
+    public void testStreamTablesAreTunedFromMetadata() {
+        TableMetadata metadata = metadata(CachePriority.COLDEST, true, 64, true);
+
+        ColumnFamilyOptions options = tunedOptions.forTable(metadata);
+        BlockBasedTableConfig tableConfig = tunedOptions.tableConfigFor(metadata);
+
+        assertEquals(CompactionStyle.UNIVERSAL, options.compactionStyle());
+        assertEquals(CompressionType.LZ4_COMPRESSION, options.compressionType());
+        assertEquals(64 * 1024, tableConfig.blockSize());
+        assertEquals(TableColumnFamilyOptions.MAX_TUNED_BLOCK_CACHE_SIZE, tableConfig.blockCacheSize());
+    }
+
+    @Test
+    public void testTablesWithoutHintsShareTheBaseOptions() {
+        ColumnFamilyOptions options = tunedOptions.forTable(metadata(CachePriority.HOTTEST, false, 0, false));
+
+        assertFalse(TableColumnFamilyOptions.isTuned(metadata(CachePriority.HOTTEST, false, 0, false)));
+        assertSame(options, tunedOptions.forTable(null));
+        assertSame(options, tunedOptions.forTable(metadata(CachePriority.COLDEST, false, 0, false)));
+        assertEquals(new ColumnFamilyOptions().compactionStyle(), options.compactionStyle());
+        assertEquals(new ColumnFamilyOptions().compressionType(), options.compressionType());
+        assertEquals(0, tunedOptions.tunedTableCount());
+    }
+
+    @Test
+    public void testTunedTablesGetTheirOwnOptionsUntilReleased() {
+        TableMetadata metadata = metadata(CachePriority.WARM, true, 0, false);
+
+        ColumnFamilyOptions first = tunedOptions.forTable(metadata);
+        ColumnFamilyOptions second = tunedOptions.forTable(metadata);
+
+        assertNotSame(first, second);
+        assertEquals(2, tunedOptions.tunedTableCount());
+        tunedOptions.release(first);
+        tunedOptions.release(tunedOptions.forTable(null));
+        assertEquals(1, tunedOptions.tunedTableCount());
+    }
+
+    @Test
+    public void testFixedOptionsAreNotTuned() {
+        ColumnFamilyOptions fixed = new ColumnFamilyOptions();
+
+        ColumnFamilyOptions options = TableColumnFamilyOptions.fixed(fixed)
+                .forTable(metadata(CachePriority.COLDEST, true, 64, true));
+
+        assertSame(fixed, options);
+        assertEquals(new ColumnFamilyOptions().compactionStyle(), options.compactionStyle());
+    }
+
+    private static TableMetadata metadata(
+            CachePriority cachePriority,
+            boolean negativeLookups,
+            int explicitCompressionBlockSizeKB,
+            boolean appendHeavyAndReadLight) {
+        return new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                cachePriority,
+                PartitionStrategy.ORDERED,
+                false,
+                explicitCompressionBlockSizeKB,
+                negativeLookups,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                appendHeavyAndReadLight);
+    }
+}
@@ -19,9 +19,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 
@@ -33,11 +35,13 @@ public class ColumnFamilyMap {
     public static class ColumnFamily implements AutoCloseable {
         private final long index;
         private final ColumnFamilyHandle handle;
+        private final ColumnFamilyOptions options;
         private final AtomicInteger refCount = new AtomicInteger();
 
-        public ColumnFamily(long index, ColumnFamilyHandle handle) {
+        public ColumnFamily(long index, ColumnFamilyHandle handle, ColumnFamilyOptions options) {
             this.index = index;
             this.handle = handle;
+            this.options = options;
         }
 
         public ColumnFamilyHandle getHandle() {
@@ -51,11 +55,18 @@ public class ColumnFamilyMap {
     }
     private final Map<String, ColumnFamily> cfs = Maps.newConcurrentMap();
     private final Function<String, ColumnFamilyDescriptor> cfFactory;
+    private final Consumer<ColumnFamilyOptions> releaseOptions;
     private final RocksDB db;
 
+    /**
+     * @param releaseOptions called with the options of every column family created by {@code cfFactory}, or
+     *        passed to {@link #initialize}, once that column family has been dropped or could not be created
+     */
     public ColumnFamilyMap(Function<String, ColumnFamilyDescriptor> cfFactory,
+                           Consumer<ColumnFamilyOptions> releaseOptions,
                            RocksDB db) {
         this.cfFactory = cfFactory;
+        this.releaseOptions = releaseOptions;
         this.db = db;
     }
 
@@ -64,24 +75,24 @@ public class ColumnFamilyMap {
         for (int i = 0; i < cfDescriptors.size(); i++) {
             String fullTableName = new String(cfDescriptors.get(i).columnFamilyName(), Charsets.UTF_8);
             int nameIndex = fullTableName.lastIndexOf("__");
-            String tableName;
-            long index;
-            if (nameIndex == -1) {
-                tableName = fullTableName;
-                index = 0;
-            } else {
-                tableName = fullTableName.substring(0, nameIndex);
-                index = Long.parseLong(fullTableName.substring(nameIndex + 2));
-            }
-            ColumnFamily cf = new ColumnFamily(index, cfHandles.get(i));
+            String tableName = getTableName(fullTableName);
+            long index = nameIndex == -1 ? 0 : Long.parseLong(fullTableName.substring(nameIndex + 2));
+            ColumnFamily cf = new ColumnFamily(index, cfHandles.get(i), cfDescriptors.get(i).columnFamilyOptions());
             ColumnFamily oldCf = cfs.put(tableName, cf);
             if (oldCf != null && !tableName.equals("default")) {
-                db.dropColumnFamily(oldCf.getHandle());
-                oldCf.getHandle().dispose();
+                dropAndDispose(oldCf);
             }
         }
     }
 
+    /**
+     * Strips the suffix that {@link #truncate} adds to the name of a table's column family.
+     */
+    static String getTableName(String columnFamilyName) {
+        int nameIndex = columnFamilyName.lastIndexOf("__");
+        return nameIndex == -1 ? columnFamilyName : columnFamilyName.substring(0, nameIndex);
+    }
+
     public Set<String> getTableNames() {
         return cfs.keySet();
     }
@@ -98,17 +109,14 @@ public class ColumnFamilyMap {
     public synchronized void create(String tableName) throws RocksDBException {
         ColumnFamily cf = cfs.get(tableName);
         if (cf == null) {
-            ColumnFamilyDescriptor descriptor = cfFactory.apply(tableName);
-            ColumnFamilyHandle handle = db.createColumnFamily(descriptor);
-            cfs.put(tableName, new ColumnFamily(0, handle));
+            cfs.put(tableName, createColumnFamily(0, tableName));
         }
     }
 
     public synchronized void drop(String tableName) throws RocksDBException {
         ColumnFamily cf = cfs.remove(tableName);
         if (cf != null) {
-            db.dropColumnFamily(cf.handle);
-            cf.handle.dispose();
+            dropAndDispose(cf);
         }
     }
 
@@ -119,13 +127,30 @@ public class ColumnFamilyMap {
         }
         long newIndex = (oldCf.index + 1) % 2;
         String realTableName = String.format("%s__%d", tableName, newIndex);
-        ColumnFamilyDescriptor descriptor = cfFactory.apply(realTableName);
-        ColumnFamilyHandle handle = db.createColumnFamily(descriptor);
-        cfs.put(tableName, new ColumnFamily(newIndex, handle));
+        cfs.put(tableName, createColumnFamily(newIndex, realTableName));
         while (oldCf.refCount.get() > 0) {
             Thread.sleep(10);
         }
-        db.dropColumnFamily(oldCf.handle);
-        oldCf.handle.dispose();
+        dropAndDispose(oldCf);
+    }
+
+    private ColumnFamily createColumnFamily(long index, String cfName) throws RocksDBException {
+        ColumnFamilyDescriptor descriptor = cfFactory.apply(cfName);
+        boolean success = false;
+        try {
+            ColumnFamilyHandle handle = db.createColumnFamily(descriptor);
+            success = true;
+            return new ColumnFamily(index, handle, descriptor.columnFamilyOptions());
+        } finally {
+            if (!success) {
+                releaseOptions.accept(descriptor.columnFamilyOptions());
+            }
+        }
+    }
+
+    private void dropAndDispose(ColumnFamily cf) throws RocksDBException {
+        db.dropColumnFamily(cf.handle);
+        cf.handle.dispose();
+        releaseOptions.accept(cf.options);
     }
 }
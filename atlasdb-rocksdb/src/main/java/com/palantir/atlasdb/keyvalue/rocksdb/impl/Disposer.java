@@ -22,6 +22,11 @@ import org.rocksdb.RocksObject;
 
 import com.google.common.collect.Lists;
 
+/**
+ * Disposes the registered rocks objects in the reverse order of registration,
+ * like try-with-resources, so an object is always disposed before the objects
+ * it was created from (e.g. an iterator before its read options).
+ */
 public class Disposer implements Closeable {
     private final List<RocksObject> disposables = Lists.newArrayListWithCapacity(2);
 
@@ -32,7 +37,7 @@ public class Disposer implements Closeable {
 
     @Override
     public void close() {
-        for (RocksObject disposable : disposables) {
+        for (RocksObject disposable : Lists.reverse(disposables)) {
             disposable.dispose();
         }
     }
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+/**
+ * Iterates over a column range of a single row, reading the columns in pages of the selection's batch hint.
+ * Each page is read with its own RocksDB iterator, so nothing needs to be closed if iteration stops early.
+ */
+final class RocksDbColumnRangeIterator extends AbstractIterator<Map.Entry<Cell, Value>>
+        implements RowColumnRangeIterator {
+    private final RocksDbKeyValueService kvs;
+    private final TableReference tableRef;
+    private final byte[] row;
+    private final BatchColumnRangeSelection columnRangeSelection;
+    private final long timestamp;
+    private final int batchSize;
+
+    private Iterator<Map.Entry<Cell, Value>> page;
+    private byte[] nextStartCol;
+    private boolean morePages;
+
+    RocksDbColumnRangeIterator(RocksDbKeyValueService kvs,
+                               TableReference tableRef,
+                               byte[] row,
+                               BatchColumnRangeSelection columnRangeSelection,
+                               long timestamp) {
+        this.kvs = kvs;
+        this.tableRef = tableRef;
+        this.row = row;
+        this.columnRangeSelection = columnRangeSelection;
+        this.timestamp = timestamp;
+        this.batchSize = Math.max(1, columnRangeSelection.getBatchHint());
+        this.page = null;
+        this.nextStartCol = columnRangeSelection.getStartCol();
+        this.morePages = true;
+    }
+
+    RocksDbColumnRangeIterator(RocksDbKeyValueService kvs,
+                               TableReference tableRef,
+                               byte[] row,
+                               BatchColumnRangeSelection columnRangeSelection,
+                               long timestamp,
+                               List<Map.Entry<Cell, Value>> firstPage) {
+        this(kvs, tableRef, row, columnRangeSelection, timestamp);
+        setPage(firstPage);
+    }
+
+    @Override
+    protected Map.Entry<Cell, Value> computeNext() {
+        while (page == null || !page.hasNext()) {
+            if (!morePages) {
+                return endOfData();
+            }
+            setPage(kvs.getColumnRangePage(tableRef, row, nextStartCol, columnRangeSelection.getEndCol(),
+                    batchSize, timestamp));
+        }
+        return page.next();
+    }
+
+    private void setPage(List<Map.Entry<Cell, Value>> cells) {
+        page = cells.iterator();
+        morePages = cells.size() >= batchSize;
+        if (!cells.isEmpty()) {
+            nextStartCol = RocksDbKeyValueServices.nextColumn(Iterables.getLast(cells).getKey().getColumnName());
+        }
+    }
+}
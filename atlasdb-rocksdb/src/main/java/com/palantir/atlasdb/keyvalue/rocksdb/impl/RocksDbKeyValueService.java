@@ -20,27 +20,40 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
+import java.math.RoundingMode;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import javax.annotation.Nullable;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
+import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.Comparator;
 import org.rocksdb.DBOptions;
 import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
@@ -50,16 +63,23 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.math.IntMath;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -72,10 +92,16 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.MutuallyExclusiveSetLock;
 import com.palantir.util.MutuallyExclusiveSetLock.LockState;
 import com.palantir.util.file.TempFileUtils;
@@ -86,12 +112,18 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static final TableReference METADATA_TABLE_NAME = TableReference.createWithEmptyNamespace("_metadata");
     private static final long PUT_UNLESS_EXISTS_TS = 0L;
     private static final String LOCK_FILE_PREFIX = ".pt_kv_lock";
+    private static final int READ_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int MIN_CELLS_PER_READ_TASK = 1000;
+    private static final int MIN_ROWS_PER_READ_TASK = 100;
     final RocksDB db;
     final ColumnFamilyMap columnFamilies;
+    private final TableColumnFamilyOptions cfCommonOptions;
+    private final ConcurrentMap<String, TableMetadata> tableMetadata;
     private final FileLock lock;
     private final RandomAccessFile lockFile;
     private final WriteOpts writeOptions;
     private final MutuallyExclusiveSetLock<Cell> lockSet = MutuallyExclusiveSetLock.<Cell>create(false);
+    private final ThreadPoolExecutor readExecutor;
     private volatile boolean closed = false;
 
     public static RocksDbKeyValueService create(String dataDir) {
@@ -102,28 +134,51 @@ public class RocksDbKeyValueService implements KeyValueService {
                 RocksComparatorName.V2.getComparatorName());
     }
 
+    /**
+     * Each table's column family is created from {@code cfOptions} and then tuned from the table's metadata.
+     * The block based table settings in {@code cfOptions}, such as {@code blockCacheSize}, are the base of
+     * every table's tuned table config.
+     */
     public static RocksDbKeyValueService create(String dataDir,
                                                 Map<String, String> dbOptions,
-                                                Map<String, String> cfOptions,
+                                                final Map<String, String> cfOptions,
                                                 WriteOpts writeOpts,
-                                                String comparator) {
+                                                final String comparator) {
         DBOptions dbOpts = new DBOptions().setCreateIfMissing(true);
         setReflectionOpts(dbOpts, dbOptions);
         ColumnFamilyOptions cfMetadataOpts = new ColumnFamilyOptions();
         setReflectionOpts(cfMetadataOpts, cfOptions);
-        ColumnFamilyOptions cfCommonOpts;
+        // Fail fast on an unknown comparator rather than when the first table is opened.
+        getComparator(comparator);
+        TableColumnFamilyOptions cfCommonOpts = TableColumnFamilyOptions.tunedFromMetadata(
+                new Supplier<ColumnFamilyOptions>() {
+                    @Override
+                    public ColumnFamilyOptions get() {
+                        ColumnFamilyOptions opts = new ColumnFamilyOptions().setComparator(getComparator(comparator));
+                        setReflectionOpts(opts, cfOptions);
+                        return opts;
+                    }
+                },
+                new Supplier<BlockBasedTableConfig>() {
+                    @Override
+                    public BlockBasedTableConfig get() {
+                        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+                        setReflectionOpts(tableConfig, cfOptions);
+                        return tableConfig;
+                    }
+                });
+        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
+    }
+
+    private static Comparator getComparator(String comparator) {
         switch (comparator) {
         case "atlasdb-v2":
-            cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksComparator.INSTANCE);
-            break;
+            return RocksComparator.INSTANCE;
         case "atlasdb":
-            cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksOldComparator.INSTANCE);
-            break;
+            return RocksOldComparator.INSTANCE;
         default:
             throw new IllegalArgumentException("Unknown comparator " + comparator);
         }
-        setReflectionOpts(cfCommonOpts, cfOptions);
-        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
     }
 
     private static void setReflectionOpts(Object opts,
@@ -161,6 +216,14 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 ColumnFamilyOptions cfMetadataOptions,
                                                 ColumnFamilyOptions cfCommonOptions,
                                                 WriteOpts writeOptions) {
+        return create(dataDir, dbOptions, cfMetadataOptions, TableColumnFamilyOptions.fixed(cfCommonOptions), writeOptions);
+    }
+
+    private static RocksDbKeyValueService create(String dataDir,
+                                                 DBOptions dbOptions,
+                                                 ColumnFamilyOptions cfMetadataOptions,
+                                                 TableColumnFamilyOptions cfCommonOptions,
+                                                 WriteOpts writeOptions) {
         try {
             RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions);
             registerMBean(kvs);
@@ -185,7 +248,7 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static RocksDbKeyValueService lockAndCreateDb(File dbDir,
                                                           final DBOptions dbOptions,
                                                           final ColumnFamilyOptions cfMetadataOptions,
-                                                          final ColumnFamilyOptions cfCommonOptions,
+                                                          final TableColumnFamilyOptions cfCommonOptions,
                                                           final WriteOpts writeOpts) throws IOException, RocksDBException {
         TempFileUtils.mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
@@ -213,23 +276,32 @@ public class RocksDbKeyValueService implements KeyValueService {
             }
             List<byte[]> initialCfs = MoreObjects.firstNonNull(
                     RocksDB.listColumnFamilies(new Options(dbOptions, cfMetadataOptions), dbDir.getAbsolutePath()), ImmutableList.<byte[]>of());
+            final ConcurrentMap<String, TableMetadata> tableMetadata =
+                    readTableMetadata(dbDir, dbOptions, cfMetadataOptions, initialCfs);
             List<ColumnFamilyDescriptor> cfDescriptors = Lists.newArrayListWithCapacity(initialCfs.size());
             List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(1 + initialCfs.size());
             cfDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY));
             for (byte[] cf : initialCfs) {
                 String tableName = new String(cf, Charsets.UTF_8);
-                cfDescriptors.add(getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions));
+                cfDescriptors.add(getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions, tableMetadata));
             }
             RocksDB db = RocksDB.open(dbOptions, dbDir.getAbsolutePath(), cfDescriptors, cfHandles);
             Preconditions.checkState(cfDescriptors.size() == cfHandles.size());
             ColumnFamilyMap columnFamilies = new ColumnFamilyMap(new Function<String, ColumnFamilyDescriptor>() {
                 @Override
                 public ColumnFamilyDescriptor apply(String tableName) {
-                    return getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions);
+                    return getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions, tableMetadata);
+                }
+            }, new Consumer<ColumnFamilyOptions>() {
+                @Override
+                public void accept(ColumnFamilyOptions options) {
+                    cfCommonOptions.release(options);
                 }
             }, db);
             columnFamilies.initialize(cfDescriptors, cfHandles);
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, lock, randomAccessFile, writeOpts);
+            columnFamilies.create(METADATA_TABLE_NAME.getQualifiedName());
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(
+                    db, columnFamilies, cfCommonOptions, tableMetadata, lock, randomAccessFile, writeOpts);
             ret.createTable(METADATA_TABLE_NAME, AtlasDbConstants.EMPTY_TABLE_METADATA);
             success = true;
             return ret;
@@ -237,38 +309,100 @@ public class RocksDbKeyValueService implements KeyValueService {
             throw new IOException("Cannot lock. This jvm already has this database open: " + dbDir);
         } finally {
             if (!success) {
+                cfCommonOptions.close();
                 randomAccessFile.close();
             }
         }
     }
 
-    private static ColumnFamilyDescriptor getCfDescriptor(String tableName,
+    /**
+     * Reads the metadata of every table before the database is opened, so that each table's column family can be
+     * opened with the options tuned for it. The metadata table is read from a separate read-only instance.
+     */
+    private static ConcurrentMap<String, TableMetadata> readTableMetadata(File dbDir,
+                                                                          DBOptions dbOptions,
+                                                                          ColumnFamilyOptions cfMetadataOptions,
+                                                                          List<byte[]> initialCfs) throws RocksDBException {
+        ConcurrentMap<String, TableMetadata> tableMetadata = Maps.newConcurrentMap();
+        byte[] metadataCf = METADATA_TABLE_NAME.getQualifiedName().getBytes(Charsets.UTF_8);
+        boolean hasMetadataCf = false;
+        for (byte[] cf : initialCfs) {
+            hasMetadataCf |= Arrays.equals(cf, metadataCf);
+        }
+        if (!hasMetadataCf) {
+            return tableMetadata;
+        }
+        List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(2);
+        RocksDB readOnlyDb = RocksDB.openReadOnly(
+                dbOptions,
+                dbDir.getAbsolutePath(),
+                ImmutableList.of(
+                        new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY),
+                        new ColumnFamilyDescriptor(metadataCf, cfMetadataOptions)),
+                cfHandles);
+        try (Disposer d = new Disposer()) {
+            RocksIterator iter = d.register(readOnlyDb.newIterator(cfHandles.get(1)));
+            for (iter.seekToFirst(); iter.isValid(); iter.next()) {
+                putTableMetadata(tableMetadata, new String(iter.key(), Charsets.UTF_8), iter.value());
+            }
+        } finally {
+            for (ColumnFamilyHandle cfHandle : cfHandles) {
+                cfHandle.dispose();
+            }
+            readOnlyDb.close();
+        }
+        return tableMetadata;
+    }
+
+    private static void putTableMetadata(Map<String, TableMetadata> tableMetadata, String tableName, byte[] metadata) {
+        tableMetadata.remove(tableName);
+        if (metadata != null && metadata.length > 0) {
+            try {
+                tableMetadata.put(tableName, TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata));
+            } catch (RuntimeException e) {
+                log.debug("Metadata of table {} could not be parsed; using the default column family options.", tableName, e);
+            }
+        }
+    }
+
+    private static ColumnFamilyDescriptor getCfDescriptor(String cfName,
                                                           ColumnFamilyOptions cfMetadataOptions,
-                                                          ColumnFamilyOptions cfCommonOptions) {
-        if (tableName.equals(METADATA_TABLE_NAME.getQualifiedName())) {
-            return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfMetadataOptions);
+                                                          TableColumnFamilyOptions cfCommonOptions,
+                                                          Map<String, TableMetadata> tableMetadata) {
+        if (cfName.equals(METADATA_TABLE_NAME.getQualifiedName())) {
+            return new ColumnFamilyDescriptor(cfName.getBytes(Charsets.UTF_8), cfMetadataOptions);
         } else {
-            return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfCommonOptions);
+            TableMetadata metadata = tableMetadata.get(ColumnFamilyMap.getTableName(cfName));
+            return new ColumnFamilyDescriptor(cfName.getBytes(Charsets.UTF_8), cfCommonOptions.forTable(metadata));
         }
     }
 
     private RocksDbKeyValueService(RocksDB db,
                                    ColumnFamilyMap columnFamilies,
+                                   TableColumnFamilyOptions cfCommonOptions,
+                                   ConcurrentMap<String, TableMetadata> tableMetadata,
                                    FileLock lock,
                                    RandomAccessFile file,
                                    WriteOpts writeOptions) {
         this.db = db;
         this.columnFamilies = columnFamilies;
+        this.cfCommonOptions = cfCommonOptions;
+        this.tableMetadata = tableMetadata;
         this.lock = lock;
         this.lockFile = file;
         this.writeOptions = writeOptions;
+        this.readExecutor = PTExecutors.newFixedThreadPool(READ_THREADS, new NamedThreadFactory("rocksdb-read", true));
+        this.readExecutor.setKeepAliveTime(1, TimeUnit.MINUTES);
+        this.readExecutor.allowCoreThreadTimeOut(true);
     }
 
     @Override
     public void close() {
         if (!closed) {
+            readExecutor.shutdown();
             try {
                 getDb().close();
+                cfCommonOptions.close();
                 lock.release();
                 lockFile.close();
             } catch (IOException e) {
@@ -287,53 +421,150 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public Map<Cell, Value> getRows(TableReference tableRef,
                                     Iterable<byte[]> rows,
-                                    ColumnSelection columnSelection,
-                                    long timestamp) {
-        try (Disposer d = new Disposer();
-                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Map<Cell, Value> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (byte[] row : rows) {
-                RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
+                                    final ColumnSelection columnSelection,
+                                    final long timestamp) {
+        List<byte[]> sortedRows = Ordering.from(UnsignedBytes.lexicographicalComparator()).sortedCopy(rows);
+        return readInBatches(tableRef, sortedRows, MIN_ROWS_PER_READ_TASK, new BatchReader<byte[], Value>() {
+            @Override
+            public void read(RocksIterator iter, List<byte[]> batch, Map<Cell, Value> results) {
+                for (byte[] row : batch) {
+                    RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
+                }
             }
-            return results;
-        }
+        });
     }
 
     @Override
     public Map<Cell, Value> get(TableReference tableRef,
                                 Map<Cell, Long> timestampByCell) {
-        try (Disposer d = new Disposer();
-                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Map<Cell, Value> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
-                if (value != null) {
-                    results.put(entry.getKey(), value);
-                }
-            }
-            return results;
-        }
+        return readInBatches(tableRef, sortByCell(timestampByCell), MIN_CELLS_PER_READ_TASK,
+                new BatchReader<Entry<Cell, Long>, Value>() {
+                    @Override
+                    public void read(RocksIterator iter, List<Entry<Cell, Long>> batch, Map<Cell, Value> results) {
+                        for (Entry<Cell, Long> entry : batch) {
+                            Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
+                            if (value != null) {
+                                results.put(entry.getKey(), value);
+                            }
+                        }
+                    }
+                });
     }
 
     @Override
     public Map<Cell, Long> getLatestTimestamps(TableReference tableRef,
                                                Map<Cell, Long> timestampByCell) {
-        try (Disposer d = new Disposer();
-                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Map<Cell, Long> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
-                if (ts != null) {
-                    results.put(entry.getKey(), ts);
+        return readInBatches(tableRef, sortByCell(timestampByCell), MIN_CELLS_PER_READ_TASK,
+                new BatchReader<Entry<Cell, Long>, Long>() {
+                    @Override
+                    public void read(RocksIterator iter, List<Entry<Cell, Long>> batch, Map<Cell, Long> results) {
+                        for (Entry<Cell, Long> entry : batch) {
+                            Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
+                            if (ts != null) {
+                                results.put(entry.getKey(), ts);
+                            }
+                        }
+                    }
+                });
+    }
+
+    private static List<Entry<Cell, Long>> sortByCell(Map<Cell, Long> timestampByCell) {
+        return Ordering.natural().onResultOf(new Function<Entry<Cell, Long>, Cell>() {
+            @Override
+            public Cell apply(Entry<Cell, Long> entry) {
+                return entry.getKey();
+            }
+        }).sortedCopy(timestampByCell.entrySet());
+    }
+
+    private interface BatchReader<T, V> {
+        void read(RocksIterator iter, List<T> batch, Map<Cell, V> results);
+    }
+
+    /**
+     * Reads the given requests, which must be sorted in key order, from a single snapshot of the table.
+     * Large requests are split into contiguous batches that are read concurrently on {@link #readExecutor},
+     * each with its own iterator, while the calling thread reads the last batch.
+     */
+    private <T, V> Map<Cell, V> readInBatches(TableReference tableRef,
+                                              List<T> sortedRequests,
+                                              int minRequestsPerTask,
+                                              final BatchReader<T, V> reader) {
+        final boolean fillCache = shouldFillCache(tableRef);
+        int numTasks = Math.min(
+                READ_THREADS,
+                IntMath.divide(sortedRequests.size(), minRequestsPerTask, RoundingMode.CEILING));
+        try (final ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            if (numTasks <= 1) {
+                return readBatch(table, fillCache, null, sortedRequests, reader);
+            }
+            List<List<T>> batches = Lists.partition(
+                    sortedRequests,
+                    IntMath.divide(sortedRequests.size(), numTasks, RoundingMode.CEILING));
+            RocksDB rocksDb = getDb();
+            final Snapshot snapshot = rocksDb.getSnapshot();
+            try {
+                List<Future<Map<Cell, V>>> futures = Lists.newArrayListWithCapacity(batches.size() - 1);
+                Map<Cell, V> results = Maps.newHashMap();
+                Throwable failure = null;
+                try {
+                    for (final List<T> batch : batches.subList(0, batches.size() - 1)) {
+                        futures.add(readExecutor.submit(new Callable<Map<Cell, V>>() {
+                            @Override
+                            public Map<Cell, V> call() {
+                                return readBatch(table, fillCache, snapshot, batch, reader);
+                            }
+                        }));
+                    }
+                    results.putAll(readBatch(table, fillCache, snapshot, batches.get(batches.size() - 1), reader));
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                // Every task has to finish before the snapshot can be released, even if one of them failed.
+                for (Future<Map<Cell, V>> future : futures) {
+                    try {
+                        results.putAll(Uninterruptibles.getUninterruptibly(future));
+                    } catch (ExecutionException e) {
+                        failure = MoreObjects.firstNonNull(failure, e.getCause());
+                    }
                 }
+                if (failure != null) {
+                    throw Throwables.propagate(failure);
+                }
+                return results;
+            } finally {
+                rocksDb.releaseSnapshot(snapshot);
+            }
+        }
+    }
+
+    private <T, V> Map<Cell, V> readBatch(ColumnFamily table,
+                                          boolean fillCache,
+                                          @Nullable Snapshot snapshot,
+                                          List<T> batch,
+                                          BatchReader<T, V> reader) {
+        try (Disposer d = new Disposer()) {
+            ReadOptions readOptions = d.register(new ReadOptions().setFillCache(fillCache));
+            if (snapshot != null) {
+                readOptions.setSnapshot(snapshot);
             }
+            Map<Cell, V> results = Maps.newHashMapWithExpectedSize(batch.size());
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle(), readOptions));
+            reader.read(iter, batch, results);
             return results;
         }
     }
 
+    /**
+     * Point reads on tables that are rarely read, or read once after being appended to, should not
+     * evict the blocks of hotter tables from the block cache.
+     */
+    private boolean shouldFillCache(TableReference tableRef) {
+        TableMetadata metadata = tableMetadata.get(tableRef.getQualifiedName());
+        return metadata == null
+                || (!metadata.isAppendHeavyAndReadLight() && metadata.getCachePriority() != CachePriority.COLDEST);
+    }
+
     @Override
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
         try (Disposer d = new Disposer();
@@ -474,6 +705,16 @@ public class RocksDbKeyValueService implements KeyValueService {
         return new TimestampRangeIterator(table, iter, rangeRequest, timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<TimestampsAndLatestValue>> getRangeOfTimestampsAndLatestValues(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
+        RocksIterator iter = getDb().newIterator(table.getHandle());
+        return new TimestampsAndLatestValueRangeIterator(table, iter, rangeRequest, timestamp);
+    }
+
     @Override
     public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(TableReference tableRef,
                                                                                                            Iterable<RangeRequest> rangeRequests,
@@ -490,6 +731,8 @@ public class RocksDbKeyValueService implements KeyValueService {
             // ignore, table didn't exist
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
+        } finally {
+            tableMetadata.remove(tableRef.getQualifiedName());
         }
     }
 
@@ -508,6 +751,8 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata)
             throws InsufficientConsistencyException {
+        // The metadata is written first so that the new column families are tuned from it.
+        putMetadataForTables(tableRefToTableMetadata);
         for (TableReference tableRef : tableRefToTableMetadata.keySet()) {
             try {
                 columnFamilies.create(tableRef.getQualifiedName());
@@ -515,7 +760,6 @@ public class RocksDbKeyValueService implements KeyValueService {
                 Throwables.propagate(e);
             }
         }
-        putMetadataForTables(tableRefToTableMetadata);
     }
 
     @Override
@@ -571,6 +815,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily metadataTable = columnFamilies.get(METADATA_TABLE_NAME.getQualifiedName())) {
             WriteOptions options = d.register(new WriteOptions().setSync(true));
             getDb().put(metadataTable.getHandle(), options, tableRef.getQualifiedName().getBytes(Charsets.UTF_8), metadata);
+            putTableMetadata(tableMetadata, tableRef.getQualifiedName(), metadata);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -586,6 +831,9 @@ public class RocksDbKeyValueService implements KeyValueService {
                 batch.put(metadataTable.getHandle(), entry.getKey().getQualifiedName().getBytes(Charsets.UTF_8), entry.getValue());
             }
             getDb().write(options, batch);
+            for (Entry<TableReference, byte[]> entry : tableRefToMetadata.entrySet()) {
+                putTableMetadata(tableMetadata, entry.getKey().getQualifiedName(), entry.getValue());
+            }
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -641,21 +889,60 @@ public class RocksDbKeyValueService implements KeyValueService {
     }
 
     @Override
-    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef, Iterable<byte[]> rows, BatchColumnRangeSelection batchColumnRangeSelection, long timestamp) {
-        return KeyValueServices.filterGetRowsToColumnRange(this, tableRef, rows, batchColumnRangeSelection, timestamp);
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        int batchSize = Math.max(1, batchColumnRangeSelection.getBatchHint());
+        try (Disposer d = new Disposer();
+                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            Map<byte[], RowColumnRangeIterator> results = Maps.newHashMap();
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            for (byte[] row : rows) {
+                List<Entry<Cell, Value>> firstPage = RocksDbKeyValueServices.getColumnRange(
+                        iter,
+                        row,
+                        batchColumnRangeSelection.getStartCol(),
+                        batchColumnRangeSelection.getEndCol(),
+                        batchSize,
+                        timestamp);
+                results.put(row, new RocksDbColumnRangeIterator(
+                        this, tableRef, row, batchColumnRangeSelection, timestamp, firstPage));
+            }
+            return results;
+        }
     }
 
     @Override
-    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef,
+    public RowColumnRangeIterator getRowsColumnRange(final TableReference tableRef,
                                                      Iterable<byte[]> rows,
                                                      ColumnRangeSelection columnRangeSelection,
                                                      int cellBatchHint,
-                                                     long timestamp) {
-        return KeyValueServices.mergeGetRowsColumnRangeIntoSingleIterator(this,
-                                                                          tableRef,
-                                                                          rows,
-                                                                          columnRangeSelection,
-                                                                          cellBatchHint,
-                                                                          timestamp);
+                                                     final long timestamp) {
+        // Rows are read one after another, so every page of every row can use the whole batch hint.
+        final BatchColumnRangeSelection batchColumnRangeSelection =
+                BatchColumnRangeSelection.create(columnRangeSelection, Math.max(1, cellBatchHint));
+        Iterable<RowColumnRangeIterator> rowIterators = Iterables.transform(rows,
+                new Function<byte[], RowColumnRangeIterator>() {
+                    @Override
+                    public RowColumnRangeIterator apply(byte[] row) {
+                        return new RocksDbColumnRangeIterator(
+                                RocksDbKeyValueService.this, tableRef, row, batchColumnRangeSelection, timestamp);
+                    }
+                });
+        return new LocalRowColumnRangeIterator(Iterators.concat(rowIterators.iterator()));
+    }
+
+    List<Entry<Cell, Value>> getColumnRangePage(TableReference tableRef,
+                                                byte[] row,
+                                                byte[] startCol,
+                                                byte[] endCol,
+                                                int maxCells,
+                                                long timestamp) {
+        try (Disposer d = new Disposer();
+                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            return RocksDbKeyValueServices.getColumnRange(iter, row, startCol, endCol, maxCells, timestamp);
+        }
     }
 }
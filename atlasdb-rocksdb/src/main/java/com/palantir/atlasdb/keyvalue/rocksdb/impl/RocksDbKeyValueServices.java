@@ -18,14 +18,18 @@ package com.palantir.atlasdb.keyvalue.rocksdb.impl;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.rocksdb.RocksIterator;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
@@ -68,6 +72,54 @@ public class RocksDbKeyValueServices {
         }
     }
 
+    /**
+     * Reads the latest value before the given timestamp of up to {@code maxCells} columns of a row, in
+     * column order, starting at {@code startCol}. Versions that are too new or that are older than a
+     * column's visible value are skipped by seeking rather than by iterating over them.
+     */
+    static List<Map.Entry<Cell, Value>> getColumnRange(RocksIterator iter,
+                                                       byte[] row,
+                                                       byte[] startCol,
+                                                       byte[] endCol,
+                                                       int maxCells,
+                                                       long timestamp) {
+        List<Map.Entry<Cell, Value>> results = Lists.newArrayList();
+        if (startCol.length == 0) {
+            iter.seek(getKey(row, timestamp - 1));
+        } else {
+            iter.seek(getKey(row, startCol, timestamp - 1));
+        }
+        byte[] lastCol = null;
+        while (iter.isValid() && results.size() < maxCells) {
+            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
+            Cell cell = cellAndTs.lhSide;
+            if (!Arrays.equals(row, cell.getRowName()) || !isInColumnRange(cell.getColumnName(), endCol)) {
+                break;
+            }
+            if (Arrays.equals(lastCol, cell.getColumnName())) {
+                iter.seek(getKey(row, nextColumn(lastCol), timestamp - 1));
+            } else if (cellAndTs.rhSide >= timestamp) {
+                iter.seek(getKey(cell, timestamp - 1));
+            } else {
+                results.add(Maps.immutableEntry(cell, Value.create(iter.value(), cellAndTs.rhSide)));
+                lastCol = cell.getColumnName();
+                iter.next();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the smallest column name that sorts after the given one.
+     */
+    static byte[] nextColumn(byte[] col) {
+        return Arrays.copyOf(col, col.length + 1);
+    }
+
+    private static boolean isInColumnRange(byte[] col, byte[] endCol) {
+        return endCol.length == 0 || UnsignedBytes.lexicographicalComparator().compare(col, endCol) < 0;
+    }
+
     static Value getCell(RocksIterator iter,
                          Cell cell,
                          long timestamp) {
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+import org.rocksdb.RocksObject;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.table.description.TableMetadata;
+
+/**
+ * Builds the options of a table's column family, tuned from the hints in its {@link TableMetadata}.
+ * <p>
+ * RocksDB cannot change the table format of an open column family, so the options only take effect
+ * when the column family is opened: when the table is created or truncated, and when the database is reopened.
+ * <p>
+ * Tables without any tuning hints share one set of options, and so one table factory and one block cache.
+ * rocksdbjni 4.1 cannot share a cache object between column families, so every tuned table has a private
+ * block cache of its own; it is capped at {@link #MAX_TUNED_BLOCK_CACHE_SIZE}, so each tuned table adds at
+ * most that much cache memory. Cache priorities are not expressed as cache sizes; instead, reads of cold
+ * tables skip filling the cache.
+ * <p>
+ * The native objects behind a tuned table's options are kept until they are {@link #release released}
+ * after the table's column family is dropped, or until this is {@link #close closed}.
+ */
+final class TableColumnFamilyOptions implements AutoCloseable {
+    static final long MAX_TUNED_BLOCK_CACHE_SIZE = 8L * 1024 * 1024;
+    private static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+
+    private final Supplier<ColumnFamilyOptions> sharedOptions;
+    private final Supplier<ColumnFamilyOptions> baseOptions;
+    private final Supplier<BlockBasedTableConfig> baseTableConfig;
+    private final boolean tuneFromMetadata;
+    private final Map<ColumnFamilyOptions, List<RocksObject>> tunedObjects =
+            Collections.synchronizedMap(new IdentityHashMap<ColumnFamilyOptions, List<RocksObject>>());
+
+    private TableColumnFamilyOptions(
+            Supplier<ColumnFamilyOptions> sharedOptions,
+            Supplier<ColumnFamilyOptions> baseOptions,
+            Supplier<BlockBasedTableConfig> baseTableConfig,
+            boolean tuneFromMetadata) {
+        this.sharedOptions = sharedOptions;
+        this.baseOptions = baseOptions;
+        this.baseTableConfig = baseTableConfig;
+        this.tuneFromMetadata = tuneFromMetadata;
+    }
+
+    /**
+     * Tables without tuning hints share one set of options, created by {@code baseOptions} with a table config
+     * created by {@code baseTableConfig}. Every tuned table gets its own options, created the same way and then
+     * tuned from the table's metadata.
+     */
+    static TableColumnFamilyOptions tunedFromMetadata(
+            final Supplier<ColumnFamilyOptions> baseOptions,
+            final Supplier<BlockBasedTableConfig> baseTableConfig) {
+        Supplier<ColumnFamilyOptions> sharedOptions = Suppliers.memoize(new Supplier<ColumnFamilyOptions>() {
+            @Override
+            public ColumnFamilyOptions get() {
+                return baseOptions.get().setTableFormatConfig(baseTableConfig.get());
+            }
+        });
+        return new TableColumnFamilyOptions(sharedOptions, baseOptions, baseTableConfig, true);
+    }
+
+    /**
+     * Every table shares the given options, regardless of its metadata. The options are owned by the caller.
+     */
+    static TableColumnFamilyOptions fixed(ColumnFamilyOptions options) {
+        return new TableColumnFamilyOptions(Suppliers.ofInstance(options), null, null, false);
+    }
+
+    ColumnFamilyOptions forTable(@Nullable TableMetadata metadata) {
+        if (!tuneFromMetadata || !isTuned(metadata)) {
+            return sharedOptions.get();
+        }
+        ColumnFamilyOptions options = baseOptions.get();
+        List<RocksObject> nativeObjects = Lists.<RocksObject>newArrayList(options);
+        BlockBasedTableConfig tableConfig = tableConfigFor(metadata);
+        if (metadata.hasNegativeLookups()) {
+            BloomFilter filter = new BloomFilter(BLOOM_FILTER_BITS_PER_KEY, false);
+            nativeObjects.add(filter);
+            tableConfig.setFilter(filter);
+        }
+        options.setTableFormatConfig(tableConfig);
+        if (metadata.getExplicitCompressionBlockSizeKB() != 0) {
+            options.setCompressionType(CompressionType.LZ4_COMPRESSION);
+        }
+        if (metadata.isAppendHeavyAndReadLight()) {
+            // Written once and rarely read back, so trade read amplification for less rewriting.
+            options.setCompactionStyle(CompactionStyle.UNIVERSAL);
+        }
+        tunedObjects.put(options, nativeObjects);
+        return options;
+    }
+
+    @VisibleForTesting
+    static boolean isTuned(@Nullable TableMetadata metadata) {
+        return metadata != null
+                && (metadata.hasNegativeLookups()
+                        || metadata.getExplicitCompressionBlockSizeKB() != 0
+                        || metadata.isAppendHeavyAndReadLight());
+    }
+
+    /**
+     * The table config of a tuned table: the base table config with the table's block size, and a block cache
+     * capped at {@link #MAX_TUNED_BLOCK_CACHE_SIZE}.
+     */
+    @VisibleForTesting
+    BlockBasedTableConfig tableConfigFor(TableMetadata metadata) {
+        BlockBasedTableConfig tableConfig = baseTableConfig.get();
+        tableConfig.setBlockCacheSize(Math.min(tableConfig.blockCacheSize(), MAX_TUNED_BLOCK_CACHE_SIZE));
+        if (metadata.getExplicitCompressionBlockSizeKB() != 0) {
+            tableConfig.setBlockSize(metadata.getExplicitCompressionBlockSizeKB() * 1024L);
+        }
+        return tableConfig;
+    }
+
+    /**
+     * Disposes the native objects of options returned by {@link #forTable}, once the column family opened with
+     * them has been dropped. Shared options are left alone.
+     */
+    void release(@Nullable ColumnFamilyOptions options) {
+        List<RocksObject> nativeObjects = tunedObjects.remove(options);
+        if (nativeObjects != null) {
+            dispose(nativeObjects);
+        }
+    }
+
+    @VisibleForTesting
+    int tunedTableCount() {
+        return tunedObjects.size();
+    }
+
+    /**
+     * Disposes the native objects of every table's options. Must only be called once the database is closed.
+     */
+    @Override
+    public void close() {
+        List<List<RocksObject>> allNativeObjects;
+        synchronized (tunedObjects) {
+            allNativeObjects = ImmutableList.copyOf(tunedObjects.values());
+            tunedObjects.clear();
+        }
+        for (List<RocksObject> nativeObjects : allNativeObjects) {
+            dispose(nativeObjects);
+        }
+        if (tuneFromMetadata) {
+            sharedOptions.get().dispose();
+        }
+    }
+
+    private static void dispose(List<RocksObject> nativeObjects) {
+        for (RocksObject nativeObject : nativeObjects) {
+            nativeObject.dispose();
+        }
+    }
+}
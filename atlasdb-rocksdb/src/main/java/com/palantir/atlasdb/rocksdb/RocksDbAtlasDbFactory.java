@@ -39,6 +39,11 @@ public class RocksDbAtlasDbFactory implements AtlasDbFactory {
         return "rocksdb";
     }
 
+    @Override
+    public boolean supportsBatchedPutUnlessExists() {
+        return true;
+    }
+
     @Override
     public RocksDbKeyValueService createRawKeyValueService(KeyValueServiceConfig config, Optional<LeaderConfig> leaderConfig) {
         AtlasDbVersion.ensureVersionReported();
@@ -63,6 +63,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.TimestampsAndLatestValue;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 
@@ -766,6 +767,31 @@ public abstract class AbstractKeyValueServiceTest {
         assertTrue(cell0.getValue().contains(TEST_TIMESTAMP + 1));
     }
 
+    @Test
+    public void testGetRangeOfTimestampsAndLatestValues() {
+        putTestDataForMultipleTimestamps();
+        RangeRequest range = RangeRequest.builder().startRowInclusive(row0).endRowExclusive(row1).build();
+
+        TimestampsAndLatestValue bothVersions = getOnlyTimestampsAndLatestValue(range, TEST_TIMESTAMP + 2);
+        assertEquals(ImmutableSet.of(TEST_TIMESTAMP, TEST_TIMESTAMP + 1), bothVersions.getTimestamps());
+        assertEquals(Value.create(value0_t1, TEST_TIMESTAMP + 1), bothVersions.getLatestValue());
+
+        TimestampsAndLatestValue firstVersion = getOnlyTimestampsAndLatestValue(range, TEST_TIMESTAMP + 1);
+        assertEquals(ImmutableSet.of(TEST_TIMESTAMP), firstVersion.getTimestamps());
+        assertEquals(Value.create(value0_t0, TEST_TIMESTAMP), firstVersion.getLatestValue());
+    }
+
+    private TimestampsAndLatestValue getOnlyTimestampsAndLatestValue(RangeRequest range, long timestamp) {
+        ClosableIterator<RowResult<TimestampsAndLatestValue>> rows =
+                keyValueService.getRangeOfTimestampsAndLatestValues(TEST_TABLE, range, timestamp);
+        RowResult<TimestampsAndLatestValue> row = rows.next();
+        assertFalse(rows.hasNext());
+        rows.close();
+        Entry<Cell, TimestampsAndLatestValue> cell = Iterables.getOnlyElement(row.getCells());
+        assertEquals(Cell.create(row0, column0), cell.getKey());
+        return cell.getValue();
+    }
+
     @Test
     public void testKeyAlreadyExists() {
         // Test that it does not throw some random exceptions
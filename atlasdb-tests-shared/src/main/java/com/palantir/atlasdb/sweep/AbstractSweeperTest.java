@@ -16,8 +16,10 @@
 package com.palantir.atlasdb.sweep;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -29,6 +31,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
@@ -62,8 +65,12 @@ import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
 import com.palantir.common.base.BatchingVisitables;
 import com.palantir.lock.LockClient;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.LockService;
+import com.palantir.lock.StringLockDescriptor;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.timestamp.InMemoryTimestampService;
 import com.palantir.timestamp.TimestampService;
@@ -542,6 +549,92 @@ public abstract class AbstractSweeperTest {
         Assert.assertEquals(sweepResults.getCellsDeleted(), 1);
     }
 
+    @Test
+    public void testParallelSweeperSweepsTableAndSavesResultsToPriority() throws InterruptedException {
+        createTable(SweepStrategy.CONSERVATIVE);
+        putIntoDefaultColumn("foo", "bar", 50);
+        putIntoDefaultColumn("foo", "baz", 100);
+        ParallelBackgroundSweeper parallelSweeper = createParallelBackgroundSweeper(DEFAULT_BATCH_SIZE);
+
+        SweepPriorityRowResult priority = runParallelSweepUntilFinished(parallelSweeper, 175);
+
+        Assert.assertEquals(new Long(1), priority.getCellsDeleted());
+        Assert.assertEquals(new Long(1), priority.getCellsExamined());
+        Assert.assertEquals(new Long(175), priority.getMinimumSweptTimestamp());
+        Assert.assertTrue(priority.hasWriteCount());
+        Assert.assertEquals("", get("foo", 80));
+        Assert.assertFalse(getProgressTable().stream()
+                .anyMatch(row -> row.getFullTableName().equals(TABLE_NAME.getQualifiedName())));
+    }
+
+    @Test
+    public void testParallelSweeperDoesNotRestartOrForgetTablesInProgress() throws InterruptedException {
+        createTable(SweepStrategy.CONSERVATIVE);
+        putIntoDefaultColumn("foo", "bar", 50);
+        putIntoDefaultColumn("foo2", "bang", 75);
+        putIntoDefaultColumn("foo3", "baz", 100);
+        putIntoDefaultColumn("foo4", "buzz", 125);
+        ParallelBackgroundSweeper parallelSweeper = createParallelBackgroundSweeper(1);
+        sweepTimestamp.set(150);
+
+        Optional<SweepProgressRowResult> unfinishedShard = Optional.empty();
+        for (int i = 0; i < 100 && !unfinishedShard.isPresent(); i++) {
+            parallelSweeper.runOnce();
+            unfinishedShard = getProgressTable().stream()
+                    .filter(row -> row.getFullTableName().equals(TABLE_NAME.getQualifiedName()))
+                    .filter(SweepProgressRowResult::hasStartRow)
+                    .findFirst();
+        }
+        Assert.assertTrue(unfinishedShard.isPresent());
+        SweepProgressRowResult shard = unfinishedShard.get();
+
+        // Another worker holds the shard, so these passes can only schedule other tables.
+        LockRefreshToken shardLock = lockService.lock("other sweep worker", LockRequest.builder(ImmutableSortedMap.of(
+                StringLockDescriptor.of("atlas sweep shard " + shard.getRowName().getDummy()), LockMode.WRITE))
+                .doNotBlock()
+                .build());
+        Assert.assertNotNull(shardLock);
+        for (int i = 0; i < 10; i++) {
+            parallelSweeper.runOnce();
+        }
+        SweepProgressRowResult shardAfter = Iterables.getOnlyElement(getProgressTable().stream()
+                .filter(row -> row.getRowName().equals(shard.getRowName()))
+                .collect(Collectors.toList()));
+        Assert.assertArrayEquals(shard.getStartRow(), shardAfter.getStartRow());
+        Assert.assertTrue(getPriorityTable().stream()
+                .filter(row -> row.getRowName().getFullTableName().equals(TABLE_NAME.getQualifiedName()))
+                .anyMatch(SweepPriorityRowResult::hasWriteCount));
+        lockService.unlock(shardLock);
+
+        SweepPriorityRowResult priority = runParallelSweepUntilFinished(parallelSweeper, 150);
+        Assert.assertEquals(new Long(4), priority.getCellsExamined());
+        Assert.assertTrue(priority.hasWriteCount());
+    }
+
+    private ParallelBackgroundSweeper createParallelBackgroundSweeper(int batchSize) {
+        Supplier<Long> sweepNoPause = () -> 0L;
+        Supplier<Integer> batchSizeSupplier = () -> batchSize;
+        return new ParallelBackgroundSweeper(txManager, kvs, sweepRunner, () -> true, sweepNoPause,
+                batchSizeSupplier, () -> DEFAULT_CELL_BATCH_SIZE, 2, SweepTableFactory.of(),
+                new FixedPauseSweepRateController(sweepNoPause, batchSizeSupplier));
+    }
+
+    private SweepPriorityRowResult runParallelSweepUntilFinished(ParallelBackgroundSweeper parallelSweeper, long ts)
+            throws InterruptedException {
+        sweepTimestamp.set(ts);
+        for (int i = 0; i < 100; i++) {
+            parallelSweeper.runOnce();
+            Optional<SweepPriorityRowResult> priority = getPriorityTable().stream()
+                    .filter(row -> row.getRowName().getFullTableName().equals(TABLE_NAME.getQualifiedName()))
+                    .filter(SweepPriorityRowResult::hasLastSweepTime)
+                    .findFirst();
+            if (priority.isPresent()) {
+                return priority.get();
+            }
+        }
+        throw new AssertionError("The parallel sweeper did not finish sweeping " + TABLE_NAME);
+    }
+
     private void testSweepManyRows(SweepStrategy strategy) {
         createTable(strategy);
         putIntoDefaultColumn("foo", "bar1", 5);
@@ -81,9 +81,15 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     final long updatePollingRateInMs;
     final long randomWaitBeforeProposingLeadership;
     final long leaderPingResponseWaitMs;
+    final long leaderLeaseNanos;
 
     final ExecutorService executor;
 
+    /* Set when a quorum confirms that we are still leading, if leader leases are enabled. While it is unexpired,
+     * isStillLeading answers for the same token without a round trip to the acceptors.
+     */
+    private volatile LeadershipLease leadershipLease = null;
+
     final ConcurrentMap<String, PingableLeader> uuidToServiceCache = Maps.newConcurrentMap();
 
     public PaxosLeaderElectionService(PaxosProposer proposer,
@@ -95,6 +101,25 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
                                       long updatePollingWaitInMs,
                                       long randomWaitBeforeProposingLeadership,
                                       long leaderPingResponseWaitMs) {
+        this(proposer, knowledge, potentialLeadersToHosts, acceptors, learners, executor, updatePollingWaitInMs,
+                randomWaitBeforeProposingLeadership, leaderPingResponseWaitMs, 0L);
+    }
+
+    /**
+     * @param leaderLeaseMs if positive, a successful leadership confirmation lets {@link #isStillLeading} answer
+     *        locally for this long. This is only safe if every acceptor refuses later rounds for at least this long
+     *        after confirming, plus a margin for clock drift; see {@link com.palantir.paxos.PaxosAcceptorImpl}.
+     */
+    public PaxosLeaderElectionService(PaxosProposer proposer,
+                                      PaxosLearner knowledge,
+                                      Map<PingableLeader, HostAndPort> potentialLeadersToHosts,
+                                      List<PaxosAcceptor> acceptors,
+                                      List<PaxosLearner> learners,
+                                      ExecutorService executor,
+                                      long updatePollingWaitInMs,
+                                      long randomWaitBeforeProposingLeadership,
+                                      long leaderPingResponseWaitMs,
+                                      long leaderLeaseMs) {
         this.proposer = proposer;
         this.knowledge = knowledge;
         // XXX This map uses something that may be proxied as a key! Be very careful if making a new map from this.
@@ -105,6 +130,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         this.updatePollingRateInMs = updatePollingWaitInMs;
         this.randomWaitBeforeProposingLeadership = randomWaitBeforeProposingLeadership;
         this.leaderPingResponseWaitMs = leaderPingResponseWaitMs;
+        this.leaderLeaseNanos = TimeUnit.MILLISECONDS.toNanos(leaderLeaseMs);
         lock = new ReentrantLock();
     }
 
@@ -433,6 +459,9 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
 
     @Override
     public StillLeadingStatus isStillLeading(LeadershipToken token) {
+        if (holdsLeadershipLease(token)) {
+            return StillLeadingStatus.LEADING;
+        }
         while (true) {
             StillLeadingCallBatch callBatch = getStillLeadingCallBatch(token);
 
@@ -450,6 +479,25 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         }
     }
 
+    private boolean holdsLeadershipLease(LeadershipToken token) {
+        LeadershipLease lease = leadershipLease;
+        if (lease == null || !lease.token.sameAs(token) || System.nanoTime() - lease.expiryNanos >= 0) {
+            return false;
+        }
+        // cheap local check that we have not since learned of a newer leader
+        return token.sameAs(genTokenFromValue(knowledge.getGreatestLearnedValue()));
+    }
+
+    private static final class LeadershipLease {
+        final LeadershipToken token;
+        final long expiryNanos;
+
+        LeadershipLease(LeadershipToken token, long expiryNanos) {
+            this.token = token;
+            this.expiryNanos = expiryNanos;
+        }
+    }
+
     private static class StillLeadingCallBatch {
         public final boolean thisThreadOwnsBatch;
         public final StillLeadingCall batch;
@@ -500,7 +548,10 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     private void populateStillLeadingCall(StillLeadingCall batch, LeadershipToken token) {
         try {
             batch.getRequestCountAndSetInvalid();
+            // The lease must start before any acceptor is asked, since each acceptor's promise starts when it answers.
+            long confirmationStartNanos = System.nanoTime();
             StillLeadingStatus status = isStillLeadingInternal(token);
+            updateLeadershipLease(token, status, confirmationStartNanos);
             batch.populate(status);
         } catch (Throwable t) {
             log.error("Something went wrong while checking leadership", t);
@@ -515,6 +566,17 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     }
 
 
+    private void updateLeadershipLease(LeadershipToken token, StillLeadingStatus status, long confirmationStartNanos) {
+        if (leaderLeaseNanos <= 0) {
+            return;
+        }
+        if (status == StillLeadingStatus.LEADING) {
+            leadershipLease = new LeadershipLease(token, confirmationStartNanos + leaderLeaseNanos);
+        } else {
+            leadershipLease = null;
+        }
+    }
+
     private StillLeadingStatus isStillLeadingInternal(LeadershipToken token) {
         Preconditions.checkNotNull(token);
 
@@ -17,10 +17,13 @@ package com.palantir.paxos;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 public class PaxosAcceptorImpl implements PaxosAcceptor {
     private static final Logger logger = LoggerFactory.getLogger(PaxosAcceptorImpl.class);
 
@@ -30,23 +33,70 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
      * @return a new acceptor
      */
     public static PaxosAcceptor newAcceptor(String logDir) {
-        PaxosStateLog<PaxosAcceptorState> log = new PaxosStateLogImpl<PaxosAcceptorState>(logDir);
-        return new PaxosAcceptorImpl(
+        return newAcceptor(new PaxosStateLogImpl<PaxosAcceptorState>(logDir));
+    }
+
+    /**
+     * @param log durable log backing the acceptor
+     * @return a new acceptor
+     */
+    public static PaxosAcceptor newAcceptor(PaxosStateLog<PaxosAcceptorState> log) {
+        return newAcceptor(log, 0L);
+    }
+
+    /**
+     * @param log durable log backing the acceptor
+     * @param leaderLeaseMs if positive, each call to {@link #getLatestSequencePreparedOrAccepted()} promises not to
+     *        prepare or accept any later round for this long. A leader that has confirmed its round with a quorum of
+     *        such acceptors therefore cannot be replaced until the lease runs out.
+     * @return a new acceptor
+     */
+    public static PaxosAcceptor newAcceptor(PaxosStateLog<PaxosAcceptorState> log, long leaderLeaseMs) {
+        return newAcceptor(log, leaderLeaseMs, 0L);
+    }
+
+    /**
+     * @param log durable log backing the acceptor
+     * @param leaderLeaseMs as for {@link #newAcceptor(PaxosStateLog, long)}
+     * @param clockDriftMarginMs if leases are enabled, the acceptor also refuses any round later than those in its
+     *        log for leaderLeaseMs plus this long after it is created. Leases are only held in memory, so a lease
+     *        granted before a restart may still be trusted by the leader.
+     * @return a new acceptor
+     */
+    public static PaxosAcceptor newAcceptor(
+            PaxosStateLog<PaxosAcceptorState> log,
+            long leaderLeaseMs,
+            long clockDriftMarginMs) {
+        Preconditions.checkArgument(leaderLeaseMs >= 0, "leaderLeaseMs must not be negative");
+        Preconditions.checkArgument(clockDriftMarginMs >= 0, "clockDriftMarginMs must not be negative");
+        PaxosAcceptorImpl acceptor = new PaxosAcceptorImpl(
                 new ConcurrentSkipListMap<Long, PaxosAcceptorState>(),
                 log,
-                log.getGreatestLogEntry());
+                log.getGreatestLogEntry(),
+                TimeUnit.MILLISECONDS.toNanos(leaderLeaseMs));
+        if (leaderLeaseMs > 0) {
+            acceptor.grantLeaderLease(
+                    acceptor.greatestInLogAtStartup,
+                    TimeUnit.MILLISECONDS.toNanos(leaderLeaseMs + clockDriftMarginMs));
+        }
+        return acceptor;
     }
 
     final ConcurrentSkipListMap<Long, PaxosAcceptorState> state;
     final PaxosStateLog<PaxosAcceptorState> log;
     final long greatestInLogAtStartup;
+    final long leaderLeaseNanos;
+
+    private volatile LeaderLease leaderLease = null;
 
     private PaxosAcceptorImpl(ConcurrentSkipListMap<Long, PaxosAcceptorState> state,
                               PaxosStateLog<PaxosAcceptorState> log,
-                              long greatestInLogAtStartup) {
+                              long greatestInLogAtStartup,
+                              long leaderLeaseNanos) {
         this.state = state;
         this.log = log;
         this.greatestInLogAtStartup = greatestInLogAtStartup;
+        this.leaderLeaseNanos = leaderLeaseNanos;
     }
 
     @Override
@@ -58,6 +108,10 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return PaxosPromise.reject(pid);
         }
 
+        if (isBlockedByLeaderLease(seq)) {
+            return PaxosPromise.reject(pid);
+        }
+
         for (;;) {
             PaxosAcceptorState oldState = state.get(seq);
 
@@ -96,6 +150,10 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return new BooleanPaxosResponse(false); // nack
         }
 
+        if (isBlockedByLeaderLease(seq)) {
+            return new BooleanPaxosResponse(false);
+        }
+
         for (;;) {
             PaxosAcceptorState oldState = state.get(seq);
 
@@ -118,10 +176,38 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
 
     @Override
     public long getLatestSequencePreparedOrAccepted() {
-        if (state.isEmpty()) {
-            return greatestInLogAtStartup;
-        } else {
-            return Math.max(greatestInLogAtStartup, state.lastKey());
+        long latestSeq = state.isEmpty()
+                ? greatestInLogAtStartup
+                : Math.max(greatestInLogAtStartup, state.lastKey());
+        if (leaderLeaseNanos > 0) {
+            grantLeaderLease(latestSeq, leaderLeaseNanos);
+        }
+        return latestSeq;
+    }
+
+    private synchronized void grantLeaderLease(long seq, long durationNanos) {
+        LeaderLease current = leaderLease;
+        long expiryNanos = System.nanoTime() + durationNanos;
+        if (current == null || seq > current.seq) {
+            leaderLease = new LeaderLease(seq, expiryNanos);
+        } else if (seq == current.seq && expiryNanos - current.expiryNanos > 0) {
+            // Never shorten a lease, e.g. the longer one held after startup.
+            leaderLease = new LeaderLease(seq, expiryNanos);
+        }
+    }
+
+    private boolean isBlockedByLeaderLease(long seq) {
+        LeaderLease lease = leaderLease;
+        return lease != null && seq > lease.seq && System.nanoTime() - lease.expiryNanos < 0;
+    }
+
+    private static final class LeaderLease {
+        final long seq;
+        final long expiryNanos;
+
+        LeaderLease(long seq, long expiryNanos) {
+            this.seq = seq;
+            this.expiryNanos = expiryNanos;
         }
     }
 
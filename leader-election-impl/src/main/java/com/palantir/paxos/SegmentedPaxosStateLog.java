@@ -0,0 +1,586 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.persist.Persistable;
+
+/**
+ * A {@link PaxosStateLog} that appends rounds to a small number of segment files instead of writing every round
+ * to its own file.
+ * <p>
+ * Each record is length prefixed and protected by a CRC32. Writers append while holding the log lock but fsync
+ * outside of it, so concurrent writers share a single fsync rather than queueing behind one another. A round is
+ * only visible to readers once it is durable.
+ * <p>
+ * Segments are rolled once they exceed a size threshold; sealed segments are memory mapped for reads. Truncation
+ * appends a marker record, and a sealed segment is deleted once every round in it has been truncated. A truncation
+ * only removes the rounds written before it: a round written afterwards is kept even if its sequence number is
+ * below the truncation bound, both in memory and on replay, until a truncation to a higher bound removes it.
+ * <p>
+ * Rounds left in the directory by {@link PaxosStateLogImpl} are copied into the segments on startup and the
+ * per-round files are then deleted. This migration is one way.
+ */
+public class SegmentedPaxosStateLog<V extends Persistable & Versionable> implements PaxosStateLog<V> {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedPaxosStateLog.class);
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+
+    private static final int SEGMENT_MAGIC = 0x50585347;
+    private static final int SEGMENT_FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+
+    // length of the record body, then the CRC32 of the record body
+    private static final int RECORD_HEADER_BYTES = 8;
+    // record body: type, sequence number, payload
+    private static final int RECORD_PREFIX_BYTES = 9;
+    private static final byte ROUND_RECORD = 0;
+    private static final byte TRUNCATE_RECORD = 1;
+
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
+    private final File dir;
+    private final long maxSegmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private final NavigableMap<Long, RecordLocation> index = new TreeMap<>();
+    private final Map<Long, Long> seqToVersionMap = new HashMap<>();
+    private Segment activeSegment;
+    private long nextAppendId = 0;
+    private long truncatedUpTo = Long.MIN_VALUE;
+    private long lastTruncateAppendId = Long.MIN_VALUE;
+
+    public SegmentedPaxosStateLog(String path) {
+        this(path, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    public SegmentedPaxosStateLog(String path, long maxSegmentBytes) {
+        Preconditions.checkArgument(maxSegmentBytes > 0, "maxSegmentBytes must be positive");
+        this.dir = new File(path);
+        this.maxSegmentBytes = maxSegmentBytes;
+        try {
+            FileUtils.forceMkdir(dir);
+            openSegments();
+            migrateLegacyEntries();
+            if (index.isEmpty()) {
+                // Same reasoning as PaxosStateLogImpl: a brand new log gets a lowest entry so that
+                // #getLeastLogEntry does not skip seq 0 after a restart.
+                RecordLocation location = appendRecord(ROUND_RECORD, PaxosAcceptor.NO_LOG_ENTRY, EMPTY_PAYLOAD);
+                activeSegment.syncUpTo(location.end());
+                publish(PaxosAcceptor.NO_LOG_ENTRY, location);
+            }
+        } catch (IOException e) {
+            close();
+            throw new RuntimeException("IO problem related to the path " + dir.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public void writeRound(long seq, V round) {
+        byte[] bytes = round.persistToBytes();
+        RecordLocation location;
+        lock.lock();
+        try {
+            // reject old state
+            Long latestVersion = seqToVersionMap.get(seq);
+            if (latestVersion != null && round.getVersion() < latestVersion) {
+                return;
+            }
+            location = appendRecord(ROUND_RECORD, seq, bytes);
+            seqToVersionMap.put(seq, round.getVersion());
+        } catch (IOException e) {
+            log.error("problem writing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            location.segment.syncUpTo(location.end());
+        } catch (IOException e) {
+            log.error("problem writing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        }
+
+        lock.lock();
+        try {
+            publish(seq, location);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] readRound(long seq) throws IOException {
+        lock.lock();
+        try {
+            RecordLocation location = index.get(seq);
+            if (location == null || seq == PaxosAcceptor.NO_LOG_ENTRY) {
+                return null;
+            }
+            return readPayload(location);
+        } catch (CorruptLogFileException e) {
+            throw e;
+        } catch (IOException e) {
+            log.error("problem reading paxos state");
+            throw Throwables.rewrap(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getLeastLogEntry() {
+        lock.lock();
+        try {
+            return index.isEmpty() ? PaxosAcceptor.NO_LOG_ENTRY : index.firstKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getGreatestLogEntry() {
+        lock.lock();
+        try {
+            return index.isEmpty() ? PaxosAcceptor.NO_LOG_ENTRY : index.lastKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void truncate(long toDeleteInclusive) {
+        lock.lock();
+        try {
+            long greatestLogEntry = getGreatestLogEntry();
+            if (greatestLogEntry >= 0) {
+                // We never want to remove our most recent entry
+                toDeleteInclusive = Math.min(greatestLogEntry - 1, toDeleteInclusive);
+            }
+            if (toDeleteInclusive <= truncatedUpTo) {
+                return;
+            }
+            RecordLocation location = appendRecord(TRUNCATE_RECORD, toDeleteInclusive, EMPTY_PAYLOAD);
+            activeSegment.syncUpTo(location.end());
+            applyTruncate(toDeleteInclusive, location.appendId);
+            deleteTruncatedSegments();
+        } catch (IOException e) {
+            log.error("problem truncating paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the segment files. The log may not be used afterwards.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                IOUtils.closeQuietly(segment.channel);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(long seq, RecordLocation location) {
+        if (seq <= truncatedUpTo && location.appendId < lastTruncateAppendId) {
+            // a truncation was appended after this round, so replay would drop it as well
+            return;
+        }
+        RecordLocation existing = index.get(seq);
+        if (existing == null || existing.appendId < location.appendId) {
+            index.put(seq, location);
+        }
+    }
+
+    private void applyTruncate(long bound, long appendId) {
+        truncatedUpTo = Math.max(truncatedUpTo, bound);
+        lastTruncateAppendId = appendId;
+        index.headMap(truncatedUpTo, true).clear();
+        seqToVersionMap.keySet().removeIf(seq -> seq <= truncatedUpTo);
+    }
+
+    private void deleteTruncatedSegments() {
+        for (Segment segment : segments.values().toArray(new Segment[0])) {
+            if (segment != activeSegment && segment.maxSeq <= truncatedUpTo) {
+                IOUtils.closeQuietly(segment.channel);
+                segments.remove(segment.id);
+                if (!segment.file.delete()) {
+                    log.warn("failed to delete log segment {}", segment.file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private RecordLocation appendRecord(byte type, long seq, byte[] payload) throws IOException {
+        if (activeSegment.writePosition >= maxSegmentBytes) {
+            rollSegment();
+        }
+        int bodyLength = RECORD_PREFIX_BYTES + payload.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength);
+        record.putInt(0);
+        record.put(type);
+        record.putLong(seq);
+        record.put(payload);
+        record.putInt(4, checksum(record.array(), RECORD_HEADER_BYTES, bodyLength));
+        record.flip();
+
+        long offset = activeSegment.append(record);
+        if (type == ROUND_RECORD) {
+            activeSegment.maxSeq = Math.max(activeSegment.maxSeq, seq);
+        }
+        return new RecordLocation(activeSegment, offset, bodyLength, nextAppendId++);
+    }
+
+    private void rollSegment() throws IOException {
+        activeSegment.seal();
+        activeSegment = createSegment(activeSegment.id + 1);
+    }
+
+    private byte[] readPayload(RecordLocation location) throws IOException {
+        ByteBuffer record = location.segment.read(location.offset, RECORD_HEADER_BYTES + location.bodyLength);
+        int bodyLength = record.getInt();
+        int expectedChecksum = record.getInt();
+        if (bodyLength != location.bodyLength) {
+            throw new CorruptLogFileException();
+        }
+        byte[] body = new byte[bodyLength];
+        record.get(body);
+        if (checksum(body, 0, bodyLength) != expectedChecksum) {
+            throw new CorruptLogFileException();
+        }
+        return Arrays.copyOfRange(body, RECORD_PREFIX_BYTES, bodyLength);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private void openSegments() throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Long id = getSegmentIdFromFilename(file);
+                if (id != null) {
+                    segments.put(id, null);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            activeSegment = createSegment(0);
+            return;
+        }
+        for (long id : segments.keySet().toArray(new Long[0])) {
+            boolean last = id == segments.lastKey();
+            Segment segment = new Segment(id, new File(dir, getSegmentFilename(id)));
+            segments.put(id, segment);
+            replay(segment, last);
+            if (last) {
+                activeSegment = segment;
+            } else {
+                segment.sealed = true;
+            }
+        }
+    }
+
+    private void replay(Segment segment, boolean last) throws IOException {
+        long size = segment.channel.size();
+        if (size < SEGMENT_HEADER_BYTES) {
+            // crashed while creating the segment
+            Preconditions.checkState(last, "Log segment %s is missing its header", segment.file);
+            segment.writeHeader();
+            return;
+        }
+        ByteBuffer header = segment.read(0, SEGMENT_HEADER_BYTES);
+        if (header.getInt() != SEGMENT_MAGIC || header.getInt() != SEGMENT_FORMAT_VERSION) {
+            throw new IOException("Unrecognised log segment " + segment.file.getAbsolutePath());
+        }
+
+        long position = SEGMENT_HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= size) {
+            ByteBuffer recordHeader = segment.read(position, RECORD_HEADER_BYTES);
+            int bodyLength = recordHeader.getInt();
+            int expectedChecksum = recordHeader.getInt();
+            if (bodyLength < RECORD_PREFIX_BYTES || position + RECORD_HEADER_BYTES + bodyLength > size) {
+                break;
+            }
+            ByteBuffer body = segment.read(position + RECORD_HEADER_BYTES, bodyLength);
+            byte[] bodyBytes = new byte[bodyLength];
+            body.get(bodyBytes);
+            if (checksum(bodyBytes, 0, bodyLength) != expectedChecksum) {
+                break;
+            }
+            byte type = bodyBytes[0];
+            long seq = ByteBuffer.wrap(bodyBytes, 1, 8).getLong();
+            RecordLocation location = new RecordLocation(segment, position, bodyLength, nextAppendId++);
+            if (type == ROUND_RECORD) {
+                segment.maxSeq = Math.max(segment.maxSeq, seq);
+                publish(seq, location);
+            } else if (type == TRUNCATE_RECORD) {
+                applyTruncate(seq, location.appendId);
+            } else {
+                throw new IOException("Unrecognised record type " + type + " in log segment "
+                        + segment.file.getAbsolutePath());
+            }
+            position += RECORD_HEADER_BYTES + bodyLength;
+        }
+
+        if (position < size) {
+            if (last) {
+                log.warn("Discarding {} bytes of incomplete writes from the end of log segment {}",
+                        size - position, segment.file.getAbsolutePath());
+                segment.channel.truncate(position);
+                segment.channel.force(true);
+            } else {
+                log.error("Log segment {} is corrupt after offset {}; rounds after this point are lost",
+                        segment.file.getAbsolutePath(), position);
+            }
+        }
+        segment.writePosition = position;
+        segment.syncedPosition = position;
+    }
+
+    private Segment createSegment(long id) throws IOException {
+        Segment segment = new Segment(id, new File(dir, getSegmentFilename(id)));
+        segment.writeHeader();
+        syncDirectory();
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void syncDirectory() {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform allows a directory to be opened
+            log.debug("Could not sync paxos log directory {}", dir.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    private void migrateLegacyEntries() throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        TreeMap<Long, File> legacyEntries = new TreeMap<>();
+        for (File file : files) {
+            try {
+                legacyEntries.put(Long.parseLong(file.getName()), file);
+            } catch (NumberFormatException e) {
+                // not a legacy log entry
+            }
+        }
+        if (legacyEntries.isEmpty()) {
+            return;
+        }
+
+        log.info("Migrating {} paxos log entries in {} to log segments",
+                legacyEntries.size(), dir.getAbsolutePath());
+        PaxosStateLogImpl<V> legacyLog = new PaxosStateLogImpl<V>(dir.getPath());
+        RecordLocation lastLocation = null;
+        for (long seq : legacyEntries.keySet()) {
+            byte[] bytes;
+            if (seq == PaxosAcceptor.NO_LOG_ENTRY) {
+                bytes = EMPTY_PAYLOAD;
+            } else {
+                try {
+                    bytes = legacyLog.readRound(seq);
+                } catch (IOException e) {
+                    log.warn("Not migrating corrupt paxos log entry {}", legacyEntries.get(seq), e);
+                    continue;
+                }
+            }
+            if (bytes != null) {
+                lastLocation = appendRecord(ROUND_RECORD, seq, bytes);
+                publish(seq, lastLocation);
+            }
+        }
+        if (lastLocation != null) {
+            lastLocation.segment.syncUpTo(lastLocation.end());
+        }
+
+        for (File file : dir.listFiles()) {
+            String name = file.getName();
+            if (legacyEntries.containsValue(file) || name.endsWith(TMP_FILE_SUFFIX)) {
+                if (!file.delete()) {
+                    log.warn("failed to delete migrated log file {}", file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private static String getSegmentFilename(long id) {
+        return String.format("%s%019d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+
+    private static Long getSegmentIdFromFilename(File file) {
+        String name = file.getName();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class RecordLocation {
+        final Segment segment;
+        final long offset;
+        final int bodyLength;
+        final long appendId;
+
+        RecordLocation(Segment segment, long offset, int bodyLength, long appendId) {
+            this.segment = segment;
+            this.offset = offset;
+            this.bodyLength = bodyLength;
+            this.appendId = appendId;
+        }
+
+        long end() {
+            return offset + RECORD_HEADER_BYTES + bodyLength;
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final File file;
+        final FileChannel channel;
+        final Object syncMonitor = new Object();
+
+        // written under the log lock, read by syncing writers outside of it
+        volatile long writePosition;
+        volatile long syncedPosition;
+
+        // guarded by the log lock
+        long maxSeq = Long.MIN_VALUE;
+        boolean sealed = false;
+        MappedByteBuffer mapped;
+
+        Segment(long id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        void writeHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            header.putInt(SEGMENT_MAGIC);
+            header.putInt(SEGMENT_FORMAT_VERSION);
+            header.flip();
+            channel.truncate(0);
+            writePosition = 0;
+            append(header);
+            channel.force(true);
+            syncedPosition = writePosition;
+        }
+
+        long append(ByteBuffer record) throws IOException {
+            long offset = writePosition;
+            long position = offset;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            writePosition = position;
+            return offset;
+        }
+
+        /**
+         * Blocks until everything up to {@code position} is on disk. Whichever waiting writer gets the monitor first
+         * syncs everything appended so far, which usually covers the writers queued behind it.
+         */
+        void syncUpTo(long position) throws IOException {
+            if (syncedPosition >= position) {
+                return;
+            }
+            synchronized (syncMonitor) {
+                if (syncedPosition >= position) {
+                    return;
+                }
+                long target = writePosition;
+                channel.force(false);
+                syncedPosition = target;
+            }
+        }
+
+        void seal() throws IOException {
+            syncUpTo(writePosition);
+            sealed = true;
+        }
+
+        ByteBuffer read(long offset, int length) throws IOException {
+            if (sealed) {
+                if (mapped == null) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                ByteBuffer view = mapped.duplicate();
+                view.position((int) offset);
+                view.limit((int) offset + length);
+                return view.slice();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of log segment " + file.getAbsolutePath());
+                }
+                position += read;
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
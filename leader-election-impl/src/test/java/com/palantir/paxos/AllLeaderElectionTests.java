@@ -25,7 +25,9 @@ import com.palantir.paxos.persistence.ProtobufTest;
 @SuiteClasses({
     ProtobufTest.class,
     PaxosConsensusFastTest.class,
-    PaxosConsensusSlowTest.class
+    PaxosConsensusSlowTest.class,
+    PaxosLeaderLeaseTest.class,
+    SegmentedPaxosStateLogTest.class
 })
 public class AllLeaderElectionTests {
 }
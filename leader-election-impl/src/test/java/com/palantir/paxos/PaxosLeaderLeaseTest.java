@@ -0,0 +1,158 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HostAndPort;
+import com.palantir.leader.LeaderElectionService.StillLeadingStatus;
+import com.palantir.leader.PaxosLeaderElectionService;
+import com.palantir.leader.PaxosLeadershipToken;
+import com.palantir.leader.PingableLeader;
+
+public class PaxosLeaderLeaseTest {
+    private static final String LEADER_UUID = "leader";
+    private static final PaxosValue LEADING_VALUE = new PaxosValue(LEADER_UUID, 5, null);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void acceptorRefusesLaterRoundsWhileLeaseIsHeld() throws Exception {
+        PaxosAcceptor acceptor = PaxosAcceptorImpl.newAcceptor(
+                new PaxosStateLogImpl<PaxosAcceptorState>(folder.newFolder().getPath()), 200);
+        PaxosProposalId pid = new PaxosProposalId(1, "other");
+
+        assertThat(acceptor.getLatestSequencePreparedOrAccepted()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(acceptor.prepare(0, pid).isSuccessful()).isFalse();
+        assertThat(acceptor.accept(0, new PaxosProposal(pid, new PaxosValue("other", 0, null))).isSuccessful())
+                .isFalse();
+
+        Thread.sleep(250);
+        assertThat(acceptor.prepare(0, pid).isSuccessful()).isTrue();
+    }
+
+    @Test
+    public void restartedAcceptorRefusesLaterRoundsForLeasePlusMargin() throws Exception {
+        String logDir = folder.newFolder().getPath();
+        PaxosProposalId leaderPid = new PaxosProposalId(1, LEADER_UUID);
+        PaxosAcceptor acceptor = PaxosAcceptorImpl.newAcceptor(new PaxosStateLogImpl<PaxosAcceptorState>(logDir));
+        assertThat(acceptor.prepare(0, leaderPid).isSuccessful()).isTrue();
+        assertThat(acceptor.accept(0, new PaxosProposal(leaderPid, LEADING_VALUE)).isSuccessful()).isTrue();
+
+        PaxosAcceptor restarted = PaxosAcceptorImpl.newAcceptor(
+                new PaxosStateLogImpl<PaxosAcceptorState>(logDir), 100, 100);
+        PaxosProposalId rivalPid = new PaxosProposalId(2, "other");
+        assertThat(restarted.prepare(1, rivalPid).isSuccessful()).isFalse();
+        Thread.sleep(150);
+        assertThat(restarted.prepare(1, rivalPid).isSuccessful()).isFalse();
+
+        Thread.sleep(100);
+        assertThat(restarted.prepare(1, rivalPid).isSuccessful()).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void acceptorRejectsNegativeLease() throws IOException {
+        PaxosAcceptorImpl.newAcceptor(new PaxosStateLogImpl<PaxosAcceptorState>(folder.newFolder().getPath()), -1);
+    }
+
+    @Test
+    public void acceptorWithoutLeaseDoesNotRefuseLaterRounds() throws IOException {
+        PaxosAcceptor acceptor = PaxosAcceptorImpl.newAcceptor(folder.newFolder().getPath());
+        acceptor.getLatestSequencePreparedOrAccepted();
+        assertThat(acceptor.prepare(0, new PaxosProposalId(1, "other")).isSuccessful()).isTrue();
+    }
+
+    @Test
+    public void leaderAnswersLocallyWhileLeaseIsHeld() throws Exception {
+        PaxosAcceptor acceptor = leadingAcceptor();
+        PaxosLeaderElectionService leader = leaderElectionService(acceptor, 60000);
+        PaxosLeadershipToken token = new PaxosLeadershipToken(LEADING_VALUE);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        }
+        verify(acceptor, times(1)).getLatestSequencePreparedOrAccepted();
+    }
+
+    @Test
+    public void leaderConfirmsWithQuorumOnceLeaseExpires() throws Exception {
+        PaxosAcceptor acceptor = leadingAcceptor();
+        PaxosLeaderElectionService leader = leaderElectionService(acceptor, 50);
+        PaxosLeadershipToken token = new PaxosLeadershipToken(LEADING_VALUE);
+
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        Thread.sleep(100);
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        verify(acceptor, times(2)).getLatestSequencePreparedOrAccepted();
+    }
+
+    @Test
+    public void leaderWithoutLeaseConfirmsEveryTime() throws Exception {
+        PaxosAcceptor acceptor = leadingAcceptor();
+        PaxosLeaderElectionService leader = leaderElectionService(acceptor, 0);
+        PaxosLeadershipToken token = new PaxosLeadershipToken(LEADING_VALUE);
+
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        verify(acceptor, times(2)).getLatestSequencePreparedOrAccepted();
+    }
+
+    private static PaxosAcceptor leadingAcceptor() {
+        PaxosAcceptor acceptor = mock(PaxosAcceptor.class);
+        when(acceptor.getLatestSequencePreparedOrAccepted()).thenReturn(LEADING_VALUE.getRound());
+        return acceptor;
+    }
+
+    private PaxosLeaderElectionService leaderElectionService(PaxosAcceptor acceptor, long leaderLeaseMs) {
+        PaxosProposer proposer = mock(PaxosProposer.class);
+        when(proposer.getUUID()).thenReturn(LEADER_UUID);
+        when(proposer.getQuorumSize()).thenReturn(1);
+        PaxosLearner learner = mock(PaxosLearner.class);
+        when(learner.getGreatestLearnedValue()).thenReturn(LEADING_VALUE);
+        return new PaxosLeaderElectionService(
+                proposer,
+                learner,
+                ImmutableMap.<PingableLeader, HostAndPort>of(),
+                ImmutableList.of(acceptor),
+                ImmutableList.of(learner),
+                executor,
+                0L, 0L, 0L,
+                leaderLeaseMs);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentedPaxosStateLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = folder.newFolder().getPath();
+    }
+
+    @Test
+    public void newLogHasSentinelEntry() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<>(path);
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.readRound(PaxosAcceptor.NO_LOG_ENTRY)).isNull();
+        log.close();
+    }
+
+    @Test
+    public void roundsSurviveReopen() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<>(path);
+        for (long seq = 0; seq < 10; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        log.writeRound(3, new PaxosValue("overwritten", 3, new byte[] {3}));
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = new SegmentedPaxosStateLog<>(path);
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(9L);
+        assertThat(read(reopened, 5)).isEqualTo(value(5).getLeaderUUID());
+        assertThat(read(reopened, 3)).isEqualTo("overwritten");
+        assertThat(reopened.readRound(10)).isNull();
+        reopened.close();
+    }
+
+    @Test
+    public void truncateKeepsGreatestEntryAndSurvivesReopen() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<>(path, 256);
+        for (long seq = 0; seq < 100; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        int segmentsBefore = segmentFiles().length;
+        log.truncate(1000);
+        assertThat(log.getLeastLogEntry()).isEqualTo(99L);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(99L);
+        assertThat(segmentFiles().length).isLessThan(segmentsBefore);
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = new SegmentedPaxosStateLog<>(path, 256);
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(99L);
+        assertThat(reopened.readRound(50)).isNull();
+        assertThat(read(reopened, 99)).isEqualTo(value(99).getLeaderUUID());
+        reopened.close();
+    }
+
+    @Test
+    public void roundWrittenBelowTruncationBoundIsKeptUntilTheNextTruncation() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<>(path);
+        for (long seq = 0; seq < 6; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        log.truncate(3);
+        log.writeRound(2, value(2));
+        assertThat(log.getLeastLogEntry()).isEqualTo(2L);
+        assertThat(read(log, 2)).isEqualTo(value(2).getLeaderUUID());
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = new SegmentedPaxosStateLog<>(path);
+        assertThat(read(reopened, 2)).isEqualTo(value(2).getLeaderUUID());
+        assertThat(reopened.readRound(3)).isNull();
+        reopened.truncate(4);
+        assertThat(reopened.readRound(2)).isNull();
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(5L);
+        reopened.close();
+
+        SegmentedPaxosStateLog<PaxosValue> again = new SegmentedPaxosStateLog<>(path);
+        assertThat(again.readRound(2)).isNull();
+        again.close();
+    }
+
+    @Test
+    public void incompleteTrailingRecordIsDiscarded() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<>(path);
+        log.writeRound(0, value(0));
+        log.writeRound(1, value(1));
+        log.close();
+
+        File segment = segmentFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = new SegmentedPaxosStateLog<>(path);
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(0L);
+        reopened.writeRound(1, value(1));
+        reopened.close();
+
+        SegmentedPaxosStateLog<PaxosValue> again = new SegmentedPaxosStateLog<>(path);
+        assertThat(read(again, 1)).isEqualTo(value(1).getLeaderUUID());
+        again.close();
+    }
+
+    @Test
+    public void migratesPerRoundFiles() throws IOException {
+        PaxosStateLogImpl<PaxosValue> legacy = new PaxosStateLogImpl<>(path);
+        for (long seq = 0; seq < 5; seq++) {
+            legacy.writeRound(seq, value(seq));
+        }
+
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<>(path);
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(4L);
+        assertThat(read(log, 2)).isEqualTo(value(2).getLeaderUUID());
+        assertThat(new File(path).list()).allMatch(name -> name.startsWith("segment-"));
+        log.close();
+    }
+
+    @Test
+    public void concurrentWritesAreAllDurable() throws Exception {
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<>(path, 4096);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long i = 0; i < 200; i++) {
+            long seq = i;
+            futures.add(executor.submit(() -> log.writeRound(seq, value(seq))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = new SegmentedPaxosStateLog<>(path, 4096);
+        for (long seq = 0; seq < 200; seq++) {
+            assertThat(read(reopened, seq)).isEqualTo(value(seq).getLeaderUUID());
+        }
+        reopened.close();
+    }
+
+    private File[] segmentFiles() {
+        return new File(path).listFiles((dir, name) -> name.startsWith("segment-"));
+    }
+
+    private static PaxosValue value(long seq) {
+        return new PaxosValue("leader-" + seq, seq, new byte[] {(byte) seq});
+    }
+
+    private static String read(PaxosStateLog<PaxosValue> log, long seq) throws IOException {
+        return PaxosValue.BYTES_HYDRATOR.hydrateFromBytes(log.readRound(seq)).getLeaderUUID();
+    }
+}
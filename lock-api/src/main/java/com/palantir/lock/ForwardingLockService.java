@@ -16,6 +16,7 @@
 package com.palantir.lock;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -58,6 +59,17 @@ public abstract class ForwardingLockService extends ForwardingObject implements
         return delegate().unlockSimple(SimpleHeldLocksToken.fromLockRefreshToken(token));
     }
 
+    @Override
+    public List<LockRefreshToken> lockBatch(String client, List<LockRequest> requests)
+            throws InterruptedException {
+        return delegate().lockBatch(client, requests);
+    }
+
+    @Override
+    public Set<LockRefreshToken> unlockBatch(Iterable<LockRefreshToken> tokens) {
+        return delegate().unlockBatch(tokens);
+    }
+
     @Override
     public boolean unlockSimple(SimpleHeldLocksToken token) {
         return delegate().unlockSimple(token);
@@ -15,6 +15,7 @@
  */
 package com.palantir.lock;
 
+import java.util.List;
 import java.util.Set;
 
 import com.google.common.collect.ForwardingObject;
@@ -41,6 +42,17 @@ public abstract class ForwardingRemoteLockService extends ForwardingObject imple
         return delegate().unlock(token);
     }
 
+    @Override
+    public List<LockRefreshToken> lockBatch(String client, List<LockRequest> requests)
+            throws InterruptedException {
+        return delegate().lockBatch(client, requests);
+    }
+
+    @Override
+    public Set<LockRefreshToken> unlockBatch(Iterable<LockRefreshToken> tokens) {
+        return delegate().unlockBatch(tokens);
+    }
+
     @Override
     public Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens) {
         return delegate().refreshLockRefreshTokens(tokens);
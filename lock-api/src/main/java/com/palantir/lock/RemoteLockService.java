@@ -15,6 +15,7 @@
  */
 package com.palantir.lock;
 
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -68,6 +69,34 @@ public interface RemoteLockService {
     @Consumes(MediaType.APPLICATION_JSON)
     @NonIdempotent boolean unlock(LockRefreshToken token);
 
+    /**
+     * Attempts to acquire each of the given lock requests for the given
+     * client, as if by calling {@link #lock(String, LockRequest)} once per
+     * request. The requests are independent of each other and are processed
+     * in order, so a request which blocks will delay the ones after it.
+     *
+     * @return a list with one element per request, containing the token for
+     *         the acquired locks or null if that request failed
+     */
+    @POST
+    @Path("lock-batch/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    List<LockRefreshToken> lockBatch(@PathParam("client") String client, List<LockRequest> requests)
+            throws InterruptedException;
+
+    /**
+     * Attempts to release each of the given tokens, as if by calling
+     * {@link #unlock(LockRefreshToken)} once per token.
+     *
+     * @return the subset of tokens whose locks were unlocked by this call.
+     */
+    @POST
+    @Path("unlock-batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @NonIdempotent Set<LockRefreshToken> unlockBatch(Iterable<LockRefreshToken> tokens);
+
     /**
      * Refreshes the given lock tokens.
      *
@@ -15,6 +15,13 @@
  */
 package com.palantir.lock.client;
 
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
 import com.palantir.lock.BlockingMode;
 import com.palantir.lock.ForwardingRemoteLockService;
 import com.palantir.lock.LockClient;
@@ -30,6 +37,7 @@ import com.palantir.lock.RemoteLockService;
  * always complete quickly.
  */
 public class ClientSplitLockService extends ForwardingRemoteLockService {
+    private static final Logger log = LoggerFactory.getLogger(ClientSplitLockService.class);
 
     private final RemoteLockService blockingClient;
     private final RemoteLockService nonBlockingClient;
@@ -51,6 +59,71 @@ public class ClientSplitLockService extends ForwardingRemoteLockService {
         return result;
     }
 
+    /**
+     * Sends the non-blocking requests of the batch to the non-blocking client and the rest to the blocking
+     * client. The non-blocking requests are sent first, so they are not delayed by the blocking ones.
+     * If the blocking requests fail, the locks already granted to the non-blocking ones are released.
+     */
+    @Override
+    public List<LockRefreshToken> lockBatch(String client, List<LockRequest> requests)
+            throws InterruptedException {
+        List<LockRequest> nonBlockingRequests = Lists.newArrayList();
+        List<LockRequest> blockingRequests = Lists.newArrayList();
+        for (LockRequest request : requests) {
+            if (request.getBlockingMode() == BlockingMode.DO_NOT_BLOCK) {
+                nonBlockingRequests.add(request);
+            } else {
+                blockingRequests.add(request);
+            }
+        }
+        if (blockingRequests.isEmpty()) {
+            return nonBlockingClient.lockBatch(client, requests);
+        }
+        if (nonBlockingRequests.isEmpty()) {
+            return blockingClient.lockBatch(client, requests);
+        }
+
+        List<LockRefreshToken> nonBlockingTokens = nonBlockingClient.lockBatch(client, nonBlockingRequests);
+        List<LockRefreshToken> blockingTokens;
+        try {
+            blockingTokens = blockingClient.lockBatch(client, blockingRequests);
+        } catch (InterruptedException e) {
+            unlockGranted(nonBlockingTokens);
+            throw e;
+        } catch (RuntimeException e) {
+            unlockGranted(nonBlockingTokens);
+            throw e;
+        }
+        Iterator<LockRefreshToken> nonBlockingResults = nonBlockingTokens.iterator();
+        Iterator<LockRefreshToken> blockingResults = blockingTokens.iterator();
+        List<LockRefreshToken> results = Lists.newArrayListWithCapacity(requests.size());
+        for (LockRequest request : requests) {
+            if (request.getBlockingMode() == BlockingMode.DO_NOT_BLOCK) {
+                results.add(nonBlockingResults.next());
+            } else {
+                results.add(blockingResults.next());
+            }
+        }
+        return results;
+    }
+
+    private void unlockGranted(List<LockRefreshToken> tokens) {
+        List<LockRefreshToken> granted = Lists.newArrayList();
+        for (LockRefreshToken token : tokens) {
+            if (token != null) {
+                granted.add(token);
+            }
+        }
+        if (granted.isEmpty()) {
+            return;
+        }
+        try {
+            nonBlockingClient.unlockBatch(granted);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release " + granted.size() + " locks after a failed lock batch; they will expire.", e);
+        }
+    }
+
     private LockRefreshToken lock(LockClient client, LockRequest request) throws InterruptedException {
         if (request.getBlockingMode() == BlockingMode.DO_NOT_BLOCK) {
             if (client == LockClient.ANONYMOUS) {
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.client;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.RemoteLockService;
+
+/**
+ * A {@link RemoteLockService} that coalesces concurrent calls to {@link #unlock(LockRefreshToken)}
+ * and {@link #refreshLockRefreshTokens(Iterable)} into single calls to
+ * {@link RemoteLockService#unlockBatch(Iterable)} and
+ * {@link RemoteLockService#refreshLockRefreshTokens(Iterable)} on the delegate.
+ * <p>
+ * Callers enqueue their request and then compete to flush the queue. Whichever thread wins sends
+ * every request that is queued at that point as one batch, so requests that arrive while a batch
+ * is in flight go out together in the next one. A caller on its own pays no extra latency.
+ * <p>
+ * The lock server must support the batch endpoints.
+ */
+@ThreadSafe
+public class CoalescingRemoteLockService extends ForwardingRemoteLockService {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final RemoteLockService delegate;
+    private final Coalescer<LockRefreshToken, Boolean> unlocks;
+    private final Coalescer<Set<LockRefreshToken>, Set<LockRefreshToken>> refreshes;
+
+    public static CoalescingRemoteLockService create(RemoteLockService delegate) {
+        return new CoalescingRemoteLockService(delegate, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public CoalescingRemoteLockService(final RemoteLockService delegate, int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive but was %s", maxBatchSize);
+        this.delegate = delegate;
+        this.unlocks = new Coalescer<LockRefreshToken, Boolean>(maxBatchSize) {
+            @Override
+            void process(List<Pending<LockRefreshToken, Boolean>> batch) {
+                if (batch.size() == 1) {
+                    Pending<LockRefreshToken, Boolean> pending = batch.get(0);
+                    pending.result.set(delegate.unlock(pending.request));
+                    return;
+                }
+                Set<LockRefreshToken> tokens = Sets.newLinkedHashSet();
+                for (Pending<LockRefreshToken, Boolean> pending : batch) {
+                    tokens.add(pending.request);
+                }
+                Set<LockRefreshToken> unlocked = delegate.unlockBatch(tokens);
+                // If the same token was unlocked twice, only the first caller actually unlocked it.
+                Set<LockRefreshToken> reported = Sets.newHashSet();
+                for (Pending<LockRefreshToken, Boolean> pending : batch) {
+                    pending.result.set(unlocked.contains(pending.request) && reported.add(pending.request));
+                }
+            }
+        };
+        this.refreshes = new Coalescer<Set<LockRefreshToken>, Set<LockRefreshToken>>(maxBatchSize) {
+            @Override
+            void process(List<Pending<Set<LockRefreshToken>, Set<LockRefreshToken>>> batch) {
+                Set<LockRefreshToken> tokens = Sets.newLinkedHashSet();
+                for (Pending<Set<LockRefreshToken>, Set<LockRefreshToken>> pending : batch) {
+                    tokens.addAll(pending.request);
+                }
+                Set<LockRefreshToken> refreshed = delegate.refreshLockRefreshTokens(tokens);
+                for (Pending<Set<LockRefreshToken>, Set<LockRefreshToken>> pending : batch) {
+                    pending.result.set(ImmutableSet.copyOf(Sets.intersection(pending.request, refreshed)));
+                }
+            }
+        };
+    }
+
+    @Override
+    protected RemoteLockService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean unlock(LockRefreshToken token) {
+        return unlocks.submit(Preconditions.checkNotNull(token));
+    }
+
+    @Override
+    public Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens) {
+        Set<LockRefreshToken> tokenSet = ImmutableSet.copyOf(tokens);
+        if (tokenSet.isEmpty()) {
+            return tokenSet;
+        }
+        return refreshes.submit(tokenSet);
+    }
+
+    private static final class Pending<T, R> {
+        final T request;
+        final SettableFuture<R> result = SettableFuture.create();
+
+        Pending(T request) {
+            this.request = request;
+        }
+    }
+
+    private abstract static class Coalescer<T, R> {
+        private final Queue<Pending<T, R>> pendingRequests = new ConcurrentLinkedQueue<Pending<T, R>>();
+        private final Lock flushLock = new ReentrantLock();
+        private final int maxBatchSize;
+
+        Coalescer(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        /**
+         * Sends the batch to the lock server and sets the result of every request in it.
+         */
+        abstract void process(List<Pending<T, R>> batch);
+
+        R submit(T request) {
+            Pending<T, R> pending = new Pending<T, R>(request);
+            pendingRequests.add(pending);
+            while (!pending.result.isDone()) {
+                flushLock.lock();
+                try {
+                    if (!pending.result.isDone()) {
+                        flush();
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+            try {
+                return Uninterruptibles.getUninterruptibly(pending.result);
+            } catch (ExecutionException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+            }
+        }
+
+        private void flush() {
+            List<Pending<T, R>> batch = Lists.newArrayList();
+            for (Pending<T, R> pending = pendingRequests.poll(); pending != null; pending = pendingRequests.poll()) {
+                batch.add(pending);
+                if (batch.size() >= maxBatchSize) {
+                    break;
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                process(batch);
+            } catch (Throwable t) {
+                for (Pending<T, R> pending : batch) {
+                    pending.result.setException(t);
+                }
+            }
+        }
+    }
+}
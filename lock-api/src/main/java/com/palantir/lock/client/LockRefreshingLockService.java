@@ -15,6 +15,7 @@
  */
 package com.palantir.lock.client;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -109,12 +110,32 @@ public class LockRefreshingLockService extends ForwardingLockService {
         return ret;
     }
 
+    @Override
+    public List<LockRefreshToken> lockBatch(String client, List<LockRequest> requests)
+            throws InterruptedException {
+        List<LockRefreshToken> ret = super.lockBatch(client, requests);
+        for (LockRefreshToken token : ret) {
+            if (token != null) {
+                toRefresh.add(token);
+            }
+        }
+        return ret;
+    }
+
     @Override
     public boolean unlock(LockRefreshToken token) {
         toRefresh.remove(token);
         return super.unlock(token);
     }
 
+    @Override
+    public Set<LockRefreshToken> unlockBatch(Iterable<LockRefreshToken> tokens) {
+        for (LockRefreshToken token : tokens) {
+            toRefresh.remove(token);
+        }
+        return super.unlockBatch(tokens);
+    }
+
     private void refreshLocks() {
         ImmutableSet<LockRefreshToken> refreshCopy = ImmutableSet.copyOf(toRefresh);
         if (refreshCopy.isEmpty()) {
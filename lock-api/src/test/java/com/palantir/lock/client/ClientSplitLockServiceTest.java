@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.client;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.StringLockDescriptor;
+
+public final class ClientSplitLockServiceTest {
+    private static final String CLIENT = "client";
+
+    private final RecordingLockService blockingClient = new RecordingLockService(1000);
+    private final RecordingLockService nonBlockingClient = new RecordingLockService(2000);
+    private final ClientSplitLockService lockService = new ClientSplitLockService(blockingClient, nonBlockingClient);
+
+    @Test
+    public void lockBatchSendsOnlyNonBlockingRequestsToNonBlockingClient() throws InterruptedException {
+        LockRequest blocking = request("a").build();
+        LockRequest nonBlocking = request("b").doNotBlock().build();
+
+        List<LockRefreshToken> tokens =
+                lockService.lockBatch(CLIENT, ImmutableList.of(blocking, nonBlocking, blocking));
+
+        assertThat(nonBlockingClient.requests, is((List<LockRequest>) ImmutableList.of(nonBlocking)));
+        assertThat(blockingClient.requests, is((List<LockRequest>) ImmutableList.of(blocking, blocking)));
+        assertThat(tokens, is((List<LockRefreshToken>) ImmutableList.of(token(1000), token(2000), token(1001))));
+    }
+
+    @Test
+    public void lockBatchOfNonBlockingRequestsDoesNotUseBlockingClient() throws InterruptedException {
+        LockRequest nonBlocking = request("b").doNotBlock().build();
+
+        lockService.lockBatch(CLIENT, ImmutableList.of(nonBlocking, nonBlocking));
+
+        assertThat(nonBlockingClient.requests.size(), is(2));
+        assertThat(blockingClient.requests.isEmpty(), is(true));
+    }
+
+    @Test
+    public void lockBatchReleasesNonBlockingLocksIfBlockingRequestsFail() throws InterruptedException {
+        LockRequest blocking = request("a").build();
+        LockRequest nonBlocking = request("b").doNotBlock().build();
+        blockingClient.failure = new IllegalStateException("lock server unavailable");
+
+        try {
+            lockService.lockBatch(CLIENT, ImmutableList.of(nonBlocking, blocking));
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("lock server unavailable"));
+        }
+
+        assertThat(nonBlockingClient.unlocked, is((Set<LockRefreshToken>) ImmutableSet.of(token(2000))));
+        assertThat(blockingClient.unlocked.isEmpty(), is(true));
+    }
+
+    private static LockRequest.Builder request(String lockName) {
+        return LockRequest.builder(ImmutableSortedMap.of(StringLockDescriptor.of(lockName), LockMode.WRITE));
+    }
+
+    private static LockRefreshToken token(long id) {
+        return new LockRefreshToken(BigInteger.valueOf(id), Long.MAX_VALUE);
+    }
+
+    private static final class RecordingLockService extends ForwardingRemoteLockService {
+        final List<LockRequest> requests = Lists.newArrayList();
+        final Set<LockRefreshToken> unlocked = Sets.newHashSet();
+        RuntimeException failure = null;
+        private long nextTokenId;
+
+        RecordingLockService(long firstTokenId) {
+            this.nextTokenId = firstTokenId;
+        }
+
+        @Override
+        protected RemoteLockService delegate() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<LockRefreshToken> lockBatch(String client, List<LockRequest> batch) {
+            if (failure != null) {
+                throw failure;
+            }
+            List<LockRefreshToken> tokens = Lists.newArrayList();
+            for (LockRequest request : batch) {
+                requests.add(request);
+                tokens.add(token(nextTokenId++));
+            }
+            return tokens;
+        }
+
+        @Override
+        public Set<LockRefreshToken> unlockBatch(Iterable<LockRefreshToken> tokens) {
+            Set<LockRefreshToken> released = Sets.newHashSet(tokens);
+            unlocked.addAll(released);
+            return released;
+        }
+    }
+}
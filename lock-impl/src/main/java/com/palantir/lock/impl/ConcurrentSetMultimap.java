@@ -0,0 +1,67 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * A set multimap which is sharded by key, so that updates for different keys
+ * never contend on a shared monitor. Updates for a single key are atomic with
+ * respect to each other; reads never block and are weakly consistent.
+ * <p>
+ * This relies on {@link ConcurrentHashMap#compute} applying the remapping
+ * function exactly once, so the backing map must not be replaced with an
+ * arbitrary {@link java.util.concurrent.ConcurrentMap}.
+ */
+@ThreadSafe
+final class ConcurrentSetMultimap<K, V> {
+    private final ConcurrentHashMap<K, Set<V>> map = new ConcurrentHashMap<>();
+
+    void put(K key, V value) {
+        map.compute(key, (k, values) -> {
+            Set<V> result = (values == null) ? Sets.<V>newConcurrentHashSet() : values;
+            result.add(value);
+            return result;
+        });
+    }
+
+    void remove(K key, V value) {
+        map.computeIfPresent(key, (k, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    /**
+     * Returns a live, unmodifiable view of the values for the given key.
+     */
+    Set<V> get(K key) {
+        Set<V> values = map.get(key);
+        return (values == null) ? ImmutableSet.<V>of() : Collections.unmodifiableSet(values);
+    }
+
+    Map<K, Set<V>> asMap() {
+        return Collections.unmodifiableMap(map);
+    }
+}
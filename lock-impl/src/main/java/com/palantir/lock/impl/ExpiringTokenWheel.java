@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.palantir.lock.ExpiringToken;
+
+/**
+ * A hashed timing wheel of {@link ExpiringToken}s, bucketed by expiration date.
+ * <p>
+ * Any thread may {@link #add} tokens. A single reaper thread calls
+ * {@link #advance} periodically. This returns every token which has expired,
+ * and only the slots for the ticks that have elapsed since the previous call
+ * are visited. Scheduling a token is a constant-time append, and a token is
+ * returned at most one tick after it expires, however many other tokens are
+ * scheduled.
+ * <p>
+ * Refreshing a token does not touch the wheel. When the slot a token was
+ * scheduled in comes due, {@link #advance} looks up the token's current
+ * expiration date and, if it has been refreshed, moves it straight to the
+ * slot of its new date. A token that expires more than one turn of the wheel
+ * ahead is checked, and left in place, once per turn until it is due.
+ * <p>
+ * Tokens are handed to the reaper thread through a lock-free queue and only
+ * placed into their slot on the next {@link #advance}. A token can therefore
+ * never land in a slot that the reaper has already passed.
+ */
+@ThreadSafe
+final class ExpiringTokenWheel<T extends ExpiringToken> {
+    private static final long UNINITIALIZED = Long.MIN_VALUE;
+
+    private final long tickMillis;
+    private final List<Queue<T>> slots;
+    private final Queue<T> pending = new ConcurrentLinkedQueue<T>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** The last tick processed by {@link #advance}; only written by the reaper thread. */
+    private volatile long currentTick = UNINITIALIZED;
+
+    ExpiringTokenWheel(long tickMillis, int numSlots) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis must be positive");
+        Preconditions.checkArgument(numSlots > 0, "numSlots must be positive");
+        this.tickMillis = tickMillis;
+        this.slots = Lists.newArrayListWithCapacity(numSlots);
+        for (int i = 0; i < numSlots; i++) {
+            slots.add(new ConcurrentLinkedQueue<T>());
+        }
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    void add(T token) {
+        size.incrementAndGet();
+        pending.add(token);
+    }
+
+    /**
+     * Advances the wheel using the expiration date each token was scheduled with.
+     *
+     * @see #advance(long, Function)
+     */
+    List<T> advance(long nowMillis) {
+        return advance(nowMillis, new Function<T, Long>() {
+            @Override
+            public Long apply(T token) {
+                return token.getExpirationDateMs();
+            }
+        });
+    }
+
+    /**
+     * Advances the wheel over every tick which has fully elapsed at the given
+     * time and returns the tokens which expired within those ticks. Returned
+     * tokens are no longer scheduled. Must only be called from a single thread.
+     *
+     * @param currentExpirationDate returns the current expiration date of a
+     *        scheduled token, or null if it is no longer held and should be
+     *        dropped from the wheel
+     */
+    List<T> advance(long nowMillis, Function<? super T, Long> currentExpirationDate) {
+        long targetTick = toTick(nowMillis + 1) - 1;
+        if (currentTick == UNINITIALIZED) {
+            currentTick = targetTick - 1;
+        }
+        schedulePending();
+
+        List<T> expired = Lists.newArrayList();
+        int removed = 0;
+        long ticksToProcess = Math.min(targetTick - currentTick, slots.size());
+        for (long i = 1; i <= ticksToProcess; i++) {
+            Queue<T> slot = slotFor(currentTick + i);
+            Iterator<T> tokens = slot.iterator();
+            while (tokens.hasNext()) {
+                T token = tokens.next();
+                Long expirationDateMs = currentExpirationDate.apply(token);
+                if (expirationDateMs == null) {
+                    tokens.remove();
+                    removed++;
+                } else if (toTick(expirationDateMs) <= targetTick) {
+                    tokens.remove();
+                    expired.add(token);
+                    removed++;
+                } else {
+                    Queue<T> newSlot = slotFor(toTick(expirationDateMs));
+                    if (newSlot != slot) {
+                        tokens.remove();
+                        newSlot.add(token);
+                    }
+                    // Otherwise the token is due on a later turn of the wheel.
+                }
+            }
+        }
+        if (targetTick > currentTick) {
+            currentTick = targetTick;
+        }
+        size.addAndGet(-removed);
+        return expired;
+    }
+
+    /**
+     * Returns how far behind the given time the wheel was last advanced, or 0
+     * if it has never been advanced.
+     */
+    long getLagMillis(long nowMillis) {
+        long tick = currentTick;
+        if (tick == UNINITIALIZED) {
+            return 0L;
+        }
+        return Math.max(0L, nowMillis - (tick + 1) * tickMillis);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns a weakly consistent snapshot of the scheduled tokens, for logging.
+     */
+    List<T> snapshot() {
+        List<T> tokens = Lists.newArrayList(pending);
+        Iterables.addAll(tokens, Iterables.concat(slots));
+        return tokens;
+    }
+
+    private void schedulePending() {
+        T token;
+        while ((token = pending.poll()) != null) {
+            long tick = Math.max(toTick(token.getExpirationDateMs()), currentTick + 1);
+            slotFor(tick).add(token);
+        }
+    }
+
+    private Queue<T> slotFor(long tick) {
+        return slots.get((int) Math.floorMod(tick, (long) slots.size()));
+    }
+
+    private long toTick(long millis) {
+        return Math.floorDiv(millis, tickMillis);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.palantir.lock.LockClient;
+
+/**
+ * Tracks the version ids locked in by each client so that the minimum can be
+ * read without blocking.
+ * <p>
+ * Each client has its own sorted multiset (a skip list from version id to the
+ * number of tokens holding it), so the minimum is simply the first key.
+ * Updates for a client are serialized by {@link ConcurrentHashMap#compute},
+ * and updates for different clients never contend with each other.
+ */
+@ThreadSafe
+final class LockClientVersionIds {
+    private final ConcurrentHashMap<LockClient, ConcurrentNavigableMap<Long, Integer>> versionIdsByClient =
+            new ConcurrentHashMap<>();
+
+    void add(LockClient client, long versionId) {
+        versionIdsByClient.compute(client, (c, versionIds) -> {
+            ConcurrentNavigableMap<Long, Integer> result =
+                    (versionIds == null) ? new ConcurrentSkipListMap<>() : versionIds;
+            result.merge(versionId, 1, Integer::sum);
+            return result;
+        });
+    }
+
+    void remove(LockClient client, long versionId) {
+        versionIdsByClient.computeIfPresent(client, (c, versionIds) -> {
+            versionIds.computeIfPresent(versionId, (v, count) -> (count == 1) ? null : count - 1);
+            return versionIds.isEmpty() ? null : versionIds;
+        });
+    }
+
+    @Nullable
+    Long getMin(LockClient client) {
+        ConcurrentNavigableMap<Long, Integer> versionIds = versionIdsByClient.get(client);
+        if (versionIds == null) {
+            return null;
+        }
+        Entry<Long, Integer> first = versionIds.firstEntry();
+        return (first == null) ? null : first.getKey();
+    }
+
+    /**
+     * Returns a view from client to the locked-in version ids and their counts, for logging.
+     */
+    Map<LockClient, ? extends Map<Long, Integer>> asMap() {
+        return Collections.unmodifiableMap(versionIdsByClient);
+    }
+}
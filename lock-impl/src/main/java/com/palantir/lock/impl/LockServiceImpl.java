@@ -24,17 +24,15 @@ import static com.palantir.lock.LockGroupBehavior.LOCK_AS_MANY_AS_POSSIBLE;
 import java.io.Closeable;
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -54,7 +52,6 @@ import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
@@ -63,11 +60,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultiset;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
@@ -161,9 +154,20 @@ import com.palantir.util.Pair;
 
     private final LockClientIndices clientIndices = new LockClientIndices();
 
+    /**
+     * Number of segments in {@link #descriptorToLockMap}. Every lock request
+     * goes through this cache, so the default of four segments serializes
+     * clients on machines with many cores.
+     */
+    private static final int DESCRIPTOR_MAP_CONCURRENCY_LEVEL =
+            Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
     /** The backing client-aware read write lock for each lock descriptor. */
     private final LoadingCache<LockDescriptor, ClientAwareReadWriteLock> descriptorToLockMap =
-            CacheBuilder.newBuilder().weakValues().build(
+            CacheBuilder.newBuilder()
+                    .concurrencyLevel(DESCRIPTOR_MAP_CONCURRENCY_LEVEL)
+                    .weakValues()
+                    .build(
                     new CacheLoader<LockDescriptor, ClientAwareReadWriteLock>() {
                         @Override
                         public ClientAwareReadWriteLock load(LockDescriptor from) {
@@ -179,31 +183,39 @@ import com.palantir.util.Pair;
     private final ConcurrentMap<HeldLocksGrant, HeldLocks<HeldLocksGrant>> heldLocksGrantMap =
             new MapMaker().makeMap();
 
-    /** The priority queue of lock tokens waiting to be reaped. */
-    private final BlockingQueue<HeldLocksToken> lockTokenReaperQueue =
-            new PriorityBlockingQueue<HeldLocksToken>(1, ExpiringToken.COMPARATOR);
+    /**
+     * The resolution of the reaper timing wheels. Expired locks are reaped at
+     * most this long after their expiration date plus the allowed clock drift.
+     */
+    private static final long REAPER_TICK_MILLIS = 10L;
+
+    /**
+     * The number of slots in each reaper timing wheel. One turn of the wheel
+     * covers ~41 seconds; tokens which expire later than that are checked once
+     * per turn, and left where they are, until they are due.
+     */
+    private static final int REAPER_WHEEL_SLOTS = 4096;
+
+    /** The timing wheel of lock tokens waiting to be reaped. */
+    private final ExpiringTokenWheel<HeldLocksToken> lockTokenReaperWheel =
+            new ExpiringTokenWheel<HeldLocksToken>(REAPER_TICK_MILLIS, REAPER_WHEEL_SLOTS);
 
-    /** The priority queue of lock grants waiting to be reaped. */
-    private final BlockingQueue<HeldLocksGrant> lockGrantReaperQueue =
-            new PriorityBlockingQueue<HeldLocksGrant>(1, ExpiringToken.COMPARATOR);
+    /** The timing wheel of lock grants waiting to be reaped. */
+    private final ExpiringTokenWheel<HeldLocksGrant> lockGrantReaperWheel =
+            new ExpiringTokenWheel<HeldLocksGrant>(REAPER_TICK_MILLIS, REAPER_WHEEL_SLOTS);
 
     /** The mapping from lock client to the set of tokens held by that client. */
-    private final SetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
-            Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, HeldLocksToken>create());
+    private final ConcurrentSetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
+            new ConcurrentSetMultimap<LockClient, HeldLocksToken>();
 
-    private final SetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
-        Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, LockRequest>create());
+    private final ConcurrentSetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
+            new ConcurrentSetMultimap<LockClient, LockRequest>();
 
     private final Set<Thread> indefinitelyBlockingThreads =
             Sets.newConcurrentHashSet();
 
-    private final Multimap<LockClient, Long> versionIdMap = Multimaps.synchronizedMultimap(
-            Multimaps.newMultimap(Maps.<LockClient, Collection<Long>>newHashMap(), new Supplier<TreeMultiset<Long>>() {
-                @Override
-                public TreeMultiset<Long> get() {
-                    return TreeMultiset.create();
-                }
-            }));
+    /** The version ids locked in by each client, for {@link #getMinLockedInVersionId(LockClient)}. */
+    private final LockClientVersionIds versionIdMap = new LockClientVersionIds();
 
     private static final AtomicInteger instanceCount = new AtomicInteger();
     private static final int MAX_FAILED_LOCKS_TO_LOG = 20;
@@ -243,14 +255,14 @@ import com.palantir.util.Pair;
             @Override
             public void run() {
                 Thread.currentThread().setName("Held Locks Token Reaper");
-                reapLocks(lockTokenReaperQueue, heldLocksTokenMap);
+                reapLocks(lockTokenReaperWheel, heldLocksTokenMap);
             }
         });
         executor.execute(new Runnable() {
             @Override
             public void run() {
                 Thread.currentThread().setName("Held Locks Grant Reaper");
-                reapLocks(lockGrantReaperQueue, heldLocksGrantMap);
+                reapLocks(lockGrantReaperWheel, heldLocksGrantMap);
             }
         });
     }
@@ -266,7 +278,7 @@ import com.palantir.util.Pair;
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksToken> heldLocks = HeldLocks.of(token, heldLocksMap);
             if (heldLocksTokenMap.putIfAbsent(token, heldLocks) == null) {
-                lockTokenReaperQueue.add(token);
+                lockTokenReaperWheel.add(token);
                 if (!client.isAnonymous()) {
                     lockClientMultimap.put(client, token);
                 }
@@ -288,7 +300,7 @@ import com.palantir.util.Pair;
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksGrant> newHeldLocks = HeldLocks.of(grant, heldLocksMap);
             if (heldLocksGrantMap.putIfAbsent(grant, newHeldLocks) == null) {
-                lockGrantReaperQueue.add(grant);
+                lockGrantReaperWheel.add(grant);
                 return grant;
             }
             log.error("Lock ID collision! The RANDOM_BIT_COUNT constant must be increased. "
@@ -392,7 +404,7 @@ import com.palantir.util.Pair;
                 lockDescriptorMap.put(entry.getKey().getDescriptor(), entry.getValue());
             }
             if (request.getVersionId() != null) {
-                versionIdMap.put(client, request.getVersionId());
+                versionIdMap.add(client, request.getVersionId());
             }
             HeldLocksToken token = createHeldLocksToken(client, LockCollections.of(lockDescriptorMap.build()), LockCollections.of(locks),
                     request.getLockTimeout(), request.getVersionId());
@@ -495,11 +507,50 @@ import com.palantir.util.Pair;
         }
     }
 
+    @Override
+    public List<LockRefreshToken> lockBatch(String client, List<LockRequest> requests)
+            throws InterruptedException {
+        Preconditions.checkNotNull(requests);
+        List<LockRefreshToken> tokens = Lists.newArrayListWithCapacity(requests.size());
+        boolean success = false;
+        try {
+            for (LockRequest request : requests) {
+                tokens.add(lock(client, request));
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                // Don't leave the locks we did get held until they time out.
+                for (LockRefreshToken token : tokens) {
+                    if (token != null) {
+                        unlock(token);
+                    }
+                }
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace(".lockBatch(" + client + ", " + requests.size() + " requests) returns " + tokens);
+        }
+        return tokens;
+    }
+
     @Override
     public boolean unlock(LockRefreshToken token) {
         return unlockSimple(SimpleHeldLocksToken.fromLockRefreshToken(token));
     }
 
+    @Override
+    public Set<LockRefreshToken> unlockBatch(Iterable<LockRefreshToken> tokens) {
+        Preconditions.checkNotNull(tokens);
+        ImmutableSet.Builder<LockRefreshToken> unlockedTokens = ImmutableSet.builder();
+        for (LockRefreshToken token : tokens) {
+            if (unlock(token)) {
+                unlockedTokens.add(token);
+            }
+        }
+        return unlockedTokens.build();
+    }
+
     @Override
     public boolean unlock(HeldLocksToken token) {
         Preconditions.checkNotNull(token);
@@ -538,7 +589,7 @@ import com.palantir.util.Pair;
         LockClient client = heldLocks.realToken.getClient();
         if (client.isAnonymous()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             String errorMessage =
                     "Received .unlockAndFreeze() call for anonymous client with token "
                     + heldLocks.realToken;
@@ -547,7 +598,7 @@ import com.palantir.util.Pair;
         }
         if (heldLocks.locks.hasReadLock()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             String errorMessage = "Received .unlockAndFreeze() call for read locks: "
                     + heldLocks.realToken;
             log.warn(errorMessage);
@@ -602,12 +653,10 @@ import com.palantir.util.Pair;
             throw new IllegalArgumentException("Illegal client!");
         }
         ImmutableSet.Builder<HeldLocksToken> tokens = ImmutableSet.builder();
-        synchronized (lockClientMultimap) {
-            for (HeldLocksToken token : lockClientMultimap.get(client)) {
-                @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
-                if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
-                    tokens.add(token);
-                }
+        for (HeldLocksToken token : lockClientMultimap.get(client)) {
+            @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
+            if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
+                tokens.add(token);
             }
         }
         ImmutableSet<HeldLocksToken> tokenSet = tokens.build();
@@ -760,7 +809,7 @@ import com.palantir.util.Pair;
         }
         if (isFrozen(heldLocks.locks.getKeys())) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             log.warn("Cannot convert to grant because token is frozen: " + token);
             throw new IllegalArgumentException("token is frozen: " + token);
         }
@@ -769,7 +818,7 @@ import com.palantir.util.Pair;
                     INTERNAL_LOCK_GRANT_CLIENT);
         } catch (IllegalMonitorStateException e) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             log.warn("Failure converting " + token + " to grant", e);
             throw e;
         }
@@ -880,20 +929,14 @@ import com.palantir.util.Pair;
 
     @Override
     @Nullable public Long getMinLockedInVersionId(LockClient client) {
-        Long versionId = null;
-        synchronized (versionIdMap) {
-            Collection<Long> versionsForClient = versionIdMap.get(client);
-            if (versionsForClient != null && !versionsForClient.isEmpty()) {
-                versionId = versionsForClient.iterator().next();
-            }
-        }
+        @Nullable Long versionId = versionIdMap.getMin(client);
         if (log.isTraceEnabled()) {
             log.trace(".getMinLockedInVersionId() returns " + versionId);
         }
         return versionId;
     }
 
-    private <T extends ExpiringToken> void reapLocks(BlockingQueue<T> queue,
+    private <T extends ExpiringToken> void reapLocks(ExpiringTokenWheel<T> wheel,
             ConcurrentMap<T, HeldLocks<T>> heldLocksMap) {
         while (true) {
             // shutdownNow() sends interrupt signal to the running threads to terminate them.
@@ -904,37 +947,31 @@ import com.palantir.util.Pair;
                 break;
             }
             try {
-                T token = null;
                 try {
-                    token = queue.take();
-                    long sleepTimeMs = token.getExpirationDateMs() - currentTimeMillis()
-                            + maxAllowedClockDrift.toMillis();
-                    if (sleepTimeMs > 0) {
-                        Thread.sleep(sleepTimeMs);
-                    }
+                    Thread.sleep(wheel.getTickMillis());
                 } catch (InterruptedException e) {
                     if (isShutDown) {
                         break;
                     } else {
                         log.warn("The lock server reaper thread should not be " +
                                 "interrupted if the server is not shutting down.", e);
-                        if (token == null) {
-                            continue;
-                        }
                     }
                 }
-                @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
-                if (heldLocks == null) {
-                    continue;
-                }
-                T realToken = heldLocks.realToken;
-                if (realToken.getExpirationDateMs() > currentTimeMillis()
-                        - maxAllowedClockDrift.toMillis()) {
-                    queue.add(realToken);
-                } else {
-                    log.warn("Lock token " + realToken
-                            + " was not properly refreshed and is now being reaped.");
-                    unlockInternal(realToken, heldLocksMap);
+                long reapBeforeMs = currentTimeMillis() - maxAllowedClockDrift.toMillis();
+                for (T token : wheel.advance(reapBeforeMs, currentExpirationDates(heldLocksMap))) {
+                    @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
+                    if (heldLocks == null) {
+                        continue;
+                    }
+                    T realToken = heldLocks.realToken;
+                    if (realToken.getExpirationDateMs() > reapBeforeMs) {
+                        // Refreshed after the wheel checked it.
+                        wheel.add(realToken);
+                    } else {
+                        log.warn("Lock token " + realToken
+                                + " was not properly refreshed and is now being reaped.");
+                        unlockInternal(realToken, heldLocksMap);
+                    }
                 }
             } catch (Throwable t) {
                 log.error("Something went wrong while reaping locks. Attempting to continue anyway.", t);
@@ -942,6 +979,38 @@ import com.palantir.util.Pair;
         }
     }
 
+    private static <T extends ExpiringToken> Function<T, Long> currentExpirationDates(
+            final ConcurrentMap<T, HeldLocks<T>> heldLocksMap) {
+        return new Function<T, Long>() {
+            @Override
+            @Nullable
+            public Long apply(T token) {
+                @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
+                return heldLocks == null ? null : heldLocks.realToken.getExpirationDateMs();
+            }
+        };
+    }
+
+    @Override
+    public long getTokenReaperLagMillis() {
+        return lockTokenReaperWheel.getLagMillis(currentTimeMillis() - maxAllowedClockDrift.toMillis());
+    }
+
+    @Override
+    public long getGrantReaperLagMillis() {
+        return lockGrantReaperWheel.getLagMillis(currentTimeMillis() - maxAllowedClockDrift.toMillis());
+    }
+
+    @Override
+    public int getTokenReaperQueueSize() {
+        return lockTokenReaperWheel.size();
+    }
+
+    @Override
+    public int getGrantReaperQueueSize() {
+        return lockGrantReaperWheel.size();
+    }
+
     @Override
     public LockServerOptions getLockServerOptions() {
         LockServerOptions options = new LockServerOptions() {
@@ -968,14 +1037,9 @@ import com.palantir.util.Pair;
         return options;
     }
 
-    private <T> List<T> queueToOrderedList(Queue<T> queue) {
-        List<T> list = Lists.newLinkedList();
-        while (!queue.isEmpty()) {
-            list.add(queue.poll());
-        }
-        for (T element : list) {
-            queue.add(element);
-        }
+    private <T extends ExpiringToken> List<T> wheelToOrderedList(ExpiringTokenWheel<T> wheel) {
+        List<T> list = wheel.snapshot();
+        Collections.sort(list, ExpiringToken.COMPARATOR);
         return list;
     }
 
@@ -997,8 +1061,8 @@ import com.palantir.util.Pair;
                 Pair.create("outstandingLockRequestMultimap", outstandingLockRequestMultimap.asMap().entrySet()),
                 Pair.create("heldLocksTokenMap", heldLocksTokenMap.entrySet()),
                 Pair.create("heldLocksGrantMap", heldLocksGrantMap.entrySet()),
-                Pair.create("lockTokenReaperQueue", queueToOrderedList(lockTokenReaperQueue)),
-                Pair.create("lockGrantReaperQueue", queueToOrderedList(lockGrantReaperQueue)),
+                Pair.create("lockTokenReaperWheel", wheelToOrderedList(lockTokenReaperWheel)),
+                Pair.create("lockGrantReaperWheel", wheelToOrderedList(lockGrantReaperWheel)),
                 Pair.create("lockClientMultimap", lockClientMultimap.asMap().entrySet()),
                 Pair.create("versionIdMap", versionIdMap.asMap().entrySet()))) {
             Collection<?> elements = nameValuePair.getRhSide();
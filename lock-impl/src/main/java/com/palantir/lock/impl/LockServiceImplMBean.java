@@ -17,4 +17,16 @@ package com.palantir.lock.impl;
 
 public interface LockServiceImplMBean {
     void logCurrentState();
+
+    /** How far behind the current time the held locks token reaper is, in milliseconds. */
+    long getTokenReaperLagMillis();
+
+    /** How far behind the current time the held locks grant reaper is, in milliseconds. */
+    long getGrantReaperLagMillis();
+
+    /** The number of held locks tokens scheduled for reaping. */
+    int getTokenReaperQueueSize();
+
+    /** The number of held locks grants scheduled for reaping. */
+    int getGrantReaperQueueSize();
 }
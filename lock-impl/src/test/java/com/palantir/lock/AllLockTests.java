@@ -19,8 +19,11 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.palantir.lock.client.CoalescingRemoteLockServiceTest;
 import com.palantir.lock.client.LockRefreshingLockServiceTest;
 import com.palantir.lock.impl.ClientAwareLockTest;
+import com.palantir.lock.impl.ExpiringTokenWheelTest;
+import com.palantir.lock.impl.LockClientVersionIdsTest;
 
 /**
  * Runs all lock server tests.
@@ -29,8 +32,11 @@ import com.palantir.lock.impl.ClientAwareLockTest;
  */
 @SuiteClasses(value = {
         ClientAwareLockTest.class,
+        ExpiringTokenWheelTest.class,
+        LockClientVersionIdsTest.class,
         LockServiceImplTest.class,
-        LockRefreshingLockServiceTest.class
+        LockRefreshingLockServiceTest.class,
+        CoalescingRemoteLockServiceTest.class
 }) @RunWith(value = Suite.class) public final class AllLockTests {
     /* Empty; the annotations above take care of everything. */
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.client;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+public class CoalescingRemoteLockServiceTest {
+    private static final String CLIENT = "client";
+
+    private LockServiceImpl server;
+    private CoalescingRemoteLockService lockService;
+
+    @Before
+    public void setUp() {
+        server = LockServiceImpl.create();
+        lockService = CoalescingRemoteLockService.create(server);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void lockBatchReturnsNullForFailedRequests() throws InterruptedException {
+        List<LockRefreshToken> tokens = lockService.lockBatch(CLIENT,
+                ImmutableList.of(request("lock1"), request("lock2")));
+        Assert.assertEquals(2, tokens.size());
+        Assert.assertNotNull(tokens.get(0));
+        Assert.assertNotNull(tokens.get(1));
+
+        List<LockRefreshToken> failed = lockService.lockBatch("other client", ImmutableList.of(request("lock1")));
+        Assert.assertEquals(1, failed.size());
+        Assert.assertNull(failed.get(0));
+
+        Assert.assertEquals(ImmutableSet.copyOf(tokens), lockService.unlockBatch(tokens));
+        Assert.assertEquals(ImmutableSet.of(), lockService.unlockBatch(tokens));
+    }
+
+    @Test
+    public void unlockReportsWhetherTokenWasHeld() throws InterruptedException {
+        LockRefreshToken token = server.lock(CLIENT, request("lock1"));
+        Assert.assertTrue(lockService.unlock(token));
+        Assert.assertFalse(lockService.unlock(token));
+    }
+
+    @Test
+    public void refreshOnlyReturnsCallersOwnTokens() throws InterruptedException {
+        LockRefreshToken held = server.lock(CLIENT, request("lock1"));
+        LockRefreshToken unlocked = server.lock(CLIENT, request("lock2"));
+        server.unlock(unlocked);
+
+        Set<LockRefreshToken> refreshed = lockService.refreshLockRefreshTokens(ImmutableList.of(held, unlocked));
+        Assert.assertEquals(ImmutableSet.of(held), refreshed);
+        Assert.assertEquals(ImmutableSet.of(), lockService.refreshLockRefreshTokens(ImmutableList.of(unlocked)));
+    }
+
+    @Test
+    public void concurrentUnlocksAllSucceed() throws Exception {
+        int numThreads = 16;
+        List<LockRefreshToken> tokens = Lists.newArrayList();
+        for (int i = 0; i < numThreads; i++) {
+            tokens.add(server.lock(CLIENT, request("lock" + i)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Boolean>> futures = Lists.newArrayList();
+            for (final LockRefreshToken token : tokens) {
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return lockService.unlock(token);
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(ImmutableSet.of(), server.refreshLockRefreshTokens(tokens));
+    }
+
+    private static LockRequest request(String lockName) {
+        return LockRequest.builder(ImmutableSortedMap.of(StringLockDescriptor.of(lockName), LockMode.WRITE))
+                .doNotBlock()
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.HeldLocksGrant;
+import com.palantir.lock.LockCollections;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
+
+public final class ExpiringTokenWheelTest {
+    private static final long TICK_MILLIS = 100L;
+    private static final int NUM_SLOTS = 8;
+    private static final long START_MILLIS = 1_000_000L;
+
+    private final ExpiringTokenWheel<HeldLocksGrant> wheel =
+            new ExpiringTokenWheel<HeldLocksGrant>(TICK_MILLIS, NUM_SLOTS);
+
+    @Test
+    public void tokensAreReturnedWithinOneTickOfExpiring() {
+        wheel.advance(START_MILLIS);
+        HeldLocksGrant grant = grantExpiringAt(1, START_MILLIS + 250);
+        wheel.add(grant);
+
+        assertEquals(ImmutableList.of(), wheel.advance(START_MILLIS + 200));
+        assertEquals(ImmutableList.of(), wheel.advance(START_MILLIS + 250));
+        assertEquals(ImmutableList.of(grant), wheel.advance(START_MILLIS + 250 + TICK_MILLIS));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void alreadyExpiredTokensAreReturnedOnNextTick() {
+        wheel.advance(START_MILLIS);
+        HeldLocksGrant grant = grantExpiringAt(1, START_MILLIS - 5000);
+        wheel.add(grant);
+
+        assertEquals(ImmutableList.of(grant), wheel.advance(START_MILLIS + TICK_MILLIS));
+    }
+
+    @Test
+    public void tokensBeyondOneTurnOfTheWheelAreKept() {
+        wheel.advance(START_MILLIS);
+        long expiration = START_MILLIS + 3 * NUM_SLOTS * TICK_MILLIS + 50;
+        HeldLocksGrant grant = grantExpiringAt(1, expiration);
+        wheel.add(grant);
+
+        for (long now = START_MILLIS; now < expiration; now += TICK_MILLIS / 2) {
+            assertEquals(ImmutableList.of(), wheel.advance(now));
+        }
+        assertEquals(ImmutableList.of(grant), wheel.advance(expiration + TICK_MILLIS));
+    }
+
+    @Test
+    public void largeJumpsInTimeReturnEveryExpiredToken() {
+        wheel.advance(START_MILLIS);
+        HeldLocksGrant first = grantExpiringAt(1, START_MILLIS + 150);
+        HeldLocksGrant second = grantExpiringAt(2, START_MILLIS + 20 * NUM_SLOTS * TICK_MILLIS);
+        HeldLocksGrant third = grantExpiringAt(3, START_MILLIS + 100 * NUM_SLOTS * TICK_MILLIS);
+        wheel.add(first);
+        wheel.add(second);
+        wheel.add(third);
+
+        assertEquals(ImmutableSet.of(first, second),
+                ImmutableSet.copyOf(wheel.advance(START_MILLIS + 50 * NUM_SLOTS * TICK_MILLIS)));
+        assertEquals(1, wheel.size());
+        assertEquals(ImmutableList.of(third), wheel.snapshot());
+    }
+
+    @Test
+    public void refreshedTokensAreMovedToTheirNewSlotInsteadOfBeingReturned() {
+        wheel.advance(START_MILLIS);
+        HeldLocksGrant grant = grantExpiringAt(1, START_MILLIS + 150);
+        wheel.add(grant);
+        Function<HeldLocksGrant, Long> refreshed = Functions.forMap(
+                ImmutableMap.of(grant, START_MILLIS + 550));
+
+        assertEquals(ImmutableList.of(), wheel.advance(START_MILLIS + 150 + TICK_MILLIS, refreshed));
+        assertEquals(1, wheel.size());
+        assertEquals(ImmutableList.of(), wheel.advance(START_MILLIS + 550, refreshed));
+        assertEquals(ImmutableList.of(grant), wheel.advance(START_MILLIS + 550 + TICK_MILLIS, refreshed));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void tokensWhichAreNoLongerHeldAreDropped() {
+        wheel.advance(START_MILLIS);
+        wheel.add(grantExpiringAt(1, START_MILLIS + 150));
+        Function<Object, Long> released = Functions.constant(null);
+
+        assertEquals(ImmutableList.of(), wheel.advance(START_MILLIS + 150 + TICK_MILLIS, released));
+        assertEquals(0, wheel.size());
+        assertEquals(ImmutableList.of(), wheel.snapshot());
+    }
+
+    @Test
+    public void lagReflectsTimeSinceLastAdvance() {
+        assertEquals(0L, wheel.getLagMillis(START_MILLIS));
+        wheel.advance(START_MILLIS);
+        assertEquals(0L, wheel.getLagMillis(START_MILLIS));
+        assertTrue(wheel.getLagMillis(START_MILLIS + 10 * TICK_MILLIS) >= 9 * TICK_MILLIS);
+    }
+
+    private static HeldLocksGrant grantExpiringAt(long id, long expirationDateMs) {
+        LockDescriptor descriptor = StringLockDescriptor.of("lock" + id);
+        return new HeldLocksGrant(BigInteger.valueOf(id), START_MILLIS, expirationDateMs,
+                LockCollections.of(ImmutableSortedMap.of(descriptor, LockMode.WRITE)),
+                SimpleTimeDuration.of(1, TimeUnit.SECONDS), null);
+    }
+}
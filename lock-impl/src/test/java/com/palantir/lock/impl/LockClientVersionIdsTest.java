@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.palantir.lock.LockClient;
+
+public final class LockClientVersionIdsTest {
+    private static final LockClient CLIENT = LockClient.of("client");
+    private static final LockClient OTHER_CLIENT = LockClient.of("other");
+
+    private final LockClientVersionIds versionIds = new LockClientVersionIds();
+
+    @Test
+    public void minIsNullWhenNothingIsLockedIn() {
+        assertNull(versionIds.getMin(CLIENT));
+    }
+
+    @Test
+    public void minIsTrackedPerClient() {
+        versionIds.add(CLIENT, 5L);
+        versionIds.add(CLIENT, 3L);
+        versionIds.add(OTHER_CLIENT, 1L);
+
+        assertEquals(Long.valueOf(3L), versionIds.getMin(CLIENT));
+        assertEquals(Long.valueOf(1L), versionIds.getMin(OTHER_CLIENT));
+    }
+
+    @Test
+    public void duplicateVersionIdsAreCounted() {
+        versionIds.add(CLIENT, 3L);
+        versionIds.add(CLIENT, 3L);
+        versionIds.add(CLIENT, 5L);
+
+        versionIds.remove(CLIENT, 3L);
+        assertEquals(Long.valueOf(3L), versionIds.getMin(CLIENT));
+
+        versionIds.remove(CLIENT, 3L);
+        assertEquals(Long.valueOf(5L), versionIds.getMin(CLIENT));
+    }
+
+    @Test
+    public void removingLastVersionIdForgetsClient() {
+        versionIds.add(CLIENT, 3L);
+        versionIds.remove(CLIENT, 3L);
+
+        assertNull(versionIds.getMin(CLIENT));
+        assertEquals(0, versionIds.asMap().size());
+    }
+
+    @Test
+    public void removingUnknownVersionIdIsNoOp() {
+        versionIds.remove(CLIENT, 3L);
+        versionIds.add(CLIENT, 5L);
+        versionIds.remove(CLIENT, 3L);
+
+        assertEquals(Long.valueOf(5L), versionIds.getMin(CLIENT));
+    }
+}
@@ -34,15 +34,37 @@ public class AvailableTimestamps {
         this.upperLimit = upperLimit;
     }
 
-    public synchronized TimestampRange handOut(long numberToHandOut) {
+    /**
+     * Hands out the next {@code numberToHandOut} timestamps without taking a lock, unless the persisted upper limit
+     * has to be raised first. Concurrent callers race to advance the last returned timestamp and the losers retry.
+     */
+    public TimestampRange handOut(long numberToHandOut) {
+        checkArgument(numberToHandOut > 0, "Must hand out at least one timestamp, but %s were requested",
+                numberToHandOut);
         checkArgument(
                 numberToHandOut <= MAX_TIMESTAMPS_TO_HAND_OUT,
                 "Can only hand out %s timestamps at a time, but %s were requested",
                 MAX_TIMESTAMPS_TO_HAND_OUT, numberToHandOut);
 
-        long targetTimestamp = lastHandedOut() + numberToHandOut;
-        DebugLogger.logger.trace("Handing out {} timestamps, taking us to {}.", numberToHandOut, targetTimestamp);
-        return handOutTimestamp(targetTimestamp);
+        while (true) {
+            long lastHandedOut = lastHandedOut();
+            long targetTimestamp = lastHandedOut + numberToHandOut;
+            if (targetTimestamp > upperLimit.get()) {
+                allocateEnoughTimestampsToHandOut(targetTimestamp);
+            }
+            if (lastReturnedTimestamp.compareAndSet(lastHandedOut, targetTimestamp)) {
+                DebugLogger.logger.trace("Handed out {} timestamps, taking us to {}.",
+                        numberToHandOut, targetTimestamp);
+                return TimestampRange.createInclusiveRange(lastHandedOut + 1, targetTimestamp);
+            }
+        }
+    }
+
+    /**
+     * @return whether {@link #refreshBuffer()} would allocate more timestamps
+     */
+    public boolean shouldRefreshBuffer() {
+        return upperLimit.get() - lastHandedOut() < MINIMUM_BUFFER || !upperLimit.hasIncreasedWithin(1, MINUTES);
     }
 
     public synchronized void refreshBuffer() {
@@ -69,20 +91,6 @@ public class AvailableTimestamps {
         return lastReturnedTimestamp.get();
     }
 
-    private synchronized TimestampRange handOutTimestamp(long targetTimestamp) {
-        checkArgument(
-                targetTimestamp > lastHandedOut(),
-                "Could not hand out timestamp '%s' as it was earlier than the last handed out timestamp: %s",
-                targetTimestamp, lastHandedOut());
-
-        TimestampRange rangeToHandOut = TimestampRange.createInclusiveRange(lastHandedOut() + 1, targetTimestamp);
-
-        allocateEnoughTimestampsToHandOut(targetTimestamp);
-        lastReturnedTimestamp.increaseToAtLeast(targetTimestamp);
-
-        return rangeToHandOut;
-    }
-
     private void allocateEnoughTimestampsToHandOut(long timestamp) {
         DebugLogger.logger.trace("Increasing limit to at least {}.", timestamp);
         upperLimit.increaseToAtLeast(timestamp);
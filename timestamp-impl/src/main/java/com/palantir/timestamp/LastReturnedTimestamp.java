@@ -15,18 +15,31 @@
  */
 package com.palantir.timestamp;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class LastReturnedTimestamp {
-    private long timestamp;
+    private final AtomicLong timestamp;
 
     public LastReturnedTimestamp(long timestamp) {
-        this.timestamp = timestamp;
+        this.timestamp = new AtomicLong(timestamp);
+    }
+
+    public void increaseToAtLeast(long newTimestamp) {
+        long current = timestamp.get();
+        while (current < newTimestamp && !timestamp.compareAndSet(current, newTimestamp)) {
+            current = timestamp.get();
+        }
     }
 
-    public synchronized void increaseToAtLeast(long newTimestamp) {
-        this.timestamp = Math.max(this.timestamp, newTimestamp);
+    /**
+     * Moves the last returned timestamp from {@code expected} to {@code newTimestamp}, failing if another
+     * caller has moved it in the meantime.
+     */
+    public boolean compareAndSet(long expected, long newTimestamp) {
+        return timestamp.compareAndSet(expected, newTimestamp);
     }
 
     public long get() {
-        return this.timestamp;
+        return timestamp.get();
     }
 }
@@ -16,6 +16,7 @@
 package com.palantir.timestamp;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -28,6 +29,7 @@ public class PersistentTimestampService implements TimestampService {
 
     private final ExecutorService executor;
     private final AvailableTimestamps availableTimestamps;
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
 
     public PersistentTimestampService(AvailableTimestamps availableTimestamps, ExecutorService executor) {
         DebugLogger.logger.info(
@@ -58,10 +60,12 @@ public class PersistentTimestampService implements TimestampService {
     }
 
     @Override
-    public synchronized TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
         int numTimestampsToHandOut = cleanUpTimestampRequest(numTimestampsRequested);
         TimestampRange handedOut = availableTimestamps.handOut(numTimestampsToHandOut);
-        asynchronouslyRefreshBuffer();
+        if (availableTimestamps.shouldRefreshBuffer()) {
+            asynchronouslyRefreshBuffer();
+        }
         return handedOut;
     }
 
@@ -90,12 +94,25 @@ public class PersistentTimestampService implements TimestampService {
     }
 
     private void asynchronouslyRefreshBuffer() {
-        executor.submit(new Runnable() {
-            @Override
-            public void run() {
-                availableTimestamps.refreshBuffer();
-            }
-        });
+        // At most one refresh is queued at a time, however many requests see that the buffer is running low.
+        if (!refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        availableTimestamps.refreshBuffer();
+                    } finally {
+                        refreshPending.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshPending.set(false);
+            throw e;
+        }
     }
 
 }
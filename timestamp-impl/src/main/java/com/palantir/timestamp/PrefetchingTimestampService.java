@@ -0,0 +1,150 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.timestamp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Serves timestamps from a locally held range for callers that do not need them to be fresh with respect to
+ * other clients.
+ * <p>
+ * {@link #getFreshTimestamp()} and {@link #getFreshTimestamps(int)} go straight to the delegate and keep their
+ * usual guarantee. {@link #getBatchedTimestamp()} instead hands out the next value of a range fetched earlier
+ * with {@link TimestampService#getFreshTimestamps(int)}. A batched timestamp is therefore only guaranteed to be
+ * greater than every timestamp handed out by this instance before the call, fresh or batched; it may be smaller
+ * than a timestamp another client has since obtained from the server.
+ * <p>
+ * The size of the fetched range adapts to demand: it doubles whenever a range is used up and halves whenever
+ * a range is abandoned, either because a fresh timestamp overtook it or because it is older than the maximum
+ * range age. The age limit bounds how stale a batched timestamp can be.
+ */
+@ThreadSafe
+public class PrefetchingTimestampService implements TimestampService {
+    public static final int DEFAULT_MIN_BATCH_SIZE = 1;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 10_000;
+    public static final long DEFAULT_MAX_RANGE_AGE_MILLIS = 1000L;
+
+    private final TimestampService delegate;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long maxRangeAgeNanos;
+
+    // The greatest fresh timestamp handed out by this instance. Batched timestamps must be above it.
+    private final AtomicLong freshFloor = new AtomicLong(Long.MIN_VALUE);
+
+    private volatile PrefetchedRange currentRange = null;
+
+    @GuardedBy("this")
+    private int batchSize;
+
+    public PrefetchingTimestampService(TimestampService delegate) {
+        this(delegate, DEFAULT_MIN_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_RANGE_AGE_MILLIS);
+    }
+
+    public PrefetchingTimestampService(TimestampService delegate,
+                                       int minBatchSize,
+                                       int maxBatchSize,
+                                       long maxRangeAgeMillis) {
+        Preconditions.checkArgument(0 < minBatchSize && minBatchSize <= maxBatchSize,
+                "Invalid batch sizes: min %s, max %s", minBatchSize, maxBatchSize);
+        Preconditions.checkArgument(maxRangeAgeMillis >= 0, "maxRangeAgeMillis must not be negative");
+        this.delegate = delegate;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxRangeAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxRangeAgeMillis);
+        this.batchSize = minBatchSize;
+    }
+
+    @Override
+    public long getFreshTimestamp() {
+        long timestamp = delegate.getFreshTimestamp();
+        raiseFreshFloor(timestamp);
+        return timestamp;
+    }
+
+    @Override
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+        TimestampRange range = delegate.getFreshTimestamps(numTimestampsRequested);
+        raiseFreshFloor(range.getUpperBound());
+        return range;
+    }
+
+    /**
+     * Returns a timestamp greater than any timestamp previously returned by this instance, usually without a
+     * remote call. Use {@link #getFreshTimestamp()} wherever the timestamp must also be greater than timestamps
+     * other clients have already been given, such as for commit timestamps.
+     */
+    public long getBatchedTimestamp() {
+        PrefetchedRange range = currentRange;
+        boolean justFetched = false;
+        while (true) {
+            if (range != null && (justFetched || !isTooOld(range))) {
+                long timestamp = range.next.getAndIncrement();
+                if (timestamp <= range.upperInclusive && timestamp > freshFloor.get()) {
+                    return timestamp;
+                }
+            }
+            range = refill(range);
+            justFetched = true;
+        }
+    }
+
+    private boolean isTooOld(PrefetchedRange range) {
+        return System.nanoTime() - range.fetchedAtNanos > maxRangeAgeNanos;
+    }
+
+    private synchronized PrefetchedRange refill(PrefetchedRange abandoned) {
+        if (currentRange != abandoned) {
+            // someone else already replaced it
+            return currentRange;
+        }
+        if (abandoned != null) {
+            if (abandoned.next.get() > abandoned.upperInclusive) {
+                batchSize = Math.min(maxBatchSize, batchSize * 2);
+            } else {
+                batchSize = Math.max(minBatchSize, batchSize / 2);
+            }
+        }
+        TimestampRange fetched = delegate.getFreshTimestamps(batchSize);
+        currentRange = new PrefetchedRange(fetched.getLowerBound(), fetched.getUpperBound(), System.nanoTime());
+        return currentRange;
+    }
+
+    private void raiseFreshFloor(long timestamp) {
+        long floor = freshFloor.get();
+        while (floor < timestamp && !freshFloor.compareAndSet(floor, timestamp)) {
+            floor = freshFloor.get();
+        }
+    }
+
+    private static final class PrefetchedRange {
+        final AtomicLong next;
+        final long upperInclusive;
+        final long fetchedAtNanos;
+
+        PrefetchedRange(long lowerInclusive, long upperInclusive, long fetchedAtNanos) {
+            this.next = new AtomicLong(lowerInclusive);
+            this.upperInclusive = upperInclusive;
+            this.fetchedAtNanos = fetchedAtNanos;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.palantir.timestamp;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -28,10 +29,16 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.google.common.collect.Sets;
+
 public class AvailableTimestampsTest {
 
     public static final long UPPER_LIMIT = 1000 * 1000;
@@ -102,6 +109,40 @@ public class AvailableTimestampsTest {
         verify(persistentUpperLimit).increaseToAtLeast(UPPER_LIMIT + 10);
     }
 
+    @Test public void
+    shouldHandOutDisjointRangesToConcurrentCallers() throws InterruptedException {
+        final Set<Long> handedOut = Sets.newConcurrentHashSet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    TimestampRange range = availableTimestamps.handOut(5);
+                    for (long timestamp = range.getLowerBound(); timestamp <= range.getUpperBound(); timestamp++) {
+                        handedOut.add(timestamp);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, SECONDS);
+
+        assertThat(handedOut.size(), is(5000));
+        assertThat(lastReturnedTimestamp.get(), is(LAST_RETURNED + 5000));
+    }
+
+    @Test public void
+    shouldOnlyAskForARefreshOnceHalfTheBufferIsUsedUp() {
+        when(persistentUpperLimit.hasIncreasedWithin(1, MINUTES)).thenReturn(true);
+        when(persistentUpperLimit.get()).thenReturn(LAST_RETURNED + AvailableTimestamps.ALLOCATION_BUFFER_SIZE);
+
+        assertThat(availableTimestamps.shouldRefreshBuffer(), is(false));
+
+        lastReturnedTimestamp.increaseToAtLeast(LAST_RETURNED + AvailableTimestamps.ALLOCATION_BUFFER_SIZE / 2 + 1);
+
+        assertThat(availableTimestamps.shouldRefreshBuffer(), is(true));
+    }
+
     @Test public void
     shouldNotHandOutMoreThanTenThousandTimestampsAtATime() {
         exception.expect(IllegalArgumentException.class);
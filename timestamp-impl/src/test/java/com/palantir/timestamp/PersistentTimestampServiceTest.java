@@ -21,6 +21,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -49,14 +50,25 @@ public class PersistentTimestampServiceTest {
     }
 
     @Test
-    public void shouldRequestABufferRefreshAfterEveryTimestampRequest() throws InterruptedException {
+    public void shouldRequestABufferRefreshWhenTheBufferIsRunningLow() throws InterruptedException {
         when(availableTimestamps.handOut(1)).thenReturn(SINGLE_TIMESTAMP_RANGE);
+        when(availableTimestamps.shouldRefreshBuffer()).thenReturn(true);
 
         timestampService.getFreshTimestamp();
         waitForExecutorToFinish();
         verify(availableTimestamps).refreshBuffer();
     }
 
+    @Test
+    public void shouldNotRequestABufferRefreshWhileTheBufferIsLarge() throws InterruptedException {
+        when(availableTimestamps.handOut(1)).thenReturn(SINGLE_TIMESTAMP_RANGE);
+        when(availableTimestamps.shouldRefreshBuffer()).thenReturn(false);
+
+        timestampService.getFreshTimestamp();
+        waitForExecutorToFinish();
+        verify(availableTimestamps, never()).refreshBuffer();
+    }
+
     @Test
     public void shouldLimitRequestsTo10000Timestamps() throws InterruptedException {
         when(availableTimestamps.handOut(anyLong())).thenReturn(RANGE);
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.timestamp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+
+public class PrefetchingTimestampServiceTest {
+    private final TimestampService delegate = spy(new InMemoryTimestampService());
+
+    @Test
+    public void batchedTimestampsAreIncreasingAndFetchedInGrowingRanges() {
+        PrefetchingTimestampService timestampService = new PrefetchingTimestampService(delegate, 1, 100, 60000);
+
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < 15; i++) {
+            long timestamp = timestampService.getBatchedTimestamp();
+            assertTrue(timestamp > previous);
+            previous = timestamp;
+        }
+
+        // ranges of 1, 2, 4 and 8
+        verify(delegate, times(4)).getFreshTimestamps(anyInt());
+    }
+
+    @Test
+    public void batchedTimestampsAreGreaterThanEarlierFreshTimestamps() {
+        PrefetchingTimestampService timestampService = new PrefetchingTimestampService(delegate, 10, 100, 60000);
+
+        long batched = timestampService.getBatchedTimestamp();
+        long fresh = timestampService.getFreshTimestamp();
+        assertTrue(fresh > batched);
+        assertTrue(timestampService.getBatchedTimestamp() > fresh);
+    }
+
+    @Test
+    public void staleRangesAreNotUsed() throws InterruptedException {
+        PrefetchingTimestampService timestampService = new PrefetchingTimestampService(delegate, 10, 100, 1);
+
+        long first = timestampService.getBatchedTimestamp();
+        Thread.sleep(10);
+        long second = timestampService.getBatchedTimestamp();
+        assertEquals(first + 10, second);
+    }
+
+    @Test
+    public void freshTimestampsGoToTheDelegate() {
+        PrefetchingTimestampService timestampService = new PrefetchingTimestampService(delegate);
+
+        timestampService.getFreshTimestamp();
+        timestampService.getFreshTimestamp();
+        verify(delegate, times(2)).getFreshTimestamp();
+    }
+}